@@ -1,95 +1,230 @@
 package CSV;
 
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Class representing access to CSV data.
+ * Class representing access to CSV data: a registry of loaded datasets by name. Each load
+ * publishes an immutable Dataset with one atomic put, so readers never block and never see a table
+ * from one load with the header of another, and any number of datasets can stay loaded at once.
+ * Requests that name no dataset use DEFAULT_DATASET.
  */
 public class AccessCSV {
-  private List<List<String>> parsedText;
-  private List<String> header;
-  private Boolean loaded;
+  /** The name of the dataset used when a request doesn't name one. */
+  public static final String DEFAULT_DATASET = "default";
 
-  private Boolean hasHeaders;
+  // shared by every instance, so a version number is never given to two different tables
+  private static final AtomicLong VERSIONS = new AtomicLong();
+
+  private final Map<String, Dataset> datasets = new ConcurrentHashMap<>();
+  private final SearchCache searchCache = new SearchCache(SearchCache.DEFAULT_MAX_BYTES);
+  private final ResponseCache responseCache = new ResponseCache(ResponseCache.DEFAULT_MAX_BYTES);
+  private final IncrementalCSVLoader incrementalLoader = new IncrementalCSVLoader();
 
   /**
-   * Constructor for the AccessCSV class.
-   * Initializes loaded status as false and hasHeaders as false.
+   * Publishes a newly loaded dataset under a name, replacing the one loaded under it before.
+   * Cached search results and responses of the replaced dataset are dropped.
+   *
+   * @param name The name of the dataset.
+   * @param table The parsed CSV data, in columnar form.
+   * @param header The header row, or null if the file has none.
+   * @param hasHeaders Whether the file was loaded with a header row.
+   * @param indexes The indexes built over table, or null if none were built.
+   * @return The published dataset, with a new version number.
    */
-  public AccessCSV() {
-    this.loaded = false;
-    this.hasHeaders = false;
+  public Dataset publish(
+      String name,
+      ColumnarTable table,
+      List<String> header,
+      boolean hasHeaders,
+      TableIndexes indexes) {
+    return this.publish(name, table, header, hasHeaders, indexes, null);
   }
 
   /**
-   * Sets the parsed CSV data.
+   * Publishes a newly loaded dataset as above. If the replaced dataset was loaded incrementally
+   * from a different file, or this one was loaded in full, what the incremental loader kept of the
+   * replaced dataset's file is freed.
    *
-   * @param text The parsed CSV data to set.
+   * @param name The name of the dataset.
+   * @param table The parsed CSV data, in columnar form.
+   * @param header The header row, or null if the file has none.
+   * @param hasHeaders Whether the file was loaded with a header row.
+   * @param indexes The indexes built over table, or null if none were built.
+   * @param incrementalSource The file, from IncrementalCSVLoader.Load.source, if the dataset was
+   *     loaded incrementally, or null if it was loaded in full.
+   * @return The published dataset, with a new version number.
    */
-  public void setParsedText(List<List<String>> text) {
-    this.parsedText = text;
+  public Dataset publish(
+      String name,
+      ColumnarTable table,
+      List<String> header,
+      boolean hasHeaders,
+      TableIndexes indexes,
+      Path incrementalSource) {
+    Dataset dataset =
+        new Dataset(
+            name, table, header, hasHeaders, indexes, VERSIONS.incrementAndGet(), incrementalSource);
+    Dataset replaced = this.datasets.put(name, dataset);
+    if (replaced != null) {
+      this.searchCache.invalidateVersion(replaced.version());
+      this.responseCache.invalidateVersion(replaced.version());
+      if (replaced.incrementalSource() != null
+          && !replaced.incrementalSource().equals(incrementalSource)) {
+        this.incrementalLoader.forget(replaced.incrementalSource());
+      }
+    }
+    return dataset;
   }
 
   /**
-   * Sets the headers of the CSV file.
+   * Removes a dataset, its cached search results and responses, and what the incremental loader
+   * kept of its file.
    *
-   * @param header The headers to set.
+   * @param name The name of the dataset.
+   * @return The removed dataset, or null if none was loaded under the name.
    */
-  public void setHeaders(List<String> header) {
-    this.header = header;
+  public Dataset remove(String name) {
+    Dataset removed = this.datasets.remove(name);
+    if (removed != null) {
+      this.searchCache.invalidateVersion(removed.version());
+      this.responseCache.invalidateVersion(removed.version());
+      if (removed.incrementalSource() != null) {
+        this.incrementalLoader.forget(removed.incrementalSource());
+      }
+    }
+    return removed;
   }
 
   /**
-   * Sets the loaded status of the CSV file.
+   * Gets the loader that incremental loads into these datasets go through, so what it keeps of a
+   * file is freed with the dataset loaded from it.
    *
-   * @param loaded The loaded status to set.
+   * @return The incremental loader.
    */
-  public void setLoaded(Boolean loaded) {
-    this.loaded = loaded;
+  public IncrementalCSVLoader getIncrementalLoader() {
+    return this.incrementalLoader;
   }
 
   /**
-   * Gets the loaded status of the CSV file.
+   * Gets the dataset loaded under a name. Everything a request needs should be read from the one
+   * dataset this returns, since a later call may return a newer load.
    *
-   * @return The loaded status.
+   * @param name The name of the dataset.
+   * @return The dataset, or null if none is loaded under the name.
+   */
+  public Dataset getDataset(String name) {
+    return this.datasets.get(name);
+  }
+
+  /**
+   * Gets the dataset loaded under DEFAULT_DATASET.
+   *
+   * @return The dataset, or null if none is loaded.
+   */
+  public Dataset getDataset() {
+    return this.getDataset(DEFAULT_DATASET);
+  }
+
+  /**
+   * Gets every loaded dataset.
+   *
+   * @return The datasets by name, in name order; a copy, so later loads don't change it.
+   */
+  public Map<String, Dataset> getDatasets() {
+    return new TreeMap<>(this.datasets);
+  }
+
+  /**
+   * Gets the cache of search results over the loaded datasets.
+   *
+   * @return The cache; its entries are keyed by version, so results of other loads never match.
+   */
+  public SearchCache getSearchCache() {
+    return this.searchCache;
+  }
+
+  /**
+   * Gets the cache of rendered responses over the loaded datasets.
+   *
+   * @return The cache; its entries are keyed by version, like the search cache's.
+   */
+  public ResponseCache getResponseCache() {
+    return this.responseCache;
+  }
+
+  /**
+   * Gets the loaded status of the default dataset.
+   *
+   * @return Whether a dataset is loaded under DEFAULT_DATASET.
    */
   public Boolean getLoaded() {
-    return this.loaded;
+    return this.getDataset() != null;
   }
 
   /**
-   * Gets the headers of the CSV file.
+   * Gets the parsed CSV data of the default dataset in columnar form.
    *
-   * @return The list of headers.
+   * @return The table, or null if nothing is loaded.
    */
-  public List<String> getHeader() {
-    return this.header;
+  public ColumnarTable getTable() {
+    Dataset dataset = this.getDataset();
+    return dataset == null ? null : dataset.table();
   }
 
   /**
-   * Gets the parsed CSV data.
+   * Gets the version of the default dataset, which changes whenever it is reloaded, so anything
+   * derived from one load, like a search cursor, can tell that it is stale.
    *
-   * @return The parsed CSV data.
+   * @return The version number, 0 if nothing is loaded.
    */
-  public List<List<String>> getParsedText() {
-    return this.parsedText;
+  public long getVersion() {
+    Dataset dataset = this.getDataset();
+    return dataset == null ? 0 : dataset.version();
+  }
+
+  /**
+   * Gets the indexes built over the default dataset.
+   *
+   * @return The indexes, or null if none were built or nothing is loaded.
+   */
+  public TableIndexes getIndexes() {
+    Dataset dataset = this.getDataset();
+    return dataset == null ? null : dataset.indexes();
+  }
+
+  /**
+   * Gets the headers of the default dataset.
+   *
+   * @return The list of headers, or null if it has none or nothing is loaded.
+   */
+  public List<String> getHeader() {
+    Dataset dataset = this.getDataset();
+    return dataset == null ? null : dataset.header();
   }
 
   /**
-   * Sets whether the CSV file has headers.
+   * Gets the parsed CSV data of the default dataset as a list of rows. The rows are views over the
+   * table that are only filled in when they are read, for example when they are serialized.
    *
-   * @param hasHeaders The flag indicating whether the CSV file has headers.
+   * @return The parsed CSV data, or null if nothing is loaded.
    */
-  public void setHasHeaders(Boolean hasHeaders) {
-    this.hasHeaders = hasHeaders;
+  public List<List<String>> getParsedText() {
+    Dataset dataset = this.getDataset();
+    return dataset == null ? null : dataset.table().rows();
   }
 
   /**
-   * Gets whether the CSV file has headers.
+   * Gets whether the default dataset has headers.
    *
-   * @return The flag indicating whether the CSV file has headers.
+   * @return The flag indicating whether the CSV file has headers, false if nothing is loaded.
    */
   public Boolean getHasHeaders() {
-    return this.hasHeaders;
+    Dataset dataset = this.getDataset();
+    return dataset != null && dataset.hasHeaders();
   }
 }
@@ -0,0 +1,25 @@
+package CSV;
+
+/**
+ * The functions CSVAggregator can compute over the rows of each group. All but COUNT read a value
+ * column; SUM, MIN, MAX and AVG only use its values that are numbers and skip the rest.
+ */
+public enum AggregateFunction {
+  /** Number of rows in the group. */
+  COUNT,
+
+  /** Number of different values in the group, numbers or not. */
+  DISTINCT,
+
+  /** Sum of the numbers in the group, 0 if there are none. */
+  SUM,
+
+  /** Smallest number in the group, or null if there are none. */
+  MIN,
+
+  /** Largest number in the group, or null if there are none. */
+  MAX,
+
+  /** Mean of the numbers in the group, or null if there are none. */
+  AVG
+}
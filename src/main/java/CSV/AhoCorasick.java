@@ -0,0 +1,173 @@
+package CSV;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton that finds which of many patterns occur in a text in one pass over it,
+ * however many patterns there are. Used to search for a list of values at once instead of one scan
+ * per value.
+ *
+ * <p>The trie of the patterns is compiled into a table with a transition for every state and every
+ * character that occurs in some pattern, so each character of the text costs one table lookup and
+ * there is no following of failure links while matching. Characters that occur in no pattern share
+ * one column of the table, which always leads back to the start.
+ */
+public final class AhoCorasick {
+  private static final int ASCII = 128;
+
+  private final String[] patterns;
+  // character class of each ASCII character, and of the other characters that occur in a pattern;
+  // class 0 is every character that occurs in no pattern
+  private final int[] asciiClass = new int[ASCII];
+  private final Map<Character, Integer> otherClass = new HashMap<>();
+  private final int alphabet;
+  // next state for each state and character class, at state * alphabet + class
+  private final int[] transitions;
+  // the patterns that end at each state, its own and those of its suffixes
+  private final int[][] outputs;
+
+  /**
+   * Builds the automaton.
+   *
+   * @param patterns The patterns; duplicates are ignored. None may be empty.
+   * @throws IllegalArgumentException If a pattern is empty.
+   */
+  public AhoCorasick(List<String> patterns) {
+    this.patterns = new LinkedHashSet<>(patterns).toArray(new String[0]);
+    int classes = 1;
+    for (String pattern : this.patterns) {
+      if (pattern.isEmpty()) {
+        throw new IllegalArgumentException("patterns must not be empty");
+      }
+      for (int i = 0; i < pattern.length(); i++) {
+        char c = pattern.charAt(i);
+        if (c < ASCII) {
+          if (this.asciiClass[c] == 0) {
+            this.asciiClass[c] = classes++;
+          }
+        } else if (!this.otherClass.containsKey(c)) {
+          this.otherClass.put(c, classes++);
+        }
+      }
+    }
+    this.alphabet = classes;
+
+    // the trie, with -1 for a missing child
+    List<int[]> children = new ArrayList<>();
+    List<List<Integer>> ends = new ArrayList<>();
+    children.add(this.newState());
+    ends.add(new ArrayList<>());
+    for (int id = 0; id < this.patterns.length; id++) {
+      int state = 0;
+      String pattern = this.patterns[id];
+      for (int i = 0; i < pattern.length(); i++) {
+        int c = this.classOf(pattern.charAt(i));
+        if (children.get(state)[c] < 0) {
+          children.get(state)[c] = children.size();
+          children.add(this.newState());
+          ends.add(new ArrayList<>());
+        }
+        state = children.get(state)[c];
+      }
+      ends.get(state).add(id);
+    }
+
+    // breadth first, so the failure state of every state is finished before the state itself
+    int states = children.size();
+    this.transitions = new int[states * this.alphabet];
+    this.outputs = new int[states][];
+    int[] failure = new int[states];
+    ArrayDeque<Integer> queue = new ArrayDeque<>();
+    this.outputs[0] = toArray(ends.get(0));
+    for (int c = 0; c < this.alphabet; c++) {
+      int child = children.get(0)[c];
+      if (child >= 0) {
+        this.transitions[c] = child;
+        queue.add(child);
+      }
+    }
+    while (!queue.isEmpty()) {
+      int state = queue.poll();
+      int fail = failure[state];
+      int[] own = toArray(ends.get(state));
+      int[] inherited = this.outputs[fail];
+      int[] output = Arrays.copyOf(own, own.length + inherited.length);
+      System.arraycopy(inherited, 0, output, own.length, inherited.length);
+      this.outputs[state] = output;
+      for (int c = 0; c < this.alphabet; c++) {
+        int child = children.get(state)[c];
+        if (child >= 0) {
+          failure[child] = this.transitions[fail * this.alphabet + c];
+          this.transitions[state * this.alphabet + c] = child;
+          queue.add(child);
+        } else {
+          this.transitions[state * this.alphabet + c] = this.transitions[fail * this.alphabet + c];
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks whether any pattern occurs in a text. Stops at the first match.
+   *
+   * @param text The text.
+   * @return true if some pattern is a substring of the text.
+   */
+  public boolean containsAny(CharSequence text) {
+    int state = 0;
+    for (int i = 0; i < text.length(); i++) {
+      state = this.transitions[state * this.alphabet + this.classOf(text.charAt(i))];
+      if (this.outputs[state].length > 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Finds every pattern that occurs in a text.
+   *
+   * @param text The text.
+   * @param found Set to true at the index of each pattern found; other entries are left alone, so
+   *     one array can collect the patterns of several texts.
+   */
+  public void findAll(CharSequence text, boolean[] found) {
+    int state = 0;
+    for (int i = 0; i < text.length(); i++) {
+      state = this.transitions[state * this.alphabet + this.classOf(text.charAt(i))];
+      for (int id : this.outputs[state]) {
+        found[id] = true;
+      }
+    }
+  }
+
+  /**
+   * Gets the distinct patterns, in the order they were first given; findAll reports them by index
+   * in this list.
+   *
+   * @return The patterns.
+   */
+  public List<String> patterns() {
+    return List.of(this.patterns);
+  }
+
+  private int classOf(char c) {
+    return c < ASCII ? this.asciiClass[c] : this.otherClass.getOrDefault(c, 0);
+  }
+
+  private int[] newState() {
+    int[] state = new int[this.alphabet];
+    Arrays.fill(state, -1);
+    return state;
+  }
+
+  private static int[] toArray(List<Integer> values) {
+    return values.stream().mapToInt(Integer::intValue).toArray();
+  }
+}
@@ -0,0 +1,135 @@
+package CSV;
+
+import java.util.Arrays;
+
+/**
+ * BK-tree over the distinct values of one column, for fuzzy search. Each value is a node, and a
+ * child hangs off its parent by their edit distance. Since edit distance is a metric, a search for
+ * the values within k of a word only has to descend into the children whose distance to their
+ * parent is within k of the parent's distance to the word, which skips most of the tree for small
+ * k.
+ *
+ * <p>Nodes are the value ids of the column's ValueIndex, and the tree is kept in int arrays as a
+ * first-child, next-sibling list, so it adds four ints per distinct value. Distances are only
+ * computed as far as a node's edges need them, so words far from a node are dismissed quickly.
+ */
+public class BKTree {
+  private final String[] values;
+  // children of node id are firstChild[id], then nextSibling of each child; -1 ends the list
+  private final int[] firstChild;
+  private final int[] nextSibling;
+  // distance from each node to its parent
+  private final int[] edge;
+  // the largest edge to a child of each node, -1 for a leaf
+  private final int[] maxChildEdge;
+
+  /**
+   * Constructor for the BKTree class.
+   *
+   * @param values The distinct values, indexed by id.
+   */
+  private BKTree(String[] values) {
+    this.values = values;
+    this.firstChild = new int[values.length];
+    this.nextSibling = new int[values.length];
+    this.edge = new int[values.length];
+    this.maxChildEdge = new int[values.length];
+    Arrays.fill(this.firstChild, -1);
+    Arrays.fill(this.maxChildEdge, -1);
+    Arrays.fill(this.nextSibling, -1);
+  }
+
+  /**
+   * Builds the tree over the distinct values of an exact-match index. Node 0 is the root and the
+   * other values are added in id order.
+   *
+   * @param index The exact-match index of the column.
+   * @return The tree.
+   */
+  public static BKTree build(ValueIndex index) {
+    String[] values = new String[index.distinctValues()];
+    for (int id = 0; id < values.length; id++) {
+      values[id] = index.value(id);
+    }
+    BKTree tree = new BKTree(values);
+    for (int id = 1; id < values.length; id++) {
+      tree.insert(id);
+    }
+    return tree;
+  }
+
+  /**
+   * Finds the values within a distance of a word.
+   *
+   * @param word The word.
+   * @param maxDistance The largest edit distance that matches.
+   * @return The ids of the matching values, in no particular order.
+   */
+  public int[] search(String word, int maxDistance) {
+    if (this.values.length == 0) {
+      return new int[0];
+    }
+    int[] found = new int[16];
+    int count = 0;
+    int[] pending = new int[16];
+    int depth = 0;
+    pending[depth++] = 0;
+    while (depth > 0) {
+      int node = pending[--depth];
+      // past the largest child edge plus maxDistance, neither the node nor a child can match, so
+      // the distance only needs to be exact up to there
+      int limit = Math.max(maxDistance, this.maxChildEdge[node] + maxDistance);
+      int distance = Levenshtein.distance(word, this.values[node], limit);
+      if (distance <= maxDistance) {
+        if (count == found.length) {
+          found = Arrays.copyOf(found, count * 2);
+        }
+        found[count++] = node;
+      }
+      for (int child = this.firstChild[node]; child >= 0; child = this.nextSibling[child]) {
+        if (Math.abs(this.edge[child] - distance) <= maxDistance) {
+          if (depth == pending.length) {
+            pending = Arrays.copyOf(pending, depth * 2);
+          }
+          pending[depth++] = child;
+        }
+      }
+    }
+    return Arrays.copyOf(found, count);
+  }
+
+  /**
+   * Estimates the heap used by the tree, in bytes, not counting the values, which are shared with
+   * the exact-match index.
+   *
+   * @return The estimated size in bytes.
+   */
+  public long estimatedBytes() {
+    return 4 * ColumnarTable.arrayBytes(this.values.length, Integer.BYTES)
+        + ColumnarTable.arrayBytes(this.values.length, 4);
+  }
+
+  /**
+   * Adds a value under the node at its distance, going down while that edge is taken.
+   *
+   * @param id The id of the value.
+   */
+  private void insert(int id) {
+    int node = 0;
+    while (true) {
+      int distance = Levenshtein.distance(this.values[id], this.values[node]);
+      int child = this.firstChild[node];
+      while (child >= 0 && this.edge[child] != distance) {
+        child = this.nextSibling[child];
+      }
+      if (child < 0) {
+        this.edge[id] = distance;
+        this.nextSibling[id] = this.firstChild[node];
+        this.firstChild[node] = id;
+        this.maxChildEdge[node] = Math.max(this.maxChildEdge[node], distance);
+        return;
+      }
+      node = child;
+    }
+  }
+}
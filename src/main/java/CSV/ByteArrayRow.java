@@ -0,0 +1,136 @@
+package CSV;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CSVRow whose fields are start and end offsets into the undecoded UTF-8 bytes of the row. When the
+ * row is pure ASCII, which census files nearly always are, fields are compared, hashed and searched
+ * byte by byte and only decoded by fieldString. Rows with other characters decode the field first.
+ */
+class ByteArrayRow implements CSVRow {
+  private byte[] bytes;
+  private int[] starts;
+  private int[] ends;
+  private int size;
+  private boolean ascii;
+
+  /**
+   * Points the row at the tokenizer's buffers for the row just read.
+   *
+   * @param bytes The bytes of the row.
+   * @param starts The offset of the first byte of each field.
+   * @param ends The offset just past the last byte of each field.
+   * @param size The number of fields.
+   * @param ascii Whether every byte of the row is ASCII.
+   */
+  void set(byte[] bytes, int[] starts, int[] ends, int size, boolean ascii) {
+    this.bytes = bytes;
+    this.starts = starts;
+    this.ends = ends;
+    this.size = size;
+    this.ascii = ascii;
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public CharSequence field(int i) {
+    if (!this.ascii) {
+      return this.fieldString(i);
+    }
+    return new AsciiField(this.bytes, this.starts[i], this.ends[i]);
+  }
+
+  @Override
+  public String fieldString(int i) {
+    int start = this.starts[i];
+    int length = this.ends[i] - start;
+    // ISO-8859-1 decodes ASCII bytes as a straight copy
+    return new String(
+        this.bytes,
+        start,
+        length,
+        this.ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public boolean fieldEquals(int i, String value) {
+    if (!this.ascii) {
+      return this.fieldString(i).equals(value);
+    }
+    int start = this.starts[i];
+    int length = this.ends[i] - start;
+    if (length != value.length()) {
+      return false;
+    }
+    for (int k = 0; k < length; k++) {
+      if (this.bytes[start + k] != value.charAt(k)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean fieldContains(int i, String word) {
+    if (!this.ascii) {
+      return this.fieldString(i).contains(word);
+    }
+    if (word.isEmpty()) {
+      return true;
+    }
+    int last = this.ends[i] - word.length();
+    char first = word.charAt(0);
+    for (int from = this.starts[i]; from <= last; from++) {
+      if (this.bytes[from] != first) {
+        continue;
+      }
+      int k = 1;
+      while (k < word.length() && this.bytes[from + k] == word.charAt(k)) {
+        k++;
+      }
+      if (k == word.length()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public int fieldHash(int i) {
+    if (!this.ascii) {
+      return this.fieldString(i).hashCode();
+    }
+    int hash = 0;
+    for (int k = this.starts[i]; k < this.ends[i]; k++) {
+      hash = 31 * hash + this.bytes[k];
+    }
+    return hash;
+  }
+
+  /** An ASCII field read as characters straight from the row's bytes. */
+  private record AsciiField(byte[] bytes, int start, int end) implements CharSequence {
+    @Override
+    public int length() {
+      return this.end - this.start;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) this.bytes[this.start + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+      return new AsciiField(this.bytes, this.start + from, this.start + to);
+    }
+
+    @Override
+    public String toString() {
+      return new String(this.bytes, this.start, this.length(), StandardCharsets.ISO_8859_1);
+    }
+  }
+}
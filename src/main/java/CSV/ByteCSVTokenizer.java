@@ -0,0 +1,331 @@
+package CSV;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Byte-level version of CSVTokenizer for UTF-8 and ASCII input. Commas, quotes and line breaks are
+ * single bytes in both encodings and never occur inside a multi-byte UTF-8 sequence, so rows can be
+ * split without decoding anything. The same states and quoting rules as CSVTokenizer apply and the
+ * fields come out identical. Runs of ordinary bytes are found with a tight scan and copied into the
+ * row with one arraycopy instead of going through the state machine a byte at a time.
+ *
+ * <p>Rows are handed out as views over the raw bytes. A field is only decoded when it is turned
+ * into a String, and rows that are all ASCII are compared, hashed and searched on the bytes
+ * directly.
+ */
+public class ByteCSVTokenizer {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** States of the tokenizer while it walks through a row. */
+  private enum State {
+    FIELD_START,
+    UNQUOTED,
+    QUOTED,
+    QUOTE_IN_QUOTED
+  }
+
+  // exactly one of the two sources is set
+  private final InputStream input;
+  private final ByteBuffer source;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int position;
+  private int limit;
+  // bytes read into the buffer before its current contents
+  private long bufferStart;
+  private boolean skipLineFeed;
+  private boolean endedAtLineBreak;
+
+  // the current row: its bytes and the offsets of each field in them
+  private byte[] rowBytes = new byte[256];
+  private int rowLength;
+  private int[] starts = new int[16];
+  private int[] ends = new int[16];
+  private int fieldCount;
+  private int keptCount;
+  // fields to keep, by position; null keeps all of them
+  private boolean[] keep;
+  private boolean keepingField;
+  // stays non-negative as long as every byte of the row is ASCII
+  private int highBits;
+  private final ByteArrayRow view = new ByteArrayRow();
+
+  /**
+   * Constructor for a tokenizer that reads from a stream.
+   *
+   * @param input - stream of UTF-8 or ASCII bytes
+   */
+  public ByteCSVTokenizer(InputStream input) {
+    this.input = input;
+    this.source = null;
+  }
+
+  /**
+   * Constructor for a tokenizer that reads the remaining bytes of a buffer, such as a mapped range
+   * of a file. The buffer's position is advanced as it is read.
+   *
+   * @param source - buffer of UTF-8 or ASCII bytes
+   */
+  public ByteCSVTokenizer(ByteBuffer source) {
+    this.input = null;
+    this.source = source;
+  }
+
+  /**
+   * Reads the next row, ending at the first line break that is not inside quotes.
+   *
+   * @return the fields of the row, or null once the input is exhausted
+   * @throws IOException - error reading from the stream
+   */
+  public List<String> nextRow() throws IOException {
+    CSVRow row = this.nextRowView();
+    return row == null ? null : row.toList();
+  }
+
+  /**
+   * Reads the next row without decoding its fields. The returned row is reused by the next call.
+   *
+   * @return the row, or null once the input is exhausted
+   * @throws IOException - error reading from the stream
+   */
+  public CSVRow nextRowView() throws IOException {
+    State state = State.FIELD_START;
+    boolean readAnything = false;
+    this.highBits = 0;
+    this.rowLength = 0;
+    this.fieldCount = 0;
+    this.keptCount = 0;
+    this.keepingField = this.keeps(0);
+
+    this.endedAtLineBreak = false;
+
+    while (true) {
+      if (this.position == this.limit && !this.fill()) {
+        if (!readAnything) {
+          return null;
+        }
+        return this.endRow();
+      }
+      byte b = this.buffer[this.position++];
+      if (this.skipLineFeed) {
+        this.skipLineFeed = false;
+        if (b == '\n') {
+          continue;
+        }
+      }
+      readAnything = true;
+
+      if (state == State.QUOTE_IN_QUOTED) {
+        if (b == '"') {
+          // an escaped quote, still inside the quoted field
+          state = State.QUOTED;
+          this.append(b);
+          continue;
+        }
+        // the quoted section is over, so the byte is handled as unquoted
+        state = State.UNQUOTED;
+      }
+      if (state == State.QUOTED) {
+        if (b == '"') {
+          state = State.QUOTE_IN_QUOTED;
+          this.append(b);
+        } else {
+          this.appendRun(true);
+        }
+      } else if (b == ',') {
+        this.endField();
+        state = State.FIELD_START;
+      } else if (b == '\n' || b == '\r') {
+        this.skipLineFeed = b == '\r';
+        this.endedAtLineBreak = true;
+        return this.endRow();
+      } else if (b == '"') {
+        state = State.QUOTED;
+        this.append(b);
+      } else {
+        state = State.UNQUOTED;
+        this.appendRun(false);
+      }
+    }
+  }
+
+  /**
+   * Copies the byte just read and every following byte up to the next one the state machine has to
+   * look at into the current field, in one go. Inside quotes only a quote ends the run; outside of
+   * them a comma, quote or line break does.
+   *
+   * @param quoted - whether the run is inside quotes
+   */
+  private void appendRun(boolean quoted) {
+    int from = this.position - 1;
+    int to = this.position;
+    int bits = this.buffer[from];
+    if (quoted) {
+      while (to < this.limit && this.buffer[to] != '"') {
+        bits |= this.buffer[to++];
+      }
+    } else {
+      while (to < this.limit) {
+        byte b = this.buffer[to];
+        if (b == ',' || b == '"' || b == '\n' || b == '\r') {
+          break;
+        }
+        bits |= b;
+        to++;
+      }
+    }
+    if (!this.keepingField) {
+      this.position = to;
+      return;
+    }
+    int length = to - from;
+    if (this.rowLength + length > this.rowBytes.length) {
+      this.rowBytes =
+          Arrays.copyOf(this.rowBytes, Math.max(this.rowBytes.length * 2, this.rowLength + length));
+    }
+    System.arraycopy(this.buffer, from, this.rowBytes, this.rowLength, length);
+    this.rowLength += length;
+    this.highBits |= bits;
+    this.position = to;
+  }
+
+  /**
+   * Restricts the rows handed out to some of the fields. The bytes of the other fields are skipped
+   * without being copied, but the fields are still counted by fieldsRead.
+   *
+   * @param mask - true at the position of every field to keep; fields past its end are dropped
+   */
+  public void keepOnly(boolean[] mask) {
+    this.keep = mask;
+  }
+
+  /**
+   * Gets the number of fields in the row last read, including fields dropped by keepOnly.
+   *
+   * @return the number of fields
+   */
+  public int fieldsRead() {
+    return this.fieldCount;
+  }
+
+  /**
+   * Gets the number of bytes read from the input so far, up to and including the line break that
+   * ended the last row. After a carriage return the line feed that may follow it is not counted.
+   *
+   * @return the offset of the byte after the last row, relative to where the input started
+   */
+  public long position() {
+    return this.bufferStart + this.position;
+  }
+
+  /**
+   * Checks whether the last row ended at a line break, rather than at the end of the input, where
+   * it may still be incomplete.
+   *
+   * @return true if the row ended at a line break
+   */
+  public boolean endedAtLineBreak() {
+    return this.endedAtLineBreak;
+  }
+
+  /**
+   * Checks whether the last row ended at a carriage return, so that a line feed starting the rest
+   * of the input belongs to it.
+   *
+   * @return true if a leading line feed should be skipped
+   */
+  public boolean endedAtCarriageReturn() {
+    return this.skipLineFeed;
+  }
+
+  /**
+   * Skips a line feed at the start of the input, for resuming after a row that ended at a carriage
+   * return.
+   */
+  public void skipLeadingLineFeed() {
+    this.skipLineFeed = true;
+  }
+
+  /**
+   * Checks whether a field is kept.
+   *
+   * @param field - position of the field in the row
+   * @return true if the field is kept
+   */
+  private boolean keeps(int field) {
+    return this.keep == null || (field < this.keep.length && this.keep[field]);
+  }
+
+  /**
+   * Adds a byte to the current field.
+   *
+   * @param b - the byte
+   */
+  private void append(byte b) {
+    if (!this.keepingField) {
+      return;
+    }
+    if (this.rowLength == this.rowBytes.length) {
+      this.rowBytes = Arrays.copyOf(this.rowBytes, this.rowLength * 2);
+    }
+    this.rowBytes[this.rowLength++] = b;
+    this.highBits |= b;
+  }
+
+  /** Records the end of the current field, if it is kept; the next field starts where it ends. */
+  private void endField() {
+    if (this.keepingField) {
+      if (this.keptCount == this.ends.length) {
+        this.starts = Arrays.copyOf(this.starts, this.keptCount * 2);
+        this.ends = Arrays.copyOf(this.ends, this.keptCount * 2);
+      }
+      this.starts[this.keptCount] = this.keptCount == 0 ? 0 : this.ends[this.keptCount - 1];
+      this.ends[this.keptCount] = this.rowLength;
+      this.keptCount++;
+    }
+    this.fieldCount++;
+    this.keepingField = this.keeps(this.fieldCount);
+  }
+
+  /**
+   * Ends the last field of the row and points the view at the row.
+   *
+   * @return the view over the row
+   */
+  private CSVRow endRow() {
+    this.endField();
+    this.view.set(this.rowBytes, this.starts, this.ends, this.keptCount, this.highBits >= 0);
+    return this.view;
+  }
+
+  /**
+   * Refills the buffer from the stream or the source buffer.
+   *
+   * @return false if there are no more bytes
+   * @throws IOException - error reading from the stream
+   */
+  private boolean fill() throws IOException {
+    int read;
+    if (this.source != null) {
+      read = Math.min(this.buffer.length, this.source.remaining());
+      this.source.get(this.buffer, 0, read);
+      if (read == 0) {
+        return false;
+      }
+    } else {
+      do {
+        read = this.input.read(this.buffer, 0, this.buffer.length);
+      } while (read == 0);
+      if (read < 0) {
+        return false;
+      }
+    }
+    this.bufferStart += this.limit;
+    this.position = 0;
+    this.limit = read;
+    return true;
+  }
+}
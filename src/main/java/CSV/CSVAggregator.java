@@ -0,0 +1,363 @@
+package CSV;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Computes counts, distinct counts, sums, minimums, maximums and means over the rows of a loaded
+ * table, grouped by the values of some columns and optionally filtered by a Query, so a client can
+ * get a few numbers without downloading the rows.
+ *
+ * <p>The aggregation is one pass over the rows. Each group column is read as an int code per row,
+ * from the column's dictionary or, for plain columns, numbered once before the pass, and the codes
+ * of a row make up one long group key. Groups are found by that key in a primitive hash map and
+ * their totals kept in primitive arrays, so no row allocates anything. Large passes are split
+ * into parts on the shared search pool, whose totals are added up at the end.
+ */
+public class CSVAggregator {
+  private final CSVSearcher searcher;
+  private int parallelism = 1;
+
+  /**
+   * Constructor for the CSVAggregator class.
+   *
+   * @param searcher - searcher whose table, header and indexes are aggregated; filters are run by
+   *     it, so they use its indexes and cache
+   */
+  public CSVAggregator(CSVSearcher searcher) {
+    this.searcher = searcher;
+  }
+
+  /**
+   * Lets aggregations over large tables run on several threads of the shared search pool.
+   *
+   * @param parallelism - the most threads one aggregation may use; 1 aggregates on the calling
+   *     thread
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = Math.max(1, parallelism);
+  }
+
+  /**
+   * Aggregates the rows of the table.
+   *
+   * @param groupBy - header names or indexes of the columns to group by; empty for one group of
+   *     every row
+   * @param column - header name or index of the column the functions other than COUNT read, or
+   *     null if only COUNT is asked for
+   * @param functions - what to compute for each group
+   * @param filter - the rows to aggregate, or null for every row
+   * @return one row per group: the value of each group column, then the result of each function,
+   *     as a Long for COUNT and DISTINCT and a Double or null for the others; groups are ordered by
+   *     the first group column, then the next, with the values of each in the order they first
+   *     appear in the table
+   * @throws NotFoundException - a column is not in the CSV
+   * @throws IllegalArgumentException - a function needs a value column and there is none, or the
+   *     columns have too many values between them to number the groups with a long
+   */
+  public List<List<Object>> aggregate(
+      List<String> groupBy, String column, List<AggregateFunction> functions, Query filter)
+      throws NotFoundException {
+    QueryPlanner planner = new QueryPlanner(this.searcher);
+    ColumnarTable table = this.searcher.table;
+
+    // the group key of a row is its code in each group column, the last column changing fastest
+    int[][] groupCodes = new int[groupBy.size()][];
+    String[][] groupValues = new String[groupBy.size()][];
+    long[] radix = new long[groupBy.size()];
+    long keyCount = 1;
+    for (int i = groupBy.size() - 1; i >= 0; i--) {
+      Column groupColumn = table.column(planner.resolve(groupBy.get(i)));
+      groupValues[i] = dictionaryOf(groupColumn);
+      groupCodes[i] = codesOf(groupColumn, groupValues[i]);
+      radix[i] = keyCount;
+      keyCount = multiply(keyCount, groupValues[i].length);
+    }
+
+    boolean countOnly = functions.stream().allMatch(f -> f == AggregateFunction.COUNT);
+    if (!countOnly && column == null) {
+      throw new IllegalArgumentException("a value column is needed");
+    }
+    Column values = countOnly ? null : table.column(planner.resolve(column));
+    Pass pass = new Pass(groupCodes, radix, values);
+    if (functions.contains(AggregateFunction.DISTINCT)) {
+      String[] distinctValues = dictionaryOf(values);
+      pass.valueCodes = codesOf(values, distinctValues);
+      pass.distinctRadix = Math.max(1, distinctValues.length);
+      multiply(keyCount, distinctValues.length);
+    }
+    pass.numbers =
+        functions.stream()
+            .anyMatch(f -> f != AggregateFunction.COUNT && f != AggregateFunction.DISTINCT);
+    if (pass.numbers && values instanceof DictionaryColumn dictionaryColumn) {
+      // dictionary values are parsed once per code rather than once per row
+      String[] dictionary = dictionaryColumn.getDictionary();
+      pass.codeNumbers = new double[dictionary.length];
+      pass.codeIsNumber = new boolean[dictionary.length];
+      for (int code = 0; code < dictionary.length; code++) {
+        pass.codeIsNumber[code] =
+            NumberParser.parseDouble(dictionary[code], pass.codeNumbers, code) == NumberParser.OK;
+      }
+      pass.valueDictionaryCodes = dictionaryColumn.getCodes();
+    }
+
+    int[] selected = filter == null ? null : this.searcher.matchingRows(filter);
+    Groups groups = this.run(pass, selected, selected == null ? table.rowCount() : selected.length);
+    if (groupBy.isEmpty() && groups.size == 0) {
+      // with nothing to group by there is always one group, even of no rows
+      groups.group(0);
+    }
+
+    int[] distinctCounts = new int[groups.size];
+    if (groups.distinct != null) {
+      for (long pair : groups.distinct.keys()) {
+        distinctCounts[groups.ids.get(pair / pass.distinctRadix)]++;
+      }
+    }
+    long[] keys = Arrays.copyOf(groups.keys, groups.size);
+    Arrays.sort(keys);
+    List<List<Object>> result = new ArrayList<>(keys.length);
+    for (long key : keys) {
+      int id = groups.ids.get(key);
+      List<Object> row = new ArrayList<>(groupBy.size() + functions.size());
+      for (int i = 0; i < groupBy.size(); i++) {
+        row.add(groupValues[i][(int) (key / radix[i] % groupValues[i].length)]);
+      }
+      boolean anyNumber = groups.numbers[id] > 0;
+      for (AggregateFunction function : functions) {
+        row.add(
+            switch (function) {
+              case COUNT -> groups.rows[id];
+              case DISTINCT -> (long) distinctCounts[id];
+              case SUM -> groups.sums[id];
+              case MIN -> anyNumber ? groups.mins[id] : null;
+              case MAX -> anyNumber ? groups.maxes[id] : null;
+              case AVG -> anyNumber ? groups.sums[id] / groups.numbers[id] : null;
+            });
+      }
+      result.add(row);
+    }
+    return result;
+  }
+
+  /**
+   * Runs the pass over the selected rows, in parts on the shared search pool if there are enough
+   * of them.
+   *
+   * @param pass - what to read from each row
+   * @param selected - the rows to aggregate, or null for every row
+   * @param count - the number of rows to aggregate
+   * @return the totals of every group
+   */
+  private Groups run(Pass pass, int[] selected, int count) {
+    int tasks = Math.min(this.parallelism, count / CSVSearcher.MIN_ROWS_PER_TASK);
+    if (tasks <= 1) {
+      return pass.run(selected, 0, count);
+    }
+    List<ForkJoinTask<Groups>> parts = new ArrayList<>(tasks);
+    for (int task = 0; task < tasks; task++) {
+      int from = (int) ((long) count * task / tasks);
+      int to = (int) ((long) count * (task + 1) / tasks);
+      parts.add(CSVSearcher.SEARCH_POOL.submit(() -> pass.run(selected, from, to)));
+    }
+    Groups groups = parts.get(0).join();
+    for (int task = 1; task < tasks; task++) {
+      groups.addAll(parts.get(task).join());
+    }
+    return groups;
+  }
+
+  /**
+   * Gets the distinct values of a column, in the order they first appear.
+   *
+   * @param column - the column
+   * @return the values, indexed by the codes codesOf gives them
+   */
+  private static String[] dictionaryOf(Column column) {
+    if (column instanceof DictionaryColumn dictionaryColumn) {
+      return dictionaryColumn.getDictionary();
+    }
+    Map<String, Integer> ids = new HashMap<>();
+    List<String> distinct = new ArrayList<>();
+    for (int row = 0; row < column.size(); row++) {
+      String value = column.get(row);
+      if (ids.putIfAbsent(value, distinct.size()) == null) {
+        distinct.add(value);
+      }
+    }
+    return distinct.toArray(new String[0]);
+  }
+
+  /**
+   * Gets the code of the value of a column in every row.
+   *
+   * @param column - the column
+   * @param dictionary - its distinct values, from dictionaryOf
+   * @return the index into dictionary of each row's value
+   */
+  private static int[] codesOf(Column column, String[] dictionary) {
+    if (column instanceof DictionaryColumn dictionaryColumn) {
+      return dictionaryColumn.getCodes();
+    }
+    Map<String, Integer> ids = new HashMap<>();
+    for (int code = 0; code < dictionary.length; code++) {
+      ids.put(dictionary[code], code);
+    }
+    int[] codes = new int[column.size()];
+    for (int row = 0; row < codes.length; row++) {
+      codes[row] = ids.get(column.get(row));
+    }
+    return codes;
+  }
+
+  private static long multiply(long keyCount, int values) {
+    try {
+      return Math.multiplyExact(keyCount, Math.max(1, values));
+    } catch (ArithmeticException e) {
+      throw new IllegalArgumentException("too many groups");
+    }
+  }
+
+  /** What the pass reads from each row. Shared, read only, by the parts of a parallel pass. */
+  private static final class Pass {
+    final int[][] groupCodes;
+    final long[] radix;
+    final Column values;
+    // codes of the value column for DISTINCT, or null
+    int[] valueCodes;
+    long distinctRadix = 1;
+    // whether SUM, MIN, MAX or AVG need the values as numbers
+    boolean numbers;
+    // numbers of a dictionary value column by code, or null to parse each row
+    double[] codeNumbers;
+    boolean[] codeIsNumber;
+    int[] valueDictionaryCodes;
+
+    Pass(int[][] groupCodes, long[] radix, Column values) {
+      this.groupCodes = groupCodes;
+      this.radix = radix;
+      this.values = values;
+    }
+
+    /**
+     * Adds up a range of the selected rows.
+     *
+     * @param selected - the rows to aggregate, or null for every row
+     * @param from - first position in the selection
+     * @param to - one past the last position
+     * @return the totals of the groups in the range
+     */
+    Groups run(int[] selected, int from, int to) {
+      Groups groups = new Groups(this.valueCodes != null);
+      double[] parsed = new double[1];
+      for (int i = from; i < to; i++) {
+        int row = selected == null ? i : selected[i];
+        long key = 0;
+        for (int column = 0; column < this.groupCodes.length; column++) {
+          key += this.groupCodes[column][row] * this.radix[column];
+        }
+        int id = groups.group(key);
+        groups.rows[id]++;
+        if (this.valueCodes != null) {
+          groups.distinct.putIfAbsent(key * this.distinctRadix + this.valueCodes[row], 0);
+        }
+        if (!this.numbers) {
+          continue;
+        }
+        double number;
+        if (this.codeNumbers != null) {
+          int code = this.valueDictionaryCodes[row];
+          if (!this.codeIsNumber[code]) {
+            continue;
+          }
+          number = this.codeNumbers[code];
+        } else {
+          if (NumberParser.parseDouble(this.values.get(row), parsed, 0) != NumberParser.OK) {
+            continue;
+          }
+          number = parsed[0];
+        }
+        groups.add(id, 1, number, number, number);
+      }
+      return groups;
+    }
+  }
+
+  /** Totals of every group, in primitive arrays indexed by the order groups were found in. */
+  private static final class Groups {
+    final LongIntMap ids = new LongIntMap(16);
+    // pairs of group key and value code seen, for DISTINCT, or null
+    final LongIntMap distinct;
+    int size;
+    long[] keys = new long[16];
+    long[] rows = new long[16];
+    long[] numbers = new long[16];
+    double[] sums = new double[16];
+    double[] mins = new double[16];
+    double[] maxes = new double[16];
+
+    Groups(boolean distinct) {
+      this.distinct = distinct ? new LongIntMap(16) : null;
+    }
+
+    /**
+     * Finds a group, adding it if it is new.
+     *
+     * @param key - the group key
+     * @return the index of the group in the arrays
+     */
+    int group(long key) {
+      int id = this.ids.putIfAbsent(key, this.size);
+      if (id == this.size) {
+        if (id == this.keys.length) {
+          int capacity = id * 2;
+          this.keys = Arrays.copyOf(this.keys, capacity);
+          this.rows = Arrays.copyOf(this.rows, capacity);
+          this.numbers = Arrays.copyOf(this.numbers, capacity);
+          this.sums = Arrays.copyOf(this.sums, capacity);
+          this.mins = Arrays.copyOf(this.mins, capacity);
+          this.maxes = Arrays.copyOf(this.maxes, capacity);
+        }
+        this.keys[id] = key;
+        this.mins[id] = Double.POSITIVE_INFINITY;
+        this.maxes[id] = Double.NEGATIVE_INFINITY;
+        this.size++;
+      }
+      return id;
+    }
+
+    void add(int id, long numbers, double sum, double min, double max) {
+      this.numbers[id] += numbers;
+      this.sums[id] += sum;
+      this.mins[id] = Math.min(this.mins[id], min);
+      this.maxes[id] = Math.max(this.maxes[id], max);
+    }
+
+    /**
+     * Adds the totals of another part of the rows to these.
+     *
+     * @param other - totals of rows not counted here yet
+     */
+    void addAll(Groups other) {
+      for (int otherId = 0; otherId < other.size; otherId++) {
+        int id = this.group(other.keys[otherId]);
+        this.rows[id] += other.rows[otherId];
+        this.add(
+            id,
+            other.numbers[otherId],
+            other.sums[otherId],
+            other.mins[otherId],
+            other.maxes[otherId]);
+      }
+      if (this.distinct != null) {
+        for (long pair : other.distinct.keys()) {
+          this.distinct.putIfAbsent(pair, 0);
+        }
+      }
+    }
+  }
+}
@@ -2,19 +2,39 @@ package CSV;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Pattern;
 
 public class CSVParser<T> {
+  private static final Pattern regexSplitCSVRow =
+      Pattern.compile(",(?=([^\\\"]*\\\"[^\\\"]*\\\")*(?![^\\\"]*\\\"))");
+
   private Reader reader;
   private CreatorFromRow<T> rowToObject;
   private Boolean hasHeader;
+  private ParserEngine engine;
   private List<String> headerList;
   private List<T> objectList;
 
+  // reading state, kept across calls so the header and the rows can be read separately
+  private BufferedReader buffReader;
+  private CSVTokenizer tokenizer;
+  private ByteCSVTokenizer byteTokenizer;
+  private int rowNumber = 0;
+  private int rowLength = -1;
+  // number of fields in the row last read, before projection
+  private int rowWidth;
+  private ColumnProjection projection;
+  // first row, read ahead to learn the row width when there is no header to project by
+  private List<String> pendingRow;
+
   /**
    * Class that takes in a reader with some text and converts the text into a List of objects for
    * each Row The object is specified by the user calling parse Also if the text file has headers -
@@ -26,15 +46,84 @@ public class CSVParser<T> {
    * @param hasHeader - boolean indicated whether text has headers
    */
   public CSVParser(Reader reader, CreatorFromRow<T> rowToObject, Boolean hasHeader) {
+    this(reader, rowToObject, hasHeader, ParserEngine.TOKENIZER);
+  }
+
+  /**
+   * Same as the three argument constructor, but lets the caller pick how rows are split. The
+   * default is the single-pass tokenizer; ParserEngine.REGEX selects the legacy regex split.
+   *
+   * @param reader - to read text
+   * @param rowToObject - class under interface CreaterFromRow to create rows into objects of
+   *     choosing
+   * @param hasHeader - boolean indicated whether text has headers
+   * @param engine - engine used to split the text into rows of fields
+   */
+  public CSVParser(
+      Reader reader, CreatorFromRow<T> rowToObject, Boolean hasHeader, ParserEngine engine) {
     this.reader = reader;
     this.rowToObject = rowToObject;
     this.hasHeader = hasHeader;
+    this.engine = engine;
+  }
+
+  /**
+   * Parses raw bytes in the given charset. UTF-8 and ASCII text is split at the byte level and only
+   * decoded for the fields that are turned into Strings; any other charset is decoded through a
+   * Reader as usual.
+   *
+   * @param input - stream of bytes to read text from
+   * @param charset - charset the text is encoded in
+   * @param rowToObject - class under interface CreaterFromRow to create rows into objects of
+   *     choosing
+   * @param hasHeader - boolean indicated whether text has headers
+   */
+  public CSVParser(
+      InputStream input, Charset charset, CreatorFromRow<T> rowToObject, Boolean hasHeader) {
+    this(input, charset, rowToObject, hasHeader, ParserEngine.TOKENIZER);
+  }
+
+  /**
+   * Same as the four argument InputStream constructor, but lets the caller pick how rows are split.
+   * Only the tokenizer has a byte-level version, so the regex engine always reads through a Reader.
+   *
+   * @param input - stream of bytes to read text from
+   * @param charset - charset the text is encoded in
+   * @param rowToObject - class under interface CreaterFromRow to create rows into objects of
+   *     choosing
+   * @param hasHeader - boolean indicated whether text has headers
+   * @param engine - engine used to split the text into rows of fields
+   */
+  public CSVParser(
+      InputStream input,
+      Charset charset,
+      CreatorFromRow<T> rowToObject,
+      Boolean hasHeader,
+      ParserEngine engine) {
+    this.rowToObject = rowToObject;
+    this.hasHeader = hasHeader;
+    this.engine = engine;
+    if (engine == ParserEngine.TOKENIZER && isByteCompatible(charset)) {
+      this.byteTokenizer = new ByteCSVTokenizer(input);
+    } else {
+      this.reader = new InputStreamReader(input, charset);
+    }
+  }
+
+  /**
+   * Checks whether text in a charset can be tokenized without decoding it first.
+   *
+   * @param charset - the charset
+   * @return true for UTF-8 and US-ASCII
+   */
+  public static boolean isByteCompatible(Charset charset) {
+    return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII);
   }
 
   /**
-   * Parses the document by commas using given regex, returns the object list Does not return the
-   * headerList which is empty unless hasHeader is true - need to call getHeaderList when you want
-   * to have it in search
+   * Parses the document into rows of fields using the selected engine, returns the object list Does
+   * not return the headerList which is empty unless hasHeader is true - need to call getHeaderList
+   * when you want to have it in search
    *
    * @return List <T> objectList
    * @throws FactoryFailureException - error creating object from row
@@ -42,40 +131,176 @@ public class CSVParser<T> {
    * @throws InconsistentRowException - error because rows are not same length
    */
   public List<T> parse() throws FactoryFailureException, IOException, InconsistentRowException {
-    String line;
     this.objectList = new ArrayList<>();
-    BufferedReader buffReader = new BufferedReader(this.reader);
-    int rowNumber = 0;
+    this.parse(
+        obj -> {
+          this.objectList.add(obj);
+          return true;
+        });
+    return this.objectList;
+  }
 
-    int rowLength = -1;
+  /**
+   * Streaming version of parse. Each row is turned into an object and handed to the consumer as
+   * soon as it is read, so only one row is held in memory at a time. Header and row length checks
+   * are the same as parse(); the header is available from getHeaderList once the first row has been
+   * read, or earlier by calling readHeader.
+   *
+   * @param consumer - receives the object made from each row, and can stop parsing early
+   * @throws FactoryFailureException - error creating object from row
+   * @throws IOException - error reading file
+   * @throws InconsistentRowException - error because rows are not same length
+   */
+  public void parse(RowConsumer<T> consumer)
+      throws FactoryFailureException, IOException, InconsistentRowException {
+    this.readHeader();
+    CSVRow row;
+    while ((row = this.nextRowView()) != null) {
+      this.checkRowLength(row);
+      this.rowNumber++;
+      T obj = this.rowToObject.create(row);
+      if (!consumer.accept(obj)) {
+        return;
+      }
+    }
+  }
 
-    while ((line = buffReader.readLine()) != null) {
-      final Pattern regexSplitCSVRow =
-          Pattern.compile(",(?=([^\\\"]*\\\"[^\\\"]*\\\")*(?![^\\\"]*\\\"))");
-      List<String> words = Arrays.asList(regexSplitCSVRow.split(line));
+  /**
+   * Streams the data rows as CSVRow views, without making Strings for their fields or running
+   * rowToObject. Each view is only valid inside the call to the consumer. The header row is read and
+   * checked as in parse(), and rows are checked for length the same way.
+   *
+   * @param consumer - receives each data row, and can stop parsing early
+   * @throws IOException - error reading file
+   * @throws InconsistentRowException - error because rows are not same length
+   */
+  public void parseRows(RowConsumer<CSVRow> consumer)
+      throws IOException, InconsistentRowException {
+    this.readHeader();
+    CSVRow row;
+    while ((row = this.nextRowView()) != null) {
+      this.checkRowLength(row);
+      this.rowNumber++;
+      if (!consumer.accept(row)) {
+        return;
+      }
+    }
+  }
 
-      if (rowLength == -1) {
-        rowLength = words.size();
+  /**
+   * Reads the header row, if the text has one and it has not been read yet, without reading any
+   * data rows. Lets streaming callers resolve column names before the rows start arriving.
+   *
+   * @return headerList, which is null if hasHeader is false or the text is empty
+   * @throws IOException - error reading file
+   * @throws InconsistentRowException - error because rows are not same length
+   */
+  public List<String> readHeader() throws IOException, InconsistentRowException {
+    if (this.hasHeader && this.rowNumber == 0) {
+      CSVRow row = this.nextRowView();
+      if (row != null) {
+        this.checkRowLength(row);
+        this.headerList = row.toList();
+        this.rowNumber++;
       }
+    }
+    return this.headerList;
+  }
 
-      if (words.size() != rowLength) {
-        throw new InconsistentRowException("Inconsistent length of the row " + words);
+  /**
+   * Keeps only some of the columns. Must be called before any data row is read. The header, if
+   * there is one, is read to resolve column names and is projected the same way as the rows; rows
+   * are still checked for length against their full number of fields.
+   *
+   * @param columns - header names or indices of the columns to keep
+   * @return the projection, whose columns are in file order
+   * @throws IOException - error reading file
+   * @throws InconsistentRowException - error because rows are not same length
+   * @throws NotFoundException - a column is neither a header name nor an index in range
+   */
+  public ColumnProjection project(List<String> columns)
+      throws IOException, InconsistentRowException, NotFoundException {
+    this.readHeader();
+    int width = 0;
+    if (this.headerList != null) {
+      width = this.headerList.size();
+    } else if (this.rowNumber == 0) {
+      CSVRow first = this.nextRowView();
+      if (first != null) {
+        this.pendingRow = first.toList();
+        width = this.pendingRow.size();
       }
+    }
+    this.projection = ColumnProjection.resolve(columns, this.headerList, width);
+    if (this.headerList != null) {
+      this.headerList = this.projection.apply(this.headerList);
+    }
+    // the tokenizers are made on the first read, so make sure they exist before masking them
+    this.openTokenizers();
+    if (this.tokenizer != null) {
+      this.tokenizer.keepOnly(this.projection.mask());
+    }
+    if (this.byteTokenizer != null) {
+      this.byteTokenizer.keepOnly(this.projection.mask());
+    }
+    return this.projection;
+  }
 
-      if (rowNumber == 0) {
-        if (this.hasHeader) {
-          this.headerList = words;
-        } else {
-          T obj = this.rowToObject.create(words);
-          this.objectList.add(obj);
-        }
-      } else {
-        T obj = this.rowToObject.create(words);
-        this.objectList.add(obj);
+  /**
+   * Checks that a row has the same number of fields as the first row of the text.
+   *
+   * @param row - fields of the row, which may have been projected
+   * @throws InconsistentRowException - error because rows are not same length
+   */
+  private void checkRowLength(CSVRow row) throws InconsistentRowException {
+    if (this.rowLength == -1) {
+      this.rowLength = this.rowWidth;
+    }
+
+    if (this.rowWidth != this.rowLength) {
+      throw new InconsistentRowException("Inconsistent length of the row " + row.toList());
+    }
+  }
+
+  /**
+   * Reads the next row of fields with the selected engine.
+   *
+   * @return the next row, or null at the end of the text
+   * @throws IOException - error reading file
+   */
+  private CSVRow nextRowView() throws IOException {
+    if (this.pendingRow != null) {
+      List<String> row = this.pendingRow;
+      this.pendingRow = null;
+      this.rowWidth = row.size();
+      return CSVRow.of(this.projection == null ? row : this.projection.apply(row));
+    }
+    this.openTokenizers();
+    CSVRow row;
+    if (this.byteTokenizer != null) {
+      row = this.byteTokenizer.nextRowView();
+      this.rowWidth = this.byteTokenizer.fieldsRead();
+    } else if (this.engine == ParserEngine.REGEX) {
+      String line = this.buffReader.readLine();
+      if (line == null) {
+        return null;
       }
-      rowNumber++;
+      List<String> fields = Arrays.asList(regexSplitCSVRow.split(line));
+      this.rowWidth = fields.size();
+      row = CSVRow.of(this.projection == null ? fields : this.projection.apply(fields));
+    } else {
+      row = this.tokenizer.nextRowView();
+      this.rowWidth = this.tokenizer.fieldsRead();
+    }
+    return row;
+  }
+
+  /** Wraps the reader for the selected engine on first use; the byte path needs nothing. */
+  private void openTokenizers() {
+    if (this.byteTokenizer == null && this.buffReader == null) {
+      this.buffReader = new BufferedReader(this.reader);
+      this.tokenizer = new CSVTokenizer(this.buffReader);
     }
-    return this.objectList;
   }
 
   /**
@@ -0,0 +1,86 @@
+package CSV;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One row of a CSV as the tokenizer sees it, before any String is made for its fields. Fields can
+ * be compared, hashed and searched in place, and are only copied into Strings by fieldString or
+ * toList, so scans that reject most rows allocate next to nothing.
+ *
+ * <p>A row handed out by a tokenizer is reused for the next row; call toList to keep it.
+ */
+public interface CSVRow {
+
+  /**
+   * Wraps a row that is already a list of strings.
+   *
+   * @param row The fields of the row.
+   * @return The row.
+   */
+  static CSVRow of(List<String> row) {
+    return new ListRow(row);
+  }
+
+  /**
+   * Gets the number of fields in the row.
+   *
+   * @return The number of fields.
+   */
+  int size();
+
+  /**
+   * Gets a field without copying it.
+   *
+   * @param i The field index.
+   * @return The field, valid until the row is reused.
+   */
+  CharSequence field(int i);
+
+  /**
+   * Copies a field into a String.
+   *
+   * @param i The field index.
+   * @return The field.
+   */
+  String fieldString(int i);
+
+  /**
+   * Checks whether a field is equal to a string.
+   *
+   * @param i The field index.
+   * @param value The string to compare with.
+   * @return true if the field has exactly the characters of value.
+   */
+  boolean fieldEquals(int i, String value);
+
+  /**
+   * Checks whether a field contains a string, like String.contains.
+   *
+   * @param i The field index.
+   * @param word The string to look for.
+   * @return true if word occurs in the field.
+   */
+  boolean fieldContains(int i, String word);
+
+  /**
+   * Hashes a field the same way String.hashCode would hash it.
+   *
+   * @param i The field index.
+   * @return The hash code of the field's characters.
+   */
+  int fieldHash(int i);
+
+  /**
+   * Copies every field into Strings.
+   *
+   * @return The row as a list of strings.
+   */
+  default List<String> toList() {
+    List<String> row = new ArrayList<>(this.size());
+    for (int i = 0; i < this.size(); i++) {
+      row.add(this.fieldString(i));
+    }
+    return row;
+  }
+}
@@ -2,16 +2,41 @@ package CSV;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
 
 public class CSVSearcher {
-  List<List<String>> listOfStringRows;
-  CSVParser parser;
+  // below this many rows per range, handing a range to another thread costs more than it saves
+  static final int MIN_ROWS_PER_TASK = 1 << 15;
+  // shared by every searcher, so concurrent searches can't start more threads than there are cores
+  static final ForkJoinPool SEARCH_POOL =
+      new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+  ColumnarTable table;
+  CSVParser<List<String>> parser;
 
   List<String> headerList;
 
   Boolean hasHeader;
 
+  TableIndexes indexes;
+
+  int parallelism = 1;
+
+  // the page of results to return: rows from fromRow on, at most limit of them
+  int fromRow = 0;
+  int limit = Integer.MAX_VALUE;
+  int nextRow = -1;
+
+  SearchCache cache;
+  long cacheVersion;
+
+  List<List<String>> matchedPatterns;
+
   /**
    * Searches for a given searchWord in a CSV document parsed into a List<List<String>> where each
    * row is a List<String>. Searches include partial matches if the document contains the given
@@ -26,7 +51,13 @@ public class CSVSearcher {
   public CSVSearcher(CSVParser<List<String>> parser)
       throws IOException, FactoryFailureException, InconsistentRowException {
     this.parser = parser;
-    this.listOfStringRows = this.parser.parse();
+    ColumnarTable.Builder builder = new ColumnarTable.Builder();
+    this.parser.parse(
+        row -> {
+          builder.add(row);
+          return true;
+        });
+    this.table = builder.build();
     this.hasHeader = this.parser.getHasHeader();
     this.headerList = this.parser.getHeaderList();
   }
@@ -42,9 +73,36 @@ public class CSVSearcher {
    * @throws InconsistentRowException
    */
   public CSVSearcher(List<List<String>> parsedText, List<String> headerList, Boolean hasHeader) throws IOException, FactoryFailureException, InconsistentRowException {
-    this.listOfStringRows = parsedText;
+    this(ColumnarTable.fromRows(parsedText), headerList, hasHeader);
+  }
+
+  /**
+   * Third constructor, searches a table that has already been loaded in columnar form. Matching
+   * rows are returned as views over the table.
+   *
+   * @param table - parsed text in columnar form
+   * @param headerList - header row, if any
+   * @param hasHeader - whether the text has a header row
+   */
+  public CSVSearcher(ColumnarTable table, List<String> headerList, Boolean hasHeader) {
+    this(table, headerList, hasHeader, null);
+  }
+
+  /**
+   * Fourth constructor, searches a loaded table with the indexes built over it when it was loaded.
+   *
+   * @param table - parsed text in columnar form
+   * @param headerList - header row, if any
+   * @param hasHeader - whether the text has a header row
+   * @param indexes - indexes over the table, or null to scan for every search; indexes built over
+   *     a different table are ignored
+   */
+  public CSVSearcher(
+      ColumnarTable table, List<String> headerList, Boolean hasHeader, TableIndexes indexes) {
+    this.table = table;
     this.headerList = headerList;
     this.hasHeader = hasHeader;
+    this.indexes = indexes != null && indexes.covers(table) ? indexes : null;
   }
 
   /**
@@ -57,20 +115,7 @@ public class CSVSearcher {
    * @return rows that have the search word in the given column
    */
   public List<List<String>> search(String searchWord, String header) throws NotFoundException {
-    if (!this.hasHeader) {
-      throw new NotFoundException("CSV missing headers");
-    }
-    List<String> headerList = this.headerList;
-    int wordCounter = 0;
-    for (String word : headerList) {
-      if (word.equals(header)) {
-        return search(searchWord, wordCounter);
-      }
-      wordCounter++;
-    }
-
-    // Error here: bc did not give header that is in headerList
-    throw new NotFoundException("Header inputted was not in CSV header list");
+    return search(searchWord, columnIndex(this.headerList, this.hasHeader, header));
   }
 
   /**
@@ -82,26 +127,18 @@ public class CSVSearcher {
    * @return rows that have the search word in the given column
    */
   public List<List<String>> search(String searchWord, int header) throws NotFoundException {
-    if (!this.hasHeader) {
-      throw new NotFoundException("CSV missing headers");
-    }
-
-    List<String> headerList = this.headerList;
-    if (header >= headerList.size()) {
-      throw new NotFoundException("Header index out of bounds of CSV header list");
-    }
-    if (header < 0) {
-      throw new NotFoundException("Header index out of bounds of CSV header list");
-    }
+    checkColumnIndex(this.headerList, this.hasHeader, header);
 
-    List<List<String>> returnList = new ArrayList<>();
-    for (List<String> stringRow : this.listOfStringRows) {
-      String wordAtColumn = stringRow.get(header);
-      if (wordAtColumn.contains(searchWord)) {
-        returnList.add(stringRow);
+    Query search = new Query.Predicate(String.valueOf(header), Query.Operator.CONTAINS, searchWord);
+    int[] rows = this.cachedRows(search);
+    if (rows == null) {
+      rows = this.indexedRowsContaining(searchWord, header);
+      if (rows == null) {
+        rows = this.scan(this.table.column(header).rowMatcher(word -> word.contains(searchWord)));
       }
+      this.cacheRows(search, rows);
     }
-    return returnList;
+    return this.rowsOf(rows);
   }
 
   /**
@@ -112,17 +149,617 @@ public class CSVSearcher {
    * @return rows that have the search word in them
    */
   public List<List<String>> search(String searchWord) {
-    List<List<String>> returnList = new ArrayList<>();
-    for (List<String> stringRow : this.listOfStringRows) {
-      for (String word : stringRow) {
-        if (word.contains(searchWord)) {
-          System.out.println("searchWord" + searchWord);
-          System.out.println("word" + word);
-          returnList.add(stringRow);
-          break;
+    // the trigram indexes can only answer if every column has one
+    int[][] perColumn = new int[this.table.columnCount()][];
+    boolean indexed = true;
+    for (int column = 0; column < perColumn.length && indexed; column++) {
+      perColumn[column] = this.indexedRowsContaining(searchWord, column);
+      indexed = perColumn[column] != null;
+    }
+    if (indexed) {
+      return this.rowsOf(union(perColumn));
+    }
+    IntPredicate[] matchers = new IntPredicate[this.table.columnCount()];
+    for (int column = 0; column < matchers.length; column++) {
+      matchers[column] = this.table.column(column).rowMatcher(word -> word.contains(searchWord));
+    }
+    return this.rowsOf(
+        this.scan(
+            row -> {
+              for (IntPredicate matcher : matchers) {
+                if (matcher.test(row)) {
+                  return true;
+                }
+              }
+              return false;
+            }));
+  }
+
+  /**
+   * Exact-match version of search(String, String): only rows whose value in the column is equal to
+   * the whole search word match.
+   *
+   * @param searchWord - String value looked for
+   * @param header - String header that indicates which column to look at
+   * @return rows that have exactly the search word in the given column, in row order
+   * @throws NotFoundException - CSV has no headers or the header is not in it
+   */
+  public List<List<String>> searchExact(String searchWord, String header)
+      throws NotFoundException {
+    return searchExact(searchWord, columnIndex(this.headerList, this.hasHeader, header));
+  }
+
+  /**
+   * Exact-match version of search(String, int). Uses the column's exact-match index if one was
+   * built, which takes one hash lookup, and otherwise scans the column.
+   *
+   * @param searchWord - String value looked for
+   * @param header - Int index that indicates which column to look at
+   * @return rows that have exactly the search word in the given column, in row order
+   * @throws NotFoundException - CSV has no headers or the index is out of bounds
+   */
+  public List<List<String>> searchExact(String searchWord, int header) throws NotFoundException {
+    checkColumnIndex(this.headerList, this.hasHeader, header);
+    Query search = new Query.Predicate(String.valueOf(header), Query.Operator.EQUALS, searchWord);
+    int[] rows = this.cachedRows(search);
+    if (rows == null) {
+      rows = this.exactRows(searchWord, header);
+      this.cacheRows(search, rows);
+    }
+    return this.rowsOf(rows);
+  }
+
+  /**
+   * Exact-match version of search(String): rows where any value is equal to the search word.
+   *
+   * @param searchWord - String value looked for
+   * @return rows that have exactly the search word in some column, in row order
+   */
+  public List<List<String>> searchExact(String searchWord) {
+    int[][] perColumn = new int[this.table.columnCount()][];
+    for (int column = 0; column < perColumn.length; column++) {
+      perColumn[column] = this.exactRows(searchWord, column);
+    }
+    return this.rowsOf(union(perColumn));
+  }
+
+  /**
+   * Fuzzy version of search(String, String): rows whose value in the column is within an edit
+   * distance of the search word, for search words that may be mistyped.
+   *
+   * @param searchWord - String value looked for
+   * @param maxDistance - the most characters inserted, deleted or replaced between the search word
+   *     and a matching value
+   * @param header - String header that indicates which column to look at
+   * @return rows that have a value near the search word in the given column, in row order
+   * @throws NotFoundException - CSV has no headers or the header is not in it
+   */
+  public List<List<String>> searchFuzzy(String searchWord, int maxDistance, String header)
+      throws NotFoundException {
+    return searchFuzzy(
+        searchWord, maxDistance, columnIndex(this.headerList, this.hasHeader, header));
+  }
+
+  /**
+   * Fuzzy version of search(String, int). Uses the column's BK-tree if one was built, and
+   * otherwise tests every distinct value of a dictionary column, or every row, with a bounded
+   * edit distance.
+   *
+   * @param searchWord - String value looked for
+   * @param maxDistance - the most characters inserted, deleted or replaced between the search word
+   *     and a matching value
+   * @param header - Int index that indicates which column to look at
+   * @return rows that have a value near the search word in the given column, in row order
+   * @throws NotFoundException - CSV has no headers or the index is out of bounds
+   */
+  public List<List<String>> searchFuzzy(String searchWord, int maxDistance, int header)
+      throws NotFoundException {
+    checkColumnIndex(this.headerList, this.hasHeader, header);
+    // the column is already an index, so it mustn't be looked up as a header name again
+    return this.rowsOf(
+        this.resolvedRows(new Query.Fuzzy(String.valueOf(header), searchWord, maxDistance)));
+  }
+
+  /**
+   * Fuzzy version of search(String): rows where any value is within an edit distance of the
+   * search word.
+   *
+   * @param searchWord - String value looked for
+   * @param maxDistance - the most characters inserted, deleted or replaced between the search word
+   *     and a matching value
+   * @return rows that have a value near the search word in some column, in row order
+   */
+  public List<List<String>> searchFuzzy(String searchWord, int maxDistance) {
+    List<Query> terms = new ArrayList<>();
+    for (int column = 0; column < this.table.columnCount(); column++) {
+      terms.add(new Query.Fuzzy(String.valueOf(column), searchWord, maxDistance));
+    }
+    return this.rowsOf(this.resolvedRows(terms.size() == 1 ? terms.get(0) : new Query.Or(terms)));
+  }
+
+  /**
+   * Calls searchAny with a string header - so only searches in the column that has that String
+   * header.
+   *
+   * @param patterns - words looked for; a row matches if it contains any of them
+   * @param header - String header that indicates which column to look at
+   * @return rows that have one of the words in the given column, in row order
+   * @throws NotFoundException - CSV has no headers or the header is not in it
+   */
+  public List<List<String>> searchAny(List<String> patterns, String header)
+      throws NotFoundException {
+    return searchAny(patterns, columnIndex(this.headerList, this.hasHeader, header));
+  }
+
+  /**
+   * Multi-word version of search(String, int): finds the rows whose value in a column contains any
+   * of the words, with one pass over the column however many words there are. getMatchedPatterns
+   * tells which words each row contains.
+   *
+   * @param patterns - words looked for; none may be empty
+   * @param header - Int index that indicates which column to look at
+   * @return rows that have one of the words in the given column, in row order
+   * @throws NotFoundException - CSV has no headers or the index is out of bounds
+   */
+  public List<List<String>> searchAny(List<String> patterns, int header)
+      throws NotFoundException {
+    checkColumnIndex(this.headerList, this.hasHeader, header);
+    return this.searchAny(patterns, new int[] {header});
+  }
+
+  /**
+   * Multi-word version of search(String): rows where any value contains any of the words.
+   *
+   * @param patterns - words looked for; none may be empty
+   * @return rows that have one of the words in some column, in row order
+   */
+  public List<List<String>> searchAny(List<String> patterns) {
+    return this.searchAny(patterns, IntStream.range(0, this.table.columnCount()).toArray());
+  }
+
+  /**
+   * Gets which words each row returned by the last searchAny contains, in the searched columns.
+   *
+   * @return for each returned row, in the same order, the words found in it, in the order they
+   *     were given
+   */
+  public List<List<String>> getMatchedPatterns() {
+    return this.matchedPatterns;
+  }
+
+  /**
+   * Finds the rows where some of the given columns contains any of the words, using an
+   * Aho-Corasick automaton over all the words.
+   *
+   * @param patterns - words looked for
+   * @param columns - indices of the columns to look in
+   * @return the matching rows of the current page
+   */
+  private List<List<String>> searchAny(List<String> patterns, int[] columns) {
+    AhoCorasick automaton = new AhoCorasick(patterns);
+    List<String> distinct = automaton.patterns();
+
+    // key the cache as an OR of contains predicates, words sorted so their order doesn't matter
+    List<Query> terms = new ArrayList<>();
+    for (int column : columns) {
+      for (String pattern : distinct.stream().sorted().toList()) {
+        terms.add(new Query.Predicate(String.valueOf(column), Query.Operator.CONTAINS, pattern));
+      }
+    }
+    Query search = terms.size() == 1 ? terms.get(0) : new Query.Or(terms);
+
+    int[] rows = this.cachedRows(search);
+    if (rows == null) {
+      IntPredicate[] matchers = new IntPredicate[columns.length];
+      for (int i = 0; i < columns.length; i++) {
+        matchers[i] = this.table.column(columns[i]).rowMatcher(automaton::containsAny);
+      }
+      rows =
+          this.scan(
+              row -> {
+                for (IntPredicate matcher : matchers) {
+                  if (matcher.test(row)) {
+                    return true;
+                  }
+                }
+                return false;
+              });
+      this.cacheRows(search, rows);
+    }
+
+    List<List<String>> returnList = this.rowsOf(rows);
+    // only the rows that are returned are searched again to report their words
+    this.matchedPatterns = new ArrayList<>(returnList.size());
+    for (List<String> row : returnList) {
+      boolean[] found = new boolean[distinct.size()];
+      for (int column : columns) {
+        automaton.findAll(row.get(column), found);
+      }
+      List<String> matched = new ArrayList<>();
+      for (int id = 0; id < found.length; id++) {
+        if (found[id]) {
+          matched.add(distinct.get(id));
         }
       }
+      this.matchedPatterns.add(matched);
     }
     return returnList;
   }
+
+  /**
+   * Finds the rows that match a boolean query over several columns, like {@code State=RI AND
+   * Year=2021 AND NOT Race contains "Total"}. Columns are named by header or index. The query is
+   * planned by QueryPlanner, which uses the indexes where it can and tests the most selective
+   * predicates first.
+   *
+   * @param expression - the query, in the syntax described by Query
+   * @return rows that match the query, in row order
+   * @throws InvalidQueryException - the expression can't be parsed
+   * @throws NotFoundException - a column of the query is not in the CSV
+   */
+  public List<List<String>> query(String expression)
+      throws InvalidQueryException, NotFoundException {
+    return this.query(Query.parse(expression));
+  }
+
+  /**
+   * Finds the rows that match an already parsed boolean query.
+   *
+   * @param query - the query
+   * @return rows that match the query, in row order
+   * @throws NotFoundException - a column of the query is not in the CSV
+   */
+  public List<List<String>> query(Query query) throws NotFoundException {
+    return this.rowsOf(this.matchingRows(query));
+  }
+
+  /**
+   * Finds the numbers of the rows that match a query, from the cache or by running it.
+   *
+   * @param query - the query
+   * @return ascending row numbers
+   * @throws NotFoundException - a column of the query is not in the CSV
+   */
+  int[] matchingRows(Query query) throws NotFoundException {
+    return this.resolvedRows(new QueryPlanner(this).resolveColumns(query));
+  }
+
+  /**
+   * Finds the numbers of the rows that match a query whose columns are already indices, from the
+   * cache or by running it.
+   *
+   * @param query - the query, with every column named by its index
+   * @return ascending row numbers
+   */
+  private int[] resolvedRows(Query query) {
+    int[] rows = this.cachedRows(query);
+    if (rows == null) {
+      rows = new QueryPlanner(this).run(query);
+      this.cacheRows(query, rows);
+    }
+    return rows;
+  }
+
+  /**
+   * Makes single-column searches and queries look up their results in a cache first, and store
+   * them there when they were computed in full.
+   *
+   * @param cache - the cache, or null to always search
+   * @param version - version of the searched data, so results of other loads are never used
+   */
+  public void setCache(SearchCache cache, long version) {
+    this.cache = cache;
+    this.cacheVersion = version;
+  }
+
+  /**
+   * Looks up the result of a search in the cache.
+   *
+   * @param search - the normalized search, with every column named by its index
+   * @return ascending row numbers of every match, or null if there is no cache or no entry
+   */
+  private int[] cachedRows(Query search) {
+    if (this.cache == null) {
+      return null;
+    }
+    return this.cache.get(new SearchCache.Key(this.cacheVersion, search));
+  }
+
+  /**
+   * Stores the result of a search in the cache, unless a page limit may have cut it short.
+   *
+   * @param search - the normalized search, with every column named by its index
+   * @param rows - ascending row numbers found by the search
+   */
+  private void cacheRows(Query search, int[] rows) {
+    boolean complete =
+        this.limit == Integer.MAX_VALUE || (this.fromRow == 0 && rows.length <= this.limit);
+    if (this.cache != null && complete) {
+      this.cache.put(new SearchCache.Key(this.cacheVersion, search), rows);
+    }
+  }
+
+  /**
+   * Finds the rows whose value in a column contains a word using the column's trigram index.
+   *
+   * @param word - word looked for
+   * @param column - index of the column
+   * @return ascending row numbers, or null if the column has no trigram index or the word is too
+   *     short for it
+   */
+  int[] indexedRowsContaining(String word, int column) {
+    TrigramIndex index = this.indexes == null ? null : this.indexes.trigram(column);
+    return index == null ? null : index.rowsContaining(word);
+  }
+
+  /**
+   * Finds the rows whose value in a column is within an edit distance of a word using the column's
+   * BK-tree, which only compares the word with part of the distinct values.
+   *
+   * @param word - word looked for
+   * @param maxDistance - the largest edit distance that matches
+   * @param column - index of the column
+   * @return ascending row numbers, or null if the column has no BK-tree
+   */
+  int[] indexedRowsNear(String word, int maxDistance, int column) {
+    BKTree tree = this.indexes == null ? null : this.indexes.fuzzy(column);
+    if (tree == null) {
+      return null;
+    }
+    ValueIndex values = this.indexes.exact(column);
+    int[] ids = tree.search(word, maxDistance);
+    int[][] lists = new int[ids.length][];
+    for (int i = 0; i < ids.length; i++) {
+      lists[i] = values.rowsOf(ids[i]);
+    }
+    return union(lists);
+  }
+
+  /**
+   * Merges ascending lists of row numbers into one ascending list without duplicates.
+   *
+   * @param lists - row numbers of each column
+   * @return the union
+   */
+  static int[] union(int[][] lists) {
+    int total = 0;
+    for (int[] list : lists) {
+      total += list.length;
+    }
+    int[] rows = new int[total];
+    int filled = 0;
+    for (int[] list : lists) {
+      System.arraycopy(list, 0, rows, filled, list.length);
+      filled += list.length;
+    }
+    Arrays.sort(rows);
+    int distinct = 0;
+    for (int i = 0; i < rows.length; i++) {
+      if (i == 0 || rows[i] != rows[i - 1]) {
+        rows[distinct++] = rows[i];
+      }
+    }
+    return Arrays.copyOf(rows, distinct);
+  }
+
+  /**
+   * Finds the rows whose value in a column equals a word, from the index or by a scan.
+   *
+   * @param word - value looked for
+   * @param column - index of the column
+   * @return ascending row numbers
+   */
+  private int[] exactRows(String word, int column) {
+    ValueIndex index = this.indexes == null ? null : this.indexes.exact(column);
+    if (index != null) {
+      return index.rows(word);
+    }
+    return this.scan(this.table.column(column).rowMatcher(word::equals));
+  }
+
+  /**
+   * Tests every row of the table from the start of the page. Tables of at least two
+   * MIN_ROWS_PER_TASK rows are split into ranges that are scanned on the shared search pool, using
+   * at most parallelism workers; the matches of each range are joined in range order, so the result
+   * is the same as a sequential scan. With a page limit, the scan stops soon after one match more
+   * than the limit has been found.
+   *
+   * @param matcher - test over row numbers; it must be safe to call from several threads
+   * @return ascending numbers of the rows that pass, at least fromRow; possibly cut short after
+   *     limit + 1 of them
+   */
+  int[] scan(IntPredicate matcher) {
+    int rowCount = this.table.rowCount();
+    if (this.limit == Integer.MAX_VALUE) {
+      return this.scanRows(matcher, this.fromRow, rowCount);
+    }
+    // stop once one row more than the page is found, which tells whether there is a next page and
+    // where it starts; parallel scans check after each block of ranges
+    if (this.parallelism <= 1) {
+      return scanFirst(matcher, this.fromRow, rowCount, this.limit + 1);
+    }
+    int block = Math.max(1, this.parallelism) * MIN_ROWS_PER_TASK;
+    int[] rows = new int[0];
+    int found = 0;
+    for (int from = this.fromRow; from < rowCount && found <= this.limit; from += block) {
+      int[] blockRows = this.scanRows(matcher, from, (int) Math.min(rowCount, (long) from + block));
+      int kept = Math.min(blockRows.length, this.limit + 1 - found);
+      rows = Arrays.copyOf(rows, found + kept);
+      System.arraycopy(blockRows, 0, rows, found, kept);
+      found += kept;
+    }
+    return rows;
+  }
+
+  /**
+   * Tests a range of rows. Ranges of at least two MIN_ROWS_PER_TASK are split into parts that are
+   * scanned on the shared search pool, using at most parallelism workers.
+   *
+   * @param matcher - test over row numbers
+   * @param start - first row of the range
+   * @param end - one past the last row of the range
+   * @return ascending numbers of the rows that pass
+   */
+  private int[] scanRows(IntPredicate matcher, int start, int end) {
+    int rowCount = end - start;
+    int tasks = Math.min(this.parallelism, rowCount / MIN_ROWS_PER_TASK);
+    if (tasks <= 1) {
+      return scanRange(matcher, start, end);
+    }
+    List<ForkJoinTask<int[]>> ranges = new ArrayList<>(tasks);
+    for (int task = 0; task < tasks; task++) {
+      int from = start + (int) ((long) rowCount * task / tasks);
+      int to = start + (int) ((long) rowCount * (task + 1) / tasks);
+      ranges.add(SEARCH_POOL.submit(() -> scanRange(matcher, from, to)));
+    }
+    int[][] matches = new int[tasks][];
+    int total = 0;
+    for (int task = 0; task < tasks; task++) {
+      matches[task] = ranges.get(task).join();
+      total += matches[task].length;
+    }
+    int[] rows = new int[total];
+    int filled = 0;
+    for (int[] rangeRows : matches) {
+      System.arraycopy(rangeRows, 0, rows, filled, rangeRows.length);
+      filled += rangeRows.length;
+    }
+    return rows;
+  }
+
+  /**
+   * Tests rows in order until enough of them pass.
+   *
+   * @param matcher - test over row numbers
+   * @param from - first row to test
+   * @param to - one past the last row to test
+   * @param wanted - how many passing rows to look for
+   * @return ascending numbers of the first rows that pass, at most wanted of them
+   */
+  private static int[] scanFirst(IntPredicate matcher, int from, int to, int wanted) {
+    int[] rows = new int[Math.min(wanted, 16)];
+    int found = 0;
+    for (int row = from; row < to && found < wanted; row++) {
+      if (matcher.test(row)) {
+        if (found == rows.length) {
+          rows = Arrays.copyOf(rows, (int) Math.min(wanted, rows.length * 2L));
+        }
+        rows[found++] = row;
+      }
+    }
+    return Arrays.copyOf(rows, found);
+  }
+
+  /**
+   * Tests a range of rows.
+   *
+   * @param matcher - test over row numbers
+   * @param from - first row of the range
+   * @param to - one past the last row of the range
+   * @return ascending numbers of the rows that pass
+   */
+  private static int[] scanRange(IntPredicate matcher, int from, int to) {
+    return IntStream.range(from, to).filter(matcher).toArray();
+  }
+
+  /**
+   * Sets how many workers of the shared search pool one search may use. The default of 1 scans on
+   * the calling thread.
+   *
+   * @param parallelism - maximum number of ranges scanned at once; values below 1 count as 1
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = Math.max(1, parallelism);
+  }
+
+  /**
+   * Restricts the results of later searches to one page: rows numbered fromRow or above, at most
+   * limit of them. After each search getNextRow tells where the next page starts.
+   *
+   * @param fromRow - the first row number that may be returned, 0 for the first page
+   * @param limit - the most rows to return; values below 1 count as 1
+   */
+  public void setPage(int fromRow, int limit) {
+    this.fromRow = Math.max(0, fromRow);
+    this.limit = Math.max(1, limit);
+  }
+
+  /**
+   * Gets where the page after the last search's results starts.
+   *
+   * @return the row number to pass to setPage for the next page, or -1 if there are no more
+   *     matching rows
+   */
+  public int getNextRow() {
+    return this.nextRow;
+  }
+
+  /**
+   * Gets views of the rows of the current page.
+   *
+   * @param rows - ascending row numbers of every match, or of every match up to one past the page
+   * @return the rows on the page, in the same order
+   */
+  List<List<String>> rowsOf(int[] rows) {
+    int first = 0;
+    if (this.fromRow > 0) {
+      first = Arrays.binarySearch(rows, this.fromRow);
+      first = first < 0 ? -first - 1 : first;
+    }
+    int last = (int) Math.min(rows.length, (long) first + this.limit);
+    this.nextRow = last < rows.length ? rows[last] : -1;
+    List<List<String>> returnList = new ArrayList<>(last - first);
+    for (int i = first; i < last; i++) {
+      returnList.add(this.table.row(rows[i]));
+    }
+    return returnList;
+  }
+
+  /**
+   * Finds the index of the column with the given String header. Shared with StreamingCSVSearcher so
+   * both searchers resolve columns the same way.
+   *
+   * @param headerList - header row of the CSV
+   * @param hasHeader - whether the CSV has a header row
+   * @param header - String header that indicates which column to look at
+   * @return index of the column
+   * @throws NotFoundException - CSV has no headers or the header is not in it
+   */
+  static int columnIndex(List<String> headerList, Boolean hasHeader, String header)
+      throws NotFoundException {
+    if (!hasHeader) {
+      throw new NotFoundException("CSV missing headers");
+    }
+    int wordCounter = 0;
+    for (String word : headerList) {
+      if (word.equals(header)) {
+        return wordCounter;
+      }
+      wordCounter++;
+    }
+
+    // Error here: bc did not give header that is in headerList
+    throw new NotFoundException("Header inputted was not in CSV header list");
+  }
+
+  /**
+   * Checks that an integer column index is inside the header list.
+   *
+   * @param headerList - header row of the CSV
+   * @param hasHeader - whether the CSV has a header row
+   * @param header - Int index that indicates which column to look at
+   * @throws NotFoundException - CSV has no headers or the index is out of bounds
+   */
+  static void checkColumnIndex(List<String> headerList, Boolean hasHeader, int header)
+      throws NotFoundException {
+    if (!hasHeader) {
+      throw new NotFoundException("CSV missing headers");
+    }
+    if (header >= headerList.size()) {
+      throw new NotFoundException("Header index out of bounds of CSV header list");
+    }
+    if (header < 0) {
+      throw new NotFoundException("Header index out of bounds of CSV header list");
+    }
+  }
 }
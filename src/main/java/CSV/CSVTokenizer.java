@@ -0,0 +1,221 @@
+package CSV;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Single-pass character state machine that splits CSV text into rows of fields. Every character is
+ * looked at exactly once, so unlike the regex split there is no backtracking and the cost of a row
+ * is linear in its length no matter how many quotes it has.
+ *
+ * <p>Quoted fields may contain commas, escaped quotes ("") and line breaks. Fields are emitted with
+ * their raw text, surrounding quotes included, which is what the regex engine has always returned
+ * and what clients of the server already expect.
+ *
+ * <p>Unlike the regex engine, empty fields at the end of a row are kept: "Libra,," is three fields,
+ * where Pattern.split drops the trailing empty strings and returns one. A row ending in a comma
+ * therefore has as many fields as its header says it should.
+ *
+ * <p>The characters of a row are copied once into a row buffer and each field is recorded as a pair
+ * of offsets into it. nextRowView hands that out as a CSVRow without making any Strings;
+ * nextRow copies the fields into a list.
+ */
+public class CSVTokenizer {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** States of the tokenizer while it walks through a row. */
+  private enum State {
+    FIELD_START,
+    UNQUOTED,
+    QUOTED,
+    QUOTE_IN_QUOTED
+  }
+
+  private final Reader reader;
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private int position;
+  private int limit;
+  private boolean skipLineFeed;
+
+  // the current row: its characters and the offsets of each field in them
+  private char[] rowChars = new char[256];
+  private int rowLength;
+  private int[] starts = new int[16];
+  private int[] ends = new int[16];
+  private int fieldCount;
+  private int keptCount;
+  // fields to keep, by position; null keeps all of them
+  private boolean[] keep;
+  private boolean keepingField;
+  private final CharBufferRow view = new CharBufferRow();
+
+  /**
+   * Constructor for the CSVTokenizer class.
+   *
+   * @param reader - reader to pull the CSV text from
+   */
+  public CSVTokenizer(Reader reader) {
+    this.reader = reader;
+  }
+
+  /**
+   * Reads the next row of the text, ending at the first line break that is not inside quotes.
+   *
+   * @return the fields of the row, or null once the text is exhausted
+   * @throws IOException - error reading from the reader
+   */
+  public List<String> nextRow() throws IOException {
+    CSVRow row = this.nextRowView();
+    return row == null ? null : row.toList();
+  }
+
+  /**
+   * Reads the next row of the text without creating Strings for its fields. The returned row is
+   * reused by the next call.
+   *
+   * @return the row, or null once the text is exhausted
+   * @throws IOException - error reading from the reader
+   */
+  public CSVRow nextRowView() throws IOException {
+    State state = State.FIELD_START;
+    boolean readAnything = false;
+    this.rowLength = 0;
+    this.fieldCount = 0;
+    this.keptCount = 0;
+    this.keepingField = this.keeps(0);
+
+    while (true) {
+      if (this.position == this.limit && !this.fill()) {
+        if (!readAnything) {
+          return null;
+        }
+        return this.endRow();
+      }
+      char c = this.buffer[this.position++];
+      if (this.skipLineFeed) {
+        this.skipLineFeed = false;
+        if (c == '\n') {
+          continue;
+        }
+      }
+      readAnything = true;
+
+      if (state == State.QUOTE_IN_QUOTED) {
+        if (c == '"') {
+          // an escaped quote, still inside the quoted field
+          state = State.QUOTED;
+          this.append(c);
+          continue;
+        }
+        // the quoted section is over, so the character is handled as unquoted
+        state = State.UNQUOTED;
+      }
+      if (state == State.QUOTED) {
+        if (c == '"') {
+          state = State.QUOTE_IN_QUOTED;
+        }
+        this.append(c);
+      } else if (c == ',') {
+        this.endField();
+        state = State.FIELD_START;
+      } else if (c == '\n' || c == '\r') {
+        this.skipLineFeed = c == '\r';
+        return this.endRow();
+      } else {
+        state = c == '"' ? State.QUOTED : State.UNQUOTED;
+        this.append(c);
+      }
+    }
+  }
+
+  /**
+   * Restricts the rows handed out to some of the fields. The characters of the other fields are skipped
+   * without being copied, but the fields are still counted by fieldsRead.
+   *
+   * @param mask - true at the position of every field to keep; fields past its end are dropped
+   */
+  public void keepOnly(boolean[] mask) {
+    this.keep = mask;
+  }
+
+  /**
+   * Gets the number of fields in the row last read, including fields dropped by keepOnly.
+   *
+   * @return the number of fields
+   */
+  public int fieldsRead() {
+    return this.fieldCount;
+  }
+
+  /**
+   * Checks whether a field is kept.
+   *
+   * @param field - position of the field in the row
+   * @return true if the field is kept
+   */
+  private boolean keeps(int field) {
+    return this.keep == null || (field < this.keep.length && this.keep[field]);
+  }
+
+  /**
+   * Adds a character to the current field.
+   *
+   * @param c - the character
+   */
+  private void append(char c) {
+    if (!this.keepingField) {
+      return;
+    }
+    if (this.rowLength == this.rowChars.length) {
+      this.rowChars = Arrays.copyOf(this.rowChars, this.rowLength * 2);
+    }
+    this.rowChars[this.rowLength++] = c;
+  }
+
+  /** Records the end of the current field, if it is kept; the next field starts where it ends. */
+  private void endField() {
+    if (this.keepingField) {
+      if (this.keptCount == this.ends.length) {
+        this.starts = Arrays.copyOf(this.starts, this.keptCount * 2);
+        this.ends = Arrays.copyOf(this.ends, this.keptCount * 2);
+      }
+      this.starts[this.keptCount] = this.keptCount == 0 ? 0 : this.ends[this.keptCount - 1];
+      this.ends[this.keptCount] = this.rowLength;
+      this.keptCount++;
+    }
+    this.fieldCount++;
+    this.keepingField = this.keeps(this.fieldCount);
+  }
+
+  /**
+   * Ends the last field of the row and points the view at the row.
+   *
+   * @return the view over the row
+   */
+  private CSVRow endRow() {
+    this.endField();
+    this.view.set(this.rowChars, this.starts, this.ends, this.keptCount);
+    return this.view;
+  }
+
+  /**
+   * Refills the buffer from the reader.
+   *
+   * @return false if the reader has no more characters
+   * @throws IOException - error reading from the reader
+   */
+  private boolean fill() throws IOException {
+    int read;
+    do {
+      read = this.reader.read(this.buffer, 0, this.buffer.length);
+    } while (read == 0);
+    if (read < 0) {
+      return false;
+    }
+    this.position = 0;
+    this.limit = read;
+    return true;
+  }
+}
@@ -0,0 +1,91 @@
+package CSV;
+
+import java.nio.CharBuffer;
+
+/**
+ * CSVRow whose fields are start and end offsets into one char buffer that holds the whole row. The
+ * tokenizer fills the buffer and hands out the same instance for every row.
+ */
+class CharBufferRow implements CSVRow {
+  private char[] chars;
+  private int[] starts;
+  private int[] ends;
+  private int size;
+
+  /**
+   * Points the row at the tokenizer's buffers for the row just read.
+   *
+   * @param chars The characters of the row.
+   * @param starts The offset of the first character of each field.
+   * @param ends The offset just past the last character of each field.
+   * @param size The number of fields.
+   */
+  void set(char[] chars, int[] starts, int[] ends, int size) {
+    this.chars = chars;
+    this.starts = starts;
+    this.ends = ends;
+    this.size = size;
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public CharSequence field(int i) {
+    return CharBuffer.wrap(this.chars, this.starts[i], this.ends[i] - this.starts[i]);
+  }
+
+  @Override
+  public String fieldString(int i) {
+    return new String(this.chars, this.starts[i], this.ends[i] - this.starts[i]);
+  }
+
+  @Override
+  public boolean fieldEquals(int i, String value) {
+    int start = this.starts[i];
+    int length = this.ends[i] - start;
+    if (length != value.length()) {
+      return false;
+    }
+    for (int k = 0; k < length; k++) {
+      if (this.chars[start + k] != value.charAt(k)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean fieldContains(int i, String word) {
+    int start = this.starts[i];
+    int last = this.ends[i] - word.length();
+    if (word.isEmpty()) {
+      return true;
+    }
+    char first = word.charAt(0);
+    for (int from = start; from <= last; from++) {
+      if (this.chars[from] != first) {
+        continue;
+      }
+      int k = 1;
+      while (k < word.length() && this.chars[from + k] == word.charAt(k)) {
+        k++;
+      }
+      if (k == word.length()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public int fieldHash(int i) {
+    int hash = 0;
+    for (int k = this.starts[i]; k < this.ends[i]; k++) {
+      hash = 31 * hash + this.chars[k];
+    }
+    return hash;
+  }
+}
@@ -0,0 +1,41 @@
+package CSV;
+
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * One column of a ColumnarTable. Values are looked up by row number, and searches ask the column
+ * for a row matcher so each storage layout can test values in the cheapest way it has.
+ */
+public interface Column {
+
+  /**
+   * Gets the number of rows in the column.
+   *
+   * @return The number of rows.
+   */
+  int size();
+
+  /**
+   * Gets the value of the column at a row.
+   *
+   * @param row The row number.
+   * @return The value at that row.
+   */
+  String get(int row);
+
+  /**
+   * Builds a test over row numbers that is true where the value in this column passes valueTest.
+   *
+   * @param valueTest The test to apply to values.
+   * @return A predicate over row numbers.
+   */
+  IntPredicate rowMatcher(Predicate<String> valueTest);
+
+  /**
+   * Estimates the heap used by the column, in bytes.
+   *
+   * @return The estimated size in bytes.
+   */
+  long estimatedBytes();
+}
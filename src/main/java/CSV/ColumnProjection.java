@@ -0,0 +1,93 @@
+package CSV;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * The columns of a CSV to keep when it is parsed. Columns are picked by header name or by index,
+ * and kept in the order they appear in the file, each once. The tokenizers use the mask to skip the
+ * bytes of every other field, so dropped columns are never copied or stored.
+ */
+public final class ColumnProjection {
+  private final boolean[] mask;
+  private final int[] columns;
+
+  /**
+   * Constructor for the ColumnProjection class.
+   *
+   * @param columns The indices of the kept columns, ascending and without duplicates.
+   */
+  private ColumnProjection(int[] columns) {
+    this.columns = columns;
+    this.mask = new boolean[columns.length == 0 ? 0 : columns[columns.length - 1] + 1];
+    for (int column : columns) {
+      this.mask[column] = true;
+    }
+  }
+
+  /**
+   * Works out which columns to keep. Each requested column is looked up as a header name first and
+   * otherwise read as an index.
+   *
+   * @param requested The requested columns, as header names or indices.
+   * @param header The header row, or null if the CSV has none.
+   * @param width The number of fields in a row.
+   * @return The projection.
+   * @throws NotFoundException If a requested column is neither a header name nor an index in range.
+   */
+  public static ColumnProjection resolve(List<String> requested, List<String> header, int width)
+      throws NotFoundException {
+    TreeSet<Integer> columns = new TreeSet<>();
+    for (String column : requested) {
+      String name = column.trim();
+      int index = header == null ? -1 : header.indexOf(name);
+      if (index < 0) {
+        try {
+          index = Integer.parseInt(name);
+        } catch (NumberFormatException e) {
+          throw new NotFoundException("Column " + name + " was not in CSV header list");
+        }
+      }
+      if (index < 0 || index >= width) {
+        throw new NotFoundException("Column index " + index + " out of bounds of CSV row");
+      }
+      columns.add(index);
+    }
+    return new ColumnProjection(columns.stream().mapToInt(Integer::intValue).toArray());
+  }
+
+  /**
+   * Gets the mask of kept fields, indexed by field position; fields past its end are dropped.
+   *
+   * @return true at the position of every kept column.
+   */
+  boolean[] mask() {
+    return this.mask;
+  }
+
+  /**
+   * Gets the number of kept columns.
+   *
+   * @return The number of columns.
+   */
+  public int size() {
+    return this.columns.length;
+  }
+
+  /**
+   * Keeps only the projected fields of a row that is already a list.
+   *
+   * @param row The full row.
+   * @return The kept fields, in file order; fields the row is too short to have are left out.
+   */
+  public List<String> apply(List<String> row) {
+    List<String> projected = new ArrayList<>(this.columns.length);
+    for (int column : this.columns) {
+      if (column < row.size()) {
+        projected.add(row.get(column));
+      }
+    }
+    return projected;
+  }
+}
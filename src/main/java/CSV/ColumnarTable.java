@@ -0,0 +1,397 @@
+package CSV;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Column-oriented store for a parsed CSV. Columns with few distinct values are dictionary encoded
+ * (DictionaryColumn), the rest keep one String per row (PlainColumn). Rows are not stored as lists;
+ * row(i) and rows() return views that read through the columns when they are serialized.
+ */
+public class ColumnarTable {
+  // rough JVM object sizes used for memory estimates
+  private static final int OBJECT_HEADER_BYTES = 16;
+  private static final int REFERENCE_BYTES = 4;
+  private static final int STRING_BYTES = 24;
+
+  private final Column[] columns;
+  private final int rowCount;
+
+  /**
+   * Constructor for the ColumnarTable class.
+   *
+   * @param columns The columns of the table, all with the same number of rows.
+   * @param rowCount The number of rows.
+   */
+  public ColumnarTable(Column[] columns, int rowCount) {
+    this.columns = columns;
+    this.rowCount = rowCount;
+  }
+
+  /**
+   * Builds a table out of rows that are already in memory.
+   *
+   * @param rows The rows, all of the same length.
+   * @return The table.
+   */
+  public static ColumnarTable fromRows(List<List<String>> rows) {
+    Builder builder = new Builder();
+    for (List<String> row : rows) {
+      builder.add(row);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Gets the number of rows in the table.
+   *
+   * @return The number of rows.
+   */
+  public int rowCount() {
+    return this.rowCount;
+  }
+
+  /**
+   * Gets the number of columns in the table.
+   *
+   * @return The number of columns.
+   */
+  public int columnCount() {
+    return this.columns.length;
+  }
+
+  /**
+   * Gets a column of the table.
+   *
+   * @param index The column index.
+   * @return The column.
+   */
+  public Column column(int index) {
+    return this.columns[index];
+  }
+
+  /**
+   * Gets a view of one row. The values are read from the columns when the view is accessed.
+   *
+   * @param row The row number.
+   * @return The row as a list of strings.
+   */
+  public List<String> row(int row) {
+    return new RowView(row);
+  }
+
+  /**
+   * Gets a view of all rows, in order.
+   *
+   * @return The rows as a list of lists of strings.
+   */
+  public List<List<String>> rows() {
+    return new RowsView();
+  }
+
+  /**
+   * Estimates the heap used by the table, in bytes.
+   *
+   * @return The estimated size in bytes.
+   */
+  public long estimatedBytes() {
+    long bytes = arrayBytes(this.columns.length, REFERENCE_BYTES);
+    for (Column column : this.columns) {
+      bytes += column.estimatedBytes();
+    }
+    return bytes;
+  }
+
+  /**
+   * Estimates the size of an array.
+   *
+   * @param length The length of the array.
+   * @param elementBytes The size of one element.
+   * @return The estimated size in bytes.
+   */
+  static long arrayBytes(int length, int elementBytes) {
+    return OBJECT_HEADER_BYTES + (long) length * elementBytes;
+  }
+
+  /**
+   * Estimates the size of an array of strings, counting each distinct String object once.
+   *
+   * @param strings The strings.
+   * @return The estimated size in bytes.
+   */
+  static long stringsBytes(String[] strings) {
+    long bytes = arrayBytes(strings.length, REFERENCE_BYTES);
+    for (String s : strings) {
+      bytes += STRING_BYTES + arrayBytes(s.length(), Byte.BYTES);
+    }
+    return bytes;
+  }
+
+  /** Lazy view of one row. */
+  private class RowView extends AbstractList<String> implements RandomAccess {
+    private final int row;
+
+    RowView(int row) {
+      this.row = row;
+    }
+
+    @Override
+    public String get(int index) {
+      return columns[index].get(this.row);
+    }
+
+    @Override
+    public int size() {
+      return columns.length;
+    }
+  }
+
+  /** Lazy view of all rows. */
+  private class RowsView extends AbstractList<List<String>> implements RandomAccess {
+    @Override
+    public List<String> get(int index) {
+      if (index < 0 || index >= rowCount) {
+        throw new IndexOutOfBoundsException(index);
+      }
+      return new RowView(index);
+    }
+
+    @Override
+    public int size() {
+      return rowCount;
+    }
+  }
+
+  /**
+   * Collects rows one at a time, for example from CSVParser.parseRows, and encodes each column as it
+   * goes. Columns start out dictionary encoded and switch to plain storage once more than half of
+   * their values turn out to be distinct. Dictionary lookups compare the row's characters in place,
+   * so a String is only made for a value the column hasn't seen before.
+   */
+  public static class Builder {
+    private ColumnBuilder[] columns;
+    private int rowCount;
+
+    /** Constructor for a builder that starts out empty. */
+    public Builder() {}
+
+    /**
+     * Constructor for a builder that starts out with the first rows of an existing table, so more
+     * rows can be appended to it without parsing the old ones again. Dictionaries are carried over
+     * as they are; only the per-row arrays are copied.
+     *
+     * @param base The table to start from.
+     * @param rows The number of rows of base to keep.
+     */
+    public Builder(ColumnarTable base, int rows) {
+      if (base.columnCount() > 0) {
+        this.columns = new ColumnBuilder[base.columnCount()];
+        for (int i = 0; i < this.columns.length; i++) {
+          this.columns[i] = new ColumnBuilder(base.column(i), rows);
+        }
+      }
+      this.rowCount = rows;
+    }
+
+    /**
+     * Adds a row to the table.
+     *
+     * @param row The row; every row must have the same length.
+     */
+    public void add(List<String> row) {
+      this.add(CSVRow.of(row));
+    }
+
+    /**
+     * Adds a row to the table. The row is not kept, so a reused tokenizer row can be passed in.
+     *
+     * @param row The row; every row must have the same length.
+     */
+    public void add(CSVRow row) {
+      if (this.columns == null) {
+        this.columns = new ColumnBuilder[row.size()];
+        for (int i = 0; i < this.columns.length; i++) {
+          this.columns[i] = new ColumnBuilder();
+        }
+      }
+      for (int i = 0; i < this.columns.length; i++) {
+        this.columns[i].add(row, i);
+      }
+      this.rowCount++;
+    }
+
+    /**
+     * Appends every row of another table, for example one built from a later part of the same
+     * file. Values are looked up in this builder's dictionaries, so the other table's copies of
+     * values seen here before are not kept.
+     *
+     * @param table The table; its rows must have the same length as the rows added so far.
+     */
+    public void addAll(ColumnarTable table) {
+      for (int row = 0; row < table.rowCount(); row++) {
+        this.add(CSVRow.of(table.row(row)));
+      }
+    }
+
+    /**
+     * Finishes the table.
+     *
+     * @return The table holding every row added so far.
+     */
+    public ColumnarTable build() {
+      if (this.columns == null) {
+        return new ColumnarTable(new Column[0], 0);
+      }
+      Column[] built = new Column[this.columns.length];
+      for (int i = 0; i < built.length; i++) {
+        built[i] = this.columns[i].build();
+      }
+      return new ColumnarTable(built, this.rowCount);
+    }
+  }
+
+  /** Encodes the values of one column while the table is being built. */
+  private static class ColumnBuilder {
+    // don't give up on the dictionary before this many rows have been seen
+    private static final int MIN_ROWS_FOR_PLAIN = 1024;
+
+    // open-addressing hash of dictionary codes, stored as code + 1 so 0 means empty
+    private int[] slots = new int[16];
+    private List<String> dictionary = new ArrayList<>();
+    private int[] hashes = new int[16];
+    private int[] codes = new int[16];
+    private String[] plain;
+    private int size;
+
+    ColumnBuilder() {}
+
+    /**
+     * Starts the column out with the first values of a built column.
+     *
+     * @param column The column.
+     * @param rows The number of values to keep.
+     */
+    ColumnBuilder(Column column, int rows) {
+      this.size = rows;
+      if (column instanceof DictionaryColumn dictionaryColumn) {
+        String[] values = dictionaryColumn.getDictionary();
+        this.dictionary = new ArrayList<>(Arrays.asList(values));
+        this.hashes = new int[Math.max(16, values.length)];
+        for (int code = 0; code < values.length; code++) {
+          this.hashes[code] = values[code].hashCode();
+        }
+        this.slots = new int[Integer.highestOneBit(Math.max(8, values.length)) * 2];
+        this.rehash();
+        this.codes = Arrays.copyOf(dictionaryColumn.getCodes(), Math.max(16, rows * 2));
+        return;
+      }
+      this.slots = null;
+      this.dictionary = null;
+      this.hashes = null;
+      this.codes = null;
+      this.plain = new String[Math.max(16, rows * 2)];
+      for (int row = 0; row < rows; row++) {
+        this.plain[row] = column.get(row);
+      }
+    }
+
+    void add(CSVRow row, int field) {
+      if (this.plain != null) {
+        if (this.size == this.plain.length) {
+          this.plain = Arrays.copyOf(this.plain, this.size * 2);
+        }
+        this.plain[this.size++] = row.fieldString(field);
+        return;
+      }
+      int code = this.codeOf(row, field);
+      if (this.size == this.codes.length) {
+        this.codes = Arrays.copyOf(this.codes, this.size * 2);
+      }
+      this.codes[this.size++] = code;
+
+      // check now and then whether the dictionary is still paying for itself
+      if (this.size >= MIN_ROWS_FOR_PLAIN
+          && (this.size & (this.size - 1)) == 0
+          && this.mostlyDistinct()) {
+        this.switchToPlain();
+      }
+    }
+
+    /**
+     * Finds the dictionary code of a field, adding the field to the dictionary if it is new.
+     *
+     * @param row The row.
+     * @param field The field index.
+     * @return The code.
+     */
+    private int codeOf(CSVRow row, int field) {
+      int hash = row.fieldHash(field);
+      int mask = this.slots.length - 1;
+      int slot = mix(hash) & mask;
+      while (this.slots[slot] != 0) {
+        int code = this.slots[slot] - 1;
+        if (this.hashes[code] == hash && row.fieldEquals(field, this.dictionary.get(code))) {
+          return code;
+        }
+        slot = (slot + 1) & mask;
+      }
+      int code = this.dictionary.size();
+      this.dictionary.add(row.fieldString(field));
+      if (code == this.hashes.length) {
+        this.hashes = Arrays.copyOf(this.hashes, code * 2);
+      }
+      this.hashes[code] = hash;
+      this.slots[slot] = code + 1;
+      if (this.dictionary.size() * 2 > this.slots.length) {
+        this.rehash();
+      }
+      return code;
+    }
+
+    private void rehash() {
+      this.slots = new int[this.slots.length * 2];
+      int mask = this.slots.length - 1;
+      for (int code = 0; code < this.dictionary.size(); code++) {
+        int slot = mix(this.hashes[code]) & mask;
+        while (this.slots[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        this.slots[slot] = code + 1;
+      }
+    }
+
+    private static int mix(int hash) {
+      // spread the high bits down, String hashes of short values differ mostly in low bits
+      return hash ^ (hash >>> 16);
+    }
+
+    Column build() {
+      if (this.plain == null && this.mostlyDistinct()) {
+        this.switchToPlain();
+      }
+      if (this.plain != null) {
+        return new PlainColumn(Arrays.copyOf(this.plain, this.size));
+      }
+      return new DictionaryColumn(
+          this.dictionary.toArray(new String[0]), Arrays.copyOf(this.codes, this.size));
+    }
+
+    private boolean mostlyDistinct() {
+      return this.dictionary.size() > this.size / 2;
+    }
+
+    private void switchToPlain() {
+      this.plain = new String[Math.max(16, this.codes.length)];
+      for (int i = 0; i < this.size; i++) {
+        this.plain[i] = this.dictionary.get(this.codes[i]);
+      }
+      this.slots = null;
+      this.dictionary = null;
+      this.hashes = null;
+      this.codes = null;
+    }
+  }
+}
@@ -20,4 +20,18 @@ public interface CreatorFromRow<T> {
    * @throws FactoryFailureException If an error occurs during object creation.
    */
   T create(List<String> row) throws FactoryFailureException;
+
+  /**
+   * Converts a CSV row view into an object of type T. CSVParser calls this one, so a creator that
+   * only needs the characters of each field, like the primitive array creators, can override it
+   * and skip making a String per field. By default the row is copied and passed to the list
+   * version.
+   *
+   * @param row The CSV row to convert; a tokenizer row is only valid during the call.
+   * @return The object created from the CSV row.
+   * @throws FactoryFailureException If an error occurs during object creation.
+   */
+  default T create(CSVRow row) throws FactoryFailureException {
+    return this.create(row.toList());
+  }
 }
@@ -0,0 +1,42 @@
+package CSV;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * One loaded CSV file: its rows, header and indexes, as published together by a load. A dataset
+ * is never changed after it is made; a reload publishes a new one, so a request that reads one
+ * dataset sees a table and header from the same load however many loads happen meanwhile.
+ *
+ * @param name The name the dataset was loaded under.
+ * @param table The parsed rows, in columnar form.
+ * @param header The header row, or null if the file has none.
+ * @param hasHeaders Whether the file was loaded with a header row.
+ * @param indexes The indexes built over table, or null if none were built.
+ * @param version A number no other dataset has, which search results and cursors are keyed by.
+ * @param incrementalSource The file the dataset was loaded incrementally from, or null if it was
+ *     loaded in full.
+ */
+public record Dataset(
+    String name,
+    ColumnarTable table,
+    List<String> header,
+    boolean hasHeaders,
+    TableIndexes indexes,
+    long version,
+    Path incrementalSource) {
+
+  /** Copies the header, so a list the caller keeps can't change the dataset. */
+  public Dataset {
+    header = header == null ? null : List.copyOf(header);
+  }
+
+  /**
+   * Makes a searcher over the dataset.
+   *
+   * @return A searcher over the table, header and indexes of this dataset.
+   */
+  public CSVSearcher searcher() {
+    return new CSVSearcher(this.table, this.header, this.hasHeaders, this.indexes);
+  }
+}
@@ -0,0 +1,75 @@
+package CSV;
+
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Column that stores each distinct value once and an int code per row. Used for columns with few
+ * distinct values, like state, race or year, where it saves a String per cell and lets a search test
+ * each distinct value once instead of once per row.
+ */
+public class DictionaryColumn implements Column {
+  private final String[] dictionary;
+  private final int[] codes;
+
+  /**
+   * Constructor for the DictionaryColumn class.
+   *
+   * @param dictionary The distinct values, indexed by code.
+   * @param codes The code of the value in each row.
+   */
+  public DictionaryColumn(String[] dictionary, int[] codes) {
+    this.dictionary = dictionary;
+    this.codes = codes;
+  }
+
+  @Override
+  public int size() {
+    return this.codes.length;
+  }
+
+  @Override
+  public String get(int row) {
+    return this.dictionary[this.codes[row]];
+  }
+
+  /**
+   * Tests every distinct value once, then matches rows by their code.
+   *
+   * @param valueTest The test to apply to values.
+   * @return A predicate over row numbers.
+   */
+  @Override
+  public IntPredicate rowMatcher(Predicate<String> valueTest) {
+    boolean[] matches = new boolean[this.dictionary.length];
+    for (int code = 0; code < this.dictionary.length; code++) {
+      matches[code] = valueTest.test(this.dictionary[code]);
+    }
+    int[] codes = this.codes;
+    return row -> matches[codes[row]];
+  }
+
+  @Override
+  public long estimatedBytes() {
+    return ColumnarTable.arrayBytes(this.codes.length, Integer.BYTES)
+        + ColumnarTable.stringsBytes(this.dictionary);
+  }
+
+  /**
+   * Gets the distinct values of the column, indexed by code.
+   *
+   * @return The dictionary.
+   */
+  public String[] getDictionary() {
+    return this.dictionary;
+  }
+
+  /**
+   * Gets the code of the value in each row.
+   *
+   * @return The codes.
+   */
+  public int[] getCodes() {
+    return this.codes;
+  }
+}
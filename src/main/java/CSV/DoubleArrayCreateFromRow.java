@@ -0,0 +1,42 @@
+package CSV;
+
+import java.util.List;
+
+/**
+ * Implements interface CreatorFromRow. Converts each row straight into a double[] without boxing
+ * any value. Fields are parsed by NumberParser, which reports bad values with a return code instead
+ * of throwing, so the only exception is the FactoryFailureException the CreatorFromRow contract
+ * asks for. CSVParser hands over its row views, so no String is made for a field that parses.
+ */
+public class DoubleArrayCreateFromRow implements CreatorFromRow<double[]> {
+
+  /**
+   * Converts a list of strings into an array of doubles.
+   *
+   * @param row The list of strings representing a row in the CSV.
+   * @return The values of the row.
+   * @throws FactoryFailureException If any string in the row cannot be parsed as a number.
+   */
+  @Override
+  public double[] create(List<String> row) throws FactoryFailureException {
+    return this.create(CSVRow.of(row));
+  }
+
+  /**
+   * Converts a row view into an array of doubles, parsing each field in place.
+   *
+   * @param row The row of the CSV.
+   * @return The values of the row.
+   * @throws FactoryFailureException If any string in the row cannot be parsed as a number.
+   */
+  @Override
+  public double[] create(CSVRow row) throws FactoryFailureException {
+    double[] values = new double[row.size()];
+    for (int i = 0; i < values.length; i++) {
+      if (NumberParser.parseDouble(row.field(i), values, i) != NumberParser.OK) {
+        throw new FactoryFailureException("Not a number: " + row.fieldString(i), row.toList());
+      }
+    }
+    return values;
+  }
+}
@@ -0,0 +1,262 @@
+package CSV;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Loads append-only UTF-8 CSV files incrementally. For every file it remembers how many bytes and
+ * rows have been parsed, and on the next load only the bytes appended since are tokenized and added
+ * to the existing table.
+ *
+ * <p>A file is parsed from the start again if it is shorter than the remembered offset, or if the
+ * first or last 64 KB before the offset have changed, which is what a rewrite or rotation looks
+ * like; a rewrite that keeps both windows byte for byte is not detected. A last row without a line
+ * break is included in the table, or left out if it is too short to be a whole row, but is not
+ * counted as parsed, so it is read again once the writer finishes it.
+ *
+ * <p>The rows of at most MAX_FILES files are kept. AccessCSV forgets a file when the dataset loaded
+ * from it is removed or replaced by a full load.
+ */
+public class IncrementalCSVLoader {
+  private static final int FINGERPRINT_WINDOW = 1 << 16;
+
+  /** Most files whose parsed rows are kept; the least recently loaded is forgotten first. */
+  public static final int MAX_FILES = 16;
+
+  // every state holds a whole table, so only the files loaded most recently are kept
+  private final Map<String, State> states =
+      Collections.synchronizedMap(
+          new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, State> eldest) {
+              return this.size() > MAX_FILES;
+            }
+          });
+
+  /**
+   * The result of a load.
+   *
+   * @param header The header row, projected, or null without headers.
+   * @param table The rows.
+   * @param appended Whether only the end of the file was parsed.
+   * @param newRows The number of rows parsed by this load, including an unfinished last row.
+   * @param source The real path of the file, which forget takes to free what is kept of it.
+   */
+  public record Load(
+      List<String> header, ColumnarTable table, boolean appended, int newRows, Path source) {}
+
+  /**
+   * What has been parsed of a file so far.
+   *
+   * @param options The parse options the state was made with.
+   * @param offset The offset of the byte after the last complete row.
+   * @param afterCarriageReturn Whether the last complete row ended at a carriage return.
+   * @param fingerprint Hash of the bytes around the start and end of the parsed range.
+   * @param header The header row, projected, or null without headers.
+   * @param projection The kept columns, or null to keep all of them.
+   * @param width The number of fields every row has, before projection.
+   * @param table The rows parsed so far, possibly ending with an unfinished row.
+   * @param completeRows The number of rows of table that ended at a line break.
+   */
+  private record State(
+      String options,
+      long offset,
+      boolean afterCarriageReturn,
+      long fingerprint,
+      List<String> header,
+      ColumnProjection projection,
+      int width,
+      ColumnarTable table,
+      int completeRows) {}
+
+  /**
+   * Loads a file, parsing only what was appended since the last load when possible.
+   *
+   * @param path The UTF-8 or ASCII CSV file.
+   * @param hasHeader Whether the first row is a header.
+   * @param columns Header names or indices of the columns to keep, or null to keep all of them.
+   * @return The header, the rows, and whether the load was incremental.
+   * @throws IOException If the file can't be read.
+   * @throws InconsistentRowException If the rows are not all the same length.
+   * @throws NotFoundException If a requested column isn't in the file.
+   */
+  public Load load(Path path, Boolean hasHeader, List<String> columns)
+      throws IOException, InconsistentRowException, NotFoundException {
+    Path source = path.toRealPath();
+    String key = source.toString();
+    String options = "headers=" + hasHeader + ";columns=" + columns;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      State previous = this.states.get(key);
+      if (previous != null && !this.canAppend(previous, options, channel)) {
+        previous = null;
+      }
+      State next = this.parse(channel, previous, hasHeader, columns, options);
+      if (next.offset() > 0) {
+        this.states.put(key, next);
+      } else {
+        // no row is complete yet, start over next time
+        this.states.remove(key);
+      }
+      int oldRows = previous == null ? 0 : previous.completeRows();
+      return new Load(
+          next.header(),
+          next.table(),
+          previous != null,
+          next.table().rowCount() - oldRows,
+          source);
+    }
+  }
+
+  /**
+   * Forgets what has been parsed of a file, freeing the table kept for it, so the next load parses
+   * it from the start.
+   *
+   * @param path The file; if it no longer exists, the path as Load.source gave it.
+   */
+  public void forget(Path path) {
+    Path source;
+    try {
+      source = path.toRealPath();
+    } catch (IOException e) {
+      source = path;
+    }
+    this.states.remove(source.toString());
+  }
+
+  /**
+   * Checks that a file has only been appended to since a state was recorded.
+   *
+   * @param state The state.
+   * @param options The options of this load.
+   * @param channel Open channel on the file.
+   * @return true if the file can be parsed from the offset of the state.
+   * @throws IOException If the file can't be read.
+   */
+  private boolean canAppend(State state, String options, FileChannel channel)
+      throws IOException {
+    return state.options().equals(options)
+        && channel.size() >= state.offset()
+        && fingerprint(channel, state.offset()) == state.fingerprint();
+  }
+
+  /**
+   * Parses a file from the start, or from the end of the previous state.
+   *
+   * @param channel Open channel on the file.
+   * @param previous The state to continue from, or null to parse from the start.
+   * @param hasHeader Whether the first row is a header.
+   * @param columns The columns to keep, or null.
+   * @param options The options of this load.
+   * @return The new state.
+   * @throws IOException If the file can't be read.
+   * @throws InconsistentRowException If the rows are not all the same length.
+   * @throws NotFoundException If a requested column isn't in the file.
+   */
+  private State parse(
+      FileChannel channel,
+      State previous,
+      Boolean hasHeader,
+      List<String> columns,
+      String options)
+      throws IOException, InconsistentRowException, NotFoundException {
+    long start = previous == null ? 0 : previous.offset();
+    ByteCSVTokenizer tokenizer =
+        new ByteCSVTokenizer(Channels.newInputStream(channel.position(start)));
+    List<String> header = null;
+    ColumnProjection projection = null;
+    int width = -1;
+    ColumnarTable.Builder builder;
+    long offset = start;
+    boolean afterCarriageReturn = false;
+    int completeRows = 0;
+
+    if (previous != null) {
+      afterCarriageReturn = previous.afterCarriageReturn();
+      if (afterCarriageReturn) {
+        tokenizer.skipLeadingLineFeed();
+      }
+      header = previous.header();
+      projection = previous.projection();
+      width = previous.width();
+      builder = new ColumnarTable.Builder(previous.table(), previous.completeRows());
+      completeRows = previous.completeRows();
+      if (projection != null) {
+        tokenizer.keepOnly(projection.mask());
+      }
+    } else {
+      builder = new ColumnarTable.Builder();
+      // the first row is read whole, it gives the width and the header to resolve columns by
+      List<String> first = tokenizer.nextRow();
+      if (first == null) {
+        return new State(options, 0, false, 0, null, null, -1, builder.build(), 0);
+      }
+      width = first.size();
+      if (columns != null) {
+        projection = ColumnProjection.resolve(columns, hasHeader ? first : null, width);
+        tokenizer.keepOnly(projection.mask());
+      }
+      if (hasHeader) {
+        header = projection == null ? first : projection.apply(first);
+      } else {
+        builder.add(projection == null ? first : projection.apply(first));
+      }
+      if (tokenizer.endedAtLineBreak()) {
+        offset = start + tokenizer.position();
+        afterCarriageReturn = tokenizer.endedAtCarriageReturn();
+        completeRows = hasHeader ? 0 : 1;
+      }
+    }
+
+    CSVRow row;
+    while ((row = tokenizer.nextRowView()) != null) {
+      if (tokenizer.fieldsRead() != width) {
+        if (!tokenizer.endedAtLineBreak()) {
+          // a last row that is still being written; it is read again on the next load
+          break;
+        }
+        throw new InconsistentRowException("Inconsistent length of the row " + row.toList());
+      }
+      builder.add(row);
+      if (tokenizer.endedAtLineBreak()) {
+        offset = start + tokenizer.position();
+        afterCarriageReturn = tokenizer.endedAtCarriageReturn();
+        completeRows++;
+      }
+    }
+    return new State(
+        options,
+        offset,
+        afterCarriageReturn,
+        fingerprint(channel, offset),
+        header,
+        projection,
+        width,
+        builder.build(),
+        completeRows);
+  }
+
+  /**
+   * Hashes the first and last FINGERPRINT_WINDOW bytes before an offset.
+   *
+   * @param channel Open channel on the file.
+   * @param offset The end of the hashed range.
+   * @return The CRC32C of the two windows.
+   * @throws IOException If the file can't be read.
+   */
+  private static long fingerprint(FileChannel channel, long offset) throws IOException {
+    CRC32C crc = new CRC32C();
+    long headLength = Math.min(offset, FINGERPRINT_WINDOW);
+    crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, headLength));
+    long tailStart = Math.max(headLength, offset - FINGERPRINT_WINDOW);
+    crc.update(channel.map(FileChannel.MapMode.READ_ONLY, tailStart, offset - tailStart));
+    return crc.getValue();
+  }
+}
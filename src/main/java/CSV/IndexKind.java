@@ -0,0 +1,27 @@
+package CSV;
+
+/**
+ * The kinds of index that can be built over the columns of a loaded table.
+ */
+public enum IndexKind {
+  /** Inverted index from each distinct value to the rows holding it, for exact-match search. */
+  EXACT,
+
+  /**
+   * Trigram index over the distinct values of each column, for substring search. Builds the exact
+   * index too, since rows are found through it.
+   */
+  TRIGRAM,
+
+  /**
+   * Sorted index over each column whose values are all numbers, for range and comparison
+   * predicates. Columns with a value that isn't a number get none.
+   */
+  NUMERIC,
+
+  /**
+   * BK-tree over the distinct values of each column, for fuzzy search within an edit distance.
+   * Builds the exact index too, since rows are found through it.
+   */
+  FUZZY
+}
@@ -5,10 +5,12 @@ import java.util.List;
 
 /**
  * Implements interface CreatorFromRow. Allows CSV Parser to convert each row into a List of
- * integers by parsing the Strings given to integers. Throws NumberFormatException if the list of
- * strings given
+ * integers by parsing the Strings given to integers. Throws FactoryFailureException if a string in
+ * the row is not an integer. This is an adapter over IntArrayCreateFromRow for callers that want
+ * boxed values; IntArrayCreateFromRow avoids the boxing.
  */
 public class IntegerListCreateFromRow implements CreatorFromRow<List<Integer>> {
+  private final IntArrayCreateFromRow intArrayCreator = new IntArrayCreateFromRow();
 
   /**
    * Converts a list of strings into a list of integers.
@@ -19,14 +21,22 @@ public class IntegerListCreateFromRow implements CreatorFromRow<List<Integer>> {
    */
   @Override
   public List<Integer> create(List<String> row) throws FactoryFailureException {
-    List<Integer> integerList = new ArrayList<>();
-    for (String value : row) {
-      try {
-        Integer intValue = Integer.parseInt(value);
-        integerList.add(intValue);
-      } catch (NumberFormatException e) {
-        throw new FactoryFailureException("Not an integer: " + value, row);
-      }
+    return this.create(CSVRow.of(row));
+  }
+
+  /**
+   * Converts a row view into a list of integers, parsing each field in place.
+   *
+   * @param row The row of the CSV.
+   * @return A list of integers parsed from the fields.
+   * @throws FactoryFailureException If any field in the row cannot be parsed as an integer.
+   */
+  @Override
+  public List<Integer> create(CSVRow row) throws FactoryFailureException {
+    int[] values = this.intArrayCreator.create(row);
+    List<Integer> integerList = new ArrayList<>(values.length);
+    for (int value : values) {
+      integerList.add(value);
     }
     return integerList;
   }
@@ -0,0 +1,15 @@
+package CSV;
+
+/**
+ * An exception thrown when a query expression can't be parsed.
+ */
+public class InvalidQueryException extends Exception {
+  /**
+   * Constructs a new InvalidQueryException with the specified message.
+   *
+   * @param message the detail message.
+   */
+  public InvalidQueryException(String message) {
+    super(message);
+  }
+}
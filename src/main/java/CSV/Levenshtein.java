@@ -0,0 +1,106 @@
+package CSV;
+
+/**
+ * Edit distance between strings: the fewest characters inserted, deleted or replaced to turn one
+ * into the other. Used by fuzzy searches, so that a mistyped value like "Providnce" still finds
+ * "Providence".
+ */
+public final class Levenshtein {
+
+  private Levenshtein() {}
+
+  /**
+   * Computes the edit distance between two strings, with two rows of the usual table.
+   *
+   * @param a The first string.
+   * @param b The second string.
+   * @return The distance.
+   */
+  public static int distance(CharSequence a, CharSequence b) {
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      current[0] = i;
+      char c = a.charAt(i - 1);
+      for (int j = 1; j <= b.length(); j++) {
+        int replace = previous[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+        current[j] = Math.min(replace, Math.min(previous[j], current[j - 1]) + 1);
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[b.length()];
+  }
+
+  /**
+   * Checks whether two strings are at most a given distance apart.
+   *
+   * @param a The first string.
+   * @param b The second string.
+   * @param maxDistance The largest distance that passes.
+   * @return true if distance(a, b) is at most maxDistance.
+   */
+  public static boolean within(CharSequence a, CharSequence b, int maxDistance) {
+    return distance(a, b, maxDistance) <= maxDistance;
+  }
+
+  /**
+   * Computes the edit distance between two strings if it is at most a limit. Only the cells of the
+   * table within the limit of its diagonal are filled, and the computation gives up as soon as a
+   * whole row is over the limit, so strings far apart cost little.
+   *
+   * @param a The first string.
+   * @param b The second string.
+   * @param limit The largest distance worth knowing exactly, at least 0.
+   * @return The distance, or limit + 1 if it is more than limit.
+   * @throws IllegalArgumentException If limit is negative.
+   */
+  public static int distance(CharSequence a, CharSequence b, int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("limit must be at least 0");
+    }
+    // no distance is more than the longer length, so a larger limit changes nothing, and capping
+    // it keeps limit + 1 from overflowing
+    limit = Math.min(limit, Math.max(a.length(), b.length()));
+    // cells off the band count as over the limit
+    int over = limit + 1;
+    if (Math.abs(a.length() - b.length()) > limit) {
+      return over;
+    }
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = Math.min(j, over);
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      int from = Math.max(1, i - limit);
+      int to = Math.min(b.length(), i + limit);
+      current[0] = Math.min(i, over);
+      if (from > 1) {
+        current[from - 1] = over;
+      }
+      int best = from == 1 ? current[0] : over;
+      char c = a.charAt(i - 1);
+      for (int j = from; j <= to; j++) {
+        int replace = previous[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+        int cell = Math.min(replace, Math.min(previous[j], current[j - 1]) + 1);
+        current[j] = Math.min(cell, over);
+        best = Math.min(best, current[j]);
+      }
+      if (to < b.length()) {
+        current[to + 1] = over;
+      }
+      if (best > limit) {
+        return over;
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[b.length()];
+  }
+}
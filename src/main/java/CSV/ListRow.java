@@ -0,0 +1,47 @@
+package CSV;
+
+import java.util.List;
+
+/** CSVRow over a row that is already a list of strings, such as the output of the regex engine. */
+class ListRow implements CSVRow {
+  private final List<String> row;
+
+  ListRow(List<String> row) {
+    this.row = row;
+  }
+
+  @Override
+  public int size() {
+    return this.row.size();
+  }
+
+  @Override
+  public CharSequence field(int i) {
+    return this.row.get(i);
+  }
+
+  @Override
+  public String fieldString(int i) {
+    return this.row.get(i);
+  }
+
+  @Override
+  public boolean fieldEquals(int i, String value) {
+    return this.row.get(i).equals(value);
+  }
+
+  @Override
+  public boolean fieldContains(int i, String word) {
+    return this.row.get(i).contains(word);
+  }
+
+  @Override
+  public int fieldHash(int i) {
+    return this.row.get(i).hashCode();
+  }
+
+  @Override
+  public List<String> toList() {
+    return this.row;
+  }
+}
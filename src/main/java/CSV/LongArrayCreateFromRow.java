@@ -0,0 +1,42 @@
+package CSV;
+
+import java.util.List;
+
+/**
+ * Implements interface CreatorFromRow. Converts each row straight into a long[] without boxing any
+ * value. Fields are parsed by NumberParser, which reports bad values with a return code instead of
+ * throwing, so the only exception is the FactoryFailureException the CreatorFromRow contract asks
+ * for. CSVParser hands over its row views, so no String is made for a field that parses.
+ */
+public class LongArrayCreateFromRow implements CreatorFromRow<long[]> {
+
+  /**
+   * Converts a list of strings into an array of longs.
+   *
+   * @param row The list of strings representing a row in the CSV.
+   * @return The values of the row.
+   * @throws FactoryFailureException If any string in the row cannot be parsed as a long.
+   */
+  @Override
+  public long[] create(List<String> row) throws FactoryFailureException {
+    return this.create(CSVRow.of(row));
+  }
+
+  /**
+   * Converts a row view into an array of longs, parsing each field in place.
+   *
+   * @param row The row of the CSV.
+   * @return The values of the row.
+   * @throws FactoryFailureException If any string in the row cannot be parsed as a long.
+   */
+  @Override
+  public long[] create(CSVRow row) throws FactoryFailureException {
+    long[] values = new long[row.size()];
+    for (int i = 0; i < values.length; i++) {
+      if (NumberParser.parseLong(row.field(i), values, i) != NumberParser.OK) {
+        throw new FactoryFailureException("Not a long: " + row.fieldString(i), row.toList());
+      }
+    }
+    return values;
+  }
+}
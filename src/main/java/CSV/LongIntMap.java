@@ -0,0 +1,116 @@
+package CSV;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from long keys to int values that stores both in primitive arrays, with open addressing
+ * and linear probing. Used where a HashMap would box a key and a value for every entry, like the
+ * group keys of an aggregation.
+ */
+final class LongIntMap {
+  private static final int EMPTY = -1;
+
+  private long[] keys;
+  // EMPTY marks a free slot, so values must not be negative
+  private int[] values;
+  private int size;
+
+  /**
+   * Constructor for the LongIntMap class.
+   *
+   * @param expected The number of entries to make room for before growing.
+   */
+  LongIntMap(int expected) {
+    int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+    this.keys = new long[capacity];
+    this.values = new int[capacity];
+    Arrays.fill(this.values, EMPTY);
+  }
+
+  /**
+   * Gets the value of a key, adding the key with a value first if it is missing.
+   *
+   * @param key The key.
+   * @param value The value to add if the key is missing; not negative.
+   * @return The value the key had, or value if it was added.
+   */
+  int putIfAbsent(long key, int value) {
+    int mask = this.keys.length - 1;
+    int slot = hash(key) & mask;
+    while (this.values[slot] != EMPTY) {
+      if (this.keys[slot] == key) {
+        return this.values[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    this.keys[slot] = key;
+    this.values[slot] = value;
+    if (++this.size * 2 > this.keys.length) {
+      this.grow();
+    }
+    return value;
+  }
+
+  /**
+   * Gets the value of a key.
+   *
+   * @param key The key.
+   * @return The value, or -1 if the key is missing.
+   */
+  int get(long key) {
+    int mask = this.keys.length - 1;
+    int slot = hash(key) & mask;
+    while (this.values[slot] != EMPTY) {
+      if (this.keys[slot] == key) {
+        return this.values[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return EMPTY;
+  }
+
+  /**
+   * Gets the number of entries.
+   *
+   * @return The number of keys in the map.
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * Gets every key, in no particular order.
+   *
+   * @return The keys.
+   */
+  long[] keys() {
+    long[] found = new long[this.size];
+    int filled = 0;
+    for (int slot = 0; slot < this.keys.length; slot++) {
+      if (this.values[slot] != EMPTY) {
+        found[filled++] = this.keys[slot];
+      }
+    }
+    return found;
+  }
+
+  private void grow() {
+    long[] oldKeys = this.keys;
+    int[] oldValues = this.values;
+    this.keys = new long[oldKeys.length * 2];
+    this.values = new int[oldValues.length * 2];
+    Arrays.fill(this.values, EMPTY);
+    this.size = 0;
+    for (int slot = 0; slot < oldKeys.length; slot++) {
+      if (oldValues[slot] != EMPTY) {
+        this.putIfAbsent(oldKeys[slot], oldValues[slot]);
+      }
+    }
+  }
+
+  private static int hash(long key) {
+    // spread the bits, since keys are often small consecutive numbers
+    long mixed = key * 0x9E3779B97F4A7C15L;
+    return (int) (mixed ^ (mixed >>> 32));
+  }
+}
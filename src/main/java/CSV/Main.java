@@ -1,8 +1,9 @@
 package CSV;
 
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /** The Main class of our project. This is where execution begins. */
@@ -29,7 +30,7 @@ public final class Main {
    * @param args - Arguments to use when running the program. Format indicated above
    */
   public static void main(String[] args) {
-    FileReader fReader = null;
+    FileInputStream fInput = null;
     Boolean hasHeader = false;
     if (args.length < 2 || args.length > 4) {
       System.err.println("Wrong format/wrong number of inputs");
@@ -41,7 +42,7 @@ public final class Main {
     try {
       String filename = args[0];
       if (filename.startsWith("/Users/sylviewatts/Desktop/CS 320/csv-sylviewatts/data")) {
-        fReader = new FileReader(filename);
+        fInput = new FileInputStream(filename);
       } else {
         System.err.println("File in the wrong directory");
         return;
@@ -58,44 +59,36 @@ public final class Main {
     }
 
     CreatorFromRow<List<String>> rowToStringList = new StringListCreateFromRow();
-    CSVParser<List<String>> parser = new CSVParser<>(fReader, rowToStringList, hasHeader);
-    CSVSearcher searcher = null;
+    // the bytes are tokenized as they are, fields are only decoded when a row matches
+    CSVParser<List<String>> parser =
+        new CSVParser<>(fInput, StandardCharsets.UTF_8, rowToStringList, hasHeader);
+    // rows are streamed from the file and printed as they match, so nothing is loaded up front
+    StreamingCSVSearcher searcher = new StreamingCSVSearcher(parser);
+    RowConsumer<List<String>> printRow =
+        row -> {
+          System.out.println(row);
+          return true;
+        };
 
     try {
-      searcher = new CSVSearcher(parser);
+      if (args.length >= 3) {
+        boolean isNumeric = args[2].chars().allMatch(Character::isDigit);
+        if (isNumeric) {
+          searcher.search(args[1], Integer.parseInt(args[2]), printRow);
+        } else {
+          searcher.search(args[1], args[2], printRow);
+        }
+      } else {
+        searcher.search(args[1], printRow);
+      }
     } catch (IOException e) {
       System.err.println("Error reading file: " + e.getMessage());
-      return;
     } catch (FactoryFailureException e) {
       System.err.println("Error parsing CSV row: " + e.getMessage());
-      return;
     } catch (InconsistentRowException e) {
       System.err.println("Error parsing file: " + e.getMessage());
-      return;
-    }
-
-    if (args.length >= 3) {
-      boolean isNumeric = args[2].chars().allMatch(Character::isDigit);
-      if (isNumeric) {
-        Integer header = Integer.parseInt(args[2]);
-        try {
-          System.out.println(searcher.search(args[1], header));
-        } catch (NotFoundException e) {
-          System.err.println("Error matching header: " + e.getMessage());
-          return;
-        }
-      } else {
-        String header = args[2];
-        try {
-          System.out.println(searcher.search(args[1], header));
-        } catch (NotFoundException e) {
-          System.err.println("Error matching header: " + e.getMessage());
-          return;
-        }
-      }
-      return;
+    } catch (NotFoundException e) {
+      System.err.println("Error matching header: " + e.getMessage());
     }
-
-    System.out.println(searcher.search(args[1]));
   }
 }
@@ -0,0 +1,522 @@
+package CSV;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+
+/**
+ * Parses a UTF-8 CSV file on several cores. The file is memory-mapped and cut into byte ranges that
+ * each end on a line break outside of quotes, every range is tokenized on its own fork-join worker,
+ * and the rows of each range are handed on in file order as soon as the ranges before it are done.
+ * Header detection, row length checks and object creation run over the rows exactly as in
+ * CSVParser.parse(), so the result and any exception thrown are the same as parsing the file
+ * sequentially. Ranges are at most 64 MB and only one more range than there are pool workers is
+ * tokenized ahead of the consumer, so the rows waiting to be handed on are bounded by that, not by
+ * the size of the file. What the consumer keeps is up to it: parse() keeps every object, and
+ * parseTable() keeps every row in a columnar table.
+ *
+ * @param <T> The type of object to create from each row.
+ */
+public class MappedCSVParser<T> {
+  // below this many bytes per range the hand-off costs more than the tokenizing it saves
+  private static final long MIN_CHUNK_BYTES = 1 << 20;
+  // a single mapping can't be larger than Integer.MAX_VALUE, keep well under it
+  private static final long MAX_CHUNK_BYTES = 1 << 30;
+  // larger files are cut into more ranges so a range waiting to be handed on stays small
+  private static final long MAX_RANGE_BYTES = 1 << 26;
+  // ranges tokenized ahead of the consumer: enough to keep every worker busy while one is read
+  private static final int MAX_IN_FLIGHT = ForkJoinPool.getCommonPoolParallelism() + 1;
+
+  private final Path path;
+  private final CreatorFromRow<T> rowToObject;
+  private final Boolean hasHeader;
+  private final int chunks;
+  private List<String> headerList;
+  private ColumnProjection projection;
+  // number of fields every row must have when a projection hides the full width, otherwise -1
+  private int rowWidth = -1;
+
+  /** The rows of one range, and the index of its first row with the wrong width, or -1. */
+  private record Chunk(List<List<String>> rows, int badRow) {}
+
+  /**
+   * The data rows of one range as a table, the first row of the range, whether that first row is
+   * the header, and the first row that is not as long as the first one, or null.
+   */
+  private record TablePart(
+      ColumnarTable table, List<String> firstRow, boolean header, List<String> badRow) {}
+
+  /** Receives the rows of the file in order; unlike RowConsumer it may fail to create an object. */
+  @FunctionalInterface
+  private interface RowSink {
+    boolean accept(List<String> row) throws FactoryFailureException;
+  }
+
+  /** Tokenizes the range of the file from start up to end on a worker. */
+  @FunctionalInterface
+  private interface RangeTokenizer<R> {
+    R range(FileChannel channel, long start, long end) throws IOException;
+  }
+
+  /** Receives the result of each range in file order, and returns false to stop early. */
+  @FunctionalInterface
+  private interface RangeConsumer<R> {
+    boolean accept(R range) throws FactoryFailureException, InconsistentRowException;
+  }
+
+  /**
+   * Constructor that splits the file into about one range per available core, as long as each
+   * range is at least a megabyte.
+   *
+   * @param path - file to parse
+   * @param rowToObject - class under interface CreaterFromRow to create rows into objects of
+   *     choosing
+   * @param hasHeader - boolean indicated whether text has headers
+   * @throws IOException - error reading the size of the file
+   */
+  public MappedCSVParser(Path path, CreatorFromRow<T> rowToObject, Boolean hasHeader)
+      throws IOException {
+    this(
+        path,
+        rowToObject,
+        hasHeader,
+        (int)
+            Math.max(
+                1,
+                Math.min(
+                    Runtime.getRuntime().availableProcessors(),
+                    path.toFile().length() / MIN_CHUNK_BYTES)));
+  }
+
+  /**
+   * Constructor with an explicit number of ranges to split the file into.
+   *
+   * @param path - file to parse
+   * @param rowToObject - class under interface CreaterFromRow to create rows into objects of
+   *     choosing
+   * @param hasHeader - boolean indicated whether text has headers
+   * @param chunks - number of ranges to aim for; fewer are used if a range has no usable line break
+   */
+  public MappedCSVParser(Path path, CreatorFromRow<T> rowToObject, Boolean hasHeader, int chunks) {
+    this.path = path;
+    this.rowToObject = rowToObject;
+    this.hasHeader = hasHeader;
+    this.chunks = Math.max(1, chunks);
+  }
+
+  /**
+   * Keeps only some of the columns. The first row of the file is read to resolve the columns, by
+   * header name if the file has a header and otherwise by index; every range is then tokenized with
+   * the other fields skipped. Rows are still checked for length against their full width.
+   *
+   * @param columns - header names or indices of the columns to keep
+   * @return the projection, whose columns are in file order
+   * @throws IOException - error reading file
+   * @throws NotFoundException - a column is neither a header name nor an index in range
+   */
+  public ColumnProjection project(List<String> columns) throws IOException, NotFoundException {
+    List<String> first = null;
+    int width = 0;
+    try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+      long length = Math.min(channel.size(), MAX_CHUNK_BYTES);
+      ByteCSVTokenizer tokenizer =
+          new ByteCSVTokenizer(channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+      first = tokenizer.nextRow();
+      if (first != null) {
+        width = tokenizer.fieldsRead();
+      }
+    }
+    this.projection = ColumnProjection.resolve(columns, this.hasHeader ? first : null, width);
+    this.rowWidth = width;
+    return this.projection;
+  }
+
+  /**
+   * Parses the file and returns the object list. The header, if any, is available from
+   * getHeaderList afterwards.
+   *
+   * @return List <T> objectList
+   * @throws FactoryFailureException - error creating object from row
+   * @throws IOException - error reading file
+   * @throws InconsistentRowException - error because rows are not same length
+   */
+  public List<T> parse() throws FactoryFailureException, IOException, InconsistentRowException {
+    List<T> objectList = new ArrayList<>();
+    this.readRows(
+        words -> {
+          objectList.add(this.rowToObject.create(words));
+          return true;
+        });
+    return objectList;
+  }
+
+  /**
+   * Streams the data rows, without running rowToObject. The header, if any, is available from
+   * getHeaderList afterwards.
+   *
+   * @param consumer - receives each data row in file order, and can stop parsing early
+   * @throws IOException - error reading file
+   * @throws InconsistentRowException - error because rows are not same length
+   */
+  public void parseRows(RowConsumer<List<String>> consumer)
+      throws IOException, InconsistentRowException {
+    try {
+      this.readRows(consumer::accept);
+    } catch (FactoryFailureException e) {
+      // a RowConsumer can't throw it
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Parses the file straight into a columnar table, without running rowToObject. Each worker fills
+   * a table of its own range from the tokenizer's row views, so no String is made for a value its
+   * range has seen before, and the range tables are appended to the result in file order. The
+   * header, if any, is available from getHeaderList afterwards.
+   *
+   * @param progress - receives the number of data rows of each range once it is added, or null
+   * @return the data rows
+   * @throws IOException - error reading file
+   * @throws InconsistentRowException - error because rows are not same length
+   */
+  public ColumnarTable parseTable(IntConsumer progress)
+      throws IOException, InconsistentRowException {
+    ColumnarTable.Builder builder = new ColumnarTable.Builder();
+    boolean[] mask = this.projection == null ? null : this.projection.mask();
+    int width = this.rowWidth;
+    int[] rowLength = {-1};
+    try {
+      this.forEachRange(
+          (channel, start, end) ->
+              tableRange(channel, start, end, mask, width, start == 0 && this.hasHeader),
+          part -> {
+            if (part.firstRow() == null) {
+              return true;
+            }
+            if (rowLength[0] == -1) {
+              rowLength[0] = part.firstRow().size();
+            } else if (part.firstRow().size() != rowLength[0]) {
+              throw new InconsistentRowException(
+                  "Inconsistent length of the row " + part.firstRow());
+            }
+            if (part.badRow() != null) {
+              throw new InconsistentRowException("Inconsistent length of the row " + part.badRow());
+            }
+            if (part.header()) {
+              this.headerList = part.firstRow();
+            }
+            builder.addAll(part.table());
+            if (progress != null) {
+              progress.accept(part.table().rowCount());
+            }
+            return true;
+          });
+    } catch (FactoryFailureException e) {
+      // no objects are created
+      throw new IllegalStateException(e);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Tokenizes the ranges on fork-join workers and hands their rows to a sink in file order. A
+   * range's rows are dropped once they have been handed on.
+   *
+   * @param sink - receives each data row, and can stop parsing early
+   * @throws FactoryFailureException - error creating object from row
+   * @throws IOException - error reading file
+   * @throws InconsistentRowException - error because rows are not same length
+   */
+  private void readRows(RowSink sink)
+      throws FactoryFailureException, IOException, InconsistentRowException {
+    boolean[] mask = this.projection == null ? null : this.projection.mask();
+    int width = this.rowWidth;
+    int[] rowNumber = {0};
+    int[] rowLength = {-1};
+    this.forEachRange(
+        (channel, start, end) -> listRange(channel, start, end, mask, width),
+        chunk -> {
+          List<List<String>> rows = chunk.rows();
+          for (int row = 0; row < rows.size(); row++) {
+            List<String> words = rows.get(row);
+            if (rowLength[0] == -1) {
+              rowLength[0] = words.size();
+            }
+            if (words.size() != rowLength[0] || row == chunk.badRow()) {
+              throw new InconsistentRowException("Inconsistent length of the row " + words);
+            }
+            // drop the reference as we go so the fields aren't held twice
+            rows.set(row, null);
+            if (rowNumber[0]++ == 0 && this.hasHeader) {
+              this.headerList = words;
+            } else if (!sink.accept(words)) {
+              return false;
+            }
+          }
+          return true;
+        });
+  }
+
+  /**
+   * Splits the file into ranges, tokenizes them on fork-join workers and hands the result of each
+   * to a consumer in file order. Only MAX_IN_FLIGHT ranges are forked at a time; the next one is
+   * forked as each is joined, so however fast the workers are, the results waiting for the
+   * consumer never hold more than that many ranges of the file.
+   *
+   * @param tokenize - tokenizes one range on a worker
+   * @param consumer - receives the result of each range in order, and can stop early
+   * @param <R> - result type of a range
+   * @throws FactoryFailureException - the consumer failed to create an object
+   * @throws IOException - error mapping or reading the file
+   * @throws InconsistentRowException - the consumer found rows that are not the same length
+   */
+  private <R> void forEachRange(RangeTokenizer<R> tokenize, RangeConsumer<R> consumer)
+      throws FactoryFailureException, IOException, InconsistentRowException {
+    try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+      long[] boundaries = this.findBoundaries(channel);
+      int ranges = boundaries.length - 1;
+      ArrayDeque<ForkJoinTask<R>> inFlight = new ArrayDeque<>();
+      int next = 0;
+      try {
+        while (next < ranges || !inFlight.isEmpty()) {
+          while (next < ranges && inFlight.size() < MAX_IN_FLIGHT) {
+            long start = boundaries[next];
+            long end = boundaries[next + 1];
+            inFlight.add(ForkJoinTask.adapt(() -> tokenize.range(channel, start, end)).fork());
+            next++;
+          }
+          if (!consumer.accept(join(inFlight.poll()))) {
+            return;
+          }
+        }
+      } finally {
+        // ranges that won't be read any more needn't be tokenized
+        for (ForkJoinTask<R> task : inFlight) {
+          task.cancel(false);
+        }
+      }
+    }
+  }
+
+  /**
+   * Finds the byte offsets the file is cut at. The file is first divided evenly, and every piece is
+   * scanned in parallel for its number of quotes and for its first line break at an even and at an
+   * odd local quote count. A running total of the quote counts then tells which of the two line
+   * breaks is outside of quotes, so no piece has to be scanned twice.
+   *
+   * @param channel - open channel on the file
+   * @return ascending offsets starting at 0 and ending at the file size
+   * @throws IOException - error mapping or reading the file
+   */
+  private long[] findBoundaries(FileChannel channel) throws IOException {
+    long size = channel.size();
+    int pieces = (int) Math.max(this.chunks, (size + MAX_RANGE_BYTES - 1) / MAX_RANGE_BYTES);
+    long pieceSize = Math.max(1, (size + pieces - 1) / pieces);
+
+    List<ForkJoinTask<long[]>> tasks = new ArrayList<>();
+    for (long start = 0; start < size; start += pieceSize) {
+      long pieceStart = start;
+      long pieceEnd = Math.min(size, start + pieceSize);
+      tasks.add(ForkJoinTask.adapt(() -> scanPiece(channel, pieceStart, pieceEnd)));
+    }
+    List<long[]> scans = this.invokeAll(tasks);
+
+    List<Long> boundaries = new ArrayList<>();
+    boundaries.add(0L);
+    long quotesBefore = 0;
+    for (int i = 0; i < scans.size(); i++) {
+      long[] scan = scans.get(i);
+      long lineBreak = (quotesBefore % 2 == 0) ? scan[1] : scan[2];
+      quotesBefore += scan[0];
+      // the last piece always ends at the end of the file
+      if (lineBreak >= 0 && i + 1 < scans.size()) {
+        boundaries.add(i * pieceSize + lineBreak + 1);
+      }
+    }
+    boundaries.add(size);
+    return boundaries.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  /**
+   * Scans one piece of the file.
+   *
+   * @param channel - open channel on the file
+   * @param start - first byte of the piece
+   * @param end - one past the last byte of the piece
+   * @return quote count, offset of the first '\n' after an even number of quotes, and offset of the
+   *     first '\n' after an odd number of quotes; offsets are relative to start and -1 if missing
+   * @throws IOException - error mapping the file
+   */
+  private static long[] scanPiece(FileChannel channel, long start, long end) throws IOException {
+    MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    long quotes = 0;
+    long evenBreak = -1;
+    long oddBreak = -1;
+    int length = bytes.limit();
+    for (int i = 0; i < length; i++) {
+      byte b = bytes.get(i);
+      if (b == '"') {
+        quotes++;
+      } else if (b == '\n') {
+        if ((quotes & 1) == 0) {
+          if (evenBreak < 0) {
+            evenBreak = i;
+          }
+        } else if (oddBreak < 0) {
+          oddBreak = i;
+        }
+      }
+    }
+    return new long[] {quotes, evenBreak, oddBreak};
+  }
+
+  /**
+   * Maps one range of the file for a tokenizer.
+   *
+   * @param channel - open channel on the file
+   * @param start - first byte of the range, which is the start of a row
+   * @param end - one past the last byte of the range, which is the end of a row
+   * @param mask - fields to keep, or null to keep all of them
+   * @return a tokenizer over the range
+   * @throws IOException - error mapping the file
+   */
+  private static ByteCSVTokenizer rangeTokenizer(
+      FileChannel channel, long start, long end, boolean[] mask) throws IOException {
+    if (end - start > Integer.MAX_VALUE) {
+      throw new IOException("CSV row spans more than " + Integer.MAX_VALUE + " bytes");
+    }
+    MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    ByteCSVTokenizer tokenizer = new ByteCSVTokenizer(bytes);
+    tokenizer.keepOnly(mask);
+    return tokenizer;
+  }
+
+  /**
+   * Tokenizes one range of the file into lists of strings, for the callers that want rows.
+   *
+   * @param channel - open channel on the file
+   * @param start - first byte of the range, which is the start of a row
+   * @param end - one past the last byte of the range, which is the end of a row
+   * @param mask - fields to keep, or null to keep all of them
+   * @param width - number of fields every row must have, or -1 to leave the check to the caller
+   * @return rows of fields in the range, and the first row that doesn't have width fields
+   * @throws IOException - error mapping or reading the file
+   */
+  private static Chunk listRange(
+      FileChannel channel, long start, long end, boolean[] mask, int width) throws IOException {
+    ByteCSVTokenizer tokenizer = rangeTokenizer(channel, start, end, mask);
+    List<List<String>> rows = new ArrayList<>();
+    int badRow = -1;
+    List<String> row;
+    while ((row = tokenizer.nextRow()) != null) {
+      if (badRow < 0 && width >= 0 && tokenizer.fieldsRead() != width) {
+        badRow = rows.size();
+      }
+      rows.add(row);
+    }
+    return new Chunk(rows, badRow);
+  }
+
+  /**
+   * Tokenizes one range of the file into a columnar table of its own, straight from the
+   * tokenizer's row views. Rows are checked against the first row of the range; the caller checks
+   * that first row against the rest of the file. Tokenizing stops at the first row that fails.
+   *
+   * @param channel - open channel on the file
+   * @param start - first byte of the range, which is the start of a row
+   * @param end - one past the last byte of the range, which is the end of a row
+   * @param mask - fields to keep, or null to keep all of them
+   * @param width - number of fields every row must have, or -1 to only compare row lengths
+   * @param header - whether the first row of the range is the header, which is left out
+   * @return the table of the range's data rows, its first row, and the first row that failed
+   * @throws IOException - error mapping or reading the file
+   */
+  private static TablePart tableRange(
+      FileChannel channel, long start, long end, boolean[] mask, int width, boolean header)
+      throws IOException {
+    ByteCSVTokenizer tokenizer = rangeTokenizer(channel, start, end, mask);
+    ColumnarTable.Builder builder = new ColumnarTable.Builder();
+    List<String> firstRow = null;
+    CSVRow row;
+    while ((row = tokenizer.nextRowView()) != null) {
+      boolean first = firstRow == null;
+      if (first) {
+        firstRow = row.toList();
+      }
+      if (row.size() != firstRow.size() || (width >= 0 && tokenizer.fieldsRead() != width)) {
+        return new TablePart(null, firstRow, header, row.toList());
+      }
+      if (!(first && header)) {
+        builder.add(row);
+      }
+    }
+    return new TablePart(builder.build(), firstRow, header, null);
+  }
+
+  /**
+   * Runs the tasks on the common fork-join pool and collects their results in order.
+   *
+   * @param tasks - tasks to run
+   * @param <R> - result type of the tasks
+   * @return results in the same order as the tasks
+   * @throws IOException - the I/O error a task ran into
+   */
+  private <R> List<R> invokeAll(List<ForkJoinTask<R>> tasks) throws IOException {
+    for (ForkJoinTask<R> task : tasks) {
+      task.fork();
+    }
+    List<R> results = new ArrayList<>(tasks.size());
+    for (ForkJoinTask<R> task : tasks) {
+      results.add(join(task));
+    }
+    return results;
+  }
+
+  /**
+   * Waits for a forked task and gets its result.
+   *
+   * @param task - task to wait for
+   * @param <R> - result type of the task
+   * @return the result
+   * @throws IOException - the I/O error the task ran into
+   */
+  private static <R> R join(ForkJoinTask<R> task) throws IOException {
+    try {
+      return task.join();
+    } catch (RuntimeException e) {
+      // adapted tasks wrap checked exceptions, find the I/O error that caused the failure
+      for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Getter for Boolean hasHeader
+   *
+   * @return hasHeader
+   */
+  public Boolean getHasHeader() {
+    return this.hasHeader;
+  }
+
+  /**
+   * Getter for headerList
+   *
+   * @return headerList
+   */
+  public List<String> getHeaderList() {
+    return this.headerList;
+  }
+}
@@ -0,0 +1,228 @@
+package CSV;
+
+/**
+ * Parses numbers out of CSV fields without throwing. Each method writes the value into an array
+ * slot and returns a status code, so a field that isn't a number costs a comparison instead of a
+ * NumberFormatException, and callers can fill primitive rows or column buffers directly.
+ *
+ * <p>Only plain decimal text is accepted: an optional sign, ASCII digits, and for doubles an
+ * optional fraction and exponent. Whitespace is not trimmed, the same as Integer.parseInt.
+ */
+public final class NumberParser {
+  /** The field was parsed and the value written. */
+  public static final int OK = 0;
+
+  /** The field was empty. */
+  public static final int EMPTY = 1;
+
+  /** The field isn't a number. */
+  public static final int INVALID = 2;
+
+  /** The field is a number, but too large for the type. */
+  public static final int OVERFLOW = 3;
+
+  // every integer up to 2^53 and every power of ten up to 10^22 is exact as a double
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+    1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private NumberParser() {}
+
+  /**
+   * Parses an int.
+   *
+   * @param text The field.
+   * @param out The array to write the value into.
+   * @param index The slot of out to write.
+   * @return OK, EMPTY, INVALID or OVERFLOW; out is only written on OK.
+   */
+  public static int parseInt(CharSequence text, int[] out, int index) {
+    int length = text.length();
+    if (length == 0) {
+      return EMPTY;
+    }
+    int i = 0;
+    boolean negative = false;
+    char first = text.charAt(0);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      i++;
+      if (i == length) {
+        return INVALID;
+      }
+    }
+    // accumulate as a negative number so Integer.MIN_VALUE fits
+    int result = 0;
+    for (; i < length; i++) {
+      int digit = text.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return INVALID;
+      }
+      if (result < (Integer.MIN_VALUE + digit) / 10) {
+        return OVERFLOW;
+      }
+      result = result * 10 - digit;
+    }
+    if (!negative) {
+      if (result == Integer.MIN_VALUE) {
+        return OVERFLOW;
+      }
+      result = -result;
+    }
+    out[index] = result;
+    return OK;
+  }
+
+  /**
+   * Parses a long.
+   *
+   * @param text The field.
+   * @param out The array to write the value into.
+   * @param index The slot of out to write.
+   * @return OK, EMPTY, INVALID or OVERFLOW; out is only written on OK.
+   */
+  public static int parseLong(CharSequence text, long[] out, int index) {
+    int length = text.length();
+    if (length == 0) {
+      return EMPTY;
+    }
+    int i = 0;
+    boolean negative = false;
+    char first = text.charAt(0);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      i++;
+      if (i == length) {
+        return INVALID;
+      }
+    }
+    // accumulate as a negative number so Long.MIN_VALUE fits
+    long result = 0;
+    for (; i < length; i++) {
+      int digit = text.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return INVALID;
+      }
+      if (result < (Long.MIN_VALUE + digit) / 10) {
+        return OVERFLOW;
+      }
+      result = result * 10 - digit;
+    }
+    if (!negative) {
+      if (result == Long.MIN_VALUE) {
+        return OVERFLOW;
+      }
+      result = -result;
+    }
+    out[index] = result;
+    return OK;
+  }
+
+  /**
+   * Parses a double. Values with at most 15 significant digits and a small exponent are computed
+   * exactly with one multiplication or division; anything else is handed to Double.parseDouble once
+   * the syntax has been checked, so it never throws. Values too small for a double are 0, and
+   * values too large for one, like 1e400, are OVERFLOW rather than infinity.
+   *
+   * @param text The field.
+   * @param out The array to write the value into.
+   * @param index The slot of out to write.
+   * @return OK, EMPTY, INVALID or OVERFLOW; out is only written on OK.
+   */
+  public static int parseDouble(CharSequence text, double[] out, int index) {
+    int length = text.length();
+    if (length == 0) {
+      return EMPTY;
+    }
+    int i = 0;
+    boolean negative = false;
+    char first = text.charAt(0);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      i++;
+    }
+
+    long mantissa = 0;
+    int significantDigits = 0;
+    int digits = 0;
+    int exponent = 0;
+    boolean inFraction = false;
+    for (; i < length; i++) {
+      char c = text.charAt(i);
+      if (c >= '0' && c <= '9') {
+        digits++;
+        if (mantissa == 0 && c == '0') {
+          // leading zeros don't count as significant
+          if (inFraction) {
+            exponent--;
+          }
+          continue;
+        }
+        if (significantDigits < 18) {
+          mantissa = mantissa * 10 + (c - '0');
+          if (inFraction) {
+            exponent--;
+          }
+        } else if (!inFraction) {
+          exponent++;
+        }
+        significantDigits++;
+      } else if (c == '.' && !inFraction) {
+        inFraction = true;
+      } else {
+        break;
+      }
+    }
+    if (digits == 0) {
+      return INVALID;
+    }
+
+    if (i < length) {
+      char c = text.charAt(i);
+      if (c != 'e' && c != 'E') {
+        return INVALID;
+      }
+      i++;
+      boolean negativeExponent = false;
+      if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+        negativeExponent = text.charAt(i) == '-';
+        i++;
+      }
+      if (i == length) {
+        return INVALID;
+      }
+      int explicitExponent = 0;
+      for (; i < length; i++) {
+        int digit = text.charAt(i) - '0';
+        if (digit < 0 || digit > 9) {
+          return INVALID;
+        }
+        // anything this large is 0 or infinity anyway, stop before the int overflows
+        if (explicitExponent < 100_000) {
+          explicitExponent = explicitExponent * 10 + digit;
+        }
+      }
+      exponent += negativeExponent ? -explicitExponent : explicitExponent;
+    }
+
+    double value;
+    if (significantDigits <= 15
+        && mantissa < MAX_EXACT_MANTISSA
+        && exponent >= -22
+        && exponent <= 22) {
+      value =
+          exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+      value = negative ? -value : value;
+    } else {
+      // syntax is already known to be valid, so this can't throw
+      value = Double.parseDouble(text.toString());
+      if (Double.isInfinite(value)) {
+        return OVERFLOW;
+      }
+    }
+    out[index] = value;
+    return OK;
+  }
+}
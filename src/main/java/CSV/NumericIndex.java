@@ -0,0 +1,210 @@
+package CSV;
+
+import java.util.Arrays;
+
+/**
+ * Sorted index over a column whose values are all numbers, for range searches. The distinct values
+ * are kept in ascending order and the rows of each value are stored one after the other in a
+ * single array, so the rows in a range of values are a contiguous run found with two binary
+ * searches.
+ *
+ * <p>A column counts as numeric if every value that isn't empty parses with NumberParser; empty
+ * values are left out of the index. Values are compared as doubles.
+ */
+public class NumericIndex {
+  private final double[] values;
+  // rows of values[i] are rows[offsets[i]] up to rows[offsets[i + 1]], in ascending order
+  private final int[] offsets;
+  private final int[] rows;
+
+  /**
+   * Constructor for the NumericIndex class.
+   *
+   * @param values The distinct values, ascending.
+   * @param offsets Start of the rows of each value in rows, with the total count at the end.
+   * @param rows The rows of every value, grouped by value.
+   */
+  private NumericIndex(double[] values, int[] offsets, int[] rows) {
+    this.values = values;
+    this.offsets = offsets;
+    this.rows = rows;
+  }
+
+  /**
+   * Builds the index of a column, if the column is numeric. Dictionary columns are parsed once per
+   * distinct value.
+   *
+   * @param column The column.
+   * @return The index, or null if some value isn't a number or no value is.
+   */
+  public static NumericIndex build(Column column) {
+    int rowCount = column.size();
+    double[] parsed = new double[rowCount];
+    boolean[] present = new boolean[rowCount];
+    int count = 0;
+    if (column instanceof DictionaryColumn dictionaryColumn) {
+      String[] dictionary = dictionaryColumn.getDictionary();
+      double[] byCode = new double[dictionary.length];
+      boolean[] codePresent = new boolean[dictionary.length];
+      for (int code = 0; code < dictionary.length; code++) {
+        int status = NumberParser.parseDouble(dictionary[code], byCode, code);
+        if (status != NumberParser.OK && status != NumberParser.EMPTY) {
+          return null;
+        }
+        codePresent[code] = status == NumberParser.OK;
+      }
+      int[] codes = dictionaryColumn.getCodes();
+      for (int row = 0; row < rowCount; row++) {
+        if (codePresent[codes[row]]) {
+          parsed[row] = byCode[codes[row]];
+          present[row] = true;
+          count++;
+        }
+      }
+    } else {
+      for (int row = 0; row < rowCount; row++) {
+        int status = NumberParser.parseDouble(column.get(row), parsed, row);
+        if (status != NumberParser.OK && status != NumberParser.EMPTY) {
+          return null;
+        }
+        present[row] = status == NumberParser.OK;
+        count += present[row] ? 1 : 0;
+      }
+    }
+    if (count == 0) {
+      return null;
+    }
+
+    // sort and dedupe the values, then place the rows by the rank of their value; -0.0 is
+    // folded into 0.0 first so the two compare equal, as they do in a range predicate
+    double[] sorted = new double[count];
+    int filled = 0;
+    for (int row = 0; row < rowCount; row++) {
+      if (present[row]) {
+        parsed[row] += 0.0;
+        sorted[filled++] = parsed[row];
+      }
+    }
+    Arrays.sort(sorted);
+    int distinct = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (i == 0 || sorted[i] != sorted[i - 1]) {
+        sorted[distinct++] = sorted[i];
+      }
+    }
+    double[] values = Arrays.copyOf(sorted, distinct);
+    int[] ranks = new int[rowCount];
+    int[] offsets = new int[distinct + 1];
+    for (int row = 0; row < rowCount; row++) {
+      if (present[row]) {
+        ranks[row] = Arrays.binarySearch(values, parsed[row]);
+        offsets[ranks[row] + 1]++;
+      }
+    }
+    for (int rank = 0; rank < distinct; rank++) {
+      offsets[rank + 1] += offsets[rank];
+    }
+    int[] next = Arrays.copyOf(offsets, distinct);
+    int[] rows = new int[count];
+    for (int row = 0; row < rowCount; row++) {
+      if (present[row]) {
+        rows[next[ranks[row]]++] = row;
+      }
+    }
+    return new NumericIndex(values, offsets, rows);
+  }
+
+  /**
+   * Counts the rows whose value is in a range, without copying them.
+   *
+   * @param low The lower bound, or null for no lower bound.
+   * @param lowInclusive Whether a value equal to low is in the range.
+   * @param high The upper bound, or null for no upper bound.
+   * @param highInclusive Whether a value equal to high is in the range.
+   * @return The number of rows.
+   */
+  public int count(Double low, boolean lowInclusive, Double high, boolean highInclusive) {
+    int from = this.lowerIndex(low, lowInclusive);
+    int to = this.upperIndex(high, highInclusive);
+    return from >= to ? 0 : this.offsets[to] - this.offsets[from];
+  }
+
+  /**
+   * Gets the rows whose value is in a range.
+   *
+   * @param low The lower bound, or null for no lower bound.
+   * @param lowInclusive Whether a value equal to low is in the range.
+   * @param high The upper bound, or null for no upper bound.
+   * @param highInclusive Whether a value equal to high is in the range.
+   * @return The row numbers in ascending order.
+   */
+  public int[] rows(Double low, boolean lowInclusive, Double high, boolean highInclusive) {
+    int from = this.lowerIndex(low, lowInclusive);
+    int to = this.upperIndex(high, highInclusive);
+    if (from >= to) {
+      return new int[0];
+    }
+    int[] found = Arrays.copyOfRange(this.rows, this.offsets[from], this.offsets[to]);
+    if (to - from > 1) {
+      // rows are grouped by value; results are returned in row order
+      Arrays.sort(found);
+    }
+    return found;
+  }
+
+  /**
+   * Gets the number of distinct values in the column.
+   *
+   * @return The number of values.
+   */
+  public int distinctValues() {
+    return this.values.length;
+  }
+
+  /**
+   * Estimates the heap used by the index, in bytes.
+   *
+   * @return The estimated size in bytes.
+   */
+  public long estimatedBytes() {
+    return ColumnarTable.arrayBytes(this.values.length, Double.BYTES)
+        + ColumnarTable.arrayBytes(this.offsets.length, Integer.BYTES)
+        + ColumnarTable.arrayBytes(this.rows.length, Integer.BYTES);
+  }
+
+  /**
+   * Finds the first distinct value in the range.
+   *
+   * @param low The lower bound, or null.
+   * @param inclusive Whether low itself is in the range.
+   * @return Index into values of the first value at or above the bound.
+   */
+  private int lowerIndex(Double low, boolean inclusive) {
+    if (low == null) {
+      return 0;
+    }
+    int index = Arrays.binarySearch(this.values, low + 0.0);
+    if (index < 0) {
+      return -index - 1;
+    }
+    return inclusive ? index : index + 1;
+  }
+
+  /**
+   * Finds the end of the range.
+   *
+   * @param high The upper bound, or null.
+   * @param inclusive Whether high itself is in the range.
+   * @return Index into values one past the last value at or below the bound.
+   */
+  private int upperIndex(Double high, boolean inclusive) {
+    if (high == null) {
+      return this.values.length;
+    }
+    int index = Arrays.binarySearch(this.values, high + 0.0);
+    if (index < 0) {
+      return -index - 1;
+    }
+    return inclusive ? index + 1 : index;
+  }
+}
@@ -0,0 +1,16 @@
+package CSV;
+
+/**
+ * The ways CSVParser can split the text it reads into rows of fields.
+ */
+public enum ParserEngine {
+  /** Single-pass state machine in CSVTokenizer. This is the default. */
+  TOKENIZER,
+
+  /**
+   * The original line-by-line regex split. Kept as a legacy mode so its output can be compared with
+   * the tokenizer; it cannot handle line breaks inside quoted fields, and it drops empty fields at
+   * the end of a row, which the tokenizer keeps.
+   */
+  REGEX
+}
@@ -0,0 +1,42 @@
+package CSV;
+
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Column that keeps one String per row. Used for columns where most values are distinct, such as
+ * IDs or measurements, since a dictionary would not save anything there.
+ */
+public class PlainColumn implements Column {
+  private final String[] values;
+
+  /**
+   * Constructor for the PlainColumn class.
+   *
+   * @param values The value in each row.
+   */
+  public PlainColumn(String[] values) {
+    this.values = values;
+  }
+
+  @Override
+  public int size() {
+    return this.values.length;
+  }
+
+  @Override
+  public String get(int row) {
+    return this.values[row];
+  }
+
+  @Override
+  public IntPredicate rowMatcher(Predicate<String> valueTest) {
+    String[] values = this.values;
+    return row -> valueTest.test(values[row]);
+  }
+
+  @Override
+  public long estimatedBytes() {
+    return ColumnarTable.stringsBytes(this.values);
+  }
+}
@@ -0,0 +1,109 @@
+package CSV;
+
+import java.util.List;
+
+/**
+ * A boolean filter over the rows of a table, parsed from expressions like
+ *
+ * <pre>State=RI AND Year=2021 AND NOT Race contains "Total"</pre>
+ *
+ * <p>A predicate is a column, by header name or index, an operator and a value. The operators are
+ * {@code =} (the whole value is equal), {@code !=} and {@code contains}, and for numbers {@code <},
+ * {@code <=}, {@code >}, {@code >=} and {@code between low and high}, which includes both ends.
+ * Numeric predicates only match values that are numbers. {@code ~} matches values at most one
+ * inserted, deleted or replaced character away from its value, {@code ~2} at most two, and so on.
+ * Predicates are combined with AND, OR and NOT, which bind in that order from loosest to tightest:
+ * OR, then AND, then NOT. Parentheses group. Keywords are case insensitive. Columns and values with
+ * spaces, parentheses, {@code =}, {@code !}, {@code <}, {@code >}, {@code ~} or quotes in them are
+ * written in double quotes, with {@code \"} and {@code \\} for a quote and a backslash inside.
+ */
+public sealed interface Query {
+
+  /** How a predicate compares the value in a row with its own value. */
+  enum Operator {
+    EQUALS,
+    CONTAINS
+  }
+
+  /**
+   * Rows where the value in a column passes a test.
+   *
+   * @param column The header name or index of the column.
+   * @param operator The test.
+   * @param value The value tested against.
+   */
+  record Predicate(String column, Operator operator, String value) implements Query {}
+
+  /**
+   * Rows where the value in a column is a number in a range.
+   *
+   * @param column The header name or index of the column.
+   * @param low The lower bound, or null for none.
+   * @param lowInclusive Whether a value equal to low matches.
+   * @param high The upper bound, or null for none.
+   * @param highInclusive Whether a value equal to high matches.
+   */
+  record Range(String column, Double low, boolean lowInclusive, Double high, boolean highInclusive)
+      implements Query {
+
+    /**
+     * Checks whether a number is in the range.
+     *
+     * @param value The number.
+     * @return true if it is within both bounds.
+     */
+    public boolean contains(double value) {
+      return (this.low == null || (this.lowInclusive ? value >= this.low : value > this.low))
+          && (this.high == null || (this.highInclusive ? value <= this.high : value < this.high));
+    }
+  }
+
+  /**
+   * Rows where the value in a column is within an edit distance of a word, for values that may be
+   * mistyped.
+   *
+   * @param column The header name or index of the column.
+   * @param value The word.
+   * @param maxDistance The most characters inserted, deleted or replaced to turn the word into the
+   *     value, at most MAX_DISTANCE.
+   */
+  record Fuzzy(String column, String value, int maxDistance) implements Query {
+    /**
+     * Largest distance a fuzzy match may allow; beyond a few edits nearly every short value
+     * matches, and a BK-tree search visits most nodes.
+     */
+    public static final int MAX_DISTANCE = 3;
+  }
+
+  /**
+   * Rows that match every term.
+   *
+   * @param terms The terms, at least two.
+   */
+  record And(List<Query> terms) implements Query {}
+
+  /**
+   * Rows that match at least one term.
+   *
+   * @param terms The terms, at least two.
+   */
+  record Or(List<Query> terms) implements Query {}
+
+  /**
+   * Rows that don't match a term.
+   *
+   * @param term The term.
+   */
+  record Not(Query term) implements Query {}
+
+  /**
+   * Parses a query expression.
+   *
+   * @param expression The expression.
+   * @return The query.
+   * @throws InvalidQueryException If the expression isn't a valid query.
+   */
+  static Query parse(String expression) throws InvalidQueryException {
+    return new QueryParser(expression).parseAll();
+  }
+}
@@ -0,0 +1,208 @@
+package CSV;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recursive descent parser for Query expressions. Each method parses one level of the grammar,
+ * from OR down to a single predicate, so precedence comes from the call order.
+ */
+final class QueryParser {
+  private final String text;
+  private int position;
+
+  QueryParser(String text) {
+    this.text = text;
+  }
+
+  Query parseAll() throws InvalidQueryException {
+    Query query = this.parseOr();
+    this.skipSpaces();
+    if (this.position < this.text.length()) {
+      throw this.error("unexpected " + this.text.charAt(this.position));
+    }
+    return query;
+  }
+
+  private Query parseOr() throws InvalidQueryException {
+    List<Query> terms = new ArrayList<>();
+    terms.add(this.parseAnd());
+    while (this.keyword("OR")) {
+      terms.add(this.parseAnd());
+    }
+    return terms.size() == 1 ? terms.get(0) : new Query.Or(terms);
+  }
+
+  private Query parseAnd() throws InvalidQueryException {
+    List<Query> terms = new ArrayList<>();
+    terms.add(this.parseUnary());
+    while (this.keyword("AND")) {
+      terms.add(this.parseUnary());
+    }
+    return terms.size() == 1 ? terms.get(0) : new Query.And(terms);
+  }
+
+  private Query parseUnary() throws InvalidQueryException {
+    if (this.keyword("NOT")) {
+      return new Query.Not(this.parseUnary());
+    }
+    if (this.symbol("(")) {
+      Query query = this.parseOr();
+      if (!this.symbol(")")) {
+        throw this.error("missing )");
+      }
+      return query;
+    }
+    String column = this.word("column");
+    if (this.symbol("!=")) {
+      return new Query.Not(new Query.Predicate(column, Query.Operator.EQUALS, this.word("value")));
+    }
+    if (this.symbol("=")) {
+      return new Query.Predicate(column, Query.Operator.EQUALS, this.word("value"));
+    }
+    if (this.keyword("CONTAINS")) {
+      return new Query.Predicate(column, Query.Operator.CONTAINS, this.word("value"));
+    }
+    // two-character comparisons first, so <= isn't read as < followed by =
+    if (this.symbol("<=")) {
+      return new Query.Range(column, null, false, this.number(), true);
+    }
+    if (this.symbol(">=")) {
+      return new Query.Range(column, this.number(), true, null, false);
+    }
+    if (this.symbol("<")) {
+      return new Query.Range(column, null, false, this.number(), false);
+    }
+    if (this.symbol(">")) {
+      return new Query.Range(column, this.number(), false, null, false);
+    }
+    if (this.symbol("~")) {
+      // the distance is written right after the ~, and is 1 if it isn't
+      int start = this.position;
+      while (this.position < this.text.length()
+          && Character.isDigit(this.text.charAt(this.position))) {
+        this.position++;
+      }
+      int maxDistance = 1;
+      try {
+        if (start < this.position) {
+          maxDistance = Integer.parseInt(this.text.substring(start, this.position));
+        }
+      } catch (NumberFormatException e) {
+        maxDistance = Integer.MAX_VALUE;
+      }
+      if (maxDistance > Query.Fuzzy.MAX_DISTANCE) {
+        throw this.error("distance above " + Query.Fuzzy.MAX_DISTANCE);
+      }
+      return new Query.Fuzzy(column, this.word("value"), maxDistance);
+    }
+    if (this.keyword("BETWEEN")) {
+      double low = this.number();
+      if (!this.keyword("AND")) {
+        throw this.error("expected AND in between");
+      }
+      return new Query.Range(column, low, true, this.number(), true);
+    }
+    throw this.error("expected =, !=, contains, ~, a comparison or between after " + column);
+  }
+
+  /**
+   * Reads a number.
+   *
+   * @return The number.
+   * @throws InvalidQueryException If the next word isn't a number.
+   */
+  private double number() throws InvalidQueryException {
+    int start = this.position;
+    double[] number = new double[1];
+    if (NumberParser.parseDouble(this.word("number"), number, 0) != NumberParser.OK) {
+      this.position = start;
+      this.skipSpaces();
+      throw this.error("expected a number");
+    }
+    return number[0];
+  }
+
+  /**
+   * Consumes a keyword if it is next, as a whole bare word.
+   *
+   * @param keyword The keyword, in upper case.
+   * @return true if it was consumed.
+   */
+  private boolean keyword(String keyword) {
+    this.skipSpaces();
+    int end = this.position + keyword.length();
+    if (end > this.text.length()
+        || !this.text.regionMatches(true, this.position, keyword, 0, keyword.length())
+        || (end < this.text.length() && isWordChar(this.text.charAt(end)))) {
+      return false;
+    }
+    this.position = end;
+    return true;
+  }
+
+  /**
+   * Consumes a symbol if it is next.
+   *
+   * @param symbol The symbol.
+   * @return true if it was consumed.
+   */
+  private boolean symbol(String symbol) {
+    this.skipSpaces();
+    if (!this.text.startsWith(symbol, this.position)) {
+      return false;
+    }
+    this.position += symbol.length();
+    return true;
+  }
+
+  /**
+   * Reads a column or a value, bare or in double quotes.
+   *
+   * @param what What is expected, for the error message.
+   * @return The text of the word, unescaped.
+   * @throws InvalidQueryException If there is no word next or a quote isn't closed.
+   */
+  private String word(String what) throws InvalidQueryException {
+    this.skipSpaces();
+    if (this.position < this.text.length() && this.text.charAt(this.position) == '"') {
+      StringBuilder word = new StringBuilder();
+      for (int i = this.position + 1; i < this.text.length(); i++) {
+        char c = this.text.charAt(i);
+        if (c == '"') {
+          this.position = i + 1;
+          return word.toString();
+        }
+        if (c == '\\' && i + 1 < this.text.length()) {
+          c = this.text.charAt(++i);
+        }
+        word.append(c);
+      }
+      throw this.error("unclosed quote");
+    }
+    int start = this.position;
+    while (this.position < this.text.length() && isWordChar(this.text.charAt(this.position))) {
+      this.position++;
+    }
+    if (start == this.position) {
+      throw this.error("expected " + what);
+    }
+    return this.text.substring(start, this.position);
+  }
+
+  private void skipSpaces() {
+    while (this.position < this.text.length()
+        && Character.isWhitespace(this.text.charAt(this.position))) {
+      this.position++;
+    }
+  }
+
+  private static boolean isWordChar(char c) {
+    return !Character.isWhitespace(c) && c != '(' && c != ')' && c != '=' && c != '!'
+        && c != '<' && c != '>' && c != '~' && c != '"';
+  }
+
+  private InvalidQueryException error(String message) {
+    return new InvalidQueryException(message + " at position " + this.position);
+  }
+}
@@ -0,0 +1,337 @@
+package CSV;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Turns a Query into a plan over the table of a CSVSearcher and runs it.
+ *
+ * <p>Columns are resolved once, by resolveColumns, into a query that names every column by its
+ * index. That query is what the search cache is keyed on and what run plans, so a header that
+ * looks like a number can't make two different searches share a result.
+ *
+ * <p>Every term of the query gets an estimated selectivity, the share of rows it matches.
+ * Predicates with an index are exact: an exact-match index knows how many rows hold a value, a
+ * trigram index finds the rows containing a word, a numeric index counts the rows in a range
+ * with two binary searches, and a BK-tree finds the values near a mistyped word. Without an index,
+ * a dictionary column gives the share of its distinct values that pass, and any other column falls
+ * back to a fixed guess.
+ *
+ * <p>AND tests its terms most selective first and stops at the first that fails; if any term can be
+ * answered from an index, the most selective such term gives the candidate rows and only those are
+ * tested against the rest. OR tests its terms most likely first and stops at the first that passes,
+ * and is answered from the indexes when all of its terms can be. Anything left is a scan of every
+ * row, which CSVSearcher may split across threads.
+ */
+final class QueryPlanner {
+  // share of rows a contains predicate on a column without dictionary or index is assumed to match
+  private static final double CONTAINS_GUESS = 0.1;
+  // share of rows a range predicate on a column without dictionary or index is assumed to match
+  private static final double RANGE_GUESS = 0.25;
+  // share of rows a fuzzy predicate on a column without dictionary or index is assumed to match
+  private static final double FUZZY_GUESS = 0.01;
+
+  private final CSVSearcher searcher;
+  private final int rowCount;
+
+  /**
+   * One planned term of the query.
+   *
+   * @param selectivity Estimated share of rows that match, from 0 to 1.
+   * @param matcher Test over row numbers, safe to call from several threads.
+   * @param rows The matching rows in ascending order, found without a scan, or null if the term
+   *     can't be answered from the indexes.
+   */
+  private record Step(double selectivity, IntPredicate matcher, Supplier<int[]> rows) {}
+
+  /**
+   * Constructor for the QueryPlanner class.
+   *
+   * @param searcher - searcher whose table, header and indexes the query runs against
+   */
+  QueryPlanner(CSVSearcher searcher) {
+    this.searcher = searcher;
+    this.rowCount = searcher.table.rowCount();
+  }
+
+  /**
+   * Rewrites a query so each column is named by its index, found by header name first and by
+   * index otherwise, as resolve does.
+   *
+   * @param query - the query, with columns named by header or index
+   * @return the same query with every column replaced by its index
+   * @throws NotFoundException - a column of the query is not in the table
+   */
+  Query resolveColumns(Query query) throws NotFoundException {
+    if (query instanceof Query.Predicate predicate) {
+      return new Query.Predicate(
+          this.resolvedName(predicate.column()), predicate.operator(), predicate.value());
+    }
+    if (query instanceof Query.Range range) {
+      return new Query.Range(
+          this.resolvedName(range.column()),
+          range.low(),
+          range.lowInclusive(),
+          range.high(),
+          range.highInclusive());
+    }
+    if (query instanceof Query.Fuzzy fuzzy) {
+      return new Query.Fuzzy(
+          this.resolvedName(fuzzy.column()), fuzzy.value(), fuzzy.maxDistance());
+    }
+    if (query instanceof Query.Not not) {
+      return new Query.Not(this.resolveColumns(not.term()));
+    }
+    if (query instanceof Query.And and) {
+      return new Query.And(this.resolveAll(and.terms()));
+    }
+    return new Query.Or(this.resolveAll(((Query.Or) query).terms()));
+  }
+
+  private List<Query> resolveAll(List<Query> terms) throws NotFoundException {
+    List<Query> resolved = new ArrayList<>(terms.size());
+    for (Query term : terms) {
+      resolved.add(this.resolveColumns(term));
+    }
+    return resolved;
+  }
+
+  private String resolvedName(String column) throws NotFoundException {
+    return String.valueOf(this.resolve(column));
+  }
+
+  /**
+   * Finds the rows that match a query.
+   *
+   * @param query - the query, with every column named by its index as resolveColumns returns it
+   * @return ascending row numbers
+   */
+  int[] run(Query query) {
+    Step step = this.plan(query);
+    return step.rows() != null ? step.rows().get() : this.searcher.scan(step.matcher());
+  }
+
+  private Step plan(Query query) {
+    if (query instanceof Query.Predicate predicate) {
+      return this.planPredicate(predicate);
+    }
+    if (query instanceof Query.Range range) {
+      return this.planRange(range);
+    }
+    if (query instanceof Query.Fuzzy fuzzy) {
+      return this.planFuzzy(fuzzy);
+    }
+    if (query instanceof Query.Not not) {
+      Step term = this.plan(not.term());
+      return new Step(1 - term.selectivity(), term.matcher().negate(), null);
+    }
+    if (query instanceof Query.And and) {
+      return this.planAnd(this.planAll(and.terms()));
+    }
+    return this.planOr(this.planAll(((Query.Or) query).terms()));
+  }
+
+  private List<Step> planAll(List<Query> terms) {
+    List<Step> steps = new ArrayList<>(terms.size());
+    for (Query term : terms) {
+      steps.add(this.plan(term));
+    }
+    return steps;
+  }
+
+  private Step planAnd(List<Step> terms) {
+    terms.sort(Comparator.comparingDouble(Step::selectivity));
+    double selectivity = 1;
+    Step driver = null;
+    for (Step term : terms) {
+      selectivity *= term.selectivity();
+      if (driver == null && term.rows() != null) {
+        driver = term;
+      }
+    }
+    List<Step> rest = new ArrayList<>(terms);
+    rest.remove(driver);
+    IntPredicate[] tests = rest.stream().map(Step::matcher).toArray(IntPredicate[]::new);
+    IntPredicate matcher =
+        row -> {
+          for (IntPredicate test : tests) {
+            if (!test.test(row)) {
+              return false;
+            }
+          }
+          return true;
+        };
+    if (driver == null) {
+      return new Step(selectivity, matcher, null);
+    }
+    Supplier<int[]> candidates = driver.rows();
+    IntPredicate driverMatcher = driver.matcher();
+    return new Step(
+        selectivity,
+        row -> driverMatcher.test(row) && matcher.test(row),
+        () -> filter(candidates.get(), matcher));
+  }
+
+  private Step planOr(List<Step> terms) {
+    terms.sort(Comparator.comparingDouble(Step::selectivity).reversed());
+    double missed = 1;
+    boolean indexed = true;
+    for (Step term : terms) {
+      missed *= 1 - term.selectivity();
+      indexed &= term.rows() != null;
+    }
+    IntPredicate[] tests = terms.stream().map(Step::matcher).toArray(IntPredicate[]::new);
+    IntPredicate matcher =
+        row -> {
+          for (IntPredicate test : tests) {
+            if (test.test(row)) {
+              return true;
+            }
+          }
+          return false;
+        };
+    if (!indexed) {
+      return new Step(1 - missed, matcher, null);
+    }
+    return new Step(
+        1 - missed,
+        matcher,
+        () -> CSVSearcher.union(terms.stream().map(t -> t.rows().get()).toArray(int[][]::new)));
+  }
+
+  private Step planPredicate(Query.Predicate predicate) {
+    int column = Integer.parseInt(predicate.column());
+    String value = predicate.value();
+    Column values = this.searcher.table.column(column);
+    TableIndexes indexes = this.searcher.indexes;
+
+    if (predicate.operator() == Query.Operator.EQUALS) {
+      IntPredicate matcher = values.rowMatcher(value::equals);
+      ValueIndex index = indexes == null ? null : indexes.exact(column);
+      if (index != null) {
+        return new Step(this.share(index.count(value)), matcher, () -> index.rows(value));
+      }
+      return new Step(
+          this.estimate(values, value::equals, 1.0 / Math.max(1, this.rowCount)), matcher, null);
+    }
+
+    IntPredicate matcher = values.rowMatcher(word -> word.contains(value));
+    int[] indexed = this.searcher.indexedRowsContaining(value, column);
+    if (indexed != null) {
+      return new Step(this.share(indexed.length), matcher, () -> indexed);
+    }
+    return new Step(
+        this.estimate(values, word -> word.contains(value), CONTAINS_GUESS), matcher, null);
+  }
+
+  private Step planRange(Query.Range range) {
+    int column = Integer.parseInt(range.column());
+    Column values = this.searcher.table.column(column);
+    Predicate<String> inRange =
+        value -> {
+          // a buffer per call keeps the test safe on the threads of a parallel scan
+          double[] number = new double[1];
+          return NumberParser.parseDouble(value, number, 0) == NumberParser.OK
+              && range.contains(number[0]);
+        };
+    IntPredicate matcher = values.rowMatcher(inRange);
+    TableIndexes indexes = this.searcher.indexes;
+    NumericIndex index = indexes == null ? null : indexes.numeric(column);
+    if (index != null) {
+      Double low = range.low();
+      Double high = range.high();
+      return new Step(
+          this.share(index.count(low, range.lowInclusive(), high, range.highInclusive())),
+          matcher,
+          () -> index.rows(low, range.lowInclusive(), high, range.highInclusive()));
+    }
+    return new Step(this.estimate(values, inRange, RANGE_GUESS), matcher, null);
+  }
+
+  private Step planFuzzy(Query.Fuzzy fuzzy) {
+    int column = Integer.parseInt(fuzzy.column());
+    Column values = this.searcher.table.column(column);
+    String word = fuzzy.value();
+    int maxDistance = fuzzy.maxDistance();
+    Predicate<String> near = value -> Levenshtein.within(value, word, maxDistance);
+    IntPredicate matcher = values.rowMatcher(near);
+    int[] indexed = this.searcher.indexedRowsNear(word, maxDistance, column);
+    if (indexed != null) {
+      return new Step(this.share(indexed.length), matcher, () -> indexed);
+    }
+    return new Step(this.estimate(values, near, FUZZY_GUESS), matcher, null);
+  }
+
+  /**
+   * Estimates the share of rows whose value in a column passes a test, without an index.
+   *
+   * @param column - the column
+   * @param valueTest - the test
+   * @param guess - share to assume if the column can't tell
+   * @return share of the distinct values that pass for a dictionary column, otherwise guess
+   */
+  private double estimate(Column column, Predicate<String> valueTest, double guess) {
+    if (!(column instanceof DictionaryColumn dictionaryColumn)) {
+      return guess;
+    }
+    String[] dictionary = dictionaryColumn.getDictionary();
+    int passing = 0;
+    for (String value : dictionary) {
+      if (valueTest.test(value)) {
+        passing++;
+      }
+    }
+    return dictionary.length == 0 ? 0 : (double) passing / dictionary.length;
+  }
+
+  private double share(int rows) {
+    return this.rowCount == 0 ? 0 : (double) rows / this.rowCount;
+  }
+
+  /**
+   * Finds a column of the query by header name, or else by index.
+   *
+   * @param column - header name or index
+   * @return index of the column
+   * @throws NotFoundException - the column is neither a header name nor an index in range
+   */
+  int resolve(String column) throws NotFoundException {
+    List<String> header = this.searcher.headerList;
+    if (this.searcher.hasHeader && header != null && header.contains(column)) {
+      return header.indexOf(column);
+    }
+    int index;
+    try {
+      index = Integer.parseInt(column);
+    } catch (NumberFormatException e) {
+      throw new NotFoundException("Column " + column + " was not in CSV header list");
+    }
+    if (index < 0 || index >= this.searcher.table.columnCount()) {
+      throw new NotFoundException("Column index " + index + " out of bounds of CSV row");
+    }
+    return index;
+  }
+
+  /**
+   * Keeps the candidate rows that pass a test.
+   *
+   * @param rows - ascending row numbers
+   * @param matcher - the test
+   * @return the rows that pass, still ascending
+   */
+  private static int[] filter(int[] rows, IntPredicate matcher) {
+    int[] kept = new int[rows.length];
+    int count = 0;
+    for (int row : rows) {
+      if (matcher.test(row)) {
+        kept[count++] = row;
+      }
+    }
+    return Arrays.copyOf(kept, count);
+  }
+}
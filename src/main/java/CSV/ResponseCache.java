@@ -0,0 +1,93 @@
+package CSV;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Bounded cache of rendered responses, shared by the routes over the datasets of one AccessCSV.
+ * A response is fully determined by the version of the dataset it read and the route and
+ * parameters of the request, so a repeated request can be answered with the bytes sent the first
+ * time, without searching or serializing again.
+ *
+ * <p>The cache is limited by the bytes of the bodies it holds, evicting the least recently used
+ * first. Bodies over MAX_ENTRY_BYTES are never stored, so one large view can't push out many small
+ * searches; those are streamed every time.
+ */
+public class ResponseCache {
+  /** Default limit on the bytes of cached bodies. */
+  public static final long DEFAULT_MAX_BYTES = 32L << 20;
+
+  /** Largest body that is cached. */
+  public static final int MAX_ENTRY_BYTES = 1 << 20;
+
+  // rough size of the key, the entry and the array header of one cached body
+  private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+  private final Cache<Key, byte[]> bodies;
+
+  /**
+   * What a cached body was rendered from.
+   *
+   * @param version The version of the dataset the response read.
+   * @param route The route, like viewcsv.
+   * @param params The parameters of the request, in a normalized order.
+   */
+  public record Key(long version, String route, String params) {}
+
+  /**
+   * Constructor for the ResponseCache class.
+   *
+   * @param maxBytes The most bytes of bodies to keep.
+   */
+  public ResponseCache(long maxBytes) {
+    this.bodies =
+        CacheBuilder.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher(
+                (Key key, byte[] body) ->
+                    ENTRY_OVERHEAD_BYTES + 2 * key.params().length() + body.length)
+            .recordStats()
+            .build();
+  }
+
+  /**
+   * Looks up a body.
+   *
+   * @param key The version, route and parameters.
+   * @return The body, or null if it isn't cached.
+   */
+  public byte[] get(Key key) {
+    return this.bodies.getIfPresent(key);
+  }
+
+  /**
+   * Stores a body, unless it is over MAX_ENTRY_BYTES.
+   *
+   * @param key The version, route and parameters.
+   * @param body The complete body; the array must not be changed later.
+   */
+  public void put(Key key, byte[] body) {
+    if (body.length <= MAX_ENTRY_BYTES) {
+      this.bodies.put(key, body);
+    }
+  }
+
+  /**
+   * Drops the cached bodies of one version of the data, when its dataset is reloaded or removed.
+   *
+   * @param version The version whose bodies are dropped.
+   */
+  public void invalidateVersion(long version) {
+    this.bodies.asMap().keySet().removeIf(key -> key.version() == version);
+  }
+
+  /**
+   * Gets the hit, miss and eviction counts since the cache was made.
+   *
+   * @return The statistics.
+   */
+  public CacheStats stats() {
+    return this.bodies.stats();
+  }
+}
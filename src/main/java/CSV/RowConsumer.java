@@ -0,0 +1,19 @@
+package CSV;
+
+/**
+ * This interface receives the objects a CSVParser creates, one row at a time, as the text is read.
+ * It lets callers work through a file without the whole file being held in memory.
+ *
+ * @param <T> The type of object created from each row.
+ */
+@FunctionalInterface
+public interface RowConsumer<T> {
+
+  /**
+   * Accepts the object created from the next row of the CSV.
+   *
+   * @param row The object created from the row.
+   * @return true to keep parsing, false to stop before the next row is read.
+   */
+  boolean accept(T row);
+}
@@ -0,0 +1,92 @@
+package CSV;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Bounded cache of search results, shared by the searches over the datasets of one AccessCSV.
+ * Results are kept as arrays of row numbers rather than rows, and the cache is limited by the bytes
+ * those arrays take, evicting the least recently used first.
+ *
+ * <p>Entries are keyed by the version of the searched data and a normalized search: the parsed
+ * form of the query, so spacing and keyword case don't matter, with every column replaced by its
+ * resolved index, so a header name and its index share an entry and a header named like another
+ * column's index does not. Single-column searches are keyed as the query they stand for. Only
+ * complete results are stored; a page cut short by a limit is not.
+ */
+public class SearchCache {
+  /** Default limit on the bytes of cached row numbers. */
+  public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+  // rough size of the key, the entry and the array header of one cached result
+  private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+  private final Cache<Key, int[]> results;
+
+  /**
+   * What a cached result was computed from.
+   *
+   * @param version The version of the searched data, from AccessCSV.getVersion.
+   * @param search The normalized search, as a Query whose columns are indices.
+   */
+  public record Key(long version, Query search) {}
+
+  /**
+   * Constructor for the SearchCache class.
+   *
+   * @param maxBytes The most bytes of results to keep.
+   */
+  public SearchCache(long maxBytes) {
+    this.results =
+        CacheBuilder.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((Key key, int[] rows) -> ENTRY_OVERHEAD_BYTES + rows.length * Integer.BYTES)
+            .recordStats()
+            .build();
+  }
+
+  /**
+   * Looks up a result.
+   *
+   * @param key The version and search.
+   * @return The ascending row numbers of every match, or null if the result isn't cached.
+   */
+  public int[] get(Key key) {
+    return this.results.getIfPresent(key);
+  }
+
+  /**
+   * Stores a complete result.
+   *
+   * @param key The version and search.
+   * @param rows The ascending row numbers of every match; the array must not be changed later.
+   */
+  public void put(Key key, int[] rows) {
+    this.results.put(key, rows);
+  }
+
+  /** Drops every cached result. */
+  public void invalidateAll() {
+    this.results.invalidateAll();
+  }
+
+  /**
+   * Drops the cached results of one version of the data, for example when a dataset is reloaded
+   * and its old version can't be searched any more.
+   *
+   * @param version The version whose results are dropped.
+   */
+  public void invalidateVersion(long version) {
+    this.results.asMap().keySet().removeIf(key -> key.version() == version);
+  }
+
+  /**
+   * Gets the hit, miss and eviction counts since the cache was made.
+   *
+   * @return The statistics.
+   */
+  public CacheStats stats() {
+    return this.results.stats();
+  }
+}
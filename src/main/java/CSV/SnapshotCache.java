@@ -0,0 +1,517 @@
+package CSV;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * On-disk cache of parsed CSV files. A snapshot holds the header and the columnar table of one
+ * parse in a binary format that is read back with a single memory-mapped pass, so loading a file
+ * that hasn't changed skips tokenizing entirely.
+ *
+ * <p>Snapshots are found by the canonical path of the CSV and the parse options. One is only used
+ * if the CSV still has the size, modification time and CRC32C hash recorded when it was written;
+ * otherwise it is deleted and the file is parsed again. Snapshots from an older format version are
+ * treated the same way. Only the first and last 64 KB of the CSV are hashed, so checking a large
+ * file doesn't read all of it; the size and modification time catch the rest of the edits.
+ *
+ * <p>Because of that, an edit in the middle of a file that keeps its size and is made within the
+ * file system's modification time granularity of the last load is not seen, and the old snapshot
+ * is served; load with snapshots off after such an edit.
+ *
+ * <p>A snapshot is not written if the CSV changed while it was being parsed, or if it would be too
+ * big to map in one piece or to fit in the directory. The directory is kept under a total size by
+ * deleting the snapshots least recently written or read.
+ *
+ * <p>Anyone who can write to the directory can plant a snapshot, so it is created readable only by
+ * its owner, and it is only used while it is a real directory owned by the user the server runs as
+ * that no one else can write to. Otherwise snapshots are neither read nor written.
+ */
+public class SnapshotCache {
+  private static final int MAGIC = 0x43535653; // "CSVS"
+  private static final int FORMAT_VERSION = 2;
+  private static final byte DICTIONARY_COLUMN = 0;
+  private static final byte PLAIN_COLUMN = 1;
+  private static final int HASH_WINDOW = 1 << 16;
+  private static final String SUFFIX = ".snap";
+
+  /** Default total size of the snapshots kept in the directory. */
+  public static final long DEFAULT_MAX_BYTES = 1L << 30;
+
+  /** System property naming the directory the default cache keeps its snapshots in. */
+  public static final String DIRECTORY_PROPERTY = "csv.snapshots.dir";
+
+  private final Path directory;
+  private final long maxBytes;
+
+  /** A parsed CSV read back from the cache. */
+  public record Snapshot(List<String> header, ColumnarTable table) {}
+
+  /**
+   * Identity of a CSV file at the moment it was looked at: where it is, how big it is, when it was
+   * last modified and a hash of its bytes.
+   */
+  public record SourceState(String canonicalPath, long size, long modified, long contentHash) {}
+
+  /**
+   * Constructor for the SnapshotCache class, keeping at most DEFAULT_MAX_BYTES of snapshots.
+   *
+   * @param directory The directory snapshots are kept in; it is created if missing.
+   */
+  public SnapshotCache(Path directory) {
+    this(directory, DEFAULT_MAX_BYTES);
+  }
+
+  /**
+   * Constructor for the SnapshotCache class.
+   *
+   * @param directory The directory snapshots are kept in; it is created if missing.
+   * @param maxBytes The total size of the snapshots kept in the directory.
+   * @throws IllegalArgumentException If the size is negative.
+   */
+  public SnapshotCache(Path directory, long maxBytes) {
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("snapshot directory size must be >= 0");
+    }
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Creates a cache in the directory named by the DIRECTORY_PROPERTY system property, or else in
+   * .cache/csv-snapshots under the user's home directory. The shared temporary directory is never
+   * the default, since other users could create the directory there first.
+   *
+   * @return The cache.
+   */
+  public static SnapshotCache inDefaultDirectory() {
+    String configured = System.getProperty(DIRECTORY_PROPERTY);
+    Path directory =
+        configured != null && !configured.isBlank()
+            ? Path.of(configured)
+            : Path.of(System.getProperty("user.home"), ".cache", "csv-snapshots");
+    return new SnapshotCache(directory);
+  }
+
+  /**
+   * Gets the directory snapshots are kept in.
+   *
+   * @return The directory.
+   */
+  public Path getDirectory() {
+    return this.directory;
+  }
+
+  /**
+   * Checks that the directory can be trusted with snapshots: that it is a directory and not a link
+   * to one, that it is owned by the user the server runs as, and, where the file system has POSIX
+   * permissions, that neither its group nor anyone else can write to it.
+   *
+   * @return true if snapshots may be read from and written to the directory.
+   * @throws IOException If the directory's attributes can't be read.
+   */
+  private boolean directoryTrusted() throws IOException {
+    if (!Files.isDirectory(this.directory, LinkOption.NOFOLLOW_LINKS)) {
+      return false;
+    }
+    UserPrincipal owner = Files.getOwner(this.directory, LinkOption.NOFOLLOW_LINKS);
+    UserPrincipal user =
+        this.directory
+            .getFileSystem()
+            .getUserPrincipalLookupService()
+            .lookupPrincipalByName(System.getProperty("user.name"));
+    if (!owner.equals(user)) {
+      return false;
+    }
+    if (!Files.getFileStore(this.directory).supportsFileAttributeView("posix")) {
+      return true;
+    }
+    Set<PosixFilePermission> permissions =
+        Files.readAttributes(this.directory, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS)
+            .permissions();
+    return !permissions.contains(PosixFilePermission.GROUP_WRITE)
+        && !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+  }
+
+  /**
+   * Creates the directory if it is missing, readable and writable only by its owner where the file
+   * system has POSIX permissions, and checks that it can be trusted.
+   *
+   * @throws IOException If the directory can't be created or isn't safe to keep snapshots in.
+   */
+  private void createTrustedDirectory() throws IOException {
+    if (!Files.exists(this.directory, LinkOption.NOFOLLOW_LINKS)) {
+      // only the last directory is made owner-only; the ones above it are left as they come
+      Path parent = this.directory.toAbsolutePath().getParent();
+      Files.createDirectories(parent);
+      FileAttribute<?>[] ownerOnly =
+          Files.getFileStore(parent).supportsFileAttributeView("posix")
+              ? new FileAttribute<?>[] {
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------"))
+              }
+              : new FileAttribute<?>[0];
+      try {
+        Files.createDirectory(this.directory, ownerOnly);
+      } catch (FileAlreadyExistsException e) {
+        // made by another load in the meantime; it is checked below like any other
+      }
+    }
+    if (!this.directoryTrusted()) {
+      throw new IOException(
+          "snapshot directory " + this.directory + " is not a directory owned by "
+              + System.getProperty("user.name") + " that only it can write to");
+    }
+  }
+
+  /**
+   * Looks at a CSV file and records its current identity.
+   *
+   * @param csvFile The CSV file.
+   * @return The path, size, modification time and a hash of the first and last bytes of the file.
+   * @throws IOException If the file can't be read.
+   */
+  public static SourceState inspect(Path csvFile) throws IOException {
+    Path canonical = csvFile.toRealPath();
+    BasicFileAttributes attributes = Files.readAttributes(canonical, BasicFileAttributes.class);
+    CRC32C crc = new CRC32C();
+    try (FileChannel channel = FileChannel.open(canonical, StandardOpenOption.READ)) {
+      long size = channel.size();
+      ByteBuffer window = ByteBuffer.allocate((int) Math.min(size, 2L * HASH_WINDOW));
+      if (size <= 2L * HASH_WINDOW) {
+        readFully(channel, window, 0);
+      } else {
+        window.limit(HASH_WINDOW);
+        readFully(channel, window, 0);
+        window.limit(window.capacity());
+        readFully(channel, window, size - HASH_WINDOW);
+      }
+      crc.update(window.flip());
+    }
+    return new SourceState(
+        canonical.toString(),
+        attributes.size(),
+        attributes.lastModifiedTime().toMillis(),
+        crc.getValue());
+  }
+
+  /**
+   * Checks, without hashing, that a CSV file still has the size and modification time it had when
+   * it was inspected.
+   *
+   * @param source The identity of the file when it was inspected.
+   * @return true if the size and modification time are unchanged.
+   * @throws IOException If the file can't be read.
+   */
+  public static boolean unchangedSince(SourceState source) throws IOException {
+    BasicFileAttributes attributes =
+        Files.readAttributes(Path.of(source.canonicalPath()), BasicFileAttributes.class);
+    return attributes.size() == source.size()
+        && attributes.lastModifiedTime().toMillis() == source.modified();
+  }
+
+  /**
+   * Reads the snapshot for a CSV file, if there is a valid one.
+   *
+   * @param source The current identity of the CSV file.
+   * @param options The parse options the snapshot must have been made with.
+   * @return The snapshot, or null if there is none, it is out of date or the directory can't be
+   *     trusted.
+   * @throws IOException If the snapshot file exists but can't be read.
+   */
+  public Snapshot read(SourceState source, String options) throws IOException {
+    Path file = this.snapshotFile(source, options);
+    if (!Files.exists(file) || !this.directoryTrusted()) {
+      // a snapshot someone else could have written is never read
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        // too big to map in one piece, parsing the CSV is the only option
+        return null;
+      }
+      MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION) {
+        Files.deleteIfExists(file);
+        return null;
+      }
+      SourceState stored =
+          new SourceState(readString(in), in.getLong(), in.getLong(), in.getLong());
+      if (!stored.canonicalPath().equals(source.canonicalPath())
+          || !readString(in).equals(options)) {
+        // a different file or options that happen to share the file name; leave it alone
+        return null;
+      }
+      if (!stored.equals(source)) {
+        Files.deleteIfExists(file);
+        return null;
+      }
+      List<String> header = readStrings(in);
+      Snapshot snapshot = new Snapshot(header, readTable(in));
+      // the directory is pruned by modification time, so a snapshot in use is kept
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+      return snapshot;
+    } catch (RuntimeException e) {
+      // truncated or corrupt snapshot
+      Files.deleteIfExists(file);
+      return null;
+    }
+  }
+
+  /**
+   * Writes the snapshot of a parse. The file is written next to its final name and moved into
+   * place, so a reader never sees half a snapshot. Older snapshots are then deleted until the
+   * directory is back under its size.
+   *
+   * @param source The identity of the CSV file before it was parsed.
+   * @param options The parse options used.
+   * @param header The header row, or null if there is none.
+   * @param table The parsed rows.
+   * @return true if the snapshot was written, false if it would be too big to keep or read back.
+   * @throws IOException If the snapshot can't be written, or the directory isn't safe to write to.
+   */
+  public boolean write(
+      SourceState source, String options, List<String> header, ColumnarTable table)
+      throws IOException {
+    Path file = this.snapshotFile(source, options);
+    long limit = Math.min(this.maxBytes, Integer.MAX_VALUE);
+    if (minimumTableBytes(table) > limit) {
+      // read could never map it, so don't spend the disk or the time writing it
+      Files.deleteIfExists(file);
+      return false;
+    }
+    this.createTrustedDirectory();
+    Path temp = Files.createTempFile(this.directory, "snapshot", ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      writeString(out, source.canonicalPath());
+      out.writeLong(source.size());
+      out.writeLong(source.modified());
+      out.writeLong(source.contentHash());
+      writeString(out, options);
+      writeStrings(out, header);
+      writeTable(out, table);
+    } catch (IOException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+    if (Files.size(temp) > limit) {
+      // the estimate only counts a byte per character, multi-byte text can still go over
+      Files.deleteIfExists(temp);
+      Files.deleteIfExists(file);
+      return false;
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    this.prune(file);
+    return true;
+  }
+
+  /**
+   * Deletes the least recently used snapshots until the directory is under its size. The snapshot
+   * just written is kept.
+   *
+   * @param keep The snapshot just written.
+   * @throws IOException If the directory can't be listed.
+   */
+  private void prune(Path keep) throws IOException {
+    record Entry(Path file, long size, long modified) {}
+    List<Entry> entries = new ArrayList<>();
+    long total = 0;
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "*" + SUFFIX)) {
+      for (Path file : files) {
+        try {
+          BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+          entries.add(new Entry(file, attributes.size(), attributes.lastModifiedTime().toMillis()));
+          total += attributes.size();
+        } catch (IOException e) {
+          // deleted by another load since it was listed
+        }
+      }
+    }
+    entries.sort(Comparator.comparingLong(Entry::modified));
+    for (Entry entry : entries) {
+      if (total <= this.maxBytes) {
+        break;
+      }
+      if (!entry.file().equals(keep) && Files.deleteIfExists(entry.file())) {
+        total -= entry.size();
+      }
+    }
+  }
+
+  /**
+   * Deletes the snapshot for a CSV file, if there is one.
+   *
+   * @param source The identity of the CSV file.
+   * @param options The parse options.
+   * @throws IOException If the snapshot can't be deleted.
+   */
+  public void invalidate(SourceState source, String options) throws IOException {
+    Files.deleteIfExists(this.snapshotFile(source, options));
+  }
+
+  /**
+   * Gets the snapshot file for a CSV file and set of options.
+   *
+   * @param source The identity of the CSV file.
+   * @param options The parse options.
+   * @return Path of the snapshot file.
+   */
+  private Path snapshotFile(SourceState source, String options) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      byte[] key = (source.canonicalPath() + '\0' + options).getBytes(StandardCharsets.UTF_8);
+      return this.directory.resolve(HexFormat.of().formatHex(digest.digest(key)) + SUFFIX);
+    } catch (NoSuchAlgorithmException e) {
+      // every JVM is required to ship SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Counts the fewest bytes a table can take in a snapshot, with every character taking one, so a
+   * table too big to keep can be turned away before it is written.
+   *
+   * @param table The table.
+   * @return The lower bound on its size in bytes.
+   */
+  private static long minimumTableBytes(ColumnarTable table) {
+    long bytes = 2L * Integer.BYTES;
+    for (int c = 0; c < table.columnCount(); c++) {
+      Column column = table.column(c);
+      bytes += 1 + Integer.BYTES;
+      if (column instanceof DictionaryColumn dictionaryColumn) {
+        bytes += (long) table.rowCount() * Integer.BYTES;
+        for (String s : dictionaryColumn.getDictionary()) {
+          bytes += Integer.BYTES + s.length();
+        }
+      } else {
+        for (int row = 0; row < column.size(); row++) {
+          bytes += Integer.BYTES + column.get(row).length();
+        }
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Reads bytes from a channel until a buffer is full.
+   *
+   * @param channel The channel.
+   * @param buffer The buffer, filled from its position to its limit.
+   * @param position Where in the channel to start reading.
+   * @throws IOException If the channel ends first or can't be read.
+   */
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        throw new EOFException("file shrank while it was being read");
+      }
+      position += read;
+    }
+  }
+
+  private static void writeTable(DataOutputStream out, ColumnarTable table) throws IOException {
+    out.writeInt(table.rowCount());
+    out.writeInt(table.columnCount());
+    for (int c = 0; c < table.columnCount(); c++) {
+      Column column = table.column(c);
+      if (column instanceof DictionaryColumn dictionaryColumn) {
+        out.writeByte(DICTIONARY_COLUMN);
+        writeStrings(out, List.of(dictionaryColumn.getDictionary()));
+        for (int code : dictionaryColumn.getCodes()) {
+          out.writeInt(code);
+        }
+      } else {
+        out.writeByte(PLAIN_COLUMN);
+        out.writeInt(column.size());
+        for (int row = 0; row < column.size(); row++) {
+          writeString(out, column.get(row));
+        }
+      }
+    }
+  }
+
+  private static ColumnarTable readTable(ByteBuffer in) {
+    int rowCount = in.getInt();
+    Column[] columns = new Column[in.getInt()];
+    for (int c = 0; c < columns.length; c++) {
+      byte kind = in.get();
+      if (kind == DICTIONARY_COLUMN) {
+        String[] dictionary = readStrings(in).toArray(new String[0]);
+        int[] codes = new int[rowCount];
+        in.asIntBuffer().get(codes);
+        in.position(in.position() + rowCount * Integer.BYTES);
+        columns[c] = new DictionaryColumn(dictionary, codes);
+      } else {
+        columns[c] = new PlainColumn(readStrings(in).toArray(new String[0]));
+      }
+    }
+    return new ColumnarTable(columns, rowCount);
+  }
+
+  private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+    if (strings == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(strings.size());
+    for (String s : strings) {
+      writeString(out, s);
+    }
+  }
+
+  private static List<String> readStrings(ByteBuffer in) {
+    int count = in.getInt();
+    if (count < 0) {
+      return null;
+    }
+    List<String> strings = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      strings.add(readString(in));
+    }
+    return strings;
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer in) {
+    byte[] bytes = new byte[in.getInt()];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,97 @@
+package CSV;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Searches a CSV straight from a CSVParser without loading the document first. Rows are read one at
+ * a time and matching rows are handed to a RowConsumer as they are found, so a file of any size is
+ * searched in constant memory. Matching works exactly like CSVSearcher: partial matches count, and
+ * the search can cover the whole row or one column given by name or index. Fields are checked in
+ * the tokenizer's buffer, and Strings are only made for the rows that match.
+ */
+public class StreamingCSVSearcher {
+  private final CSVParser<List<String>> parser;
+
+  /**
+   * Constructor for the StreamingCSVSearcher class.
+   *
+   * @param parser - parser over the text to search, which must not have been parsed yet
+   */
+  public StreamingCSVSearcher(CSVParser<List<String>> parser) {
+    this.parser = parser;
+  }
+
+  /**
+   * Searches only in the column with the given String header.
+   *
+   * @param searchWord - String word looking for in the text
+   * @param header - String header that indicates which column to look at
+   * @param matches - receives each row that has the search word in the given column
+   * @throws IOException - error reading file
+   * @throws FactoryFailureException - error creating object from row
+   * @throws InconsistentRowException - error because rows are not same length
+   * @throws NotFoundException - CSV has no headers or the header is not in it
+   */
+  public void search(String searchWord, String header, RowConsumer<List<String>> matches)
+      throws IOException, FactoryFailureException, InconsistentRowException, NotFoundException {
+    List<String> headerList = this.parser.readHeader();
+    int column = CSVSearcher.columnIndex(headerList, this.parser.getHasHeader(), header);
+    this.searchColumn(searchWord, column, matches);
+  }
+
+  /**
+   * Searches only in the column at the given index.
+   *
+   * @param searchWord - String word looking for in the text
+   * @param header - Int index that indicates which column to look at
+   * @param matches - receives each row that has the search word in the given column
+   * @throws IOException - error reading file
+   * @throws FactoryFailureException - error creating object from row
+   * @throws InconsistentRowException - error because rows are not same length
+   * @throws NotFoundException - CSV has no headers or the index is out of bounds
+   */
+  public void search(String searchWord, int header, RowConsumer<List<String>> matches)
+      throws IOException, FactoryFailureException, InconsistentRowException, NotFoundException {
+    List<String> headerList = this.parser.readHeader();
+    CSVSearcher.checkColumnIndex(headerList, this.parser.getHasHeader(), header);
+    this.searchColumn(searchWord, header, matches);
+  }
+
+  /**
+   * Searches the whole document for rows that have the given search word in any field.
+   *
+   * @param searchWord - String word looking for in the text
+   * @param matches - receives each row that has the search word in it
+   * @throws IOException - error reading file
+   * @throws FactoryFailureException - error creating object from row
+   * @throws InconsistentRowException - error because rows are not same length
+   */
+  public void search(String searchWord, RowConsumer<List<String>> matches)
+      throws IOException, FactoryFailureException, InconsistentRowException {
+    this.parser.parseRows(
+        row -> {
+          for (int i = 0; i < row.size(); i++) {
+            if (row.fieldContains(i, searchWord)) {
+              return matches.accept(row.toList());
+            }
+          }
+          return true;
+        });
+  }
+
+  /**
+   * Streams the rows past a check of a single, already validated column.
+   *
+   * @param searchWord - String word looking for in the text
+   * @param column - index of the column to look at
+   * @param matches - receives each matching row
+   * @throws IOException - error reading file
+   * @throws InconsistentRowException - error because rows are not same length
+   */
+  private void searchColumn(String searchWord, int column, RowConsumer<List<String>> matches)
+      throws IOException, InconsistentRowException {
+    this.parser.parseRows(
+        row -> !row.fieldContains(column, searchWord) || matches.accept(row.toList()));
+  }
+}
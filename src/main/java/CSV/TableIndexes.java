@@ -0,0 +1,179 @@
+package CSV;
+
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * The indexes built over a loaded table, one per column and kind. They are built once when a file
+ * is loaded and only read afterwards, so searches on any thread can share them.
+ */
+public class TableIndexes {
+  private final ColumnarTable table;
+  private final ValueIndex[] exact;
+  private final TrigramIndex[] trigram;
+  private final NumericIndex[] numeric;
+  private final BKTree[] fuzzy;
+  private final long buildNanos;
+
+  /**
+   * Constructor for the TableIndexes class.
+   *
+   * @param table The table the indexes were built over.
+   * @param exact The exact-match index of each column, or null if none was built.
+   * @param trigram The trigram index of each column, or null if none was built.
+   * @param numeric The numeric index of each column, null for columns that aren't numeric, or null
+   *     if none was built.
+   * @param fuzzy The BK-tree of each column, or null if none was built.
+   * @param buildNanos How long building took.
+   */
+  private TableIndexes(
+      ColumnarTable table,
+      ValueIndex[] exact,
+      TrigramIndex[] trigram,
+      NumericIndex[] numeric,
+      BKTree[] fuzzy,
+      long buildNanos) {
+    this.table = table;
+    this.exact = exact;
+    this.trigram = trigram;
+    this.numeric = numeric;
+    this.fuzzy = fuzzy;
+    this.buildNanos = buildNanos;
+  }
+
+  /**
+   * Builds indexes of the given kinds over every column of a table. Columns are indexed in
+   * parallel.
+   *
+   * @param table The table.
+   * @param kinds The kinds of index to build.
+   * @return The indexes.
+   */
+  public static TableIndexes build(ColumnarTable table, Set<IndexKind> kinds) {
+    long start = System.nanoTime();
+    boolean buildTrigram = kinds.contains(IndexKind.TRIGRAM);
+    boolean buildFuzzy = kinds.contains(IndexKind.FUZZY);
+    ValueIndex[] exact = null;
+    TrigramIndex[] trigram = null;
+    BKTree[] fuzzy = null;
+    if (kinds.contains(IndexKind.EXACT) || buildTrigram || buildFuzzy) {
+      ValueIndex[] builtExact = new ValueIndex[table.columnCount()];
+      TrigramIndex[] builtTrigram = buildTrigram ? new TrigramIndex[builtExact.length] : null;
+      BKTree[] builtFuzzy = buildFuzzy ? new BKTree[builtExact.length] : null;
+      IntStream.range(0, builtExact.length)
+          .parallel()
+          .forEach(
+              column -> {
+                builtExact[column] = ValueIndex.build(table.column(column));
+                if (buildTrigram) {
+                  builtTrigram[column] = TrigramIndex.build(builtExact[column]);
+                }
+                if (buildFuzzy) {
+                  builtFuzzy[column] = BKTree.build(builtExact[column]);
+                }
+              });
+      exact = builtExact;
+      trigram = builtTrigram;
+      fuzzy = builtFuzzy;
+    }
+    NumericIndex[] numeric = null;
+    if (kinds.contains(IndexKind.NUMERIC)) {
+      NumericIndex[] builtNumeric = new NumericIndex[table.columnCount()];
+      IntStream.range(0, builtNumeric.length)
+          .parallel()
+          .forEach(column -> builtNumeric[column] = NumericIndex.build(table.column(column)));
+      numeric = builtNumeric;
+    }
+    return new TableIndexes(table, exact, trigram, numeric, fuzzy, System.nanoTime() - start);
+  }
+
+  /**
+   * Checks whether the indexes were built over a table. Row numbers from an index only mean
+   * something for that table.
+   *
+   * @param table The table.
+   * @return true if the indexes belong to the table.
+   */
+  public boolean covers(ColumnarTable table) {
+    return this.table == table;
+  }
+
+  /**
+   * Gets the exact-match index of a column.
+   *
+   * @param column The column index.
+   * @return The index, or null if exact-match indexes weren't built.
+   */
+  public ValueIndex exact(int column) {
+    return this.exact == null ? null : this.exact[column];
+  }
+
+  /**
+   * Gets the trigram index of a column.
+   *
+   * @param column The column index.
+   * @return The index, or null if trigram indexes weren't built.
+   */
+  public TrigramIndex trigram(int column) {
+    return this.trigram == null ? null : this.trigram[column];
+  }
+
+  /**
+   * Gets the numeric index of a column.
+   *
+   * @param column The column index.
+   * @return The index, or null if numeric indexes weren't built or the column isn't numeric.
+   */
+  public NumericIndex numeric(int column) {
+    return this.numeric == null ? null : this.numeric[column];
+  }
+
+  /**
+   * Gets the BK-tree of a column.
+   *
+   * @param column The column index.
+   * @return The tree, or null if BK-trees weren't built.
+   */
+  public BKTree fuzzy(int column) {
+    return this.fuzzy == null ? null : this.fuzzy[column];
+  }
+
+  /**
+   * Gets how long the indexes took to build.
+   *
+   * @return The build time in milliseconds.
+   */
+  public long buildMillis() {
+    return this.buildNanos / 1_000_000;
+  }
+
+  /**
+   * Estimates the heap used by all the indexes, in bytes.
+   *
+   * @return The estimated size in bytes.
+   */
+  public long estimatedBytes() {
+    long bytes = 0;
+    if (this.exact != null) {
+      for (ValueIndex index : this.exact) {
+        bytes += index.estimatedBytes();
+      }
+    }
+    if (this.trigram != null) {
+      for (TrigramIndex index : this.trigram) {
+        bytes += index.estimatedBytes();
+      }
+    }
+    if (this.numeric != null) {
+      for (NumericIndex index : this.numeric) {
+        bytes += index == null ? 0 : index.estimatedBytes();
+      }
+    }
+    if (this.fuzzy != null) {
+      for (BKTree tree : this.fuzzy) {
+        bytes += tree.estimatedBytes();
+      }
+    }
+    return bytes;
+  }
+}
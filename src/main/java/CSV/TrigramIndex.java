@@ -0,0 +1,290 @@
+package CSV;
+
+import java.util.Arrays;
+
+/**
+ * Trigram index over the distinct values of one column, for substring search. Every run of three
+ * characters in a value points back to the value, so the values that can contain a search word are
+ * the ones listed under all of the word's trigrams. That candidate list is a small superset of the
+ * answer, which is then checked with String.contains, and the rows of the values that pass come
+ * from the column's ValueIndex, so no row is scanned.
+ *
+ * <p>Words shorter than three characters have no trigram to look up; rowsContaining returns null
+ * for them and the caller scans as before.
+ */
+public class TrigramIndex {
+  /** Shortest word the index can answer. */
+  public static final int GRAM = 3;
+
+  private final ValueIndex values;
+  private final GramTable grams;
+  // the value ids holding gram g are ids[offsets[g]] up to ids[offsets[g + 1]], ascending
+  private final int[] offsets;
+  private final int[] ids;
+
+  /**
+   * Constructor for the TrigramIndex class.
+   *
+   * @param values The value index of the column.
+   * @param grams The number of each distinct trigram.
+   * @param offsets Where the ids of each trigram start in ids, plus the total at the end.
+   * @param ids The value ids, grouped by trigram and ascending within each group.
+   */
+  private TrigramIndex(ValueIndex values, GramTable grams, int[] offsets, int[] ids) {
+    this.values = values;
+    this.grams = grams;
+    this.offsets = offsets;
+    this.ids = ids;
+  }
+
+  /**
+   * Builds the trigram index of a column from its value index. The first pass numbers the distinct
+   * trigrams and counts the values under each, the second fills the lists; values are visited in
+   * id order, so every list comes out sorted without a sort.
+   *
+   * @param values The value index of the column.
+   * @return The index.
+   */
+  public static TrigramIndex build(ValueIndex values) {
+    GramTable grams = new GramTable();
+    int[] counts = new int[16];
+    long[] keys = new long[16];
+    for (int id = 0; id < values.distinctValues(); id++) {
+      keys = distinctKeys(values.value(id), keys);
+      for (int i = 1; i <= (int) keys[0]; i++) {
+        int gram = grams.add(keys[i]);
+        if (gram == counts.length) {
+          counts = Arrays.copyOf(counts, gram * 2);
+        }
+        counts[gram]++;
+      }
+    }
+
+    int[] offsets = new int[grams.size() + 1];
+    for (int gram = 0; gram < grams.size(); gram++) {
+      offsets[gram + 1] = offsets[gram] + counts[gram];
+    }
+    int[] next = Arrays.copyOf(offsets, grams.size());
+    int[] ids = new int[offsets[grams.size()]];
+    for (int id = 0; id < values.distinctValues(); id++) {
+      keys = distinctKeys(values.value(id), keys);
+      for (int i = 1; i <= (int) keys[0]; i++) {
+        ids[next[grams.get(keys[i])]++] = id;
+      }
+    }
+    return new TrigramIndex(values, grams, offsets, ids);
+  }
+
+  /**
+   * Collects the distinct trigram keys of a value.
+   *
+   * @param value The value.
+   * @param keys Scratch array to reuse.
+   * @return The scratch array, or a larger one, holding the number of keys in slot 0 and the keys
+   *     after it.
+   */
+  private static long[] distinctKeys(String value, long[] keys) {
+    int keyCount = Math.max(0, value.length() - GRAM + 1);
+    if (keys.length <= keyCount) {
+      keys = new long[keyCount + 1];
+    }
+    for (int i = 0; i < keyCount; i++) {
+      keys[i + 1] = key(value, i);
+    }
+    Arrays.sort(keys, 1, keyCount + 1);
+    int distinct = 0;
+    for (int i = 1; i <= keyCount; i++) {
+      if (distinct == 0 || keys[i] != keys[distinct]) {
+        keys[++distinct] = keys[i];
+      }
+    }
+    keys[0] = distinct;
+    return keys;
+  }
+
+  /**
+   * Finds the rows whose value contains a word.
+   *
+   * @param word The word.
+   * @return The row numbers in ascending order, or null if the word is shorter than GRAM.
+   */
+  public int[] rowsContaining(String word) {
+    if (word.length() < GRAM) {
+      return null;
+    }
+    int[] candidates = this.candidates(word);
+    int[][] matches = new int[candidates.length][];
+    int total = 0;
+    int matched = 0;
+    for (int id : candidates) {
+      if (this.values.value(id).contains(word)) {
+        matches[matched] = this.values.rowsOf(id);
+        total += matches[matched++].length;
+      }
+    }
+    int[] rows = new int[total];
+    int filled = 0;
+    for (int i = 0; i < matched; i++) {
+      System.arraycopy(matches[i], 0, rows, filled, matches[i].length);
+      filled += matches[i].length;
+    }
+    // each row has one value, so the groups don't overlap and only need ordering
+    Arrays.sort(rows);
+    return rows;
+  }
+
+  /**
+   * Intersects the value ids of every trigram of a word, shortest list first.
+   *
+   * @param word The word, at least GRAM characters long.
+   * @return Ascending ids of the values holding all of the word's trigrams.
+   */
+  private int[] candidates(String word) {
+    int gramCount = word.length() - GRAM + 1;
+    int[] lists = new int[gramCount];
+    for (int i = 0; i < gramCount; i++) {
+      int gram = this.grams.get(key(word, i));
+      if (gram < 0) {
+        return new int[0];
+      }
+      lists[i] = gram;
+    }
+    Integer[] order = new Integer[gramCount];
+    for (int i = 0; i < gramCount; i++) {
+      order[i] = lists[i];
+    }
+    Arrays.sort(order, (a, b) -> Integer.compare(this.length(a), this.length(b)));
+
+    int[] result =
+        Arrays.copyOfRange(this.ids, this.offsets[order[0]], this.offsets[order[0] + 1]);
+    int size = result.length;
+    for (int i = 1; i < order.length && size > 0; i++) {
+      int gram = order[i];
+      int from = this.offsets[gram];
+      int to = this.offsets[gram + 1];
+      int kept = 0;
+      for (int r = 0; r < size && from < to; r++) {
+        while (from < to && this.ids[from] < result[r]) {
+          from++;
+        }
+        if (from < to && this.ids[from] == result[r]) {
+          result[kept++] = result[r];
+        }
+      }
+      size = kept;
+    }
+    return Arrays.copyOf(result, size);
+  }
+
+  /**
+   * Gets the number of values listed under a trigram.
+   *
+   * @param gram The number of the trigram.
+   * @return The length of its list.
+   */
+  private int length(int gram) {
+    return this.offsets[gram + 1] - this.offsets[gram];
+  }
+
+  /**
+   * Packs the trigram starting at a position of a string into a long.
+   *
+   * @param s The string.
+   * @param i The position.
+   * @return The key of the trigram.
+   */
+  private static long key(String s, int i) {
+    return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+  }
+
+  /**
+   * Estimates the heap used by the index, in bytes, not counting the value index it reads rows
+   * from.
+   *
+   * @return The estimated size in bytes.
+   */
+  public long estimatedBytes() {
+    return ColumnarTable.arrayBytes(this.offsets.length, Integer.BYTES)
+        + ColumnarTable.arrayBytes(this.ids.length, Integer.BYTES)
+        + this.grams.estimatedBytes();
+  }
+
+  /**
+   * Open-addressing hash table from trigram keys to trigram numbers, kept primitive so building
+   * doesn't box a Long per trigram of every value.
+   */
+  private static class GramTable {
+    private long[] keys = new long[64];
+    // trigram number + 1 in each slot, 0 for an empty slot
+    private int[] numbers = new int[64];
+    private int size;
+
+    /**
+     * Gets the number of a trigram, numbering it if it is new.
+     *
+     * @param key The key of the trigram.
+     * @return The number.
+     */
+    int add(long key) {
+      int slot = this.slot(key);
+      if (this.numbers[slot] == 0) {
+        this.keys[slot] = key;
+        this.numbers[slot] = ++this.size;
+        if (this.size * 2 > this.keys.length) {
+          this.rehash();
+        }
+        return this.size - 1;
+      }
+      return this.numbers[slot] - 1;
+    }
+
+    /**
+     * Gets the number of a trigram.
+     *
+     * @param key The key of the trigram.
+     * @return The number, or -1 if no value has the trigram.
+     */
+    int get(long key) {
+      return this.numbers[this.slot(key)] - 1;
+    }
+
+    int size() {
+      return this.size;
+    }
+
+    long estimatedBytes() {
+      return ColumnarTable.arrayBytes(this.keys.length, Long.BYTES)
+          + ColumnarTable.arrayBytes(this.numbers.length, Integer.BYTES);
+    }
+
+    /**
+     * Finds the slot holding a key, or the empty slot where it would go.
+     *
+     * @param key The key.
+     * @return The slot.
+     */
+    private int slot(long key) {
+      int mask = this.keys.length - 1;
+      long mixed = key * 0x9E3779B97F4A7C15L;
+      int slot = (int) (mixed >>> 32) & mask;
+      while (this.numbers[slot] != 0 && this.keys[slot] != key) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    private void rehash() {
+      long[] oldKeys = this.keys;
+      int[] oldNumbers = this.numbers;
+      this.keys = new long[oldKeys.length * 2];
+      this.numbers = new int[oldNumbers.length * 2];
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldNumbers[i] != 0) {
+          int slot = this.slot(oldKeys[i]);
+          this.keys[slot] = oldKeys[i];
+          this.numbers[slot] = oldNumbers[i];
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package CSV;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index over one column: each distinct value maps to the ascending row numbers that hold
+ * it. The row numbers of all values share one array, grouped by value, so the index costs one int
+ * per row plus one hash entry per distinct value, and a lookup is a single hash probe.
+ */
+public class ValueIndex {
+  // rough JVM size of one HashMap entry with its boxed Integer
+  private static final int ENTRY_BYTES = 48;
+  private static final int REFERENCE_BYTES = 4;
+
+  private final Map<String, Integer> ids;
+  private final String[] values;
+  // the rows of value id are rows[offsets[id]] up to rows[offsets[id + 1]]
+  private final int[] offsets;
+  private final int[] rows;
+
+  /**
+   * Constructor for the ValueIndex class.
+   *
+   * @param ids The id of each distinct value.
+   * @param values The distinct values, indexed by id.
+   * @param offsets Where the rows of each id start in rows, plus the total at the end.
+   * @param rows The row numbers, grouped by id and ascending within each group.
+   */
+  private ValueIndex(Map<String, Integer> ids, String[] values, int[] offsets, int[] rows) {
+    this.ids = ids;
+    this.values = values;
+    this.offsets = offsets;
+    this.rows = rows;
+  }
+
+  /**
+   * Builds the index of a column. Dictionary columns already have an id per row in their codes, so
+   * only plain columns need a hash lookup per row.
+   *
+   * @param column The column.
+   * @return The index.
+   */
+  public static ValueIndex build(Column column) {
+    Map<String, Integer> ids = new HashMap<>();
+    String[] values;
+    int[] codes;
+    if (column instanceof DictionaryColumn dictionaryColumn) {
+      values = dictionaryColumn.getDictionary();
+      for (int code = 0; code < values.length; code++) {
+        ids.put(values[code], code);
+      }
+      codes = dictionaryColumn.getCodes();
+    } else {
+      List<String> distinct = new ArrayList<>();
+      codes = new int[column.size()];
+      for (int row = 0; row < codes.length; row++) {
+        String value = column.get(row);
+        Integer id = ids.putIfAbsent(value, distinct.size());
+        if (id == null) {
+          id = distinct.size();
+          distinct.add(value);
+        }
+        codes[row] = id;
+      }
+      values = distinct.toArray(new String[0]);
+    }
+
+    // counting sort of the row numbers by id keeps each group in row order
+    int[] offsets = new int[ids.size() + 1];
+    for (int code : codes) {
+      offsets[code + 1]++;
+    }
+    for (int id = 0; id < ids.size(); id++) {
+      offsets[id + 1] += offsets[id];
+    }
+    int[] next = Arrays.copyOf(offsets, ids.size());
+    int[] rows = new int[codes.length];
+    for (int row = 0; row < codes.length; row++) {
+      rows[next[codes[row]]++] = row;
+    }
+    return new ValueIndex(ids, values, offsets, rows);
+  }
+
+  /**
+   * Gets the rows whose value equals the given one.
+   *
+   * @param value The value.
+   * @return The row numbers in ascending order, empty if no row has the value.
+   */
+  public int[] rows(String value) {
+    Integer id = this.ids.get(value);
+    return id == null ? new int[0] : this.rowsOf(id);
+  }
+
+  /**
+   * Counts the rows whose value equals the given one, without copying them.
+   *
+   * @param value The value.
+   * @return The number of rows.
+   */
+  public int count(String value) {
+    Integer id = this.ids.get(value);
+    return id == null ? 0 : this.offsets[id + 1] - this.offsets[id];
+  }
+
+  /**
+   * Gets the rows holding one of the distinct values.
+   *
+   * @param id The id of the value, from 0 to distinctValues() - 1.
+   * @return The row numbers in ascending order.
+   */
+  public int[] rowsOf(int id) {
+    return Arrays.copyOfRange(this.rows, this.offsets[id], this.offsets[id + 1]);
+  }
+
+  /**
+   * Gets one of the distinct values.
+   *
+   * @param id The id of the value, from 0 to distinctValues() - 1.
+   * @return The value.
+   */
+  public String value(int id) {
+    return this.values[id];
+  }
+
+  /**
+   * Gets the number of distinct values in the column.
+   *
+   * @return The number of values.
+   */
+  public int distinctValues() {
+    return this.values.length;
+  }
+
+  /**
+   * Estimates the heap used by the index, in bytes. The value Strings are shared with the column
+   * and not counted.
+   *
+   * @return The estimated size in bytes.
+   */
+  public long estimatedBytes() {
+    return ColumnarTable.arrayBytes(this.offsets.length, Integer.BYTES)
+        + ColumnarTable.arrayBytes(this.rows.length, Integer.BYTES)
+        + ColumnarTable.arrayBytes(Integer.highestOneBit(this.ids.size()) * 2, Integer.BYTES)
+        + ColumnarTable.arrayBytes(this.values.length, REFERENCE_BYTES)
+        + (long) this.ids.size() * ENTRY_BYTES;
+  }
+}
@@ -0,0 +1,152 @@
+package server;
+
+import CSV.AccessCSV;
+import CSV.AggregateFunction;
+import CSV.CSVAggregator;
+import CSV.CSVSearcher;
+import CSV.ColumnarTable;
+import CSV.Dataset;
+import CSV.InvalidQueryException;
+import CSV.NotFoundException;
+import CSV.Query;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * Route handler for computing counts, sums and other aggregates over a loaded CSV file, grouped by
+ * some of its columns, so clients get the few numbers they need instead of every row.
+ */
+public class AggregateCSVHandler implements Route {
+  // one aggregation may use half of the cores, the same as SearchCSVHandler
+  private static final int MAX_PARALLELISM =
+      Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+  private final AccessCSV csv;
+
+  /**
+   * Constructor for initializing the AggregateCSVHandler with an AccessCSV instance.
+   *
+   * @param csv The AccessCSV instance to use for aggregating data.
+   */
+  public AggregateCSVHandler(AccessCSV csv) {
+    this.csv = csv;
+  }
+
+  /**
+   * Method to handle HTTP requests for aggregating a loaded CSV file.
+   *
+   * @param request The HTTP request object.
+   * @param response The HTTP response object.
+   * @return The response data in JSON format.
+   */
+  @Override
+  public Object handle(Request request, Response response) {
+    // function=count,avg computes each of the functions for every group
+    String functionParam = request.queryParams("function");
+    // column={number or String name} is the column every function but count reads
+    String column = request.queryParams("column");
+    // groupBy=State,Year makes one group per combination of values in those columns
+    String groupByParam = request.queryParams("groupBy");
+    // query={expression} only aggregates the rows that match, as in SearchCSV
+    String query = request.queryParams("query");
+    boolean parallel = !"false".equalsIgnoreCase(request.queryParams("parallel"));
+    // dataset={name} reads the file loaded under that name
+    String datasetName = request.queryParams("dataset");
+    Map<String, Object> responseMap = new HashMap<>();
+
+    List<AggregateFunction> functions = new ArrayList<>();
+    List<String> groupBy = new ArrayList<>();
+    try {
+      if (functionParam != null) {
+        for (String function : functionParam.split(",")) {
+          functions.add(AggregateFunction.valueOf(function.trim().toUpperCase()));
+        }
+      }
+    } catch (IllegalArgumentException e) {
+      functions.clear();
+    }
+    if (groupByParam != null && !groupByParam.isEmpty()) {
+      for (String groupColumn : groupByParam.split(",")) {
+        groupBy.add(groupColumn.trim());
+      }
+    }
+    boolean hasColumn = column != null && !column.isEmpty();
+    if (functions.isEmpty()
+        || (!hasColumn && functions.stream().anyMatch(f -> f != AggregateFunction.COUNT))) {
+      responseMap.put("result", "error");
+      responseMap.put("error", "missing or invalid aggregate parameters");
+      return toJson(responseMap);
+    }
+
+    // one snapshot of the dataset, so the table, header and version all come from one load
+    Dataset dataset =
+        this.csv.getDataset(datasetName == null ? AccessCSV.DEFAULT_DATASET : datasetName);
+    if (dataset == null) {
+      responseMap.put("result", "error");
+      responseMap.put("error", "no CSV loaded");
+      return toJson(responseMap);
+    }
+    long version = dataset.version();
+    ColumnarTable table = dataset.table();
+    if (table.rowCount() == 0) {
+      responseMap.put("result", "error");
+      responseMap.put("error", "CSV file is empty");
+      return toJson(responseMap);
+    }
+    CSVSearcher searcher = dataset.searcher();
+    searcher.setCache(this.csv.getSearchCache(), version);
+    CSVAggregator aggregator = new CSVAggregator(searcher);
+    if (parallel) {
+      searcher.setParallelism(MAX_PARALLELISM);
+      aggregator.setParallelism(MAX_PARALLELISM);
+    }
+
+    List<List<Object>> groups;
+    try {
+      Query filter = query == null || query.isEmpty() ? null : Query.parse(query);
+      groups = aggregator.aggregate(groupBy, hasColumn ? column : null, functions, filter);
+    } catch (InvalidQueryException e) {
+      responseMap.put("result", "error");
+      responseMap.put("error", "invalid query: " + e.getMessage());
+      return toJson(responseMap);
+    } catch (NotFoundException e) {
+      responseMap.put("result", "error");
+      responseMap.put("error", "columnID not found");
+      return toJson(responseMap);
+    } catch (IllegalArgumentException e) {
+      responseMap.put("result", "error");
+      responseMap.put("error", e.getMessage());
+      return toJson(responseMap);
+    }
+
+    // names of the values in each row of data, e.g. ["Year", "count", "avg(Household Income)"]
+    List<String> columns = new ArrayList<>(groupBy);
+    for (AggregateFunction function : functions) {
+      String name = function.name().toLowerCase();
+      columns.add(function == AggregateFunction.COUNT ? name : name + "(" + column + ")");
+    }
+    responseMap.put("result", "success");
+    responseMap.put("columns", columns);
+    responseMap.put("data", groups);
+    return toJson(responseMap);
+  }
+
+  /**
+   * Helper method to serialize an object to JSON format.
+   *
+   * @param object The object to serialize.
+   * @return The JSON representation of the object.
+   */
+  private String toJson(Object object) {
+    Moshi moshi = new Moshi.Builder().build();
+    JsonAdapter<Object> adapter = moshi.adapter(Object.class);
+    return adapter.toJson(object);
+  }
+}
@@ -0,0 +1,272 @@
+package server;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Response that compresses what a route writes to it as it is written. The first bytes are held
+ * back until there are more than a minimum, so small responses, which compression would hardly
+ * shrink, are sent as they are; past the minimum the Content-Encoding header is set and
+ * everything goes through a gzip or deflate stream to the client, and an ETag the route set is made
+ * weak. finish must be called once the route is done, and end in any case, even if it failed.
+ */
+class CompressingResponse extends HttpServletResponseWrapper {
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+  private final String encoding;
+  private final int level;
+  private final byte[] pending;
+  private int pendingCount;
+  private CompressingStream stream;
+  private DeflaterOutputStream compressor;
+  private Deflater deflater;
+  private long bytesIn;
+  private long bytesOut;
+  private long cpuNanos;
+
+  /**
+   * Constructor for the CompressingResponse class.
+   *
+   * @param response The response to write the compressed body to.
+   * @param encoding gzip or deflate.
+   * @param level The compression level, from 1 (fastest) to 9 (smallest).
+   * @param minBytes The smallest body that is compressed.
+   */
+  CompressingResponse(HttpServletResponse response, String encoding, int level, int minBytes) {
+    super(response);
+    this.encoding = encoding;
+    this.level = level;
+    this.pending = new byte[minBytes];
+  }
+
+  @Override
+  public ServletOutputStream getOutputStream() throws IOException {
+    if (this.stream == null) {
+      this.stream = new CompressingStream(super.getOutputStream());
+    }
+    return this.stream;
+  }
+
+  @Override
+  public void setContentLength(int length) {
+    // the length of the compressed body isn't known until it has been sent
+  }
+
+  @Override
+  public void setContentLengthLong(long length) {
+    // the length of the compressed body isn't known until it has been sent
+  }
+
+  /**
+   * Ends the body: sends the bytes held back if it was too small to compress, or the end of the
+   * compressed stream if it wasn't.
+   *
+   * @throws IOException If the client can't be written to.
+   */
+  void finish() throws IOException {
+    if (this.compressor != null) {
+      long start = cpuTime();
+      this.compressor.finish();
+      this.cpuNanos += cpuTime() - start;
+    } else if (this.pendingCount > 0) {
+      this.stream.out.write(this.pending, 0, this.pendingCount);
+      this.bytesOut += this.pendingCount;
+    }
+  }
+
+  /**
+   * Frees the native memory of the compressor, if compressing started. Nothing more can be written
+   * afterwards; calling it again does nothing.
+   */
+  void end() {
+    if (this.deflater != null) {
+      this.deflater.end();
+    }
+  }
+
+  /**
+   * Gets whether the body was compressed.
+   *
+   * @return true once the body has got past the minimum size.
+   */
+  boolean compressed() {
+    return this.compressor != null;
+  }
+
+  /**
+   * Gets the bytes the route wrote.
+   *
+   * @return The size of the body before compression.
+   */
+  long bytesIn() {
+    return this.bytesIn;
+  }
+
+  /**
+   * Gets the bytes sent to the client.
+   *
+   * @return The size of the body after compression.
+   */
+  long bytesOut() {
+    return this.bytesOut;
+  }
+
+  /**
+   * Gets the CPU time spent compressing.
+   *
+   * @return The time in nanoseconds.
+   */
+  long cpuNanos() {
+    return this.cpuNanos;
+  }
+
+  /**
+   * Makes the ETag weak, if the route set one. The compressed body isn't byte for byte the body the
+   * tag was made for, but it means the same, which is what a weak tag says; If-None-Match compares
+   * tags weakly, so the tag still gets a 304. Bodies sent as they are keep a strong tag.
+   */
+  private void weakenETag() {
+    String etag = this.getHeader("ETag");
+    if (etag != null && !etag.startsWith("W/")) {
+      super.setHeader("ETag", "W/" + etag);
+    }
+  }
+
+  /**
+   * Gets the CPU time of the current thread, or the wall time where that isn't supported.
+   *
+   * @return The time in nanoseconds.
+   */
+  private static long cpuTime() {
+    return THREADS.isCurrentThreadCpuTimeSupported()
+        ? THREADS.getCurrentThreadCpuTime()
+        : System.nanoTime();
+  }
+
+  /**
+   * Starts compressing: sets the headers, which haven't been sent yet since nothing has been
+   * written, weakening the ETag, and sends the bytes held back through the compressor.
+   *
+   * @throws IOException If the client can't be written to.
+   */
+  private void start() throws IOException {
+    super.setHeader("Content-Encoding", this.encoding);
+    this.weakenETag();
+    OutputStream counted =
+        new FilterOutputStream(this.stream.out) {
+          @Override
+          public void write(int b) throws IOException {
+            this.out.write(b);
+            CompressingResponse.this.bytesOut++;
+          }
+
+          @Override
+          public void write(byte[] bytes, int offset, int length) throws IOException {
+            this.out.write(bytes, offset, length);
+            CompressingResponse.this.bytesOut += length;
+          }
+        };
+    long start = cpuTime();
+    if ("gzip".equals(this.encoding)) {
+      LeveledGzip gzip = new LeveledGzip(counted, this.level);
+      this.deflater = gzip.deflater();
+      this.compressor = gzip;
+    } else {
+      // deflate is the zlib format, which is what Deflater writes unless told not to wrap it
+      this.deflater = new Deflater(this.level);
+      this.compressor = new DeflaterOutputStream(counted, this.deflater);
+    }
+    this.compressor.write(this.pending, 0, this.pendingCount);
+    this.cpuNanos += cpuTime() - start;
+  }
+
+  /** Stream the route writes to, which holds back, then compresses, what is written. */
+  private final class CompressingStream extends ServletOutputStream {
+    private final ServletOutputStream out;
+
+    /**
+     * Constructor for the CompressingStream class.
+     *
+     * @param out The stream to the client.
+     */
+    CompressingStream(ServletOutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      this.write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      CompressingResponse response = CompressingResponse.this;
+      response.bytesIn += length;
+      if (response.compressor == null) {
+        if (response.pendingCount + length <= response.pending.length) {
+          System.arraycopy(bytes, offset, response.pending, response.pendingCount, length);
+          response.pendingCount += length;
+          return;
+        }
+        response.start();
+      }
+      long start = cpuTime();
+      response.compressor.write(bytes, offset, length);
+      response.cpuNanos += cpuTime() - start;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      // held back bytes stay held back, so the headers can still change; a compressed stream is
+      // not sync flushed, which would cost compression, only what it has output so far is sent
+      if (CompressingResponse.this.compressor != null) {
+        this.out.flush();
+      }
+    }
+
+    @Override
+    public boolean isReady() {
+      return this.out.isReady();
+    }
+
+    @Override
+    public void setWriteListener(WriteListener listener) {
+      this.out.setWriteListener(listener);
+    }
+  }
+
+  /** Gzip stream with a compression level, which GZIPOutputStream doesn't take directly. */
+  private static final class LeveledGzip extends GZIPOutputStream {
+
+    /**
+     * Constructor for the LeveledGzip class.
+     *
+     * @param out The stream to write the compressed bytes to.
+     * @param level The compression level.
+     * @throws IOException If the gzip header can't be written.
+     */
+    LeveledGzip(OutputStream out, int level) throws IOException {
+      super(out, 8192);
+      this.def.setLevel(level);
+    }
+
+    /**
+     * Gets the deflater, so it can be ended without closing the stream to the client.
+     *
+     * @return The deflater.
+     */
+    Deflater deflater() {
+      return this.def;
+    }
+  }
+}
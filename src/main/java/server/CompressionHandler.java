@@ -0,0 +1,56 @@
+package server;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import java.util.HashMap;
+import java.util.Map;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * Route handler for the compression stats of each route.
+ */
+public class CompressionHandler implements Route {
+  private final ResponseCompression compression;
+
+  /**
+   * Constructor for initializing the CompressionHandler with the compression the routes use.
+   *
+   * @param compression The compression wrapping the routes.
+   */
+  public CompressionHandler(ResponseCompression compression) {
+    this.compression = compression;
+  }
+
+  /**
+   * Method to handle HTTP requests for the compression stats.
+   *
+   * @param request The HTTP request object.
+   * @param response The HTTP response object.
+   * @return The response data in JSON format.
+   */
+  @Override
+  public Object handle(Request request, Response response) {
+    Map<String, Object> routes = new HashMap<>();
+    for (Map.Entry<String, CompressionStats> entry : this.compression.getStats().entrySet()) {
+      routes.put(entry.getKey(), entry.getValue().describe());
+    }
+    Map<String, Object> responseMap = new HashMap<>();
+    responseMap.put("result", "success");
+    responseMap.put("routes", routes);
+    return toJson(responseMap);
+  }
+
+  /**
+   * Helper method to serialize an object to JSON format.
+   *
+   * @param object The object to serialize.
+   * @return The JSON representation of the object.
+   */
+  private String toJson(Object object) {
+    Moshi moshi = new Moshi.Builder().build();
+    JsonAdapter<Object> adapter = moshi.adapter(Object.class);
+    return adapter.toJson(object);
+  }
+}
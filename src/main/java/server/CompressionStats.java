@@ -0,0 +1,60 @@
+package server;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts of how the responses of one route were compressed, so the level and minimum size can be
+ * judged against how much they save and what they cost.
+ */
+public class CompressionStats {
+  private final LongAdder responses = new LongAdder();
+  private final LongAdder compressed = new LongAdder();
+  private final LongAdder bytesIn = new LongAdder();
+  private final LongAdder bytesOut = new LongAdder();
+  private final LongAdder cpuNanos = new LongAdder();
+
+  /**
+   * Counts a response that the client didn't ask to be compressed.
+   */
+  void recordIdentity() {
+    this.responses.increment();
+  }
+
+  /**
+   * Counts a response that the client asked to be compressed; it only was if it was over the
+   * minimum size.
+   *
+   * @param response The response, after finish.
+   */
+  void record(CompressingResponse response) {
+    this.responses.increment();
+    if (response.compressed()) {
+      this.compressed.increment();
+      this.bytesIn.add(response.bytesIn());
+      this.bytesOut.add(response.bytesOut());
+      this.cpuNanos.add(response.cpuNanos());
+    }
+  }
+
+  /**
+   * Describes the counts.
+   *
+   * @return The responses, the compressed ones and their bytes before and after, how many times
+   *     smaller they got, and the CPU time spent compressing them; numbers as strings like the
+   *     other responses.
+   */
+  public Map<String, String> describe() {
+    long in = this.bytesIn.sum();
+    long out = this.bytesOut.sum();
+    Map<String, String> description = new HashMap<>();
+    description.put("responses", String.valueOf(this.responses.sum()));
+    description.put("compressed_responses", String.valueOf(this.compressed.sum()));
+    description.put("bytes_in", String.valueOf(in));
+    description.put("bytes_out", String.valueOf(out));
+    description.put("ratio", out == 0 ? "0" : String.format("%.2f", (double) in / out));
+    description.put("cpu_ms", String.valueOf(this.cpuNanos.sum() / 1_000_000));
+    return description;
+  }
+}
@@ -0,0 +1,79 @@
+package server;
+
+import CSV.AccessCSV;
+import CSV.Dataset;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * Route handler for listing the datasets loaded with LoadCSV, and for unloading one of them.
+ *
+ * <p>Unloading changes state on a GET, like LoadCSV does, since every route of the server is a GET.
+ * It is a distinct action, taken only when the remove parameter is given: a plain /datasets never
+ * changes anything, so it is safe to repeat or prefetch. Removing a dataset also frees what an
+ * incremental load kept for its file, and the cached searches and responses over it.
+ */
+public class DatasetsHandler implements Route {
+  private final AccessCSV csv;
+
+  /**
+   * Constructor for initializing the DatasetsHandler with an AccessCSV instance.
+   *
+   * @param csv The AccessCSV instance holding the loaded datasets.
+   */
+  public DatasetsHandler(AccessCSV csv) {
+    this.csv = csv;
+  }
+
+  /**
+   * Method to handle HTTP requests for listing or unloading datasets.
+   *
+   * @param request The HTTP request object.
+   * @param response The HTTP response object.
+   * @return The response data in JSON format.
+   */
+  @Override
+  public Object handle(Request request, Response response) {
+    // remove={name} unloads that dataset before listing the rest
+    String remove = request.queryParams("remove");
+    Map<String, Object> responseMap = new HashMap<>();
+
+    if (remove != null && this.csv.remove(remove) == null) {
+      responseMap.put("result", "error");
+      responseMap.put("error", "dataset not found");
+      return toJson(responseMap);
+    }
+
+    List<Map<String, String>> datasets = new ArrayList<>();
+    for (Dataset dataset : this.csv.getDatasets().values()) {
+      Map<String, String> description = new HashMap<>();
+      description.put("name", dataset.name());
+      description.put("rows", String.valueOf(dataset.table().rowCount()));
+      description.put("columns", String.valueOf(dataset.table().columnCount()));
+      description.put("memory_bytes", String.valueOf(dataset.table().estimatedBytes()));
+      datasets.add(description);
+    }
+    responseMap.put("result", "success");
+    responseMap.put("datasets", datasets);
+    return toJson(responseMap);
+  }
+
+  /**
+   * Helper method to serialize an object to JSON format.
+   *
+   * @param object The object to serialize.
+   * @return The JSON representation of the object.
+   */
+  private String toJson(Object object) {
+    Moshi moshi = new Moshi.Builder().build();
+    JsonAdapter<Object> adapter = moshi.adapter(Object.class);
+    return adapter.toJson(object);
+  }
+}
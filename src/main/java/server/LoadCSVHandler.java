@@ -3,14 +3,22 @@ package server;
 import CSV.*;
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.RejectedExecutionException;
 
 import spark.Request;
 import spark.Response;
@@ -22,14 +30,53 @@ import spark.Route;
 public class LoadCSVHandler implements Route {
 
   private AccessCSV csv;
+  private final SnapshotCache snapshots;
+  private final LoadJobs jobs;
 
   /**
-   * Constructor for initializing the LoadCSVHandler with an AccessCSV instance.
+   * Constructor for initializing the LoadCSVHandler with an AccessCSV instance. Parsed files are
+   * cached as snapshots in the default directory of SnapshotCache.
    *
    * @param csv The AccessCSV instance to use for loading CSV files.
    */
   public LoadCSVHandler(AccessCSV csv) {
+    this(csv, SnapshotCache.inDefaultDirectory(), new LoadJobs());
+  }
+
+  /**
+   * Constructor for initializing the LoadCSVHandler with an AccessCSV instance and the jobs that
+   * asynchronous loads run as, which LoadStatus reports on.
+   *
+   * @param csv The AccessCSV instance to use for loading CSV files.
+   * @param jobs The jobs asynchronous loads are submitted to.
+   */
+  public LoadCSVHandler(AccessCSV csv, LoadJobs jobs) {
+    this(csv, SnapshotCache.inDefaultDirectory(), jobs);
+  }
+
+  /**
+   * Constructor for initializing the LoadCSVHandler with an AccessCSV instance and the snapshot
+   * cache to keep parsed files in.
+   *
+   * @param csv The AccessCSV instance to use for loading CSV files.
+   * @param snapshots The cache of parsed files.
+   */
+  public LoadCSVHandler(AccessCSV csv, SnapshotCache snapshots) {
+    this(csv, snapshots, new LoadJobs());
+  }
+
+  /**
+   * Constructor for initializing the LoadCSVHandler with an AccessCSV instance, the snapshot cache
+   * to keep parsed files in, and the jobs that asynchronous loads run as.
+   *
+   * @param csv The AccessCSV instance to use for loading CSV files.
+   * @param snapshots The cache of parsed files.
+   * @param jobs The jobs asynchronous loads are submitted to.
+   */
+  public LoadCSVHandler(AccessCSV csv, SnapshotCache snapshots, LoadJobs jobs) {
     this.csv = csv;
+    this.snapshots = snapshots;
+    this.jobs = jobs;
   }
 
   /**
@@ -44,50 +91,273 @@ public class LoadCSVHandler implements Route {
    */
   @Override
   public Object handle(Request request, Response response) throws IOException, InconsistentRowException, FactoryFailureException {
-    String filepath = request.queryParams("filepath");
-    String headers = request.queryParams("headers");
-    Boolean hasHeaders = Boolean.valueOf(request.queryParams("headers"));
+    // the parameters are copied, since an asynchronous load reads them after the request is done
+    Map<String, String> params = new HashMap<>();
+    for (String name : request.queryParams()) {
+      params.put(name, request.queryParams(name));
+    }
+    String filepath = params.get("filepath");
+    String headers = params.get("headers");
+    // dataset={name} loads the file under a name, next to the datasets loaded under other names
+    String datasetName = params.getOrDefault("dataset", AccessCSV.DEFAULT_DATASET);
+    // async=true parses in the background and answers with a job id for LoadStatus right away
+    Boolean async = Boolean.valueOf(params.get("async"));
     Map<String, String> responseMap = new HashMap<>();
 
-    if (filepath == null || headers == null){
+    if (filepath == null || headers == null || datasetName.isEmpty()){
       responseMap.put("error", "bad parameter");
       responseMap.put("result", "error");
       return toJson(responseMap);
     }
-    this.csv.setHasHeaders(hasHeaders);
 
+    if (!async) {
+      // nobody can ask for the status of a synchronous load, so it has no job
+      return toJson(this.load(params, null));
+    }
+    LoadJob job = this.jobs.create(filepath, datasetName);
     try {
-      BufferedReader reader = new BufferedReader(new FileReader(filepath));
-      CSVParser parser = new CSVParser(reader, new StringListCreateFromRow(), hasHeaders);
-      List<List<String>> parsedData = parser.parse();
+      // until the job publishes the new dataset, searches keep reading the one loaded before
+      this.jobs.submit(job, () -> this.load(params, job));
+    } catch (RejectedExecutionException e) {
+      responseMap.put("result", "error");
+      responseMap.put("error", "too many loads in progress");
+      return toJson(responseMap);
+    }
+    responseMap.put("result", "success");
+    responseMap.put("job_id", job.getId());
+    responseMap.put("state", job.getState().name().toLowerCase());
+    responseMap.put("dataset", datasetName);
+    responseMap.put("filepath", filepath);
+    return toJson(responseMap);
+  }
 
-      this.csv.setParsedText(parsedData);
-      if (hasHeaders) {
+  /**
+   * Loads a CSV file and publishes it as a dataset.
+   *
+   * @param params The parameters of the request; filepath and headers are known to be there.
+   * @param job The job the load reports its progress to, or null for a synchronous load.
+   * @return The response data.
+   * @throws IOException              If an I/O error occurs.
+   * @throws InconsistentRowException If the rows in the CSV are inconsistent.
+   * @throws FactoryFailureException  If there's a failure in creating objects.
+   */
+  private Map<String, String> load(Map<String, String> params, LoadJob job)
+      throws IOException, InconsistentRowException, FactoryFailureException {
+    String filepath = params.get("filepath");
+    Boolean hasHeaders = Boolean.valueOf(params.get("headers"));
+    String engineName = params.get("engine");
+    String charsetName = params.get("charset");
+    // optional comma separated header names or indices; other columns are skipped while parsing
+    String columnsParam = params.get("columns");
+    List<String> columns = columnsParam == null ? null : List.of(columnsParam.split(",", -1));
+    Boolean parallel = Boolean.valueOf(params.get("parallel"));
+    // incremental loads of a file only parse what was appended to it since the last one
+    Boolean incremental = Boolean.valueOf(params.get("incremental"));
+    // optional comma separated kinds of index to build over every column, e.g. index=exact
+    String indexParam = params.get("index");
+    String datasetName = params.getOrDefault("dataset", AccessCSV.DEFAULT_DATASET);
+    // snapshots are on unless the request turns them off
+    boolean useSnapshot = !"false".equalsIgnoreCase(params.get("snapshot"));
+    Map<String, String> responseMap = new HashMap<>();
 
-        this.csv.setHeaders(parser.getHeaderList());
+    try {
+      // engine is optional; "regex" selects the legacy split so its output can be compared
+      ParserEngine engine =
+          engineName == null
+              ? ParserEngine.TOKENIZER
+              : ParserEngine.valueOf(engineName.toUpperCase());
+      if (parallel && engine != ParserEngine.TOKENIZER) {
+        // parallel loads always tokenize, so the engine asked for would be silently ignored
+        throw new IllegalArgumentException("parallel loads only use the tokenizer");
+      }
+      // charset is optional; UTF-8 and ASCII files are tokenized without decoding
+      Charset charset =
+          charsetName == null ? StandardCharsets.UTF_8 : Charset.forName(charsetName);
+      EnumSet<IndexKind> indexKinds = EnumSet.noneOf(IndexKind.class);
+      if (indexParam != null) {
+        for (String kind : indexParam.split(",")) {
+          indexKinds.add(IndexKind.valueOf(kind.trim().toUpperCase()));
+        }
+      }
+      Path path = Path.of(filepath);
+      if (job != null) {
+        job.setTotalBytes(Files.size(path));
+      }
+      String options =
+          "headers=" + hasHeaders + ";engine=" + engine + ";charset=" + charset.name()
+              + ";columns=" + columnsParam;
+      SnapshotCache.Snapshot parsed = null;
+      SnapshotCache.SourceState source = null;
+      String snapshotStatus = "off";
+      // the file an incremental load keeps rows of, freed once the dataset is replaced or removed
+      Path incrementalSource = null;
+      if (incremental) {
+        if (engine != ParserEngine.TOKENIZER || !CSVParser.isByteCompatible(charset)) {
+          throw new IllegalArgumentException("incremental loads only read UTF-8 with the tokenizer");
+        }
+        IncrementalCSVLoader.Load load = this.csv.getIncrementalLoader().load(path, hasHeaders, columns);
+        parsed = new SnapshotCache.Snapshot(load.header(), load.table());
+        incrementalSource = load.source();
+        responseMap.put("incremental", load.appended() ? "appended" : "full");
+        responseMap.put("new_rows", String.valueOf(load.newRows()));
+      } else if (useSnapshot) {
+        source = SnapshotCache.inspect(path);
+        parsed = this.snapshots.read(source, options);
+        snapshotStatus = parsed == null ? "miss" : "hit";
       }
-      this.csv.setLoaded(true);
+      if (parsed == null) {
+        parsed = this.parse(path, hasHeaders, engine, charset, columns, parallel, job);
+        if (useSnapshot) {
+          this.storeSnapshot(source, options, parsed);
+        }
+      }
+      ColumnarTable table = parsed.table();
+      // snapshot reads and incremental loads don't count rows as they go
+      if (job != null) {
+        job.setProgress(table.rowCount(), Files.size(path));
+      }
+      List<String> headerList = parsed.header();
+
+      // searches ignore indexes that were built over a different table than the one they read
+      TableIndexes indexes = indexKinds.isEmpty() ? null : TableIndexes.build(table, indexKinds);
+      // the table, header and indexes become visible to searches together, in one swap
+      Dataset dataset =
+          this.csv.publish(
+              datasetName,
+              table,
+              hasHeaders ? headerList : null,
+              hasHeaders,
+              indexes,
+              incrementalSource);
 
       responseMap.put("result", "success");
+      responseMap.put("dataset", dataset.name());
       responseMap.put("filepath", filepath);
-      return toJson(responseMap);
+      responseMap.put("rows", String.valueOf(table.rowCount()));
+      responseMap.put("columns", String.valueOf(table.columnCount()));
+      responseMap.put("memory_bytes", String.valueOf(table.estimatedBytes()));
+      responseMap.put("snapshot", snapshotStatus);
+      if (indexes != null) {
+        responseMap.put("index_build_ms", String.valueOf(indexes.buildMillis()));
+        responseMap.put("index_memory_bytes", String.valueOf(indexes.estimatedBytes()));
+      }
+      if (indexKinds.contains(IndexKind.NUMERIC)) {
+        // the columns detected as numeric, which range predicates answer from the index
+        List<String> numericColumns = new ArrayList<>();
+        for (int column = 0; column < table.columnCount(); column++) {
+          if (indexes.numeric(column) != null) {
+            numericColumns.add(
+                hasHeaders && column < headerList.size()
+                    ? headerList.get(column)
+                    : String.valueOf(column));
+          }
+        }
+        responseMap.put("numeric_columns", String.join(",", numericColumns));
+      }
+      return responseMap;
 
-    } catch (FileNotFoundException e) {
+    } catch (FileNotFoundException | NoSuchFileException e) {
       System.out.println("File not found");
       responseMap.put("error", "file not found");
-      return toJson(responseMap);
+      return responseMap;
     } catch (IllegalArgumentException e){
       responseMap.put("result", "error");
       responseMap.put("error", "bad parameter");
-      return toJson(responseMap);
+      return responseMap;
+    } catch (NotFoundException e) {
+      responseMap.put("result", "error");
+      responseMap.put("error", "columns not found");
+      return responseMap;
     } catch (InconsistentRowException e){
         responseMap.put("result", "error");
         responseMap.put("error", "malformed CSV data");
-        return toJson(responseMap);
+        return responseMap;
     }
 
   }
 
+  /**
+   * Parses a CSV file into a columnar table.
+   *
+   * @param path The file to parse.
+   * @param hasHeaders Whether the first row is a header.
+   * @param engine The engine that splits rows, for the sequential parser.
+   * @param charset The charset the file is encoded in.
+   * @param columns Header names or indices of the columns to keep, or null to keep all of them.
+   * @param parallel Whether to memory-map the file and parse it on every core instead; only UTF-8
+   *     and ASCII files can be parsed in parallel, others are parsed sequentially.
+   * @param job The job the parser reports the rows it has read to, and the bytes too if it is
+   *     sequential; null if there is no job.
+   * @return The header (null without headers) and the parsed rows.
+   * @throws IOException If an I/O error occurs.
+   * @throws InconsistentRowException If the rows in the CSV are inconsistent.
+   * @throws FactoryFailureException If there's a failure in creating objects.
+   * @throws NotFoundException If a requested column isn't in the file.
+   */
+  private SnapshotCache.Snapshot parse(
+      Path path,
+      Boolean hasHeaders,
+      ParserEngine engine,
+      Charset charset,
+      List<String> columns,
+      Boolean parallel,
+      LoadJob job)
+      throws IOException, InconsistentRowException, FactoryFailureException, NotFoundException {
+    if (parallel && CSVParser.isByteCompatible(charset)) {
+      // memory-maps the file and tokenizes it on every core; each worker fills a columnar table of
+      // its own range from the tokenizer's buffer, so no row is ever held as a list of Strings
+      MappedCSVParser<List<String>> parser =
+          new MappedCSVParser<>(path, new StringListCreateFromRow(), hasHeaders);
+      if (columns != null) {
+        parser.project(columns);
+      }
+      ColumnarTable table = parser.parseTable(job == null ? null : job::addRows);
+      return new SnapshotCache.Snapshot(parser.getHeaderList(), table);
+    }
+    // rows go straight from the tokenizer's buffer into the columnar table; only values a column
+    // hasn't seen before are decoded into Strings
+    try (InputStream file = new FileInputStream(path.toFile());
+        InputStream input = new BufferedInputStream(job == null ? file : job.track(file))) {
+      CSVParser<List<String>> parser =
+          new CSVParser<>(input, charset, new StringListCreateFromRow(), hasHeaders, engine);
+      if (columns != null) {
+        parser.project(columns);
+      }
+      ColumnarTable.Builder builder = new ColumnarTable.Builder();
+      parser.parseRows(
+          row -> {
+            builder.add(row);
+            if (job != null) {
+              job.addRow();
+            }
+            return true;
+          });
+      return new SnapshotCache.Snapshot(parser.getHeaderList(), builder.build());
+    }
+  }
+
+  /**
+   * Writes a snapshot of a parse, unless the file changed while it was being parsed; the cache
+   * also skips snapshots too big to keep. A failure to write only costs the next load a parse, so
+   * it doesn't fail this one.
+   *
+   * @param source The identity of the file before it was parsed.
+   * @param options The parse options used.
+   * @param parsed The parse result.
+   */
+  private void storeSnapshot(
+      SnapshotCache.SourceState source, String options, SnapshotCache.Snapshot parsed) {
+    try {
+      if (SnapshotCache.unchangedSince(source)) {
+        this.snapshots.write(source, options, parsed.header(), parsed.table());
+      } else {
+        this.snapshots.invalidate(source, options);
+      }
+    } catch (IOException e) {
+      System.err.println("Could not write CSV snapshot: " + e.getMessage());
+    }
+  }
+
   /**
    * Helper method to serialize an object to JSON format.
    *
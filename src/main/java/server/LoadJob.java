@@ -0,0 +1,186 @@
+package server;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One load of a CSV file, and how far it has got. Asynchronous loads are reported by LoadStatus
+ * while they run; the counters are updated by the thread doing the load and can be read by any
+ * other.
+ */
+public class LoadJob {
+  /** The stages a load goes through. */
+  public enum State {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+  }
+
+  private final String id;
+  private final String filepath;
+  private final String dataset;
+  private final AtomicLong rows = new AtomicLong();
+  private final AtomicLong bytes = new AtomicLong();
+  private volatile long totalBytes = -1;
+  private volatile State state = State.QUEUED;
+  private volatile long startNanos;
+  private volatile long endNanos;
+  // the response the load would have given if it had been synchronous
+  private volatile Map<String, String> outcome;
+
+  /**
+   * Constructor for the LoadJob class.
+   *
+   * @param id The id the status of the job is asked for by.
+   * @param filepath The file being loaded.
+   * @param dataset The name of the dataset it is loaded under.
+   */
+  public LoadJob(String id, String filepath, String dataset) {
+    this.id = id;
+    this.filepath = filepath;
+    this.dataset = dataset;
+  }
+
+  /**
+   * Gets the id of the job.
+   *
+   * @return The id.
+   */
+  public String getId() {
+    return this.id;
+  }
+
+  /**
+   * Gets the stage the job is at.
+   *
+   * @return The state.
+   */
+  public State getState() {
+    return this.state;
+  }
+
+  /** Marks the job as running, from when its throughput is measured. */
+  public void start() {
+    this.startNanos = System.nanoTime();
+    this.state = State.RUNNING;
+  }
+
+  /**
+   * Marks the job as done.
+   *
+   * @param outcome The response of the load; the job failed unless its result is success.
+   */
+  public void finish(Map<String, String> outcome) {
+    this.outcome = outcome;
+    this.endNanos = System.nanoTime();
+    this.state = "success".equals(outcome.get("result")) ? State.SUCCEEDED : State.FAILED;
+  }
+
+  /** Counts one more row parsed. */
+  public void addRow() {
+    this.rows.incrementAndGet();
+  }
+
+  /**
+   * Counts a batch of rows parsed, like one range of a parallel load.
+   *
+   * @param count The rows parsed.
+   */
+  public void addRows(int count) {
+    this.rows.addAndGet(count);
+  }
+
+  /**
+   * Sets the counts for a load that didn't parse row by row, like a snapshot read.
+   *
+   * @param rows The rows loaded.
+   * @param bytes The bytes of the file they were loaded from.
+   */
+  public void setProgress(long rows, long bytes) {
+    this.rows.set(rows);
+    this.bytes.set(bytes);
+  }
+
+  /**
+   * Sets the size of the file, so the status can tell how much of it is left.
+   *
+   * @param totalBytes The size in bytes.
+   */
+  public void setTotalBytes(long totalBytes) {
+    this.totalBytes = totalBytes;
+  }
+
+  /**
+   * Wraps the stream a file is parsed from, so the bytes read from it are counted.
+   *
+   * @param input The stream over the file.
+   * @return A stream that reads the same bytes and counts them.
+   */
+  public InputStream track(InputStream input) {
+    return new FilterInputStream(input) {
+      @Override
+      public int read() throws IOException {
+        int read = super.read();
+        if (read >= 0) {
+          LoadJob.this.bytes.incrementAndGet();
+        }
+        return read;
+      }
+
+      @Override
+      public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        if (read > 0) {
+          LoadJob.this.bytes.addAndGet(read);
+        }
+        return read;
+      }
+    };
+  }
+
+  /**
+   * Describes the job for LoadStatus: its progress, its throughput so far, and once it is done
+   * the response of the load.
+   *
+   * @return The status, with numbers as strings like the other responses.
+   */
+  public Map<String, Object> status() {
+    State current = this.state;
+    long rowCount = this.rows.get();
+    long byteCount = this.bytes.get();
+    long elapsedNanos;
+    if (current == State.QUEUED) {
+      elapsedNanos = 0;
+    } else if (current == State.RUNNING) {
+      elapsedNanos = System.nanoTime() - this.startNanos;
+    } else {
+      elapsedNanos = this.endNanos - this.startNanos;
+    }
+    double seconds = elapsedNanos / 1e9;
+
+    Map<String, Object> status = new HashMap<>();
+    status.put("job_id", this.id);
+    status.put("state", current.name().toLowerCase());
+    status.put("filepath", this.filepath);
+    status.put("dataset", this.dataset);
+    status.put("rows_processed", String.valueOf(rowCount));
+    status.put("bytes_processed", String.valueOf(byteCount));
+    if (this.totalBytes >= 0) {
+      status.put("bytes_total", String.valueOf(this.totalBytes));
+    }
+    status.put("elapsed_ms", String.valueOf(elapsedNanos / 1_000_000));
+    if (seconds > 0) {
+      status.put("rows_per_second", String.valueOf(Math.round(rowCount / seconds)));
+      status.put("bytes_per_second", String.valueOf(Math.round(byteCount / seconds)));
+    }
+    if (current == State.SUCCEEDED || current == State.FAILED) {
+      status.put("outcome", this.outcome);
+    }
+    return status;
+  }
+}
@@ -0,0 +1,130 @@
+package server;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs asynchronous CSV loads on a small pool of background threads, and keeps their jobs so
+ * their status can be asked for. The pool and its queue are bounded, so a burst of loads is
+ * turned away instead of parsing more files at once than memory allows.
+ */
+public class LoadJobs {
+  /** Loads parsed at the same time. */
+  public static final int DEFAULT_THREADS = 2;
+
+  /** Loads waiting for a thread before more are turned away. */
+  public static final int DEFAULT_QUEUE = 8;
+
+  // finished jobs are forgotten, oldest first, once more than this many jobs are kept
+  private static final int MAX_JOBS = 64;
+
+  private final ThreadPoolExecutor executor;
+  private final Map<String, LoadJob> jobs = new ConcurrentHashMap<>();
+  private final AtomicLong ids = new AtomicLong();
+
+  /** Constructor for the LoadJobs class, with the default pool and queue sizes. */
+  public LoadJobs() {
+    this(DEFAULT_THREADS, DEFAULT_QUEUE);
+  }
+
+  /**
+   * Constructor for the LoadJobs class.
+   *
+   * @param threads The number of loads parsed at the same time.
+   * @param queue The number of loads that can wait for a thread.
+   */
+  public LoadJobs(int threads, int queue) {
+    this.executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queue),
+            runnable -> {
+              Thread thread = new Thread(runnable, "csv-load");
+              // a load in progress shouldn't keep the server from shutting down
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Makes a job for a load, with a new id.
+   *
+   * @param filepath The file to load.
+   * @param dataset The name of the dataset it is loaded under.
+   * @return The job, not yet submitted or kept.
+   */
+  public LoadJob create(String filepath, String dataset) {
+    return new LoadJob(String.valueOf(this.ids.incrementAndGet()), filepath, dataset);
+  }
+
+  /**
+   * Queues a load to run in the background. The job is kept before the load is queued, so its
+   * status can be asked for as soon as it could start.
+   *
+   * @param job The job the load reports its progress to.
+   * @param load The load, which returns its response.
+   * @throws RejectedExecutionException If the queue is full; the job is then not kept.
+   */
+  public void submit(LoadJob job, Callable<Map<String, String>> load) {
+    this.jobs.put(job.getId(), job);
+    this.forgetFinished();
+    try {
+      this.executor.execute(
+          () -> {
+            job.start();
+            try {
+              job.finish(load.call());
+            } catch (Throwable e) {
+              // even an OutOfMemoryError must leave the job FAILED, or it is RUNNING forever and
+              // never forgotten; the client only sees a generic message, the details are logged
+              System.err.println("Load job " + job.getId() + " failed: " + e);
+              job.finish(Map.of("result", "error", "error", "error while loading"));
+              if (e instanceof Error error) {
+                throw error;
+              }
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      this.jobs.remove(job.getId());
+      throw e;
+    }
+  }
+
+  /**
+   * Gets a job by its id.
+   *
+   * @param id The id of the job.
+   * @return The job, or null if there is none with the id or it was forgotten.
+   */
+  public LoadJob get(String id) {
+    return this.jobs.get(id);
+  }
+
+  /** Forgets the oldest finished jobs while more than MAX_JOBS are kept. */
+  private void forgetFinished() {
+    while (this.jobs.size() > MAX_JOBS) {
+      String oldest = null;
+      for (LoadJob job : this.jobs.values()) {
+        LoadJob.State state = job.getState();
+        boolean finished = state == LoadJob.State.SUCCEEDED || state == LoadJob.State.FAILED;
+        if (finished
+            && (oldest == null || Long.parseLong(job.getId()) < Long.parseLong(oldest))) {
+          oldest = job.getId();
+        }
+      }
+      if (oldest == null) {
+        return;
+      }
+      this.jobs.remove(oldest);
+    }
+  }
+}
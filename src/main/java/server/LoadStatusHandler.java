@@ -0,0 +1,65 @@
+package server;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import java.util.HashMap;
+import java.util.Map;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * Route handler for the status of asynchronous loads started with LoadCSV.
+ */
+public class LoadStatusHandler implements Route {
+  private final LoadJobs jobs;
+
+  /**
+   * Constructor for initializing the LoadStatusHandler with the jobs LoadCSV submits to.
+   *
+   * @param jobs The load jobs.
+   */
+  public LoadStatusHandler(LoadJobs jobs) {
+    this.jobs = jobs;
+  }
+
+  /**
+   * Method to handle HTTP requests for the status of a load.
+   *
+   * @param request The HTTP request object.
+   * @param response The HTTP response object.
+   * @return The response data in JSON format.
+   */
+  @Override
+  public Object handle(Request request, Response response) {
+    String id = request.queryParams("job");
+    Map<String, Object> responseMap = new HashMap<>();
+
+    if (id == null) {
+      responseMap.put("result", "error");
+      responseMap.put("error", "bad parameter");
+      return toJson(responseMap);
+    }
+    LoadJob job = this.jobs.get(id);
+    if (job == null) {
+      responseMap.put("result", "error");
+      responseMap.put("error", "job not found");
+      return toJson(responseMap);
+    }
+    responseMap.putAll(job.status());
+    responseMap.put("result", "success");
+    return toJson(responseMap);
+  }
+
+  /**
+   * Helper method to serialize an object to JSON format.
+   *
+   * @param object The object to serialize.
+   * @return The JSON representation of the object.
+   */
+  private String toJson(Object object) {
+    Moshi moshi = new Moshi.Builder().build();
+    JsonAdapter<Object> adapter = moshi.adapter(Object.class);
+    return adapter.toJson(object);
+  }
+}
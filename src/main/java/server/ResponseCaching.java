@@ -0,0 +1,121 @@
+package server;
+
+import CSV.ResponseCache;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.TreeSet;
+import spark.Request;
+import spark.Response;
+
+/**
+ * Conditional and cached responses for routes whose answer only depends on the version of a
+ * dataset and the parameters of the request. Each such response gets an ETag made of the two, so
+ * a client that already has it is answered 304 Not Modified without any work, and other clients
+ * can be sent the bytes rendered for the same request before.
+ */
+final class ResponseCaching {
+  // versions start over when the server restarts, so ETags also hash in when it started, and tags
+  // sent before a restart never match
+  private static final long STARTED = System.currentTimeMillis();
+
+  private ResponseCaching() {}
+
+  /**
+   * Makes the cache key of a request: the version and route, and its parameters sorted by name, so
+   * the order they were given in doesn't matter.
+   *
+   * @param route The route, like viewcsv.
+   * @param request The HTTP request object.
+   * @param version The version of the dataset the response reads.
+   * @return The key.
+   */
+  static ResponseCache.Key key(String route, Request request, long version) {
+    StringBuilder params = new StringBuilder();
+    Set<String> names = new TreeSet<>(request.queryParams());
+    for (String name : names) {
+      for (String value : request.queryParamsValues(name)) {
+        // NUL can't appear in a decoded parameter, so no two sets of parameters join the same way
+        params.append(name).append('=').append(value).append('\0');
+      }
+    }
+    return new ResponseCache.Key(version, route, params.toString());
+  }
+
+  /**
+   * Checks whether the client already has the response. Only successful responses are tagged, so
+   * a client can only hold the ETag of one.
+   *
+   * @param key The cache key of the request.
+   * @param request The HTTP request object.
+   * @param response The HTTP response object.
+   * @return true if If-None-Match names the ETag; the response is then set to 304 with the ETag,
+   *     and the route should return an empty body.
+   */
+  static boolean notModified(ResponseCache.Key key, Request request, Response response) {
+    String etag = etag(key);
+    String ifNoneMatch = request.headers("If-None-Match");
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      // a weak tag matches too; the comparison is weak for GET and HEAD
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals("*") || tag.equals(etag)) {
+        response.header("ETag", etag);
+        response.status(304);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Sets the ETag of a response. Called only once the route knows it is answering with success, so
+   * errors, which aren't cached either, are never tagged.
+   *
+   * @param key The cache key of the request.
+   * @param response The HTTP response object.
+   */
+  static void tag(ResponseCache.Key key, Response response) {
+    response.header("ETag", etag(key));
+  }
+
+  /**
+   * Sends a cached body.
+   *
+   * @param response The HTTP response object.
+   * @param body The body rendered for the same key before.
+   * @return The empty string, for the route to return, since the body has already been written.
+   * @throws IOException If the client can't be written to.
+   */
+  static String replay(Response response, byte[] body) throws IOException {
+    response.type("application/json");
+    response.raw().getOutputStream().write(body);
+    return "";
+  }
+
+  /**
+   * Makes the ETag of a key: the version, and a hash of the route and parameters.
+   *
+   * @param key The cache key of the request.
+   * @return The quoted ETag.
+   */
+  private static String etag(ResponseCache.Key key) {
+    String hash =
+        Hashing.sha256()
+            .newHasher()
+            .putLong(STARTED)
+            .putString(key.route(), StandardCharsets.UTF_8)
+            .putByte((byte) 0)
+            .putString(key.params(), StandardCharsets.UTF_8)
+            .hash()
+            .toString()
+            .substring(0, 16);
+    return "\"" + key.version() + "-" + hash + "\"";
+  }
+}
@@ -0,0 +1,138 @@
+package server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import spark.RequestResponseFactory;
+import spark.Route;
+
+/**
+ * Compresses the responses of routes for clients that accept it. The encoding is negotiated from
+ * Accept-Encoding, gzip or deflate, and the body is compressed as the route writes it, so streamed
+ * responses stay streamed. Each route keeps CompressionStats of what compression saved and cost.
+ */
+public class ResponseCompression {
+  /** Default compression level; higher levels cost much more CPU for little on JSON. */
+  public static final int DEFAULT_LEVEL = 6;
+
+  /** Default smallest body that is compressed. */
+  public static final int DEFAULT_MIN_BYTES = 1024;
+
+  private final int level;
+  private final int minBytes;
+  private final Map<String, CompressionStats> stats = new ConcurrentHashMap<>();
+
+  /** Constructor for the ResponseCompression class, with the default level and minimum size. */
+  public ResponseCompression() {
+    this(DEFAULT_LEVEL, DEFAULT_MIN_BYTES);
+  }
+
+  /**
+   * Constructor for the ResponseCompression class.
+   *
+   * @param level The compression level, from 1 (fastest) to 9 (smallest).
+   * @param minBytes The smallest body that is compressed; smaller ones are sent as they are.
+   * @throws IllegalArgumentException If the level or minimum size is out of range.
+   */
+  public ResponseCompression(int level, int minBytes) {
+    if (level < 1 || level > 9 || minBytes < 0) {
+      throw new IllegalArgumentException("compression level must be 1 to 9 and minimum size >= 0");
+    }
+    this.level = level;
+    this.minBytes = minBytes;
+  }
+
+  /**
+   * Wraps a route so its responses are compressed for clients that accept it.
+   *
+   * @param route The name of the route, which its stats are kept under.
+   * @param handler The route handler.
+   * @return The wrapped handler.
+   */
+  public Route wrap(String route, Route handler) {
+    CompressionStats routeStats = this.stats.computeIfAbsent(route, name -> new CompressionStats());
+    return (request, response) -> {
+      // caches between the server and the client must keep the encodings apart
+      response.header("Vary", "Accept-Encoding");
+      String encoding = negotiate(request.headers("Accept-Encoding"));
+      if (encoding == null) {
+        routeStats.recordIdentity();
+        return handler.handle(request, response);
+      }
+      CompressingResponse compressing =
+          new CompressingResponse(response.raw(), encoding, this.level, this.minBytes);
+      try {
+        Object body = handler.handle(request, RequestResponseFactory.create(compressing));
+        if (body == null) {
+          compressing.finish();
+          return null;
+        }
+        // routes that return their body, rather than stream it, have it written here instead of
+        // by Spark, so it goes through the compressor too
+        String text = body.toString();
+        if (!text.isEmpty()) {
+          compressing.getOutputStream().write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        compressing.finish();
+        return "";
+      } finally {
+        // also when the route throws, so the deflater's native memory is freed and it is counted
+        compressing.end();
+        routeStats.record(compressing);
+      }
+    };
+  }
+
+  /**
+   * Gets the compression stats of every wrapped route.
+   *
+   * @return The stats by route, in name order.
+   */
+  public Map<String, CompressionStats> getStats() {
+    return new TreeMap<>(this.stats);
+  }
+
+  /**
+   * Picks the encoding to send from an Accept-Encoding header: whichever of gzip and deflate has
+   * the highest q-value above 0, gzip on a tie. * stands for any encoding not named.
+   *
+   * @param acceptEncoding The header, or null if the request had none.
+   * @return gzip, deflate, or null to send the body as it is.
+   */
+  static String negotiate(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return null;
+    }
+    double gzip = -1;
+    double deflate = -1;
+    double any = -1;
+    for (String part : acceptEncoding.split(",")) {
+      String[] pieces = part.split(";");
+      String name = pieces[0].trim().toLowerCase();
+      double q = 1;
+      for (int i = 1; i < pieces.length; i++) {
+        String parameter = pieces[i].trim();
+        if (parameter.startsWith("q=")) {
+          try {
+            q = Double.parseDouble(parameter.substring(2));
+          } catch (NumberFormatException e) {
+            q = 0;
+          }
+        }
+      }
+      switch (name) {
+        case "gzip", "x-gzip" -> gzip = q;
+        case "deflate" -> deflate = q;
+        case "*" -> any = q;
+        default -> {}
+      }
+    }
+    gzip = gzip < 0 ? any : gzip;
+    deflate = deflate < 0 ? any : deflate;
+    if (gzip > 0 && gzip >= deflate) {
+      return "gzip";
+    }
+    return deflate > 0 ? "deflate" : null;
+  }
+}
@@ -0,0 +1,148 @@
+package server;
+
+import CSV.AccessCSV;
+import CSV.CSVSearcher;
+import CSV.ColumnarTable;
+import CSV.Dataset;
+import CSV.NotFoundException;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * Route handler for searching a loaded CSV file for any of several values at once. The values are
+ * given as repeated value parameters and searched for in one pass over the data; each returned row
+ * comes with the values it contains.
+ */
+public class SearchAnyCSVHandler implements Route {
+  // one search may use half of the cores, the same as SearchCSVHandler
+  private static final int MAX_PARALLELISM =
+      Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+  private final AccessCSV csv;
+
+  /**
+   * Constructor for initializing the SearchAnyCSVHandler with an AccessCSV instance.
+   *
+   * @param csv The AccessCSV instance to use for searching data.
+   */
+  public SearchAnyCSVHandler(AccessCSV csv) {
+    this.csv = csv;
+  }
+
+  /**
+   * Method to handle HTTP requests for searching a loaded CSV file for several values.
+   *
+   * @param request The HTTP request object.
+   * @param response The HTTP response object.
+   * @return The response data in JSON format.
+   */
+  @Override
+  public Object handle(Request request, Response response) {
+    String[] values = request.queryParamsValues("value");
+    String columnIdentifier = request.queryParams("columnID");
+    boolean parallel = !"false".equalsIgnoreCase(request.queryParams("parallel"));
+    // dataset={name} reads the file loaded under that name
+    String datasetName = request.queryParams("dataset");
+    String limitParam = request.queryParams("limit");
+    String cursor = request.queryParams("cursor");
+    Map<String, Object> responseMap = new HashMap<>();
+
+    if (values == null || Arrays.stream(values).anyMatch(String::isEmpty)) {
+      responseMap.put("result", "error");
+      responseMap.put("error", "missing or invalid search parameters");
+      return toJson(responseMap);
+    }
+    int limit = 0;
+    if (limitParam != null || cursor != null) {
+      try {
+        limit = Integer.parseInt(limitParam);
+      } catch (NumberFormatException e) {
+        limit = 0;
+      }
+      if (limit <= 0) {
+        responseMap.put("result", "error");
+        responseMap.put("error", "missing or invalid search parameters");
+        return toJson(responseMap);
+      }
+    }
+    List<String> patterns = List.of(values);
+    int searchHash = Objects.hash(patterns, columnIdentifier, "any");
+
+    // one snapshot of the dataset, so the table, header and version all come from one load
+    Dataset dataset =
+        this.csv.getDataset(datasetName == null ? AccessCSV.DEFAULT_DATASET : datasetName);
+    if (dataset == null) {
+      responseMap.put("result", "error");
+      responseMap.put("error", "no CSV loaded");
+      return toJson(responseMap);
+    }
+    long version = dataset.version();
+    ColumnarTable table = dataset.table();
+    if (table.rowCount() == 0) {
+      responseMap.put("result", "error");
+      responseMap.put("error", "CSV file is empty");
+      return toJson(responseMap);
+    }
+    CSVSearcher searcher = dataset.searcher();
+    if (parallel) {
+      searcher.setParallelism(MAX_PARALLELISM);
+    }
+    searcher.setCache(this.csv.getSearchCache(), version);
+    if (limit > 0) {
+      int fromRow = cursor == null ? 0 : SearchCursor.decode(cursor, version, searchHash);
+      if (fromRow < 0) {
+        responseMap.put("result", "error");
+        responseMap.put("error", "invalid or expired cursor");
+        return toJson(responseMap);
+      }
+      searcher.setPage(fromRow, limit);
+    }
+
+    List<List<String>> searchResult;
+    if (columnIdentifier != null && !columnIdentifier.isEmpty()) {
+      try {
+        try {
+          searchResult = searcher.searchAny(patterns, Integer.parseInt(columnIdentifier));
+        } catch (NumberFormatException e) {
+          searchResult = searcher.searchAny(patterns, columnIdentifier);
+        }
+      } catch (NotFoundException e) {
+        responseMap.put("result", "error");
+        responseMap.put("error", "columnID not found");
+        return toJson(responseMap);
+      }
+    } else {
+      // Search the entire CSV
+      searchResult = searcher.searchAny(patterns);
+    }
+
+    responseMap.put("result", "success");
+    responseMap.put("data", searchResult);
+    responseMap.put("matched", searcher.getMatchedPatterns());
+    if (limit > 0 && searcher.getNextRow() >= 0) {
+      responseMap.put(
+          "next_cursor", SearchCursor.encode(version, searcher.getNextRow(), searchHash));
+    }
+    return toJson(responseMap);
+  }
+
+  /**
+   * Helper method to serialize an object to JSON format.
+   *
+   * @param object The object to serialize.
+   * @return The JSON representation of the object.
+   */
+  private String toJson(Object object) {
+    Moshi moshi = new Moshi.Builder().build();
+    JsonAdapter<Object> adapter = moshi.adapter(Object.class);
+    return adapter.toJson(object);
+  }
+}
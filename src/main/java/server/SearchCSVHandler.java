@@ -1,14 +1,19 @@
 package server;
 
 import CSV.CSVSearcher;
-import CSV.FactoryFailureException;
-import CSV.InconsistentRowException;
 import CSV.AccessCSV;
+import CSV.ColumnarTable;
+import CSV.Dataset;
+import CSV.InvalidQueryException;
 import CSV.NotFoundException;
+import CSV.Query;
+import CSV.ResponseCache;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import spark.Request;
 import spark.Response;
 import spark.Route;
@@ -19,6 +24,12 @@ import com.squareup.moshi.Moshi;
  * Route handler for searching data within a loaded CSV file.
  */
 public class SearchCSVHandler implements Route {
+  // one search may use half of the cores, so two large searches at once still both make progress
+  private static final int MAX_PARALLELISM =
+      Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+  // the same cap as ~N in a query
+  private static final int MAX_FUZZY_DISTANCE = Query.Fuzzy.MAX_DISTANCE;
+
   private final AccessCSV csv;
 
   /**
@@ -37,38 +48,135 @@ public class SearchCSVHandler implements Route {
    * @param response The HTTP response object.
    * @return The response data in JSON format.
    * @throws DatasourceException If an error occurs while processing the data.
+   * @throws IOException If the results can't be written to the client.
    */
   @Override
-  public Object handle(Request request, Response response) throws DatasourceException {
+  public Object handle(Request request, Response response) throws DatasourceException, IOException {
     String searchValue = request.queryParams("value");
     String columnIdentifier = request.queryParams("columnID");
+    // query=State=RI AND NOT Race contains Total filters on several columns at once
+    String query = request.queryParams("query");
+    // match=exact only returns rows whose whole value equals the search value
+    String match = request.queryParams("match");
+    boolean exact = "exact".equalsIgnoreCase(match);
+    // match=fuzzy also returns values within distance={edits} of the search value, 1 by default
+    boolean fuzzy = "fuzzy".equalsIgnoreCase(match);
+    String distanceParam = request.queryParams("distance");
+    // parallel=false scans on the request thread even for large tables
+    boolean parallel = !"false".equalsIgnoreCase(request.queryParams("parallel"));
+    // limit={rows} returns one page and a next_cursor to pass as cursor= for the page after it
+    String limitParam = request.queryParams("limit");
+    String cursor = request.queryParams("cursor");
+    // dataset={name} searches the file loaded under that name
+    String datasetName = request.queryParams("dataset");
 
 
     List<List<String>> searchResult = null;
     Map<String, Object> responseMap = new HashMap<>();
 
-    if (searchValue == null || searchValue.isEmpty() || columnIdentifier == null || columnIdentifier.isEmpty()) {
+    boolean queried = query != null && !query.isEmpty();
+    if ((!queried
+            && (searchValue == null || searchValue.isEmpty() || columnIdentifier == null
+                || columnIdentifier.isEmpty()))
+        || (match != null && !exact && !fuzzy && !"contains".equalsIgnoreCase(match))) {
       // Respond with an error if either searchValue or columnIdentifier is missing
       responseMap.put("result", "error");
       responseMap.put("error", "missing or invalid search parameters");
       return toJson(responseMap);
     }
+    int limit = 0;
+    if (limitParam != null || cursor != null) {
+      try {
+        limit = Integer.parseInt(limitParam);
+      } catch (NumberFormatException e) {
+        limit = 0;
+      }
+      if (limit <= 0) {
+        responseMap.put("result", "error");
+        responseMap.put("error", "missing or invalid search parameters");
+        return toJson(responseMap);
+      }
+    }
+    int distance = 1;
+    if (distanceParam != null) {
+      try {
+        distance = Integer.parseInt(distanceParam);
+      } catch (NumberFormatException e) {
+        distance = -1;
+      }
+      if (distance < 0 || distance > MAX_FUZZY_DISTANCE) {
+        responseMap.put("result", "error");
+        responseMap.put("error", "missing or invalid search parameters");
+        return toJson(responseMap);
+      }
+    }
+    int searchHash = Objects.hash(searchValue, columnIdentifier, match, distance, query);
 
     try {
-      if (this.csv.getLoaded()) {
-        List<List<String>> parsedText = this.csv.getParsedText();
-        if (parsedText.isEmpty()) {
+      // one snapshot of the dataset, so the table, header and version all come from one load
+      Dataset dataset =
+          this.csv.getDataset(datasetName == null ? AccessCSV.DEFAULT_DATASET : datasetName);
+      if (dataset != null) {
+        long version = dataset.version();
+        // a search only changes when the dataset is reloaded, so clients that have it get a 304
+        ResponseCache.Key key = ResponseCaching.key("searchcsv", request, version);
+        if (ResponseCaching.notModified(key, request, response)) {
+          return "";
+        }
+        byte[] cached = this.csv.getResponseCache().get(key);
+        if (cached != null) {
+          // only successful searches are cached
+          ResponseCaching.tag(key, response);
+          return ResponseCaching.replay(response, cached);
+        }
+        ColumnarTable table = dataset.table();
+        if (table.rowCount() == 0) {
           responseMap.put("result", "error");
           responseMap.put("error", "CSV file is empty");
           return toJson(responseMap);
         }
-        CSVSearcher searcher = new CSVSearcher(this.csv.getParsedText(), this.csv.getHeader(), this.csv.getHasHeaders());
-        if (columnIdentifier != null && !columnIdentifier.isEmpty()) {
+        CSVSearcher searcher = dataset.searcher();
+        if (parallel) {
+          searcher.setParallelism(MAX_PARALLELISM);
+        }
+        searcher.setCache(this.csv.getSearchCache(), version);
+        if (limit > 0) {
+          int fromRow = cursor == null ? 0 : SearchCursor.decode(cursor, version, searchHash);
+          if (fromRow < 0) {
+            responseMap.put("result", "error");
+            responseMap.put("error", "invalid or expired cursor");
+            return toJson(responseMap);
+          }
+          searcher.setPage(fromRow, limit);
+        }
+        if (queried) {
+          try {
+            searchResult = searcher.query(query);
+          } catch (InvalidQueryException e) {
+            responseMap.put("result", "error");
+            responseMap.put("error", "invalid query: " + e.getMessage());
+            return toJson(responseMap);
+          } catch (NotFoundException e) {
+            responseMap.put("result", "error");
+            responseMap.put("error", "columnID not found");
+            return toJson(responseMap);
+          }
+        } else if (columnIdentifier != null && !columnIdentifier.isEmpty()) {
           try {
             int columnIndex = Integer.parseInt(columnIdentifier);
-            searchResult = searcher.search(searchValue, columnIndex);
+            searchResult =
+                fuzzy
+                    ? searcher.searchFuzzy(searchValue, distance, columnIndex)
+                    : exact
+                        ? searcher.searchExact(searchValue, columnIndex)
+                        : searcher.search(searchValue, columnIndex);
           } catch (NumberFormatException e) {
-            searchResult = searcher.search(searchValue, columnIdentifier);
+            searchResult =
+                fuzzy
+                    ? searcher.searchFuzzy(searchValue, distance, columnIdentifier)
+                    : exact
+                        ? searcher.searchExact(searchValue, columnIdentifier)
+                        : searcher.search(searchValue, columnIdentifier);
           } catch (NotFoundException e) {
             responseMap.put("result", "error");
             responseMap.put("error", "columnID not found");
@@ -76,16 +184,26 @@ public class SearchCSVHandler implements Route {
           }
         } else {
           // Search the entire CSV
-          searchResult = searcher.search(searchValue);
+          searchResult =
+              fuzzy
+                  ? searcher.searchFuzzy(searchValue, distance)
+                  : exact ? searcher.searchExact(searchValue) : searcher.search(searchValue);
         }
 
-        responseMap.put("result", "success");
-        responseMap.put("data", searchResult);
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("result", "success");
+        if (limit > 0 && searcher.getNextRow() >= 0) {
+          fields.put("next_cursor", SearchCursor.encode(version, searcher.getNextRow(), searchHash));
+        }
+        ResponseCaching.tag(key, response);
+        // matching rows are written one at a time instead of as one string
+        return StreamedJson.write(
+            response, fields, searchResult, this.csv.getResponseCache(), key);
       } else {
         responseMap.put("result", "error");
         responseMap.put("error", "no CSV loaded");
       }
-    } catch (IOException | FactoryFailureException | InconsistentRowException | NotFoundException e) {
+    } catch (NotFoundException e) {
       responseMap.put("result", "error");
       responseMap.put("error", "error while processing data: " + e.getMessage());
     }
@@ -0,0 +1,53 @@
+package server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursors for paged searches. A cursor records the version of the searched data, the row
+ * the next page starts at, and a hash of the search parameters, so it can't be used with other data
+ * or another search.
+ */
+final class SearchCursor {
+  private SearchCursor() {}
+
+  /**
+   * Makes the cursor for the next page of a search.
+   *
+   * @param version The version of the searched data.
+   * @param nextRow The row number the next page starts at.
+   * @param searchHash Hash of the search parameters.
+   * @return The cursor, as URL-safe text.
+   */
+  static String encode(long version, int nextRow, int searchHash) {
+    String cursor = version + ":" + nextRow + ":" + searchHash;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(cursor.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Reads the row a cursor starts at.
+   *
+   * @param cursor The cursor from an earlier response.
+   * @param version The version of the data now loaded.
+   * @param searchHash Hash of the parameters of this search.
+   * @return The row number, or -1 if the cursor is malformed, was made for other data or was made
+   *     for another search.
+   */
+  static int decode(String cursor, long version, int searchHash) {
+    try {
+      String[] parts =
+          new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII).split(":");
+      if (parts.length != 3
+          || Long.parseLong(parts[0]) != version
+          || Integer.parseInt(parts[2]) != searchHash) {
+        return -1;
+      }
+      return Math.max(-1, Integer.parseInt(parts[1]));
+    } catch (IllegalArgumentException e) {
+      // NumberFormatException is an IllegalArgumentException too
+      return -1;
+    }
+  }
+}
@@ -1,6 +1,6 @@
 package server;
 
-import static spark.Spark.after;
+import static spark.Spark.before;
 
 import CSV.AccessCSV;
 import countyAccess.CachingCensusDataSource;
@@ -15,9 +15,56 @@ import spark.Spark;
  * To run the program, run the main method
  * In local host with the browser
  * To run LoadCSV, add /loadcsv?filepath={input filepath}&headers={boolean true/false}
- * To run ViewCSV, add /viewcsv
+ * For LoadCSV, addition of &engine=regex selects the legacy regex parser (default is tokenizer)
+ * The regex parser drops empty fields at the end of a row, which the tokenizer keeps
+ * For LoadCSV, addition of &parallel=true memory-maps the file and parses it on all cores
+ * Parallel loads always use the tokenizer; adding &engine=regex to one is a bad parameter
+ * Loads are cached as binary snapshots; addition of &snapshot=false parses the file regardless
+ * Snapshots are kept in ~/.cache/csv-snapshots, or the directory set with -Dcsv.snapshots.dir,
+ * which must belong to the user running the server and be writable by no one else
+ * A snapshot is reused while the file keeps its size, modification time and first and last 64 KB,
+ * so after an edit to the middle of a file that keeps its size, load it with &snapshot=false
+ * For LoadCSV, addition of &charset=<name> reads files that are not UTF-8 (the default)
+ * For LoadCSV, addition of &columns={names or numbers, comma separated} keeps only those columns
+ * For LoadCSV, addition of &incremental=true only parses rows appended since the last such load
+ * For LoadCSV, addition of &dataset={name} loads the file under that name, keeping the files
+ * loaded under other names; ViewCSV, SearchCSV, SearchAny and AggregateCSV take &dataset={name}
+ * to read it (default is the dataset named default)
+ * For LoadCSV, addition of &async=true parses the file in the background and returns a job_id
+ * right away; the dataset loaded before keeps being searched until the new one is ready
+ * To check on an async load, add /loadstatus?job={job_id} for the rows and bytes read so far,
+ * the rows and bytes per second, and the load's own response as outcome once it is done
+ * For LoadCSV, addition of &index=exact builds a value index over every column for exact search
+ * and &index=trigram (or index=exact,trigram) also indexes substrings for the default search;
+ * &index=numeric sorts the columns whose values are all numbers, listed as numeric_columns
+ * and &index=fuzzy builds a BK-tree over the values of each column for match=fuzzy
+ * To run ViewCSV, add /viewcsv; ViewCSV and SearchCSV stream their rows as a "data" array
+ * ViewCSV and SearchCSV responses carry an ETag that changes when the dataset is reloaded;
+ * send it back as If-None-Match to get 304 Not Modified, and small responses are cached (32 MB)
  * To run SearchCSV, add /searchcsv?value={search value}&columnID={number or String name}
  * For SearchCSV, addition of &columnID={number or String name} is optional
+ * For SearchCSV, addition of &match=exact only matches whole values (default is contains)
+ * and &match=fuzzy matches values within &distance={0 to 3, default 1} typing mistakes
+ * For SearchCSV, addition of &parallel=false scans large CSVs on one thread (default is parallel)
+ * SearchCSV also takes &query={expression} instead of value and columnID, for example
+ * query=State=RI AND Year=2021 AND NOT Race contains "Total" (with = != contains AND OR NOT and ())
+ * and numeric comparisons like Year>=2019 or "Household Income by Race" between 40000 and 60000
+ * and fuzzy matches like Geography ~2 Providnce (within two typing mistakes)
+ * For SearchCSV, addition of &limit={number} returns one page of rows and a next_cursor;
+ * pass it back as &cursor={next_cursor} with the same search for the next page
+ * SearchCSV results are cached (64 MB, least recently used first) until the next LoadCSV
+ * To run SearchAny, add /searchany?value={value}&value={another value}... with any number of
+ * values; columnID, limit and cursor work as for SearchCSV, and "matched" lists the values
+ * found in each row
+ * To run AggregateCSV, add /aggregatecsv?function={count,distinct,sum,min,max,avg, comma
+ * separated}&column={number or String name}; column is optional when function=count only
+ * For AggregateCSV, addition of &groupBy={names or numbers, comma separated} returns one row
+ * per group, and &query={expression} only aggregates the rows that match, as in SearchCSV
+ * To list the loaded datasets, add /datasets; addition of &remove={name} unloads one first
+ * Like /loadcsv, a /datasets request with &remove changes state even though it is a GET
+ * Responses are compressed with gzip or deflate for clients that send Accept-Encoding, unless
+ * they are under 1 KB; -Dcompression.level and -Dcompression.minBytes change the level (default
+ * 6) and the size, and /compression lists each route's bytes before and after and CPU time
  * To run broadband, add /broadband?state={String state name}&county={String county name}
  * If the user inputs an incorrect State or county, the Server lets them know that
  */
@@ -34,17 +81,30 @@ public class Server {
 
     Spark.port(port);
 
-    after(
+    // set before the route runs, since routes that stream their rows have sent the headers by the
+    // time an after filter would run
+    before(
         (request, response) -> {
           response.header("Access-Control-Allow-Origin", "*");
           response.header("Access-Control-Allow-Methods", "*");
         });
 
     // Should I add a "/"?
-    Spark.get("loadcsv", new LoadCSVHandler(accessCSV));
-    Spark.get("viewcsv", new ViewCSVHandler(accessCSV));
-    Spark.get("searchcsv", new SearchCSVHandler(accessCSV));
-    Spark.get("broadband", new CountyAccessHandler(census));
+    // -Dcompression.level={1 to 9} and -Dcompression.minBytes={bytes} tune response compression
+    ResponseCompression compression =
+        new ResponseCompression(
+            Integer.getInteger("compression.level", ResponseCompression.DEFAULT_LEVEL),
+            Integer.getInteger("compression.minBytes", ResponseCompression.DEFAULT_MIN_BYTES));
+    LoadJobs loadJobs = new LoadJobs();
+    Spark.get("loadcsv", compression.wrap("loadcsv", new LoadCSVHandler(accessCSV, loadJobs)));
+    Spark.get("loadstatus", compression.wrap("loadstatus", new LoadStatusHandler(loadJobs)));
+    Spark.get("viewcsv", compression.wrap("viewcsv", new ViewCSVHandler(accessCSV)));
+    Spark.get("searchcsv", compression.wrap("searchcsv", new SearchCSVHandler(accessCSV)));
+    Spark.get("searchany", compression.wrap("searchany", new SearchAnyCSVHandler(accessCSV)));
+    Spark.get("aggregatecsv", compression.wrap("aggregatecsv", new AggregateCSVHandler(accessCSV)));
+    Spark.get("datasets", compression.wrap("datasets", new DatasetsHandler(accessCSV)));
+    Spark.get("broadband", compression.wrap("broadband", new CountyAccessHandler(census)));
+    Spark.get("compression", new CompressionHandler(compression));
     Spark.init();
     Spark.awaitInitialization();
   }
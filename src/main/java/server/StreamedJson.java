@@ -0,0 +1,124 @@
+package server;
+
+import CSV.ResponseCache;
+import com.squareup.moshi.JsonWriter;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.Okio;
+import okio.Sink;
+import spark.Response;
+
+/**
+ * Writes a response with rows of data straight to the client, one row at a time, instead of
+ * building the whole JSON string first. The writer only buffers a few kilobytes before sending
+ * them, and no Content-Length is set, so the response is sent chunked and the memory it takes
+ * doesn't grow with the number of rows.
+ */
+final class StreamedJson {
+
+  private StreamedJson() {}
+
+  /**
+   * Writes a JSON object with the given fields, then the rows as a "data" array of arrays.
+   *
+   * @param response The HTTP response object to write to.
+   * @param fields The other fields of the response, like result, written before the data.
+   * @param rows The rows; views over a table are only read as they are written.
+   * @return The empty string, for the route to return, since the body has already been written.
+   * @throws IOException If the client can't be written to.
+   */
+  static String write(Response response, Map<String, String> fields, List<List<String>> rows)
+      throws IOException {
+    return write(response, fields, rows, null, null);
+  }
+
+  /**
+   * Writes a response as above, and keeps a copy of the body in a cache if it is small enough to
+   * be cached. The copy is made as the body is written, and given up once it is over
+   * ResponseCache.MAX_ENTRY_BYTES, so large bodies are still only streamed.
+   *
+   * @param response The HTTP response object to write to.
+   * @param fields The other fields of the response, like result, written before the data.
+   * @param rows The rows; views over a table are only read as they are written.
+   * @param cache The cache to keep the body in, or null to not keep it.
+   * @param key The key to keep it under.
+   * @return The empty string, for the route to return, since the body has already been written.
+   * @throws IOException If the client can't be written to.
+   */
+  static String write(
+      Response response,
+      Map<String, String> fields,
+      List<List<String>> rows,
+      ResponseCache cache,
+      ResponseCache.Key key)
+      throws IOException {
+    response.type("application/json");
+    // the servlet stream isn't closed here, so Spark can finish the response as usual
+    Sink out = Okio.sink(response.raw().getOutputStream());
+    CopyingSink copy = cache == null ? null : new CopyingSink(out, ResponseCache.MAX_ENTRY_BYTES);
+    BufferedSink sink = Okio.buffer(copy == null ? out : copy);
+    JsonWriter writer = JsonWriter.of(sink);
+    writer.beginObject();
+    for (Map.Entry<String, String> field : fields.entrySet()) {
+      writer.name(field.getKey()).value(field.getValue());
+    }
+    writer.name("data").beginArray();
+    for (List<String> row : rows) {
+      writer.beginArray();
+      for (String value : row) {
+        writer.value(value);
+      }
+      writer.endArray();
+    }
+    writer.endArray();
+    writer.endObject();
+    writer.flush();
+    byte[] body = copy == null ? null : copy.copied();
+    if (body != null) {
+      cache.put(key, body);
+    }
+    return "";
+  }
+
+  /** Sink that passes bytes on and keeps a copy of them, up to a limit. */
+  private static final class CopyingSink extends ForwardingSink {
+    private final int limit;
+    private Buffer copy = new Buffer();
+
+    /**
+     * Constructor for the CopyingSink class.
+     *
+     * @param delegate The sink the bytes are passed on to.
+     * @param limit The most bytes to copy; past it the copy is dropped.
+     */
+    CopyingSink(Sink delegate, int limit) {
+      super(delegate);
+      this.limit = limit;
+    }
+
+    @Override
+    public void write(Buffer source, long byteCount) throws IOException {
+      if (this.copy != null) {
+        if (this.copy.size() + byteCount > this.limit) {
+          this.copy = null;
+        } else {
+          source.copyTo(this.copy, 0, byteCount);
+        }
+      }
+      super.write(source, byteCount);
+    }
+
+    /**
+     * Gets the bytes written so far.
+     *
+     * @return The bytes, or null if there were more than the limit.
+     */
+    byte[] copied() {
+      return this.copy == null ? null : this.copy.readByteArray();
+    }
+  }
+}
@@ -1,9 +1,11 @@
 package server;
 
 import CSV.AccessCSV;
+import CSV.Dataset;
+import CSV.ResponseCache;
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
-import com.squareup.moshi.Types;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,27 +34,50 @@ public class ViewCSVHandler implements Route {
    * @param request  The HTTP request object.
    * @param response The HTTP response object.
    * @return JSON representation of the loaded CSV data.
+   * @throws IOException If the data can't be written to the client.
    */
   @Override
-  public Object handle(Request request, Response response) {
+  public Object handle(Request request, Response response) throws IOException {
+    // dataset={name} views the file loaded under that name
+    String datasetName = request.queryParams("dataset");
     Map<String, Object> responseMap = new HashMap<>();
+    List<List<String>> rows = null;
+    ResponseCache.Key key = null;
     try {
-      if (!this.csv.getLoaded()) {
+      Dataset dataset =
+          this.csv.getDataset(datasetName == null ? AccessCSV.DEFAULT_DATASET : datasetName);
+      if (dataset == null) {
         responseMap.put("result", "error");
         responseMap.put("error", "no CSV loaded");
       } else {
-        List<List<String>> parsedData = csv.getParsedText();
+        // the view only changes when the dataset is reloaded, so clients that have it get a 304
+        key = ResponseCaching.key("viewcsv", request, dataset.version());
+        if (ResponseCaching.notModified(key, request, response)) {
+          return "";
+        }
+        List<List<String>> parsedData = dataset.table().rows();
         if (parsedData.isEmpty()) {
           responseMap.put("result", "success - file is empty");
+          ResponseCaching.tag(key, response);
         } else {
-          responseMap.put("result", "success");
-          responseMap.put("data", toJson(parsedData));
+          rows = parsedData;
         }
       }
     } catch (Exception e) {
       responseMap.put("result", "error");
       responseMap.put("error", "error while processing data");
     }
+    if (rows != null) {
+      ResponseCaching.tag(key, response);
+      byte[] cached = this.csv.getResponseCache().get(key);
+      if (cached != null) {
+        return ResponseCaching.replay(response, cached);
+      }
+      // rows are read from the table as they are written, so the whole file is never held again
+      // as JSON
+      return StreamedJson.write(
+          response, Map.of("result", "success"), rows, this.csv.getResponseCache(), key);
+    }
     return toJson(responseMap);
   }
 
@@ -67,19 +92,4 @@ public class ViewCSVHandler implements Route {
     JsonAdapter<Object> adapter = moshi.adapter(Object.class);
     return adapter.toJson(object);
   }
-
-  /**
-   * Converts a list of lists of strings to its JSON representation using Moshi.
-   *
-   * @param data The list of lists of strings to convert to JSON.
-   * @return JSON string representing the list of lists of strings.
-   */
-  private String toJson(List<List<String>> data) {
-    Moshi moshi = new Moshi.Builder().build();
-    JsonAdapter<List<List<String>>> listAdapter =
-        moshi.adapter(
-            Types.newParameterizedType(
-                List.class, Types.newParameterizedType(List.class, String.class)));
-    return listAdapter.toJson(data);
-  }
 }
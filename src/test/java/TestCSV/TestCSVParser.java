@@ -0,0 +1,151 @@
+package TestCSV;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import CSV.CSVParser;
+import CSV.ColumnarTable;
+import CSV.FactoryFailureException;
+import CSV.InconsistentRowException;
+import CSV.MappedCSVParser;
+import CSV.StringListCreateFromRow;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains unit tests for streaming rows out of the CSVParser class.
+ */
+public class TestCSVParser {
+  @TempDir Path temp;
+
+  /**
+   * Helper method to make a parser over a file.
+   *
+   * @param file The file.
+   * @param hasHeader Whether the first row is a header.
+   * @return The parser.
+   * @throws IOException If the file can't be opened.
+   */
+  private static CSVParser<List<String>> parser(String file, boolean hasHeader)
+      throws IOException {
+    return new CSVParser<>(new FileReader(file), new StringListCreateFromRow(), hasHeader);
+  }
+
+  /**
+   * Test method to check that streaming a file hands out the same rows as parsing it whole.
+   *
+   * @throws IOException If an I/O error occurs.
+   * @throws FactoryFailureException If a row can't be made into a list.
+   * @throws InconsistentRowException If the rows aren't the same length.
+   */
+  @Test
+  public void testParseConsumerMatchesParse()
+      throws IOException, FactoryFailureException, InconsistentRowException {
+    for (boolean hasHeader : new boolean[] {true, false}) {
+      CSVParser<List<String>> whole = parser("data/census/income_by_race.csv", hasHeader);
+      List<List<String>> expected = whole.parse();
+
+      CSVParser<List<String>> streamed = parser("data/census/income_by_race.csv", hasHeader);
+      List<List<String>> rows = new ArrayList<>();
+      streamed.parse(rows::add);
+      assertEquals(expected, rows);
+      assertEquals(whole.getHeaderList(), streamed.getHeaderList());
+    }
+  }
+
+  /**
+   * Test method to check that a consumer returning false stops parsing before the next row.
+   *
+   * @throws IOException If an I/O error occurs.
+   * @throws FactoryFailureException If a row can't be made into a list.
+   * @throws InconsistentRowException If the rows aren't the same length.
+   */
+  @Test
+  public void testParseConsumerStopsEarly()
+      throws IOException, FactoryFailureException, InconsistentRowException {
+    List<List<String>> expected = parser("data/census/income_by_race.csv", true).parse();
+    CSVParser<List<String>> parser = parser("data/census/income_by_race.csv", true);
+    List<List<String>> rows = new ArrayList<>();
+    parser.parse(
+        row -> {
+          rows.add(row);
+          return rows.size() < 3;
+        });
+    assertEquals(expected.subList(0, 3), rows);
+
+    // parsing carries on from where it stopped
+    List<List<String>> rest = new ArrayList<>();
+    parser.parse(rest::add);
+    assertEquals(expected.subList(3, expected.size()), rest);
+  }
+
+  /**
+   * Test method to check that the rows before a malformed one are handed out before it fails.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testParseConsumerMalformed() throws IOException {
+    CSVParser<List<String>> parser = parser("data/malformed/malformed_signs.csv", true);
+    List<List<String>> rows = new ArrayList<>();
+    assertThrows(InconsistentRowException.class, () -> parser.parse(rows::add));
+    assertEquals(List.of(List.of("Aries", "Annie", "")), rows);
+  }
+
+  /**
+   * Test method to check that parsing a file into a table on several ranges gives the same rows
+   * and header as parsing it sequentially, however many ranges it is cut into.
+   *
+   * @throws IOException If an I/O error occurs.
+   * @throws FactoryFailureException If a row can't be made into a list.
+   * @throws InconsistentRowException If the rows aren't the same length.
+   */
+  @Test
+  public void testParseTableMatchesParse()
+      throws IOException, FactoryFailureException, InconsistentRowException {
+    String file = "data/census/income_by_race.csv";
+    CSVParser<List<String>> whole = parser(file, true);
+    List<List<String>> expected = whole.parse();
+    for (int chunks : new int[] {1, 3, 13, 40}) {
+      MappedCSVParser<List<String>> parser =
+          new MappedCSVParser<>(Path.of(file), new StringListCreateFromRow(), true, chunks);
+      int[] progress = {0};
+      ColumnarTable table = parser.parseTable(rows -> progress[0] += rows);
+      assertEquals(expected, table.rows());
+      assertEquals(whole.getHeaderList(), parser.getHeaderList());
+      assertEquals(expected.size(), progress[0]);
+    }
+  }
+
+  /**
+   * Test method to check that a short row in a later range, or a header of another length than
+   * the rows, still fails a table parse.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testParseTableInconsistent() throws IOException {
+    StringBuilder rows = new StringBuilder();
+    for (int row = 0; row < 5000; row++) {
+      rows.append(row == 4000 ? "a,b\n" : "a,b,c\n");
+    }
+    Path shortRow = Files.writeString(this.temp.resolve("short.csv"), rows);
+    assertThrows(
+        InconsistentRowException.class,
+        () -> new MappedCSVParser<>(shortRow, new StringListCreateFromRow(), false, 7)
+            .parseTable(null));
+
+    Path header =
+        Files.writeString(this.temp.resolve("header.csv"), "x,y\n" + "a,b,c\n".repeat(5000));
+    assertThrows(
+        InconsistentRowException.class,
+        () -> new MappedCSVParser<>(header, new StringListCreateFromRow(), true, 7)
+            .parseTable(null));
+  }
+}
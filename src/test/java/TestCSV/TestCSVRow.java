@@ -0,0 +1,109 @@
+package TestCSV;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import CSV.ByteCSVTokenizer;
+import CSV.CSVRow;
+import CSV.CSVTokenizer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the CSVRow views: the ones the char and byte tokenizers hand
+ * out over their buffers, and the one over a list of strings.
+ */
+public class TestCSVRow {
+  private static final String CSV =
+      "ab,cd,\n"
+          + "\"Bob, Jr.\",\"say \"\"hi\"\"\",x\n"
+          + "Zoë,naïve,日本\n"
+          + "libra,bra,abra\n";
+
+  private static final List<List<String>> ROWS =
+      List.of(
+          List.of("ab", "cd", ""),
+          // like the regex parser, the tokenizer keeps the quotes of a field as they were written
+          List.of("\"Bob, Jr.\"", "\"say \"\"hi\"\"\"", "x"),
+          List.of("Zoë", "naïve", "日本"),
+          List.of("libra", "bra", "abra"));
+
+  /**
+   * Helper method to check every method of a row against the same operation on the strings it
+   * should hold.
+   *
+   * @param expected The fields the row should hold.
+   * @param row The row.
+   */
+  private static void assertRow(List<String> expected, CSVRow row) {
+    assertEquals(expected.size(), row.size());
+    List<String> probes = new ArrayList<>(List.of("", "b", "ab", "b,c", "abc", "\"", "ï", "bra"));
+    probes.addAll(expected);
+    for (int i = 0; i < expected.size(); i++) {
+      String field = expected.get(i);
+      assertEquals(field, row.field(i).toString(), field);
+      assertEquals(field, row.fieldString(i), field);
+      assertEquals(field.hashCode(), row.fieldHash(i), field);
+      for (String probe : probes) {
+        assertEquals(field.equals(probe), row.fieldEquals(i, probe), field + " = " + probe);
+        assertEquals(field.contains(probe), row.fieldContains(i, probe), field + " ~ " + probe);
+      }
+    }
+    assertEquals(expected, row.toList());
+  }
+
+  /**
+   * Test method to check the views the char tokenizer hands out, and that a row copied with toList
+   * keeps its fields once the view moves on to the next row.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testCharBufferRow() throws IOException {
+    CSVTokenizer tokenizer = new CSVTokenizer(new StringReader(CSV));
+    List<List<String>> kept = new ArrayList<>();
+    for (List<String> expected : ROWS) {
+      CSVRow row = tokenizer.nextRowView();
+      assertRow(expected, row);
+      kept.add(row.toList());
+    }
+    assertNull(tokenizer.nextRowView());
+    assertEquals(ROWS, kept);
+  }
+
+  /**
+   * Test method to check the views the byte tokenizer hands out, for ASCII rows and for rows it
+   * has to decode.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testByteArrayRow() throws IOException {
+    ByteCSVTokenizer tokenizer =
+        new ByteCSVTokenizer(new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8)));
+    List<List<String>> kept = new ArrayList<>();
+    for (List<String> expected : ROWS) {
+      CSVRow row = tokenizer.nextRowView();
+      assertRow(expected, row);
+      kept.add(row.toList());
+    }
+    assertNull(tokenizer.nextRowView());
+    assertEquals(ROWS, kept);
+  }
+
+  /** Test method to check the view over a row that is already a list of strings. */
+  @Test
+  public void testListRow() {
+    for (List<String> expected : ROWS) {
+      CSVRow row = CSVRow.of(expected);
+      assertRow(expected, row);
+      // nothing to copy, the list is handed back as it is
+      assertEquals(expected, row.toList());
+    }
+  }
+}
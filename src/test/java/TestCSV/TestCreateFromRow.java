@@ -0,0 +1,156 @@
+package TestCSV;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import CSV.CSVParser;
+import CSV.CSVRow;
+import CSV.CSVTokenizer;
+import CSV.DoubleArrayCreateFromRow;
+import CSV.DoubleColumnBuffer;
+import CSV.FactoryFailureException;
+import CSV.InconsistentRowException;
+import CSV.IntArrayCreateFromRow;
+import CSV.IntegerListCreateFromRow;
+import CSV.LongArrayCreateFromRow;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the creators that parse rows into primitive values: the int,
+ * long and double array creators, the boxed integer list adapter and the double column buffer.
+ */
+public class TestCreateFromRow {
+
+  /**
+   * Helper method to get a tokenizer's view of a single row, so a creator is called the way
+   * CSVParser calls it.
+   *
+   * @param line The row as it is written in the CSV.
+   * @return The row view.
+   * @throws IOException If an I/O error occurs.
+   */
+  private static CSVRow view(String line) throws IOException {
+    return new CSVTokenizer(new StringReader(line + "\n")).nextRowView();
+  }
+
+  /**
+   * Test method to check the int array creator on a good row, a bad cell and an overflowing cell.
+   *
+   * @throws IOException If an I/O error occurs.
+   * @throws FactoryFailureException If a good row can't be parsed.
+   */
+  @Test
+  public void testIntArray() throws IOException, FactoryFailureException {
+    IntArrayCreateFromRow creator = new IntArrayCreateFromRow();
+    assertArrayEquals(new int[] {1, -20, 300}, creator.create(List.of("1", "-20", "300")));
+    assertArrayEquals(new int[] {1, -20, 300}, creator.create(view("1,-20,300")));
+    assertThrows(FactoryFailureException.class, () -> creator.create(List.of("1", "two")));
+    assertThrows(FactoryFailureException.class, () -> creator.create(view("1,")));
+    assertThrows(FactoryFailureException.class, () -> creator.create(view("1,2147483648")));
+  }
+
+  /**
+   * Test method to check the long array creator on a good row, a bad cell and an overflowing cell.
+   *
+   * @throws IOException If an I/O error occurs.
+   * @throws FactoryFailureException If a good row can't be parsed.
+   */
+  @Test
+  public void testLongArray() throws IOException, FactoryFailureException {
+    LongArrayCreateFromRow creator = new LongArrayCreateFromRow();
+    long[] expected = {2147483648L, -9223372036854775808L};
+    assertArrayEquals(expected, creator.create(List.of("2147483648", "-9223372036854775808")));
+    assertArrayEquals(expected, creator.create(view("2147483648,-9223372036854775808")));
+    assertThrows(FactoryFailureException.class, () -> creator.create(view("1,2.5")));
+    assertThrows(
+        FactoryFailureException.class, () -> creator.create(view("9223372036854775808")));
+  }
+
+  /**
+   * Test method to check the double array creator on a good row, a bad cell and an overflowing
+   * cell.
+   *
+   * @throws IOException If an I/O error occurs.
+   * @throws FactoryFailureException If a good row can't be parsed.
+   */
+  @Test
+  public void testDoubleArray() throws IOException, FactoryFailureException {
+    DoubleArrayCreateFromRow creator = new DoubleArrayCreateFromRow();
+    double[] expected = {49.5, -0.25, 1e10};
+    assertArrayEquals(expected, creator.create(List.of("49.5", "-0.25", "1e10")));
+    assertArrayEquals(expected, creator.create(view("49.5,-0.25,1e10")));
+    // the tokenizer keeps quotes, so a quoted number isn't a number
+    assertThrows(FactoryFailureException.class, () -> creator.create(view("\"49.5\"")));
+    assertThrows(FactoryFailureException.class, () -> creator.create(view("1,1e400")));
+  }
+
+  /**
+   * Test method to check that the boxed integer list adapter gives the same values as the int
+   * array creator and fails the same way.
+   *
+   * @throws IOException If an I/O error occurs.
+   * @throws FactoryFailureException If a good row can't be parsed.
+   */
+  @Test
+  public void testIntegerList() throws IOException, FactoryFailureException {
+    IntegerListCreateFromRow creator = new IntegerListCreateFromRow();
+    assertEquals(List.of(1, -20, 300), creator.create(List.of("1", "-20", "300")));
+    assertEquals(List.of(1, -20, 300), creator.create(view("1,-20,300")));
+    assertThrows(FactoryFailureException.class, () -> creator.create(view("1,x")));
+    assertThrows(FactoryFailureException.class, () -> creator.create(view("-2147483649")));
+  }
+
+  /**
+   * Test method to check that the column buffer fills one array per column, and that a bad cell,
+   * an overflowing cell or a short row is not added.
+   *
+   * @throws IOException If an I/O error occurs.
+   * @throws FactoryFailureException If a good row can't be parsed.
+   */
+  @Test
+  public void testDoubleColumnBuffer() throws IOException, FactoryFailureException {
+    DoubleColumnBuffer buffer = new DoubleColumnBuffer();
+    for (int row = 0; row < 40; row++) {
+      buffer.create(view(row + "," + row + ".5"));
+    }
+    assertThrows(FactoryFailureException.class, () -> buffer.create(view("1,x")));
+    assertThrows(FactoryFailureException.class, () -> buffer.create(view("1,1e400")));
+    assertThrows(FactoryFailureException.class, () -> buffer.create(List.of("1")));
+    assertEquals(40, buffer.rowCount());
+    assertEquals(2, buffer.columnCount());
+    assertEquals(39, buffer.column(0)[39]);
+    assertEquals(0.5, buffer.column(1)[0]);
+    assertEquals(40, buffer.column(1).length);
+  }
+
+  /**
+   * Test method to check the creators behind a CSVParser, which hands them its row views.
+   *
+   * @throws IOException If an I/O error occurs.
+   * @throws FactoryFailureException If a row can't be parsed.
+   * @throws InconsistentRowException If the rows aren't the same length.
+   */
+  @Test
+  public void testThroughParser()
+      throws IOException, FactoryFailureException, InconsistentRowException {
+    String csv = "year,earnings\n2020,51000.5\n2021,53250\n";
+    List<double[]> rows =
+        new CSVParser<>(new StringReader(csv), new DoubleArrayCreateFromRow(), true).parse();
+    assertArrayEquals(new double[] {2021, 53250}, rows.get(1));
+
+    DoubleColumnBuffer buffer = new DoubleColumnBuffer();
+    new CSVParser<>(new StringReader(csv), buffer, true).parse(columns -> true);
+    assertArrayEquals(new double[] {51000.5, 53250}, buffer.column(1));
+
+    List<long[]> failed = new ArrayList<>();
+    CSVParser<long[]> parser =
+        new CSVParser<>(new StringReader(csv), new LongArrayCreateFromRow(), true);
+    assertThrows(FactoryFailureException.class, () -> parser.parse(failed::add));
+    assertEquals(0, failed.size());
+  }
+}
@@ -0,0 +1,140 @@
+package TestCSV;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import CSV.NumberParser;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the NumberParser class.
+ */
+public class TestNumberParser {
+
+  /**
+   * Helper method to parse an int.
+   *
+   * @param text The field.
+   * @param expectedStatus The status parseInt should return.
+   * @param expectedValue The value it should write on OK.
+   */
+  private static void assertInt(String text, int expectedStatus, int expectedValue) {
+    int[] out = {42};
+    assertEquals(expectedStatus, NumberParser.parseInt(text, out, 0), text);
+    assertEquals(expectedStatus == NumberParser.OK ? expectedValue : 42, out[0], text);
+  }
+
+  /**
+   * Helper method to parse a long.
+   *
+   * @param text The field.
+   * @param expectedStatus The status parseLong should return.
+   * @param expectedValue The value it should write on OK.
+   */
+  private static void assertLong(String text, int expectedStatus, long expectedValue) {
+    long[] out = {42};
+    assertEquals(expectedStatus, NumberParser.parseLong(text, out, 0), text);
+    assertEquals(expectedStatus == NumberParser.OK ? expectedValue : 42, out[0], text);
+  }
+
+  /**
+   * Helper method to parse a double that Double.parseDouble also accepts, and check that both
+   * give the same value to the bit.
+   *
+   * @param text The field.
+   */
+  private static void assertDoubleMatches(String text) {
+    double[] out = new double[1];
+    assertEquals(NumberParser.OK, NumberParser.parseDouble(text, out, 0), text);
+    assertEquals(Double.parseDouble(text), out[0], 0.0, text);
+    assertEquals(
+        Double.doubleToRawLongBits(Double.parseDouble(text)),
+        Double.doubleToRawLongBits(out[0]),
+        text);
+  }
+
+  /**
+   * Helper method to check that a double isn't parsed.
+   *
+   * @param text The field.
+   * @param expectedStatus The status parseDouble should return.
+   */
+  private static void assertDoubleFails(String text, int expectedStatus) {
+    double[] out = {42};
+    assertEquals(expectedStatus, NumberParser.parseDouble(text, out, 0), text);
+    assertEquals(42, out[0], 0.0, text);
+  }
+
+  /** Test method to check ints, their bounds, signs and overflow. */
+  @Test
+  public void testParseInt() {
+    assertInt("0", NumberParser.OK, 0);
+    assertInt("123", NumberParser.OK, 123);
+    assertInt("+123", NumberParser.OK, 123);
+    assertInt("-123", NumberParser.OK, -123);
+    assertInt("007", NumberParser.OK, 7);
+    assertInt("2147483647", NumberParser.OK, Integer.MAX_VALUE);
+    assertInt("-2147483648", NumberParser.OK, Integer.MIN_VALUE);
+    assertInt("2147483648", NumberParser.OVERFLOW, 0);
+    assertInt("-2147483649", NumberParser.OVERFLOW, 0);
+    assertInt("99999999999", NumberParser.OVERFLOW, 0);
+    assertInt("", NumberParser.EMPTY, 0);
+    assertInt("-", NumberParser.INVALID, 0);
+    assertInt("+", NumberParser.INVALID, 0);
+    assertInt("1.5", NumberParser.INVALID, 0);
+    assertInt(" 1", NumberParser.INVALID, 0);
+    assertInt("1e3", NumberParser.INVALID, 0);
+    assertInt("--1", NumberParser.INVALID, 0);
+  }
+
+  /** Test method to check longs, their bounds, signs and overflow. */
+  @Test
+  public void testParseLong() {
+    assertLong("0", NumberParser.OK, 0);
+    assertLong("-42", NumberParser.OK, -42);
+    assertLong("+42", NumberParser.OK, 42);
+    assertLong("9223372036854775807", NumberParser.OK, Long.MAX_VALUE);
+    assertLong("-9223372036854775808", NumberParser.OK, Long.MIN_VALUE);
+    assertLong("9223372036854775808", NumberParser.OVERFLOW, 0);
+    assertLong("-9223372036854775809", NumberParser.OVERFLOW, 0);
+    assertLong("", NumberParser.EMPTY, 0);
+    assertLong("-", NumberParser.INVALID, 0);
+    assertLong("12a", NumberParser.INVALID, 0);
+  }
+
+  /** Test method to check that doubles are parsed to the same bits as Double.parseDouble. */
+  @Test
+  public void testParseDouble() {
+    String[] valid = {
+      "0", "-0", "+0", "1", "-1", "1.", ".5", "-.5", "+.5", "0.1", "3.14159", "-2.5e3", "1e10",
+      "1E-5", "1e+22", "1e23", "1e-22", "1e-23", "123456789012345", "1234567890123456",
+      "12345678901234567890", "0.1234567890123456789", "9007199254740993", "4.9e-324",
+      "1.7976931348623157e308", "1e-400", "000123.4500", "0.000001", "75857", "2022.5"
+    };
+    for (String text : valid) {
+      assertDoubleMatches(text);
+    }
+  }
+
+  /** Test method to check the fields that aren't doubles, and doubles too large for one. */
+  @Test
+  public void testParseDoubleFails() {
+    assertDoubleFails("", NumberParser.EMPTY);
+    assertDoubleFails("-", NumberParser.INVALID);
+    assertDoubleFails("+", NumberParser.INVALID);
+    assertDoubleFails(".", NumberParser.INVALID);
+    assertDoubleFails("-.", NumberParser.INVALID);
+    assertDoubleFails("1e", NumberParser.INVALID);
+    assertDoubleFails("1e+", NumberParser.INVALID);
+    assertDoubleFails("e5", NumberParser.INVALID);
+    assertDoubleFails("1.2.3", NumberParser.INVALID);
+    assertDoubleFails("1,000", NumberParser.INVALID);
+    assertDoubleFails(" 1", NumberParser.INVALID);
+    assertDoubleFails("NaN", NumberParser.INVALID);
+    assertDoubleFails("Infinity", NumberParser.INVALID);
+    assertDoubleFails("0x10", NumberParser.INVALID);
+    assertDoubleFails("1d", NumberParser.INVALID);
+    assertDoubleFails("1e400", NumberParser.OVERFLOW);
+    assertDoubleFails("-1e400", NumberParser.OVERFLOW);
+    assertDoubleFails("1e99999999999", NumberParser.OVERFLOW);
+  }
+}
@@ -0,0 +1,189 @@
+package TestCSV;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import CSV.ColumnarTable;
+import CSV.SnapshotCache;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains unit tests for the SnapshotCache class.
+ */
+public class TestSnapshotCache {
+  @TempDir Path temp;
+
+  /**
+   * Helper method to write a CSV file.
+   *
+   * @param name The file name.
+   * @param content The file content.
+   * @return The path of the file.
+   * @throws IOException If the file can't be written.
+   */
+  private Path csv(String name, String content) throws IOException {
+    return Files.writeString(this.temp.resolve(name), content);
+  }
+
+  /**
+   * Helper method to count the snapshots in a directory.
+   *
+   * @param directory The snapshot directory.
+   * @return The number of snapshot files.
+   * @throws IOException If the directory can't be listed.
+   */
+  private static long snapshots(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(file -> file.toString().endsWith(".snap")).count();
+    }
+  }
+
+  /** Test method to check that a written snapshot reads back the same table. */
+  @Test
+  public void testRoundTrip() throws IOException {
+    SnapshotCache cache = new SnapshotCache(this.temp.resolve("snapshots"));
+    Path file = this.csv("stars.csv", "Sol,0\nProxima,4\n");
+    SnapshotCache.SourceState source = SnapshotCache.inspect(file);
+    List<List<String>> rows = List.of(List.of("Sol", "0"), List.of("Proxima", "4"));
+    assertTrue(cache.write(source, "o", List.of("name", "distance"), ColumnarTable.fromRows(rows)));
+    SnapshotCache.Snapshot snapshot = cache.read(source, "o");
+    assertNotNull(snapshot);
+    assertEquals(List.of("name", "distance"), snapshot.header());
+    assertEquals(rows, snapshot.table().rows());
+    assertNull(cache.read(source, "other options"));
+  }
+
+  /**
+   * Test method to check that only the ends of a large file are hashed, and that changing them is
+   * still seen.
+   */
+  @Test
+  public void testInspectHashesEnds() throws IOException {
+    String middle = "x".repeat(200_000);
+    Path file = this.csv("large.csv", "a" + middle + "b");
+    long modified = Files.getLastModifiedTime(file).toMillis();
+    long hash = SnapshotCache.inspect(file).contentHash();
+
+    // the middle isn't hashed; size and modification time are what catch edits there
+    String edited = middle.substring(0, 100_000) + "y" + middle.substring(100_001);
+    Files.writeString(file, "a" + edited + "b");
+    Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+    assertEquals(hash, SnapshotCache.inspect(file).contentHash());
+
+    Files.writeString(file, "c" + middle + "b");
+    Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+    assertNotEquals(hash, SnapshotCache.inspect(file).contentHash());
+
+    Files.writeString(file, "a" + middle + "c");
+    Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+    assertNotEquals(hash, SnapshotCache.inspect(file).contentHash());
+  }
+
+  /** Test method to check that a snapshot bigger than the directory may hold isn't written. */
+  @Test
+  public void testTooBigNotWritten() throws IOException {
+    Path directory = this.temp.resolve("snapshots");
+    SnapshotCache cache = new SnapshotCache(directory, 64);
+    Path file = this.csv("wide.csv", "x\n");
+    SnapshotCache.SourceState source = SnapshotCache.inspect(file);
+    ColumnarTable table = ColumnarTable.fromRows(List.of(List.of("x".repeat(100))));
+    assertFalse(cache.write(source, "o", null, table));
+    assertNull(cache.read(source, "o"));
+    assertFalse(Files.exists(directory) && snapshots(directory) > 0);
+  }
+
+  /** Test method to check that the least recently used snapshots are deleted to stay in size. */
+  @Test
+  public void testPrunedToSize() throws IOException {
+    Path directory = this.temp.resolve("snapshots");
+    ColumnarTable table = ColumnarTable.fromRows(List.of(List.of("x".repeat(500))));
+    SnapshotCache.SourceState first = SnapshotCache.inspect(this.csv("first.csv", "1\n"));
+    SnapshotCache.SourceState second = SnapshotCache.inspect(this.csv("second.csv", "2\n"));
+    SnapshotCache.SourceState third = SnapshotCache.inspect(this.csv("third.csv", "3\n"));
+    SnapshotCache cache = new SnapshotCache(directory, 1500);
+    assertTrue(cache.write(first, "o", null, table));
+    assertTrue(cache.write(second, "o", null, table));
+    assertEquals(2, snapshots(directory));
+
+    // age the snapshots so the order is certain, then read the first one so it is the newest
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path snapshot : files.toList()) {
+        Files.setLastModifiedTime(snapshot, FileTime.fromMillis(1000));
+      }
+    }
+    assertNotNull(cache.read(first, "o"));
+    assertTrue(cache.write(third, "o", null, table));
+
+    assertEquals(2, snapshots(directory));
+    assertNotNull(cache.read(first, "o"));
+    assertNull(cache.read(second, "o"));
+    assertNotNull(cache.read(third, "o"));
+  }
+
+  /**
+   * Test method to check that the directory is created readable only by its owner, and that
+   * snapshots in a directory others can write to are neither read nor written.
+   */
+  @Test
+  public void testDirectoryOwnerOnly() throws IOException {
+    assumeTrue(Files.getFileStore(this.temp).supportsFileAttributeView("posix"));
+    Path directory = this.temp.resolve("snapshots");
+    SnapshotCache cache = new SnapshotCache(directory);
+    SnapshotCache.SourceState source = SnapshotCache.inspect(this.csv("stars.csv", "Sol,0\n"));
+    ColumnarTable table = ColumnarTable.fromRows(List.of(List.of("Sol", "0")));
+    assertTrue(cache.write(source, "o", null, table));
+    assertEquals(
+        "rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(directory)));
+
+    Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwxrwxrwx"));
+    assertNull(cache.read(source, "o"));
+    assertThrows(IOException.class, () -> cache.write(source, "o", null, table));
+  }
+
+  /** Test method to check that a directory that is a link to another one isn't used. */
+  @Test
+  public void testLinkedDirectoryNotUsed() throws IOException {
+    Path target = Files.createDirectory(this.temp.resolve("elsewhere"));
+    Path link = Files.createSymbolicLink(this.temp.resolve("snapshots"), target);
+    SnapshotCache cache = new SnapshotCache(link);
+    SnapshotCache.SourceState source = SnapshotCache.inspect(this.csv("stars.csv", "Sol,0\n"));
+    ColumnarTable table = ColumnarTable.fromRows(List.of(List.of("Sol", "0")));
+    assertThrows(IOException.class, () -> cache.write(source, "o", null, table));
+    assertEquals(0, snapshots(target));
+    assertNull(cache.read(source, "o"));
+  }
+
+  /** Test method to check that the default directory can be set and is not the temp directory. */
+  @Test
+  public void testDefaultDirectory() {
+    String before = System.getProperty(SnapshotCache.DIRECTORY_PROPERTY);
+    try {
+      System.clearProperty(SnapshotCache.DIRECTORY_PROPERTY);
+      Path fallback = SnapshotCache.inDefaultDirectory().getDirectory();
+      assertTrue(fallback.startsWith(Path.of(System.getProperty("user.home"))));
+
+      System.setProperty(SnapshotCache.DIRECTORY_PROPERTY, this.temp.toString());
+      assertEquals(this.temp, SnapshotCache.inDefaultDirectory().getDirectory());
+    } finally {
+      if (before == null) {
+        System.clearProperty(SnapshotCache.DIRECTORY_PROPERTY);
+      } else {
+        System.setProperty(SnapshotCache.DIRECTORY_PROPERTY, before);
+      }
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package TestCSV;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import CSV.CSVParser;
+import CSV.FactoryFailureException;
+import CSV.InconsistentRowException;
+import CSV.NotFoundException;
+import CSV.StreamingCSVSearcher;
+import CSV.StringListCreateFromRow;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the StreamingCSVSearcher class.
+ */
+public class TestStreamingCSVSearcher {
+  private static final String INCOME = "data/census/income_by_race.csv";
+
+  /**
+   * Helper method to make a parser over the census file.
+   *
+   * @param hasHeader Whether the parser treats the first row as a header.
+   * @return The parser.
+   * @throws IOException If the file can't be opened.
+   */
+  private static CSVParser<List<String>> income(boolean hasHeader) throws IOException {
+    return new CSVParser<>(new FileReader(INCOME), new StringListCreateFromRow(), hasHeader);
+  }
+
+  /**
+   * Helper method to find the matching rows the slow way, by parsing the whole file first.
+   *
+   * @param value The word to look for.
+   * @param column The column to look in, or -1 for any.
+   * @return The data rows that have the word.
+   * @throws IOException If the file can't be read.
+   * @throws FactoryFailureException If a row can't be made into a list.
+   * @throws InconsistentRowException If the rows aren't the same length.
+   */
+  private static List<List<String>> expected(String value, int column)
+      throws IOException, FactoryFailureException, InconsistentRowException {
+    List<List<String>> matches = new ArrayList<>();
+    for (List<String> row : income(true).parse()) {
+      boolean match =
+          column >= 0
+              ? row.get(column).contains(value)
+              : row.stream().anyMatch(field -> field.contains(value));
+      if (match) {
+        matches.add(row);
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * Test method to check that searching by header name, by index and over the whole row finds the
+   * same rows as filtering a full parse.
+   *
+   * @throws IOException If an I/O error occurs.
+   * @throws FactoryFailureException If a row can't be made into a list.
+   * @throws InconsistentRowException If the rows aren't the same length.
+   * @throws NotFoundException If the column isn't in the file.
+   */
+  @Test
+  public void testSearchMatchesParse()
+      throws IOException, FactoryFailureException, InconsistentRowException, NotFoundException {
+    List<List<String>> byName = new ArrayList<>();
+    new StreamingCSVSearcher(income(true)).search("Kent", "Geography", byName::add);
+    assertEquals(expected("Kent", 6), byName);
+    assertEquals(67, byName.size());
+
+    List<List<String>> byIndex = new ArrayList<>();
+    new StreamingCSVSearcher(income(true)).search("White", 1, byIndex::add);
+    assertEquals(expected("White", 1), byIndex);
+    assertTrue(byIndex.size() > 0);
+
+    List<List<String>> anywhere = new ArrayList<>();
+    new StreamingCSVSearcher(income(true)).search("2020", anywhere::add);
+    assertEquals(expected("2020", -1), anywhere);
+
+    List<List<String>> none = new ArrayList<>();
+    new StreamingCSVSearcher(income(true)).search("Atlantis", none::add);
+    assertEquals(List.of(), none);
+  }
+
+  /**
+   * Test method to check that a consumer returning false stops the search.
+   *
+   * @throws IOException If an I/O error occurs.
+   * @throws FactoryFailureException If a row can't be made into a list.
+   * @throws InconsistentRowException If the rows aren't the same length.
+   * @throws NotFoundException If the column isn't in the file.
+   */
+  @Test
+  public void testSearchStopsEarly()
+      throws IOException, FactoryFailureException, InconsistentRowException, NotFoundException {
+    List<List<String>> matches = new ArrayList<>();
+    new StreamingCSVSearcher(income(true))
+        .search(
+            "Kent",
+            "Geography",
+            row -> {
+              matches.add(row);
+              return matches.size() < 2;
+            });
+    assertEquals(expected("Kent", 6).subList(0, 2), matches);
+  }
+
+  /**
+   * Test method to check that a column that isn't in the file is reported, not searched.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testSearchColumnNotFound() throws IOException {
+    assertThrows(
+        NotFoundException.class,
+        () -> new StreamingCSVSearcher(income(true)).search("Kent", "Nowhere", row -> true));
+    assertThrows(
+        NotFoundException.class,
+        () -> new StreamingCSVSearcher(income(true)).search("Kent", 9, row -> true));
+    assertThrows(
+        NotFoundException.class,
+        () -> new StreamingCSVSearcher(income(false)).search("Kent", "Geography", row -> true));
+  }
+
+  /** Test method to check that a row of the wrong length fails the search when it is reached. */
+  @Test
+  public void testSearchMalformed() {
+    CSVParser<List<String>> parser =
+        new CSVParser<>(
+            new StringReader("sign,member\nLibra,Ann\nVirgo\n"),
+            new StringListCreateFromRow(),
+            true);
+    List<List<String>> matches = new ArrayList<>();
+    assertThrows(
+        InconsistentRowException.class,
+        () -> new StreamingCSVSearcher(parser).search("Ann", matches::add));
+    assertEquals(List.of(List.of("Libra", "Ann")), matches);
+  }
+}
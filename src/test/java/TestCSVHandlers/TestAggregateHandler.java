@@ -0,0 +1,184 @@
+package TestCSVHandlers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import CSV.AccessCSV;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import okio.Buffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.AggregateCSVHandler;
+import server.LoadCSVHandler;
+import server.SearchCSVHandler;
+import spark.Spark;
+
+/**
+ * This class contains unit tests for the AggregateCSVHandler class.
+ */
+public class TestAggregateHandler {
+  private final JsonAdapter<Map<String, Object>> adapter;
+
+  /**
+   * Constructor to initialize the JSON adapter.
+   */
+  public TestAggregateHandler() {
+    Moshi moshi = new Moshi.Builder().build();
+    java.lang.reflect.Type type = Types.newParameterizedType(Map.class, String.class, Object.class);
+    adapter = moshi.adapter(type);
+  }
+
+  /**
+   * Setup method to configure Spark server before all tests.
+   */
+  @BeforeAll
+  public static void setupBeforeAll() {
+    Spark.port(0);
+    Logger.getLogger("").setLevel(Level.WARNING);
+  }
+
+  /**
+   * Setup method to initialize components before each test.
+   */
+  @BeforeEach
+  public void setupBeforeEach() {
+    AccessCSV accessCSV = new AccessCSV();
+    Spark.get("/loadcsv", new LoadCSVHandler(accessCSV));
+    Spark.get("/searchcsv", new SearchCSVHandler(accessCSV));
+    Spark.get("/aggregatecsv", new AggregateCSVHandler(accessCSV));
+    Spark.init();
+    Spark.awaitInitialization();
+  }
+
+  /**
+   * Teardown method to clean up resources after each test.
+   */
+  @AfterEach
+  public void tearDownAfterEach() {
+    Spark.unmap("loadcsv");
+    Spark.unmap("searchcsv");
+    Spark.unmap("aggregatecsv");
+    Spark.awaitStop();
+  }
+
+  /**
+   * Helper method to send an HTTP request to the Spark server.
+   *
+   * @param apiCall The API endpoint to call.
+   * @return The HttpURLConnection object representing the connection.
+   * @throws IOException If an I/O error occurs.
+   */
+  private HttpURLConnection tryRequest(String apiCall) throws IOException {
+    URL requestURL = new URL("http://localhost:" + Spark.port() + "/" + apiCall);
+    HttpURLConnection clientConnection = (HttpURLConnection) requestURL.openConnection();
+    clientConnection.setRequestMethod("GET");
+    clientConnection.connect();
+    return clientConnection;
+  }
+
+  /**
+   * Helper method to send a request and read its JSON response.
+   *
+   * @param apiCall The API endpoint to call.
+   * @return The response as a map.
+   * @throws IOException If an I/O error occurs.
+   */
+  private Map<String, Object> request(String apiCall) throws IOException {
+    return adapter.fromJson(new Buffer().readFrom(tryRequest(apiCall).getInputStream()));
+  }
+
+  /**
+   * Test method to check that counts and averages grouped by a column, over the rows of a query,
+   * equal those computed from the rows the same query returns from SearchCSV.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testSuccessGroupedMatchesSearch() throws IOException {
+    request("loadcsv?filepath=data/census/income_by_race.csv&headers=true");
+    String query = URLEncoder.encode("Race contains Total", StandardCharsets.UTF_8);
+    Map<String, Object> response =
+        request(
+            "aggregatecsv?function=count,avg&column=Household%20Income%20by%20Race&groupBy=Year"
+                + "&query="
+                + query);
+    assertEquals("success", response.get("result"));
+    assertEquals(
+        List.of("Year", "count", "avg(Household Income by Race)"), response.get("columns"));
+
+    Map<String, double[]> expected = new HashMap<>();
+    for (Object row : (List<?>) request("searchcsv?query=" + query).get("data")) {
+      List<?> values = (List<?>) row;
+      double[] totals = expected.computeIfAbsent((String) values.get(3), year -> new double[2]);
+      totals[0]++;
+      totals[1] += Double.parseDouble((String) values.get(4));
+    }
+    List<?> groups = (List<?>) response.get("data");
+    assertEquals(expected.size(), groups.size());
+    for (Object group : groups) {
+      List<?> values = (List<?>) group;
+      double[] totals = expected.get((String) values.get(0));
+      assertEquals(totals[0], ((Number) values.get(1)).doubleValue());
+      assertEquals(totals[1] / totals[0], ((Number) values.get(2)).doubleValue(), 1e-6);
+    }
+  }
+
+  /**
+   * Test method to check the aggregates of the whole file as one group.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testSuccessWholeFile() throws IOException {
+    Map<String, Object> loaded =
+        request("loadcsv?filepath=data/census/income_by_race.csv&headers=true");
+    Map<String, Object> response =
+        request("aggregatecsv?function=count,distinct,min,max&column=Year&parallel=false");
+    assertEquals("success", response.get("result"));
+    List<?> groups = (List<?>) response.get("data");
+    assertEquals(1, groups.size());
+    List<?> values = (List<?>) groups.get(0);
+    assertEquals(Double.parseDouble((String) loaded.get("rows")), values.get(0));
+    double distinct = ((Number) values.get(1)).doubleValue();
+    double years = ((Number) values.get(3)).doubleValue() - ((Number) values.get(2)).doubleValue();
+    assertEquals(years + 1, distinct);
+  }
+
+  /**
+   * Test method to check the errors for missing or unknown functions and columns.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testFailureBadParameters() throws IOException {
+    Map<String, Object> unloaded = request("aggregatecsv?function=count");
+    assertEquals("no CSV loaded", unloaded.get("error"));
+
+    request("loadcsv?filepath=data/census/income_by_race.csv&headers=true");
+    Map<String, Object> missing = request("aggregatecsv?groupBy=Year");
+    assertEquals("error", missing.get("result"));
+    assertEquals("missing or invalid aggregate parameters", missing.get("error"));
+
+    Map<String, Object> unknown = request("aggregatecsv?function=median&column=Year");
+    assertEquals("missing or invalid aggregate parameters", unknown.get("error"));
+
+    Map<String, Object> noColumn = request("aggregatecsv?function=sum");
+    assertEquals("missing or invalid aggregate parameters", noColumn.get("error"));
+
+    Map<String, Object> column = request("aggregatecsv?function=count&groupBy=Colour");
+    assertEquals("columnID not found", column.get("error"));
+  }
+}
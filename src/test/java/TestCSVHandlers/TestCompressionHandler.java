@@ -0,0 +1,222 @@
+package TestCSVHandlers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import CSV.AccessCSV;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import okio.Buffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.CompressionHandler;
+import server.DatasetsHandler;
+import server.LoadCSVHandler;
+import server.ResponseCompression;
+import server.ViewCSVHandler;
+import spark.Spark;
+
+/**
+ * This class contains unit tests for the CompressionHandler class, and the compression of the
+ * routes it reports on.
+ */
+public class TestCompressionHandler {
+  private final JsonAdapter<Map<String, Object>> adapter;
+
+  /**
+   * Constructor to initialize the JSON adapter.
+   */
+  public TestCompressionHandler() {
+    Moshi moshi = new Moshi.Builder().build();
+    java.lang.reflect.Type type = Types.newParameterizedType(Map.class, String.class, Object.class);
+    adapter = moshi.adapter(type);
+  }
+
+  /**
+   * Setup method to configure Spark server before all tests.
+   */
+  @BeforeAll
+  public static void setupBeforeAll() {
+    Spark.port(0);
+    Logger.getLogger("").setLevel(Level.WARNING);
+  }
+
+  /**
+   * Setup method to initialize components before each test.
+   */
+  @BeforeEach
+  public void setupBeforeEach() {
+    AccessCSV accessCSV = new AccessCSV();
+    ResponseCompression compression = new ResponseCompression();
+    Spark.get("/loadcsv", compression.wrap("loadcsv", new LoadCSVHandler(accessCSV)));
+    Spark.get("/viewcsv", compression.wrap("viewcsv", new ViewCSVHandler(accessCSV)));
+    Spark.get("/datasets", compression.wrap("datasets", new DatasetsHandler(accessCSV)));
+    Spark.get("/compression", new CompressionHandler(compression));
+    Spark.init();
+    Spark.awaitInitialization();
+  }
+
+  /**
+   * Teardown method to clean up resources after each test.
+   */
+  @AfterEach
+  public void tearDownAfterEach() {
+    Spark.unmap("loadcsv");
+    Spark.unmap("viewcsv");
+    Spark.unmap("datasets");
+    Spark.unmap("compression");
+    Spark.awaitStop();
+  }
+
+  /**
+   * Helper method to send an HTTP request to the Spark server.
+   *
+   * @param apiCall The API endpoint to call.
+   * @return The HttpURLConnection object representing the connection.
+   * @throws IOException If an I/O error occurs.
+   */
+  private HttpURLConnection tryRequest(String apiCall) throws IOException {
+    URL requestURL = new URL("http://localhost:" + Spark.port() + "/" + apiCall);
+    HttpURLConnection clientConnection = (HttpURLConnection) requestURL.openConnection();
+    clientConnection.setRequestMethod("GET");
+    clientConnection.connect();
+    return clientConnection;
+  }
+
+  /**
+   * Helper method to send an HTTP request that accepts compressed responses.
+   *
+   * @param apiCall The API endpoint to call.
+   * @param acceptEncoding The Accept-Encoding header to send.
+   * @return The HttpURLConnection object representing the connection.
+   * @throws IOException If an I/O error occurs.
+   */
+  private HttpURLConnection tryRequest(String apiCall, String acceptEncoding) throws IOException {
+    URL requestURL = new URL("http://localhost:" + Spark.port() + "/" + apiCall);
+    HttpURLConnection clientConnection = (HttpURLConnection) requestURL.openConnection();
+    clientConnection.setRequestProperty("Accept-Encoding", acceptEncoding);
+    clientConnection.connect();
+    return clientConnection;
+  }
+
+  /**
+   * Helper method to read a response body, decompressing it as its Content-Encoding says.
+   *
+   * @param connection The connection.
+   * @return The body.
+   * @throws IOException If an I/O error occurs.
+   */
+  private String body(HttpURLConnection connection) throws IOException {
+    InputStream input = connection.getInputStream();
+    String encoding = connection.getHeaderField("Content-Encoding");
+    if ("gzip".equals(encoding)) {
+      input = new GZIPInputStream(input);
+    } else if ("deflate".equals(encoding)) {
+      input = new InflaterInputStream(input);
+    }
+    return new Buffer().readFrom(input).readUtf8();
+  }
+
+  /**
+   * Helper method to send a request and read its JSON response.
+   *
+   * @param apiCall The API endpoint to call.
+   * @return The response as a map.
+   * @throws IOException If an I/O error occurs.
+   */
+  private Map<String, Object> request(String apiCall) throws IOException {
+    return adapter.fromJson(new Buffer().readFrom(tryRequest(apiCall).getInputStream()));
+  }
+
+  /**
+   * Test method to check that a view is compressed with the encoding the client prefers, that it
+   * decompresses to the uncompressed view, and that its ETag still gets a 304.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testSuccessCompressedView() throws IOException {
+    request("loadcsv?filepath=data/census/income_by_race.csv&headers=true");
+    HttpURLConnection plain = tryRequest("viewcsv");
+    assertNull(plain.getHeaderField("Content-Encoding"));
+    String expected = body(plain);
+
+    HttpURLConnection gzip = tryRequest("viewcsv", "deflate;q=0.5, gzip");
+    assertEquals("gzip", gzip.getHeaderField("Content-Encoding"));
+    assertEquals("Accept-Encoding", gzip.getHeaderField("Vary"));
+    String etag = gzip.getHeaderField("ETag");
+    assertTrue(etag.startsWith("W/"));
+    assertEquals(expected, body(gzip));
+
+    HttpURLConnection deflate = tryRequest("viewcsv", "gzip;q=0, deflate");
+    assertEquals("deflate", deflate.getHeaderField("Content-Encoding"));
+    assertEquals(expected, body(deflate));
+
+    URL requestURL = new URL("http://localhost:" + Spark.port() + "/viewcsv");
+    HttpURLConnection conditional = (HttpURLConnection) requestURL.openConnection();
+    conditional.setRequestProperty("Accept-Encoding", "gzip");
+    conditional.setRequestProperty("If-None-Match", etag);
+    assertEquals(304, conditional.getResponseCode());
+  }
+
+  /**
+   * Test method to check that responses under the minimum size, and responses to clients that
+   * don't accept any encoding offered, are sent as they are, with their ETag left strong.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testSuccessSmallOrRefused() throws IOException {
+    HttpURLConnection small = tryRequest("datasets", "gzip");
+    assertNull(small.getHeaderField("Content-Encoding"));
+    assertEquals("success", adapter.fromJson(body(small)).get("result"));
+
+    request("loadcsv?filepath=data/stars/ten-star.csv&headers=true");
+    HttpURLConnection smallView = tryRequest("viewcsv", "gzip");
+    assertNull(smallView.getHeaderField("Content-Encoding"));
+    assertFalse(smallView.getHeaderField("ETag").startsWith("W/"));
+    assertEquals("success", adapter.fromJson(body(smallView)).get("result"));
+
+    request("loadcsv?filepath=data/census/income_by_race.csv&headers=true");
+    HttpURLConnection refused = tryRequest("viewcsv", "br, gzip;q=0");
+    assertNull(refused.getHeaderField("Content-Encoding"));
+    assertEquals("success", adapter.fromJson(body(refused)).get("result"));
+  }
+
+  /**
+   * Test method to check that the stats of a route count its responses and the bytes compression
+   * saved.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testSuccessStats() throws IOException {
+    request("loadcsv?filepath=data/census/income_by_race.csv&headers=true");
+    body(tryRequest("viewcsv", "gzip"));
+    body(tryRequest("viewcsv"));
+
+    Map<?, ?> routes = (Map<?, ?>) request("compression").get("routes");
+    Map<?, ?> view = (Map<?, ?>) routes.get("viewcsv");
+    assertEquals("2", view.get("responses"));
+    assertEquals("1", view.get("compressed_responses"));
+    long in = Long.parseLong((String) view.get("bytes_in"));
+    long out = Long.parseLong((String) view.get("bytes_out"));
+    // the rows of a census table repeat enough to shrink several times over
+    assertTrue(in > 4 * out);
+    assertEquals("0", ((Map<?, ?>) routes.get("datasets")).get("responses"));
+  }
+}
@@ -0,0 +1,156 @@
+package TestCSVHandlers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import CSV.AccessCSV;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import okio.Buffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.DatasetsHandler;
+import server.LoadCSVHandler;
+import server.SearchCSVHandler;
+import server.ViewCSVHandler;
+import spark.Spark;
+
+/**
+ * This class contains unit tests for the DatasetsHandler class.
+ */
+public class TestDatasetsHandler {
+  private final JsonAdapter<Map<String, Object>> adapter;
+
+  /**
+   * Constructor to initialize the JSON adapter.
+   */
+  public TestDatasetsHandler() {
+    Moshi moshi = new Moshi.Builder().build();
+    java.lang.reflect.Type type = Types.newParameterizedType(Map.class, String.class, Object.class);
+    adapter = moshi.adapter(type);
+  }
+
+  /**
+   * Setup method to configure Spark server before all tests.
+   */
+  @BeforeAll
+  public static void setupBeforeAll() {
+    Spark.port(0);
+    Logger.getLogger("").setLevel(Level.WARNING);
+  }
+
+  /**
+   * Setup method to initialize components before each test.
+   */
+  @BeforeEach
+  public void setupBeforeEach() {
+    AccessCSV accessCSV = new AccessCSV();
+    Spark.get("/loadcsv", new LoadCSVHandler(accessCSV));
+    Spark.get("/searchcsv", new SearchCSVHandler(accessCSV));
+    Spark.get("/viewcsv", new ViewCSVHandler(accessCSV));
+    Spark.get("/datasets", new DatasetsHandler(accessCSV));
+    Spark.init();
+    Spark.awaitInitialization();
+  }
+
+  /**
+   * Teardown method to clean up resources after each test.
+   */
+  @AfterEach
+  public void tearDownAfterEach() {
+    Spark.unmap("loadcsv");
+    Spark.unmap("searchcsv");
+    Spark.unmap("viewcsv");
+    Spark.unmap("datasets");
+    Spark.awaitStop();
+  }
+
+  /**
+   * Helper method to send an HTTP request to the Spark server.
+   *
+   * @param apiCall The API endpoint to call.
+   * @return The HttpURLConnection object representing the connection.
+   * @throws IOException If an I/O error occurs.
+   */
+  private HttpURLConnection tryRequest(String apiCall) throws IOException {
+    URL requestURL = new URL("http://localhost:" + Spark.port() + "/" + apiCall);
+    HttpURLConnection clientConnection = (HttpURLConnection) requestURL.openConnection();
+    clientConnection.setRequestMethod("GET");
+    clientConnection.connect();
+    return clientConnection;
+  }
+
+  /**
+   * Helper method to send a request and read its JSON response.
+   *
+   * @param apiCall The API endpoint to call.
+   * @return The response as a map.
+   * @throws IOException If an I/O error occurs.
+   */
+  private Map<String, Object> request(String apiCall) throws IOException {
+    return adapter.fromJson(new Buffer().readFrom(tryRequest(apiCall).getInputStream()));
+  }
+
+  /**
+   * Test method to check that datasets loaded under different names stay loaded side by side, are
+   * searched by name, and are listed until one is removed.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testSuccessSeveralDatasets() throws IOException {
+    request("loadcsv?filepath=data/census/income_by_race.csv&headers=true&dataset=income");
+    Map<String, Object> loaded =
+        request("loadcsv?filepath=data/census/dol_ri_earnings_disparity.csv&headers=true"
+            + "&dataset=earnings");
+    assertEquals("success", loaded.get("result"));
+    assertEquals("earnings", loaded.get("dataset"));
+
+    Map<String, Object> income =
+        request("searchcsv?value=Kent&columnID=Geography&dataset=income");
+    assertEquals("success", income.get("result"));
+    assertEquals(67, ((List<?>) income.get("data")).size());
+    Map<String, Object> earnings =
+        request("searchcsv?value=White&columnID=Data%20Type&dataset=earnings");
+    assertEquals(1, ((List<?>) earnings.get("data")).size());
+    Map<String, Object> wrongColumn =
+        request("searchcsv?value=Kent&columnID=Geography&dataset=earnings");
+    assertEquals("error", wrongColumn.get("result"));
+    Map<String, Object> unnamed = request("searchcsv?value=Kent&columnID=Geography");
+    assertEquals("no CSV loaded", unnamed.get("error"));
+
+    List<?> datasets = (List<?>) request("datasets").get("datasets");
+    assertEquals(2, datasets.size());
+    assertEquals("earnings", ((Map<?, ?>) datasets.get(0)).get("name"));
+    assertEquals(loaded.get("rows"), ((Map<?, ?>) datasets.get(0)).get("rows"));
+    assertEquals("income", ((Map<?, ?>) datasets.get(1)).get("name"));
+
+    Map<String, Object> removed = request("datasets?remove=income");
+    assertEquals(1, ((List<?>) removed.get("datasets")).size());
+    Map<String, Object> gone = request("searchcsv?value=Kent&columnID=Geography&dataset=income");
+    assertEquals("no CSV loaded", gone.get("error"));
+    assertEquals("success", request("viewcsv?dataset=earnings").get("result"));
+  }
+
+  /**
+   * Test method to check that removing a dataset that isn't loaded is an error.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testFailureRemoveMissing() throws IOException {
+    Map<String, Object> response = request("datasets?remove=nothing");
+    assertEquals("error", response.get("result"));
+    assertEquals("dataset not found", response.get("error"));
+    assertEquals(List.of(), request("datasets").get("datasets"));
+  }
+}
@@ -1,6 +1,8 @@
 package TestCSVHandlers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import CSV.AccessCSV;
 import com.squareup.moshi.JsonAdapter;
@@ -10,6 +12,10 @@ import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.Map;
 import okio.Buffer;
 import org.junit.jupiter.api.AfterEach;
@@ -118,6 +124,23 @@ public class TestLoadHandler {
     assertEquals("data/census/income_by_race.csv", response.get("filepath"));
   }
 
+  /**
+   * Test method to check that a load reports the number of rows and the memory they take up.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testSuccessReportsSize() throws IOException {
+    HttpURLConnection loadConnection =
+        tryRequest("loadcsv?filepath=data/census/income_by_race.csv&headers=true");
+    assertEquals(200, loadConnection.getResponseCode());
+    Map<String, Object> response =
+        adapter.fromJson(new Buffer().readFrom(loadConnection.getInputStream()));
+    assertEquals("success", response.get("result"));
+    assertEquals("323", response.get("rows"));
+    assertTrue(Long.parseLong((String) response.get("memory_bytes")) > 0);
+  }
+
   /**
    * Test method to check a failed load of a CSV file.
    *
@@ -129,6 +152,7 @@ public class TestLoadHandler {
         tryRequest("loadcsv?file=data/census/income_by_race.csv&headers=true");
     assertEquals(200, loadConnection.getResponseCode());
     assertEquals(false, this.accessCSV.getLoaded());
+    assertNull(this.accessCSV.getParsedText());
     Map<String, Object> response =
         adapter.fromJson(new Buffer().readFrom(loadConnection.getInputStream()));
     assertEquals("error", response.get("result"));
@@ -168,4 +192,176 @@ public class TestLoadHandler {
     assertEquals("error", response.get("result"));
     assertEquals("malformed CSV data", response.get("error"));
   }
+
+  /**
+   * Test method to check that a parallel load still reports malformed data.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testParallelFailureMalformedData() throws IOException {
+    HttpURLConnection loadConnection =
+        tryRequest("loadcsv?filepath=data/malformed/malformed_signs.csv&headers=true&parallel=true");
+    assertEquals(200, loadConnection.getResponseCode());
+    assertEquals(false, this.accessCSV.getLoaded());
+    Map<String, Object> response =
+        adapter.fromJson(new Buffer().readFrom(loadConnection.getInputStream()));
+    assertEquals("error", response.get("result"));
+    assertEquals("malformed CSV data", response.get("error"));
+  }
+
+  /**
+   * Test method to check that a parallel load asking for the regex engine is turned away, rather
+   * than tokenized without saying so.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testParallelRegexRejected() throws IOException {
+    HttpURLConnection loadConnection =
+        tryRequest("loadcsv?filepath=data/stars/ten-star.csv&headers=true&parallel=true"
+            + "&engine=regex");
+    assertEquals(200, loadConnection.getResponseCode());
+    assertEquals(false, this.accessCSV.getLoaded());
+    Map<String, Object> response =
+        adapter.fromJson(new Buffer().readFrom(loadConnection.getInputStream()));
+    assertEquals("error", response.get("result"));
+    assertEquals("bad parameter", response.get("error"));
+  }
+
+  /**
+   * Test method to check that reloading an unchanged file is served from its snapshot with the
+   * same data, and that snapshots can be turned off per request.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testSnapshotReload() throws IOException {
+    String load = "loadcsv?filepath=data/census/income_by_race.csv&headers=true";
+    HttpURLConnection uncached = tryRequest(load + "&snapshot=false");
+    Map<String, Object> response =
+        adapter.fromJson(new Buffer().readFrom(uncached.getInputStream()));
+    assertEquals("off", response.get("snapshot"));
+    Map<String, Object> parsed =
+        adapter.fromJson(new Buffer().readFrom(tryRequest("viewcsv").getInputStream()));
+
+    tryRequest(load).getResponseCode();
+    response = adapter.fromJson(new Buffer().readFrom(tryRequest(load).getInputStream()));
+    assertEquals("success", response.get("result"));
+    assertEquals("hit", response.get("snapshot"));
+    assertEquals("323", response.get("rows"));
+    Map<String, Object> fromSnapshot =
+        adapter.fromJson(new Buffer().readFrom(tryRequest("viewcsv").getInputStream()));
+    assertEquals(parsed, fromSnapshot);
+  }
+
+  /**
+   * Test method to check that a load with a column list keeps only those columns, in file order,
+   * by name or by index, and that a parallel load projects the same way.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testProjectedLoad() throws IOException {
+    String load = "loadcsv?filepath=data/census/income_by_race.csv&headers=true&snapshot=false";
+    tryRequest(load).getResponseCode();
+    List<List<String>> full = this.accessCSV.getParsedText();
+    List<String> expected = List.of(full.get(5).get(1), full.get(5).get(3));
+
+    HttpURLConnection projected = tryRequest(load + "&columns=Year,Race");
+    Map<String, Object> response =
+        adapter.fromJson(new Buffer().readFrom(projected.getInputStream()));
+    assertEquals("success", response.get("result"));
+    assertEquals("2", response.get("columns"));
+    assertEquals("323", response.get("rows"));
+    assertEquals(List.of("Race", "Year"), this.accessCSV.getHeader());
+    assertEquals(expected, this.accessCSV.getParsedText().get(5));
+
+    tryRequest(load + "&columns=1,3&parallel=true").getResponseCode();
+    assertEquals(List.of("Race", "Year"), this.accessCSV.getHeader());
+    assertEquals(expected, this.accessCSV.getParsedText().get(5));
+  }
+
+  /**
+   * Test method to check failure when a requested column isn't in the file.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testProjectionFailureBadColumn() throws IOException {
+    HttpURLConnection loadConnection =
+        tryRequest("loadcsv?filepath=data/census/income_by_race.csv&headers=true&columns=Race,Nope");
+    assertEquals(200, loadConnection.getResponseCode());
+    assertEquals(false, this.accessCSV.getLoaded());
+    Map<String, Object> response =
+        adapter.fromJson(new Buffer().readFrom(loadConnection.getInputStream()));
+    assertEquals("error", response.get("result"));
+    assertEquals("columns not found", response.get("error"));
+  }
+
+  /**
+   * Test method to check that an incremental reload only parses the appended rows, and that a
+   * rewritten file is parsed from the start again.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testIncrementalReload() throws IOException {
+    Path file = Files.createTempFile("incremental", ".csv");
+    try {
+      Files.writeString(file, "city,count\nProvidence,1\nWarwick,2\n");
+      String load = "loadcsv?filepath=" + file + "&headers=true&incremental=true";
+      Map<String, Object> response =
+          adapter.fromJson(new Buffer().readFrom(tryRequest(load).getInputStream()));
+      assertEquals("success", response.get("result"));
+      assertEquals("full", response.get("incremental"));
+      assertEquals("2", response.get("rows"));
+
+      Files.writeString(file, "Cranston,3\nNewport,4\n", StandardOpenOption.APPEND);
+      response = adapter.fromJson(new Buffer().readFrom(tryRequest(load).getInputStream()));
+      assertEquals("appended", response.get("incremental"));
+      assertEquals("4", response.get("rows"));
+      assertEquals("2", response.get("new_rows"));
+      assertEquals(List.of("city", "count"), this.accessCSV.getHeader());
+      assertEquals(List.of("Newport", "4"), this.accessCSV.getParsedText().get(3));
+
+      Files.writeString(file, "city,count\nBristol,5\n");
+      response = adapter.fromJson(new Buffer().readFrom(tryRequest(load).getInputStream()));
+      assertEquals("full", response.get("incremental"));
+      assertEquals("1", response.get("rows"));
+      assertEquals(List.of("Bristol", "5"), this.accessCSV.getParsedText().get(0));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * Test method to check that the rows kept for an incremental load are freed when its dataset is
+   * replaced by a full load or removed, so the next incremental load parses the file from the
+   * start.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testIncrementalForgotten() throws IOException {
+    Path file = Files.createTempFile("incremental", ".csv");
+    try {
+      Files.writeString(file, "city,count\nProvidence,1\n");
+      String load = "loadcsv?filepath=" + file + "&headers=true&snapshot=false";
+      String incremental = load + "&incremental=true";
+      tryRequest(incremental).getResponseCode();
+      tryRequest(load).getResponseCode();
+      Map<String, Object> response =
+          adapter.fromJson(new Buffer().readFrom(tryRequest(incremental).getInputStream()));
+      assertEquals("full", response.get("incremental"));
+
+      this.accessCSV.remove(AccessCSV.DEFAULT_DATASET);
+      response = adapter.fromJson(new Buffer().readFrom(tryRequest(incremental).getInputStream()));
+      assertEquals("full", response.get("incremental"));
+      response = adapter.fromJson(new Buffer().readFrom(tryRequest(incremental).getInputStream()));
+      assertEquals("appended", response.get("incremental"));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
 }
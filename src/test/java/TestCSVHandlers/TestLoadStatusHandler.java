@@ -0,0 +1,207 @@
+package TestCSVHandlers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import CSV.AccessCSV;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import okio.Buffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.LoadCSVHandler;
+import server.LoadJob;
+import server.LoadJobs;
+import server.LoadStatusHandler;
+import server.SearchCSVHandler;
+import spark.Spark;
+
+/**
+ * This class contains unit tests for the LoadStatusHandler class.
+ */
+public class TestLoadStatusHandler {
+  private final JsonAdapter<Map<String, Object>> adapter;
+
+  /**
+   * Constructor to initialize the JSON adapter.
+   */
+  public TestLoadStatusHandler() {
+    Moshi moshi = new Moshi.Builder().build();
+    java.lang.reflect.Type type = Types.newParameterizedType(Map.class, String.class, Object.class);
+    adapter = moshi.adapter(type);
+  }
+
+  /**
+   * Setup method to configure Spark server before all tests.
+   */
+  @BeforeAll
+  public static void setupBeforeAll() {
+    Spark.port(0);
+    Logger.getLogger("").setLevel(Level.WARNING);
+  }
+
+  /**
+   * Setup method to initialize components before each test.
+   */
+  @BeforeEach
+  public void setupBeforeEach() {
+    AccessCSV accessCSV = new AccessCSV();
+    LoadJobs loadJobs = new LoadJobs();
+    Spark.get("/loadcsv", new LoadCSVHandler(accessCSV, loadJobs));
+    Spark.get("/loadstatus", new LoadStatusHandler(loadJobs));
+    Spark.get("/searchcsv", new SearchCSVHandler(accessCSV));
+    Spark.init();
+    Spark.awaitInitialization();
+  }
+
+  /**
+   * Teardown method to clean up resources after each test.
+   */
+  @AfterEach
+  public void tearDownAfterEach() {
+    Spark.unmap("loadcsv");
+    Spark.unmap("loadstatus");
+    Spark.unmap("searchcsv");
+    Spark.awaitStop();
+  }
+
+  /**
+   * Helper method to send an HTTP request to the Spark server.
+   *
+   * @param apiCall The API endpoint to call.
+   * @return The HttpURLConnection object representing the connection.
+   * @throws IOException If an I/O error occurs.
+   */
+  private HttpURLConnection tryRequest(String apiCall) throws IOException {
+    URL requestURL = new URL("http://localhost:" + Spark.port() + "/" + apiCall);
+    HttpURLConnection clientConnection = (HttpURLConnection) requestURL.openConnection();
+    clientConnection.setRequestMethod("GET");
+    clientConnection.connect();
+    return clientConnection;
+  }
+
+  /**
+   * Helper method to send a request and read its JSON response.
+   *
+   * @param apiCall The API endpoint to call.
+   * @return The response as a map.
+   * @throws IOException If an I/O error occurs.
+   */
+  private Map<String, Object> request(String apiCall) throws IOException {
+    return adapter.fromJson(new Buffer().readFrom(tryRequest(apiCall).getInputStream()));
+  }
+
+  /**
+   * Helper method to ask for the status of a load until it is done.
+   *
+   * @param jobId The id of the load.
+   * @return The final status.
+   * @throws IOException If an I/O error occurs.
+   * @throws InterruptedException If the wait is interrupted.
+   */
+  private Map<String, Object> awaitJob(Object jobId) throws IOException, InterruptedException {
+    for (int attempt = 0; attempt < 200; attempt++) {
+      Map<String, Object> status = request("loadstatus?job=" + jobId);
+      if ("succeeded".equals(status.get("state")) || "failed".equals(status.get("state"))) {
+        return status;
+      }
+      Thread.sleep(50);
+    }
+    throw new AssertionError("load " + jobId + " didn't finish");
+  }
+
+  /**
+   * Test method to check that an async load answers with a job, reports its progress and outcome,
+   * and that the dataset loaded before it keeps being searched until it is published.
+   *
+   * @throws IOException If an I/O error occurs.
+   * @throws InterruptedException If the wait is interrupted.
+   */
+  @Test
+  public void testSuccessAsyncLoad() throws IOException, InterruptedException {
+    request("loadcsv?filepath=data/census/dol_ri_earnings_disparity.csv&headers=true");
+    Map<String, Object> started =
+        request("loadcsv?filepath=data/census/income_by_race.csv&headers=true&async=true");
+    assertEquals("success", started.get("result"));
+    assertNotEquals(null, started.get("job_id"));
+    // the synchronous load before it didn't make a job
+    assertEquals("1", started.get("job_id"));
+    // a search while the load may still run reads one dataset or the other, never an error
+    Map<String, Object> during = request("searchcsv?value=White&columnID=1");
+    assertEquals("success", during.get("result"));
+
+    Map<String, Object> status = awaitJob(started.get("job_id"));
+    assertEquals("success", status.get("result"));
+    assertEquals("succeeded", status.get("state"));
+    Map<?, ?> outcome = (Map<?, ?>) status.get("outcome");
+    assertEquals("success", outcome.get("result"));
+    assertEquals(outcome.get("rows"), status.get("rows_processed"));
+    assertEquals(status.get("bytes_total"), status.get("bytes_processed"));
+    assertTrue(Long.parseLong((String) status.get("bytes_processed")) > 0);
+
+    Map<String, Object> after = request("searchcsv?value=Kent&columnID=Geography");
+    assertEquals(67, ((List<?>) after.get("data")).size());
+  }
+
+  /**
+   * Test method to check that an async load of a missing file fails with the error a synchronous
+   * load would have given.
+   *
+   * @throws IOException If an I/O error occurs.
+   * @throws InterruptedException If the wait is interrupted.
+   */
+  @Test
+  public void testFailureAsyncMissingFile() throws IOException, InterruptedException {
+    Map<String, Object> started =
+        request("loadcsv?filepath=data/census/nothing.csv&headers=true&async=true");
+    Map<String, Object> status = awaitJob(started.get("job_id"));
+    assertEquals("failed", status.get("state"));
+    assertEquals("file not found", ((Map<?, ?>) status.get("outcome")).get("error"));
+  }
+
+  /**
+   * Test method to check that asking for a job that doesn't exist is an error.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testFailureUnknownJob() throws IOException {
+    assertEquals("job not found", request("loadstatus?job=12345").get("error"));
+    assertEquals("bad parameter", request("loadstatus").get("error"));
+  }
+
+  /**
+   * Test method to check that a load that dies with an Error, not an Exception, still leaves its
+   * job failed, with a message that doesn't repeat the error.
+   *
+   * @throws InterruptedException If the wait is interrupted.
+   */
+  @Test
+  public void testFailureAsyncError() throws InterruptedException {
+    LoadJobs jobs = new LoadJobs(1, 1);
+    LoadJob job = jobs.create("data/census/income_by_race.csv", "default");
+    jobs.submit(
+        job,
+        () -> {
+          throw new OutOfMemoryError("Java heap space");
+        });
+    for (int attempt = 0; attempt < 200 && job.getState() != LoadJob.State.FAILED; attempt++) {
+      Thread.sleep(50);
+    }
+    assertEquals(LoadJob.State.FAILED, job.getState());
+    Map<?, ?> outcome = (Map<?, ?>) job.status().get("outcome");
+    assertEquals("error", outcome.get("result"));
+    assertEquals("error while loading", outcome.get("error"));
+  }
+}
@@ -0,0 +1,174 @@
+package TestCSVHandlers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import CSV.AccessCSV;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import okio.Buffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.LoadCSVHandler;
+import server.SearchAnyCSVHandler;
+import server.SearchCSVHandler;
+import spark.Spark;
+
+/**
+ * This class contains unit tests for the SearchAnyCSVHandler class.
+ */
+public class TestSearchAnyHandler {
+  private final JsonAdapter<Map<String, Object>> adapter;
+
+  /**
+   * Constructor to initialize the JSON adapter.
+   */
+  public TestSearchAnyHandler() {
+    Moshi moshi = new Moshi.Builder().build();
+    java.lang.reflect.Type type = Types.newParameterizedType(Map.class, String.class, Object.class);
+    adapter = moshi.adapter(type);
+  }
+
+  /**
+   * Setup method to configure Spark server before all tests.
+   */
+  @BeforeAll
+  public static void setupBeforeAll() {
+    Spark.port(0);
+    Logger.getLogger("").setLevel(Level.WARNING);
+  }
+
+  /**
+   * Setup method to initialize components before each test.
+   */
+  @BeforeEach
+  public void setupBeforeEach() {
+    AccessCSV accessCSV = new AccessCSV();
+    Spark.get("/loadcsv", new LoadCSVHandler(accessCSV));
+    Spark.get("/searchcsv", new SearchCSVHandler(accessCSV));
+    Spark.get("/searchany", new SearchAnyCSVHandler(accessCSV));
+    Spark.init();
+    Spark.awaitInitialization();
+  }
+
+  /**
+   * Teardown method to clean up resources after each test.
+   */
+  @AfterEach
+  public void tearDownAfterEach() {
+    Spark.unmap("loadcsv");
+    Spark.unmap("searchcsv");
+    Spark.unmap("searchany");
+    Spark.awaitStop();
+  }
+
+  /**
+   * Helper method to send an HTTP request to the Spark server.
+   *
+   * @param apiCall The API endpoint to call.
+   * @return The HttpURLConnection object representing the connection.
+   * @throws IOException If an I/O error occurs.
+   */
+  private HttpURLConnection tryRequest(String apiCall) throws IOException {
+    URL requestURL = new URL("http://localhost:" + Spark.port() + "/" + apiCall);
+    HttpURLConnection clientConnection = (HttpURLConnection) requestURL.openConnection();
+    clientConnection.setRequestMethod("GET");
+    clientConnection.connect();
+    return clientConnection;
+  }
+
+  /**
+   * Helper method to send a request and read its JSON response.
+   *
+   * @param apiCall The API endpoint to call.
+   * @return The response as a map.
+   * @throws IOException If an I/O error occurs.
+   */
+  private Map<String, Object> request(String apiCall) throws IOException {
+    return adapter.fromJson(new Buffer().readFrom(tryRequest(apiCall).getInputStream()));
+  }
+
+  /**
+   * Test method to check that searching for several values returns the rows of the separate
+   * searches, once each and in row order, with the values found in each row.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testSuccessMatchesSeparateSearches() throws IOException {
+    request("loadcsv?filepath=data/census/income_by_race.csv&headers=true");
+    Map<String, Object> response =
+        request("searchany?value=Kent&value=Newport&value=Nowhere&columnID=Geography");
+    assertEquals("success", response.get("result"));
+    List<?> rows = (List<?>) response.get("data");
+    List<?> matched = (List<?>) response.get("matched");
+    assertEquals(rows.size(), matched.size());
+
+    List<?> kent = (List<?>) request("searchcsv?value=Kent&columnID=Geography").get("data");
+    List<?> newport = (List<?>) request("searchcsv?value=Newport&columnID=Geography").get("data");
+    assertEquals(kent.size() + newport.size(), rows.size());
+    for (int i = 0; i < rows.size(); i++) {
+      String geography = (String) ((List<?>) rows.get(i)).get(6);
+      String expected = geography.contains("Kent") ? "Kent" : "Newport";
+      assertEquals(List.of(expected), matched.get(i));
+    }
+  }
+
+  /**
+   * Test method to check that a row containing several of the values reports all of them, and
+   * that paging returns the same rows as one request.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testSuccessSeveralMatchesAndPaging() throws IOException {
+    request("loadcsv?filepath=data/census/income_by_race.csv&headers=true");
+    String search = "searchany?value=White&value=Hispanic&columnID=Race";
+    Map<String, Object> whole = request(search);
+    boolean both = false;
+    for (Object patterns : (List<?>) whole.get("matched")) {
+      both |= patterns.equals(List.of("White", "Hispanic"));
+    }
+    assertTrue(both, "White Non-Hispanic contains both values");
+
+    List<Object> rows = new ArrayList<>();
+    String cursor = null;
+    do {
+      Map<String, Object> page =
+          request(search + "&limit=25" + (cursor == null ? "" : "&cursor=" + cursor));
+      rows.addAll((List<?>) page.get("data"));
+      cursor = (String) page.get("next_cursor");
+    } while (cursor != null);
+    assertEquals(whole.get("data"), rows);
+  }
+
+  /**
+   * Test method to check the errors for missing values and an unknown column.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testFailureBadParameters() throws IOException {
+    request("loadcsv?filepath=data/census/income_by_race.csv&headers=true");
+    Map<String, Object> missing = request("searchany?columnID=Race");
+    assertEquals("error", missing.get("result"));
+    assertEquals("missing or invalid search parameters", missing.get("error"));
+
+    Map<String, Object> empty = request("searchany?value=White&value=");
+    assertEquals("missing or invalid search parameters", empty.get("error"));
+
+    Map<String, Object> column = request("searchany?value=White&columnID=Colour");
+    assertEquals("columnID not found", column.get("error"));
+  }
+}
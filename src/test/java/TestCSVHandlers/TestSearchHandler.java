@@ -1,13 +1,15 @@
 package TestCSVHandlers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import CSV.AccessCSV;
 import CSV.CSVParser;
 import CSV.FactoryFailureException;
 import CSV.InconsistentRowException;
+import CSV.SearchCache;
 import CSV.StringListCreateFromRow;
-import com.beust.ah.A;
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
 import com.squareup.moshi.Types;
@@ -15,6 +17,10 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -36,6 +42,7 @@ import spark.Spark;
  */
 public class TestSearchHandler {
   private final JsonAdapter<Map<String, Object>> adapter;
+  private AccessCSV accessCSV;
 
   /**
    * Constructor to initialize the JSON adapter.
@@ -60,10 +67,10 @@ public class TestSearchHandler {
    */
   @BeforeEach
   public void setupBeforeEach() {
-    AccessCSV accessCSV = new AccessCSV();
-    Spark.get("/loadcsv", new LoadCSVHandler(accessCSV));
-    Spark.get("/searchcsv", new SearchCSVHandler(accessCSV));
-    Spark.get("/viewcsv", new ViewCSVHandler(accessCSV));
+    this.accessCSV = new AccessCSV();
+    Spark.get("/loadcsv", new LoadCSVHandler(this.accessCSV));
+    Spark.get("/searchcsv", new SearchCSVHandler(this.accessCSV));
+    Spark.get("/viewcsv", new ViewCSVHandler(this.accessCSV));
     Spark.init();
     Spark.awaitInitialization();
   }
@@ -318,4 +325,421 @@ public class TestSearchHandler {
     assertEquals("missing or invalid search parameters", response.get("error"));
   }
 
+  /**
+   * Test method to check exact-match search, with and without an index built at load time.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testSuccessExactMatch() throws IOException {
+    String load = "loadcsv?filepath=data/census/income_by_race.csv&headers=true";
+    String search = "searchcsv?value=White&columnID=Race";
+    tryRequest(load).getResponseCode();
+    Map<String, Object> contains =
+        adapter.fromJson(new Buffer().readFrom(tryRequest(search).getInputStream()));
+    assertEquals(80, ((List<?>) contains.get("data")).size());
+    Map<String, Object> scanned =
+        adapter.fromJson(
+            new Buffer().readFrom(tryRequest(search + "&match=exact").getInputStream()));
+    assertEquals("success", scanned.get("result"));
+    List<?> rows = (List<?>) scanned.get("data");
+    assertEquals(40, rows.size());
+    for (Object row : rows) {
+      assertEquals("White", ((List<?>) row).get(1));
+    }
+
+    Map<String, Object> loaded =
+        adapter.fromJson(
+            new Buffer().readFrom(tryRequest(load + "&index=exact").getInputStream()));
+    assertEquals("success", loaded.get("result"));
+    assertTrue(Long.parseLong((String) loaded.get("index_memory_bytes")) > 0);
+    assertTrue(loaded.containsKey("index_build_ms"));
+    Map<String, Object> indexed =
+        adapter.fromJson(
+            new Buffer().readFrom(tryRequest(search + "&match=exact").getInputStream()));
+    assertEquals(scanned, indexed);
+  }
+
+  /**
+   * Test method to check that a trigram index gives the same results as a scan, for words long
+   * enough to use it and for words that fall back to scanning.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testTrigramIndexMatchesScan() throws IOException {
+    String load = "loadcsv?filepath=data/census/income_by_race.csv&headers=true";
+    String[] searches = {
+      "searchcsv?value=White&columnID=Race",
+      "searchcsv?value=Hisp&columnID=1",
+      "searchcsv?value=20&columnID=Year",
+      "searchcsv?value=nowhere&columnID=Geography"
+    };
+    Map<String, Map<String, Object>> scanned = new HashMap<>();
+    tryRequest(load).getResponseCode();
+    for (String search : searches) {
+      scanned.put(
+          search, adapter.fromJson(new Buffer().readFrom(tryRequest(search).getInputStream())));
+    }
+    tryRequest(load + "&index=trigram").getResponseCode();
+    for (String search : searches) {
+      Map<String, Object> indexed =
+          adapter.fromJson(new Buffer().readFrom(tryRequest(search).getInputStream()));
+      assertEquals(scanned.get(search), indexed, search);
+    }
+  }
+
+  /**
+   * Test method to check that a search split across threads returns the same rows, in the same
+   * order, as a search on one thread, for a file large enough to be split.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testParallelSearchMatchesSequential() throws IOException {
+    Path file = Files.createTempFile("parallel", ".csv");
+    try {
+      StringBuilder text = new StringBuilder("id,group\n");
+      for (int row = 0; row < 200_000; row++) {
+        text.append(row).append(",g").append(row % 97).append('\n');
+      }
+      Files.writeString(file, text);
+      String load = "loadcsv?filepath=" + file + "&headers=true";
+      String[] searches = {
+        "searchcsv?value=123&columnID=id",
+        "searchcsv?value=g42&columnID=group&match=exact",
+        "searchcsv?value=77&columnID=1"
+      };
+      for (String search : searches) {
+        // load again before each search so neither is answered from the result cache
+        tryRequest(load).getResponseCode();
+        Map<String, Object> sequential =
+            adapter.fromJson(
+                new Buffer().readFrom(tryRequest(search + "&parallel=false").getInputStream()));
+        tryRequest(load).getResponseCode();
+        Map<String, Object> parallel =
+            adapter.fromJson(new Buffer().readFrom(tryRequest(search).getInputStream()));
+        assertEquals("success", parallel.get("result"), search);
+        assertEquals(sequential, parallel, search);
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * Test method to check a query over several columns, with and without indexes, and the error for
+   * a query that can't be parsed.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testSuccessQuery() throws IOException {
+    String load = "loadcsv?filepath=data/census/income_by_race.csv&headers=true";
+    String search =
+        "searchcsv?query="
+            + URLEncoder.encode(
+                "Year=2020 AND NOT Race contains Total"
+                    + " AND (Geography contains Kent OR Geography contains Newport)",
+                StandardCharsets.UTF_8);
+    tryRequest(load).getResponseCode();
+    Map<String, Object> scanned =
+        adapter.fromJson(new Buffer().readFrom(tryRequest(search).getInputStream()));
+    assertEquals("success", scanned.get("result"));
+    List<?> rows = (List<?>) scanned.get("data");
+    assertEquals(14, rows.size());
+    for (Object row : rows) {
+      List<?> values = (List<?>) row;
+      assertEquals("2020", values.get(3));
+      assertTrue(!((String) values.get(1)).contains("Total"));
+      String geography = (String) values.get(6);
+      assertTrue(geography.contains("Kent") || geography.contains("Newport"));
+    }
+
+    tryRequest(load + "&index=trigram").getResponseCode();
+    Map<String, Object> indexed =
+        adapter.fromJson(new Buffer().readFrom(tryRequest(search).getInputStream()));
+    assertEquals(scanned, indexed);
+
+    Map<String, Object> invalid =
+        adapter.fromJson(
+            new Buffer().readFrom(tryRequest("searchcsv?query=Year%3D").getInputStream()));
+    assertEquals("error", invalid.get("result"));
+    assertTrue(((String) invalid.get("error")).startsWith("invalid query"));
+  }
+
+  /**
+   * Test method to check that numeric comparisons in a query return the rows in range, and the
+   * same rows whether or not the numeric columns are indexed.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testSuccessRangeQuery() throws IOException {
+    String load = "loadcsv?filepath=data/census/income_by_race.csv&headers=true";
+    String search =
+        "searchcsv?query="
+            + URLEncoder.encode(
+                "Year>=2019 AND \"Household Income by Race\" between 40000 and 60000",
+                StandardCharsets.UTF_8);
+    tryRequest(load).getResponseCode();
+    Map<String, Object> scanned =
+        adapter.fromJson(new Buffer().readFrom(tryRequest(search).getInputStream()));
+    assertEquals("success", scanned.get("result"));
+    List<?> rows = (List<?>) scanned.get("data");
+    assertTrue(!rows.isEmpty());
+    for (Object row : rows) {
+      List<?> values = (List<?>) row;
+      assertTrue(Integer.parseInt((String) values.get(3)) >= 2019);
+      double income = Double.parseDouble((String) values.get(4));
+      assertTrue(income >= 40000 && income <= 60000);
+    }
+
+    Map<String, Object> loaded =
+        adapter.fromJson(
+            new Buffer().readFrom(tryRequest(load + "&index=numeric").getInputStream()));
+    String numericColumns = (String) loaded.get("numeric_columns");
+    assertTrue(numericColumns.contains("Year"));
+    assertTrue(!numericColumns.contains("Geography"));
+    Map<String, Object> indexed =
+        adapter.fromJson(new Buffer().readFrom(tryRequest(search).getInputStream()));
+    assertEquals(scanned, indexed);
+
+    Map<String, Object> invalid =
+        adapter.fromJson(
+            new Buffer().readFrom(tryRequest("searchcsv?query=Year%3Eabc").getInputStream()));
+    assertEquals("error", invalid.get("result"));
+    assertTrue(((String) invalid.get("error")).startsWith("invalid query"));
+  }
+
+  /**
+   * Test method to check that a fuzzy search finds the rows of a misspelled value, the same with
+   * and without BK-trees, and rejects distances out of range.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testSuccessFuzzySearch() throws IOException {
+    String load = "loadcsv?filepath=data/census/income_by_race.csv&headers=true";
+    String search = "searchcsv?value=Hispnic&columnID=Race&match=fuzzy";
+    tryRequest(load).getResponseCode();
+    Map<String, Object> exact =
+        adapter.fromJson(
+            new Buffer()
+                .readFrom(
+                    tryRequest("searchcsv?value=Hispanic&columnID=Race&match=exact")
+                        .getInputStream()));
+    Map<String, Object> scanned =
+        adapter.fromJson(new Buffer().readFrom(tryRequest(search).getInputStream()));
+    assertEquals("success", scanned.get("result"));
+    assertEquals(40, ((List<?>) scanned.get("data")).size());
+    assertEquals(exact.get("data"), scanned.get("data"));
+
+    tryRequest(load + "&index=fuzzy").getResponseCode();
+    Map<String, Object> indexed =
+        adapter.fromJson(new Buffer().readFrom(tryRequest(search).getInputStream()));
+    assertEquals(scanned, indexed);
+
+    Map<String, Object> none =
+        adapter.fromJson(
+            new Buffer().readFrom(tryRequest(search + "&distance=0").getInputStream()));
+    assertEquals(0, ((List<?>) none.get("data")).size());
+
+    Map<String, Object> tooFar =
+        adapter.fromJson(
+            new Buffer().readFrom(tryRequest(search + "&distance=9").getInputStream()));
+    assertEquals("error", tooFar.get("result"));
+    assertEquals("missing or invalid search parameters", tooFar.get("error"));
+
+    // a distance in a query has the same cap, however large it is written
+    for (String distance : new String[] {"4", "999999", "2147483647", "99999999999"}) {
+      Map<String, Object> tooFarQuery =
+          adapter.fromJson(
+              new Buffer()
+                  .readFrom(
+                      tryRequest("searchcsv?query=Race%20~" + distance + "%20Hispnic")
+                          .getInputStream()));
+      assertEquals("error", tooFarQuery.get("result"));
+      assertTrue(((String) tooFarQuery.get("error")).startsWith("invalid query"));
+    }
+  }
+
+  /**
+   * Test method to check that a fuzzy search by columnID searches the column at that index, even
+   * when another column's header is that number.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testFuzzySearchNumericHeader() throws IOException {
+    Path file = Files.createTempFile("numeric-header", ".csv");
+    try {
+      Files.writeString(file, "2,name,fruit\nkiwi,Ann,pear\npear,Bo,kiwi\n");
+      tryRequest("loadcsv?filepath=" + file + "&headers=true").getResponseCode();
+      Map<String, Object> response =
+          adapter.fromJson(
+              new Buffer()
+                  .readFrom(
+                      tryRequest("searchcsv?value=kiwa&columnID=2&match=fuzzy").getInputStream()));
+      assertEquals(List.of(List.of("pear", "Bo", "kiwi")), response.get("data"));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * Test method to check that paging through a search with limit and cursor returns every row of
+   * the unpaged search once, in order, and that a reload makes old cursors invalid.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testPagedSearch() throws IOException {
+    String load = "loadcsv?filepath=data/census/income_by_race.csv&headers=true";
+    String search = "searchcsv?value=White&columnID=Race";
+    tryRequest(load).getResponseCode();
+    List<Object> rows = new ArrayList<>();
+    String cursor = null;
+    int pages = 0;
+    do {
+      String page = search + "&limit=30" + (cursor == null ? "" : "&cursor=" + cursor);
+      Map<String, Object> response =
+          adapter.fromJson(new Buffer().readFrom(tryRequest(page).getInputStream()));
+      assertEquals("success", response.get("result"));
+      assertTrue(((List<?>) response.get("data")).size() <= 30);
+      rows.addAll((List<?>) response.get("data"));
+      cursor = (String) response.get("next_cursor");
+      pages++;
+    } while (cursor != null);
+    assertEquals(3, pages);
+    // searched after paging, so the pages above were not served from its cached result
+    Map<String, Object> unpaged =
+        adapter.fromJson(new Buffer().readFrom(tryRequest(search).getInputStream()));
+    assertEquals(unpaged.get("data"), rows);
+
+    Map<String, Object> first =
+        adapter.fromJson(
+            new Buffer().readFrom(tryRequest(search + "&limit=30").getInputStream()));
+    String stale = (String) first.get("next_cursor");
+    tryRequest(load).getResponseCode();
+    Map<String, Object> expired =
+        adapter.fromJson(
+            new Buffer()
+                .readFrom(tryRequest(search + "&limit=30&cursor=" + stale).getInputStream()));
+    assertEquals("error", expired.get("result"));
+    assertEquals("invalid or expired cursor", expired.get("error"));
+  }
+
+  /**
+   * Test method to check that a repeated search is answered from the result cache, that a search by
+   * header name and by index share an entry, and that loading a file empties the cache.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testSearchCache() throws IOException {
+    String load = "loadcsv?filepath=data/census/income_by_race.csv&headers=true";
+    tryRequest(load).getResponseCode();
+    SearchCache cache = this.accessCSV.getSearchCache();
+    long hits = cache.stats().hitCount();
+    long misses = cache.stats().missCount();
+
+    String byName = "searchcsv?value=Asian&columnID=Race";
+    String byIndex = "searchcsv?value=Asian&columnID=1";
+    Map<String, Object> first =
+        adapter.fromJson(new Buffer().readFrom(tryRequest(byName).getInputStream()));
+    Map<String, Object> second =
+        adapter.fromJson(new Buffer().readFrom(tryRequest(byIndex).getInputStream()));
+    assertEquals(first, second);
+    assertEquals(misses + 1, cache.stats().missCount());
+    assertEquals(hits + 1, cache.stats().hitCount());
+
+    tryRequest(load).getResponseCode();
+    Map<String, Object> reloaded =
+        adapter.fromJson(new Buffer().readFrom(tryRequest(byIndex).getInputStream()));
+    assertEquals(first, reloaded);
+    assertEquals(misses + 2, cache.stats().missCount());
+  }
+
+  /**
+   * Test method to check that a header named like a column index doesn't make a search by that
+   * index and a query by that header share a cache entry, in either order.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testSearchCacheNumericHeader() throws IOException {
+    Path file = Files.createTempFile("numeric-header", ".csv");
+    try {
+      // the header of column 0 is "1", so "1" names column 0 in a query and column 1 as a columnID
+      Files.writeString(file, "1,fruit\napple,kiwi\nkiwi,apple\n");
+      String load = "loadcsv?filepath=" + file + "&headers=true";
+      String byIndex = "searchcsv?value=apple&columnID=1";
+      String byHeader = "searchcsv?query=" + URLEncoder.encode("1 contains apple", "UTF-8");
+      for (String[] order : new String[][] {{byIndex, byHeader}, {byHeader, byIndex}}) {
+        tryRequest(load).getResponseCode();
+        Map<String, Object> first =
+            adapter.fromJson(new Buffer().readFrom(tryRequest(order[0]).getInputStream()));
+        Map<String, Object> second =
+            adapter.fromJson(new Buffer().readFrom(tryRequest(order[1]).getInputStream()));
+        Map<String, Object> column1 = order[0] == byIndex ? first : second;
+        Map<String, Object> column0 = order[0] == byIndex ? second : first;
+        assertEquals(List.of(List.of("kiwi", "apple")), column1.get("data"));
+        assertEquals(List.of(List.of("apple", "kiwi")), column0.get("data"));
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * Test method to check that a repeated search is sent from the response cache with the same
+   * ETag, whatever order its parameters are given in, and that a client with that ETag gets a 304.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testResponseCache() throws IOException {
+    tryRequest("loadcsv?filepath=data/census/income_by_race.csv&headers=true").getResponseCode();
+    long hits = this.accessCSV.getResponseCache().stats().hitCount();
+
+    HttpURLConnection first = tryRequest("searchcsv?value=Kent&columnID=Geography");
+    String etag = first.getHeaderField("ETag");
+    String body = new Buffer().readFrom(first.getInputStream()).readUtf8();
+    HttpURLConnection reordered = tryRequest("searchcsv?columnID=Geography&value=Kent");
+    assertEquals(etag, reordered.getHeaderField("ETag"));
+    assertEquals(body, new Buffer().readFrom(reordered.getInputStream()).readUtf8());
+    assertEquals(hits + 1, this.accessCSV.getResponseCache().stats().hitCount());
+
+    URL requestURL =
+        new URL("http://localhost:" + Spark.port() + "/searchcsv?value=Kent&columnID=Geography");
+    HttpURLConnection conditional = (HttpURLConnection) requestURL.openConnection();
+    conditional.setRequestProperty("If-None-Match", "W/" + etag);
+    assertEquals(304, conditional.getResponseCode());
+
+    HttpURLConnection other = tryRequest("searchcsv?value=Kent&columnID=Geography&match=exact");
+    assertTrue(!etag.equals(other.getHeaderField("ETag")));
+  }
+
+  /**
+   * Test method to check that a search that fails is sent without an ETag, so no client can be
+   * answered 304 for an error.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testErrorNotTagged() throws IOException {
+    tryRequest("loadcsv?filepath=data/census/income_by_race.csv&headers=true").getResponseCode();
+    HttpURLConnection missingColumn = tryRequest("searchcsv?value=Kent&columnID=Nowhere");
+    assertNull(missingColumn.getHeaderField("ETag"));
+    Map<String, Object> response =
+        adapter.fromJson(new Buffer().readFrom(missingColumn.getInputStream()));
+    assertEquals("error", response.get("result"));
+
+    HttpURLConnection badCursor =
+        tryRequest("searchcsv?value=Kent&columnID=Geography&limit=1&cursor=garbage");
+    assertNull(badCursor.getHeaderField("ETag"));
+    response = adapter.fromJson(new Buffer().readFrom(badCursor.getInputStream()));
+    assertEquals("invalid or expired cursor", response.get("error"));
+  }
 }
@@ -1,6 +1,7 @@
 package TestCSVHandlers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 import CSV.AccessCSV;
 import com.squareup.moshi.JsonAdapter;
@@ -9,6 +10,8 @@ import com.squareup.moshi.Types;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -106,6 +109,39 @@ public class TestViewHandler {
     assertEquals("success", response.get("result"));
   }
 
+  /**
+   * Test method to check that a view carries an ETag, that sending it back in If-None-Match gets a
+   * 304 with no body, and that reloading the file changes the ETag.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testNotModified() throws IOException {
+    String load = "loadcsv?filepath=data/census/income_by_race.csv&headers=true";
+    tryRequest(load).getResponseCode();
+    HttpURLConnection first = tryRequest("viewcsv");
+    assertEquals(200, first.getResponseCode());
+    String etag = first.getHeaderField("ETag");
+    String body = new Buffer().readFrom(first.getInputStream()).readUtf8();
+
+    URL requestURL = new URL("http://localhost:" + Spark.port() + "/viewcsv");
+    HttpURLConnection conditional = (HttpURLConnection) requestURL.openConnection();
+    conditional.setRequestProperty("If-None-Match", etag);
+    assertEquals(304, conditional.getResponseCode());
+    assertEquals(etag, conditional.getHeaderField("ETag"));
+
+    // a repeated view is sent from the response cache, byte for byte
+    HttpURLConnection repeated = tryRequest("viewcsv");
+    assertEquals(etag, repeated.getHeaderField("ETag"));
+    assertEquals(body, new Buffer().readFrom(repeated.getInputStream()).readUtf8());
+
+    tryRequest(load).getResponseCode();
+    HttpURLConnection reloaded = (HttpURLConnection) requestURL.openConnection();
+    reloaded.setRequestProperty("If-None-Match", etag);
+    assertEquals(200, reloaded.getResponseCode());
+    assertNotEquals(etag, reloaded.getHeaderField("ETag"));
+  }
+
   /**
    * Test method to check successful view of CSV data with specific content.
    *
@@ -121,7 +157,8 @@ public class TestViewHandler {
     Map<String, Object> response =
         adapter.fromJson(new Buffer().readFrom(viewConnection.getInputStream()));
 
-    List<List<String>> responseData = this.moshi.adapter(List.class).fromJson((String) response.get("data"));
+    // data is streamed as a JSON array, not as a string of JSON
+    List<?> responseData = (List<?>) response.get("data");
 
     List<List<String>> expectedData = new ArrayList<>();
     expectedData.add(List.of("hello"));
@@ -130,6 +167,118 @@ public class TestViewHandler {
     assertEquals("success", response.get("result"));
   }
 
+  /**
+   * Test method to check that the default tokenizer and the legacy regex engine produce the same
+   * data for the files in data/.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testEnginesMatch() throws IOException {
+    String[] files = {
+      "data/census/income_by_race.csv",
+      "data/census/dol_ri_earnings_disparity.csv",
+      "data/census/postsecondary_education.csv",
+      "data/stars/ten-star.csv",
+      "data/edge/simple.csv",
+      "data/edge/empty.csv",
+      "data/malformed/malformed_signs.csv"
+    };
+    for (String file : files) {
+      String load = "loadcsv?filepath=" + file + "&headers=true&snapshot=false";
+      Map<String, Object> tokenizedLoad =
+          adapter.fromJson(new Buffer().readFrom(tryRequest(load).getInputStream()));
+      Map<String, Object> tokenized =
+          adapter.fromJson(new Buffer().readFrom(tryRequest("viewcsv").getInputStream()));
+
+      Map<String, Object> legacyLoad =
+          adapter.fromJson(
+              new Buffer().readFrom(tryRequest(load + "&engine=regex").getInputStream()));
+      Map<String, Object> legacy =
+          adapter.fromJson(new Buffer().readFrom(tryRequest("viewcsv").getInputStream()));
+
+      assertEquals(legacyLoad, tokenizedLoad, file);
+      assertEquals(legacy, tokenized, file);
+    }
+  }
+
+  /**
+   * Test method to check the one documented difference between the engines: the tokenizer keeps
+   * empty fields at the end of a row, which the regex split drops.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testEnginesTrailingEmptyFields() throws IOException {
+    Path file = Files.createTempFile("trailing", ".csv");
+    try {
+      Files.writeString(file, "Libra,,\r\nVirgo,,\r\n");
+      String load = "loadcsv?filepath=" + file + "&headers=false&snapshot=false";
+      tryRequest(load).getResponseCode();
+      Map<String, Object> tokenized =
+          adapter.fromJson(new Buffer().readFrom(tryRequest("viewcsv").getInputStream()));
+      assertEquals(
+          List.of(List.of("Libra", "", ""), List.of("Virgo", "", "")), tokenized.get("data"));
+
+      tryRequest(load + "&engine=regex").getResponseCode();
+      Map<String, Object> legacy =
+          adapter.fromJson(new Buffer().readFrom(tryRequest("viewcsv").getInputStream()));
+      assertEquals(List.of(List.of("Libra"), List.of("Virgo")), legacy.get("data"));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * Test method to check that a parallel, memory-mapped load produces the same data as the default
+   * sequential load.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testParallelLoadMatches() throws IOException {
+    String[] files = {
+      "data/census/income_by_race.csv",
+      "data/census/dol_ri_earnings_disparity.csv",
+      "data/stars/ten-star.csv",
+      "data/edge/simple.csv"
+    };
+    for (String file : files) {
+      tryRequest("loadcsv?filepath=" + file + "&headers=true").getResponseCode();
+      Map<String, Object> sequential =
+          adapter.fromJson(new Buffer().readFrom(tryRequest("viewcsv").getInputStream()));
+
+      tryRequest("loadcsv?filepath=" + file + "&headers=true&parallel=true").getResponseCode();
+      Map<String, Object> parallel =
+          adapter.fromJson(new Buffer().readFrom(tryRequest("viewcsv").getInputStream()));
+
+      assertEquals(sequential, parallel, file);
+    }
+  }
+
+  /**
+   * Test method to check that a load through the Reader fallback for a non-UTF-8 charset produces
+   * the same data as the default byte-level load of an ASCII file.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Test
+  public void testCharsetFallbackMatches() throws IOException {
+    String[] files = {"data/census/income_by_race.csv", "data/stars/ten-star.csv"};
+    for (String file : files) {
+      tryRequest("loadcsv?filepath=" + file + "&headers=true").getResponseCode();
+      Map<String, Object> bytes =
+          adapter.fromJson(new Buffer().readFrom(tryRequest("viewcsv").getInputStream()));
+
+      tryRequest("loadcsv?filepath=" + file + "&headers=true&charset=ISO-8859-1")
+          .getResponseCode();
+      Map<String, Object> decoded =
+          adapter.fromJson(new Buffer().readFrom(tryRequest("viewcsv").getInputStream()));
+
+      assertEquals(bytes, decoded, file);
+    }
+  }
+
   /**
    * Test method to check failure in case of bad file path.
    *